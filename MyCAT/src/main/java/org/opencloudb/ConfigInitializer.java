@@ -30,6 +30,7 @@ import java.util.Set;
 import org.opencloudb.backend.PhysicalDBNode;
 import org.opencloudb.backend.PhysicalDBPool;
 import org.opencloudb.backend.PhysicalDatasource;
+import org.opencloudb.backend.balance.ReadBalancerFactory;
 import org.opencloudb.config.loader.ConfigLoader;
 import org.opencloudb.config.loader.SchemaLoader;
 import org.opencloudb.config.loader.xml.XMLConfigLoader;
@@ -184,6 +185,9 @@ public class ConfigInitializer {
 		}
 		PhysicalDBPool pool = new PhysicalDBPool(conf.getName(), writeSources,
 				readSourcesMap, conf.getBalance(), conf.getWriteType());
+		pool.setSlaveThreshold(conf.getSlaveThreshold());
+		pool.setReadBalancer(ReadBalancerFactory.create(
+				conf.getReadBalancer(), conf.getSlaveThreshold()));
 		return pool;
 	}
 
@@ -40,6 +40,8 @@ import org.opencloudb.cache.CacheService;
 import org.opencloudb.config.model.SystemConfig;
 import org.opencloudb.interceptor.SQLInterceptor;
 import org.opencloudb.manager.ManagerConnectionFactory;
+import org.opencloudb.mpp.MergeMemoryManager;
+import org.opencloudb.mysql.nio.handler.FetchStoreNodeOfChildTableHandler;
 import org.opencloudb.net.NIOAcceptor;
 import org.opencloudb.net.NIOConnector;
 import org.opencloudb.net.NIOProcessor;
@@ -67,6 +69,7 @@ public class MycatServer {
 	private int channelIndex = 0;
 	private final MyCATSequnceProcessor sequnceProcessor = new MyCATSequnceProcessor();
 	private final SQLInterceptor sqlInterceptor;
+	private final MergeMemoryManager mergeMemoryManager;
 
 	public static final MycatServer getInstance() {
 		return INSTANCE;
@@ -118,7 +121,11 @@ public class MycatServer {
 		this.sqlRecorder = new SQLRecorder(system.getSqlRecordCount());
 		this.isOnline = new AtomicBoolean(true);
 		cacheService = new CacheService();
-		routerService = new RouteService(cacheService);
+		routerService = new RouteService(cacheService,
+				system.getRouteShapeCacheSize());
+		mergeMemoryManager = new MergeMemoryManager(
+				system.getMergeSessionMemory(), system.getMergeTotalMemory(),
+				getMergeTempDir(system));
 		// load datanode active index from properties
 		dnIndexProperties = loadDnIndexProps();
 		try {
@@ -130,6 +137,21 @@ public class MycatServer {
 		this.startupTime = TimeUtil.currentTimeMillis();
 	}
 
+	private static File getMergeTempDir(SystemConfig system) {
+		if (system.getMergeTempDir() != null) {
+			return new File(system.getMergeTempDir());
+		}
+		String home = SystemConfig.getHomePath();
+		if (home != null) {
+			return new File(home, "temp");
+		}
+		return new File(System.getProperty("java.io.tmpdir"));
+	}
+
+	public MergeMemoryManager getMergeMemoryManager() {
+		return mergeMemoryManager;
+	}
+
 	public MyCATSequnceProcessor getSequnceProcessor() {
 		return sequnceProcessor;
 	}
@@ -185,6 +207,7 @@ public class MycatServer {
 				/ system.getProcessorBufferChunk();
 		LOGGER.info(inf);
 		LOGGER.info("sysconfig params:" + system.toString());
+		mergeMemoryManager.cleanSpillFiles();
 		timer.schedule(updateTime(), 0L, TIME_UPDATE_PERIOD);
 
 		timer.schedule(processorCheck(), 0L, system.getProcessorCheckPeriod());
@@ -379,6 +402,12 @@ public class MycatServer {
 						}
 					}
 				});
+				timerExecutor.execute(new Runnable() {
+					@Override
+					public void run() {
+						FetchStoreNodeOfChildTableHandler.checkTimeout();
+					}
+				});
 			}
 		};
 	}
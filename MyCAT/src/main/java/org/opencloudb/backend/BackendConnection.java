@@ -58,12 +58,20 @@ public interface BackendConnection extends ClosableConnection {
 
 	public void setBorrowed(boolean borrowed);
 
+	/**
+	 * atomically set borrowed flag to update if it is expect now
+	 */
+	public boolean compareAndSetBorrowed(boolean expect, boolean update);
+
 	public int getTxIsolation();
 
 	public boolean isAutocommit();
 
 	public long getId();
-	
-	public boolean isFake();
+
+	// stop reading results while the frontend can't keep up
+	public void suspendRead();
+
+	public void resumeRead();
 
 }
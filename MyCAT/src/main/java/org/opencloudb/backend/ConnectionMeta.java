@@ -67,20 +67,66 @@ public class ConnectionMeta {
 	 * @return
 	 */
 	public int getMetaSimilarity(BackendConnection theCon) {
+		return getMetaSimilarity(theCon.getSchema(), theCon.getCharset(),
+				theCon.getTxIsolation(), theCon.isAutocommit());
+	}
+
+	/**
+	 * similarity to the state of idle connections
+	 */
+	public int getMetaSimilarity(ConnectionMeta theMeta) {
+		return getMetaSimilarity(theMeta.schema, theMeta.charset,
+				theMeta.txIsolation, theMeta.autocommit);
+	}
+
+	private int getMetaSimilarity(String theSchema, String theCharset,
+			int theTxIsolation, boolean theAutocommit) {
 		int result = 0;
-		if (schema == null || schema.equals(theCon.getSchema())) {
+		if (schema == null || schema.equals(theSchema)) {
 			result++;
 		}
-		if (charset == null || charset.equals(theCon.getCharset())) {
+		if (charset == null || charset.equals(theCharset)) {
 			result++;
 		}
-		if (txIsolation == -1 || txIsolation == theCon.getTxIsolation()) {
+		if (txIsolation == -1 || txIsolation == theTxIsolation) {
 			result++;
 		}
-		if (autocommit == theCon.isAutocommit()) {
+		if (autocommit == theAutocommit) {
 			result++;
 		}
 		return result;
 	}
 
+	@Override
+	public int hashCode() {
+		int result = (schema == null) ? 0 : schema.hashCode();
+		result = 31 * result + ((charset == null) ? 0 : charset.hashCode());
+		result = 31 * result + txIsolation;
+		return 31 * result + (autocommit ? 1 : 0);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ConnectionMeta)) {
+			return false;
+		}
+		ConnectionMeta other = (ConnectionMeta) obj;
+		return txIsolation == other.txIsolation
+				&& autocommit == other.autocommit
+				&& (schema == null ? other.schema == null : schema
+						.equals(other.schema))
+				&& (charset == null ? other.charset == null : charset
+						.equals(other.charset));
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionMeta [schema=" + schema + ", charset=" + charset
+				+ ", txIsolation=" + txIsolation + ", autocommit="
+				+ autocommit + "]";
+	}
+
 }
\ No newline at end of file
@@ -34,6 +34,8 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
 import org.opencloudb.MycatServer;
+import org.opencloudb.backend.balance.RandomReadBalancer;
+import org.opencloudb.backend.balance.ReadBalancer;
 import org.opencloudb.config.Alarms;
 import org.opencloudb.heartbeat.DBHeartbeat;
 import org.opencloudb.mysql.nio.handler.GetConnectionHandler;
@@ -57,8 +59,9 @@ public class PhysicalDBPool {
 	private final Collection<PhysicalDatasource> allDs;
 	private final int banlance;
 	private final int writeType;
-	private final Random random = new Random();
 	private final Random wnrandom = new Random();
+	private volatile int slaveThreshold = -1;
+	private volatile ReadBalancer readBalancer = new RandomReadBalancer(false);
 
 	public PhysicalDBPool(String name, PhysicalDatasource[] writeSources,
 			Map<Integer, PhysicalDatasource[]> readSources, int balance,
@@ -86,6 +89,26 @@ public class PhysicalDBPool {
 		return writeType;
 	}
 
+	public int getSlaveThreshold() {
+		return slaveThreshold;
+	}
+
+	/**
+	 * max seconds a read source may lag behind master, -1 disables lag aware
+	 * read routing
+	 */
+	public void setSlaveThreshold(int slaveThreshold) {
+		this.slaveThreshold = slaveThreshold;
+	}
+
+	public ReadBalancer getReadBalancer() {
+		return readBalancer;
+	}
+
+	public void setReadBalancer(ReadBalancer readBalancer) {
+		this.readBalancer = readBalancer;
+	}
+
 	private void setDataSourceProps() {
 		for (PhysicalDatasource ds : this.allDs) {
 			ds.setDbPool(this);
@@ -397,12 +420,12 @@ public class PhysicalDBPool {
 		switch (banlance) {
 		case BALANCE_ALL_BACK: {// all read nodes and the standard by masters
 			okSources = getAllActiveRWSources(false);
-			theNode = randomSelect(okSources);
+			theNode = readSelect(okSources);
 			break;
 		}
 		case BALANCE_ALL: {
 			okSources = getAllActiveRWSources(true);
-			theNode = randomSelect(okSources);
+			theNode = readSelect(okSources);
 			break;
 		}
 		case BALANCE_NONE:
@@ -417,15 +440,33 @@ public class PhysicalDBPool {
 		theNode.getConnection(conMeta, handler, attachment);
 	}
 
-	private PhysicalDatasource randomSelect(
+	/**
+	 * drop sources lagging more than slaveThreshold or with broken
+	 * replication ,then pick one by read balancer. reads go to the write
+	 * source when no source is left
+	 */
+	private PhysicalDatasource readSelect(
 			ArrayList<PhysicalDatasource> okSources) {
+		int threshold = slaveThreshold;
+		if (threshold >= 0) {
+			Iterator<PhysicalDatasource> itor = okSources.iterator();
+			while (itor.hasNext()) {
+				int lag = itor.next().getHeartbeat().getSlaveBehindMaster();
+				if (lag == DBHeartbeat.SLAVE_LAG_BROKEN || lag > threshold) {
+					itor.remove();
+				}
+			}
+		}
 		if (okSources.isEmpty()) {
+			if (threshold >= 0 && LOGGER.isDebugEnabled()) {
+				LOGGER.debug("no read source within slaveThreshold "
+						+ threshold + " for dataHost:" + hostName);
+			}
 			return this.getSource();
-		} else {
-			int index = Math.abs(random.nextInt()) % okSources.size();
-			return okSources.get(index);
 		}
-
+		PhysicalDatasource theNode = readBalancer.select(okSources);
+		theNode.recordReadSelect();
+		return theNode;
 	}
 
 	private boolean isAlive(PhysicalDatasource theSource) {
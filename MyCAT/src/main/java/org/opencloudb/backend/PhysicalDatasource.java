@@ -24,10 +24,16 @@
 package org.opencloudb.backend;
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.LinkedList;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.apache.log4j.Logger;
 import org.opencloudb.config.Alarms;
@@ -38,19 +44,43 @@ import org.opencloudb.mysql.nio.handler.ConnectionHeartBeatHandler;
 import org.opencloudb.mysql.nio.handler.DelegateResponseHandler;
 import org.opencloudb.mysql.nio.handler.ResponseHandler;
 import org.opencloudb.mysql.nio.handler.SimpleLogHandler;
-import org.opencloudb.route.RouteResultsetNode;
-import org.opencloudb.server.ServerConnection;
+import org.opencloudb.statistic.LatencyHistogram;
 import org.opencloudb.util.TimeUtil;
 
+/**
+ * idle connections are kept in lock free stacks by their state
+ * (schema,charset,isolation,autocommit) ,a connection of the same state is
+ * taken in O(1) ,if none the most similar state is used. the one who
+ * removes a connection from the stack owns it
+ */
 public abstract class PhysicalDatasource {
 	private static final Logger LOGGER = Logger
 			.getLogger(PhysicalDatasource.class);
+	// kinds of session state sync of borrowed connections
+	public static final int SYNC_SCHEMA = 0;
+	public static final int SYNC_CHARSET = 1;
+	public static final int SYNC_ISOLATION = 2;
+	public static final int SYNC_AUTOCOMMIT = 3;
+	// weight of new sample in latency ewma is 1/(2^EWMA_SHIFT)
+	private static final int EWMA_SHIFT = 3;
 
 	private final String name;
-	private final ReentrantLock lock = new ReentrantLock();
 	private final int size;
 	private final DBHostConfig config;
-	private final BackendConnection[] items;
+	// state of idle connections -> idle connections ,last returned first
+	private final ConcurrentHashMap<ConnectionMeta, Deque<BackendConnection>> idleCons = new ConcurrentHashMap<ConnectionMeta, Deque<BackendConnection>>();
+	// connection -> nano time it was borrowed ,0 if not borrowed by takeCon
+	private final ConcurrentHashMap<BackendConnection, AtomicLong> allCons = new ConcurrentHashMap<BackendConnection, AtomicLong>();
+	// connections in allCons and connections being created
+	private final AtomicInteger totalCount = new AtomicInteger();
+	private final AtomicInteger creatingCount = new AtomicInteger();
+	private final AtomicInteger idleCount = new AtomicInteger();
+	private final LatencyHistogram acquireTime = new LatencyHistogram();
+	private final AtomicLongArray syncCounts = new AtomicLongArray(4);
+	private final AtomicLong readSelectCount = new AtomicLong();
+	// ewma of borrowed time in micros ,lossy under concurrent release
+	private volatile long latencyEwma;
+	private volatile long latencyUpdateTime;
 	private DBHeartbeat heartbeat;
 	private final boolean readNode;
 	private volatile long heartbeatRecoveryTime;
@@ -58,12 +88,11 @@ public abstract class PhysicalDatasource {
 	private final ConnectionHeartBeatHandler conHeartBeatHanler = new ConnectionHeartBeatHandler();
 	private PhysicalDBPool dbPool;
 
-	private long executeCount;
+	private final AtomicLong executeCount = new AtomicLong();
 
 	public PhysicalDatasource(DBHostConfig config, DataHostConfig hostConfig,
 			boolean isReadNode) {
 		this.size = config.getMaxCon();
-		this.items = new BackendConnection[size];
 		this.config = config;
 		this.name = config.getHostName();
 		this.hostConfig = hostConfig;
@@ -72,20 +101,7 @@ public abstract class PhysicalDatasource {
 	}
 
 	public boolean isMyConnection(BackendConnection con) {
-		BackendConnection[] theItems = null;
-		final ReentrantLock lock = this.lock;
-		lock.lock();
-		try {
-			theItems = this.items;
-		} finally {
-			lock.unlock();
-		}
-		for (BackendConnection myCon : theItems) {
-			if (myCon == con) {
-				return true;
-			}
-		}
-		return false;
+		return allCons.containsKey(con);
 	}
 
 	public DataHostConfig getHostConfig() {
@@ -115,17 +131,12 @@ public abstract class PhysicalDatasource {
 	}
 
 	public long getExecuteCount() {
-		return executeCount;
+		return executeCount.get();
 	}
 	
 	public int getActiveCount() {
-		int running = 0;
-		for (BackendConnection con : this.items) {
-			if (con != null && con.isBorrowed() && !con.isFake()) {
-				running++;
-			}
-		}
-		return running;
+		int active = totalCount.get() - creatingCount.get() - idleCount.get();
+		return (active < 0) ? 0 : active;
 	}
 
 	public DBHeartbeat getHeartbeat() {
@@ -133,13 +144,69 @@ public abstract class PhysicalDatasource {
 	}
 
 	public int getIdleCount() {
-		int idle = 0;
-		for (BackendConnection con : this.items) {
-			if (con != null && !con.isBorrowed() && !con.isFake()) {
-				idle++;
-			}
+		return idleCount.get();
+	}
+
+	/**
+	 * connections being created
+	 */
+	public int getCreatingCount() {
+		return creatingCount.get();
+	}
+
+	/**
+	 * time from getConnection to connection acquired
+	 */
+	public LatencyHistogram getAcquireTime() {
+		return acquireTime;
+	}
+
+	/**
+	 * @param type
+	 *            SYNC_SCHEMA ,SYNC_CHARSET ,SYNC_ISOLATION or SYNC_AUTOCOMMIT
+	 */
+	public void recordSync(int type) {
+		syncCounts.incrementAndGet(type);
+	}
+
+	public long getSyncCount(int type) {
+		return syncCounts.get(type);
+	}
+
+	/**
+	 * selected by read balance of the dataHost
+	 */
+	public void recordReadSelect() {
+		readSelectCount.incrementAndGet();
+	}
+
+	public long getReadSelectCount() {
+		return readSelectCount.get();
+	}
+
+	/**
+	 * ewma of time in micros from connection borrowed to released
+	 */
+	public long getLatencyEwma() {
+		return latencyEwma;
+	}
+
+	/**
+	 * last time latency ewma updated ,0 if never
+	 */
+	public long getLatencyUpdateTime() {
+		return latencyUpdateTime;
+	}
+
+	private void recordLatency(long nanos) {
+		long micros = nanos / 1000;
+		if (latencyUpdateTime == 0) {
+			latencyEwma = micros;
+		} else {
+			long ewma = latencyEwma;
+			latencyEwma = ewma + ((micros - ewma) >> EWMA_SHIFT);
 		}
-		return idle;
+		latencyUpdateTime = TimeUtil.currentTimeMillis();
 	}
 
 	private boolean validSchema(String schema) {
@@ -148,55 +215,150 @@ public abstract class PhysicalDatasource {
 				&& !theSchema.equals("snyn...");
 	}
 
+	private static ConnectionMeta getMeta(BackendConnection con) {
+		return new ConnectionMeta(con.getSchema(), con.getCharset(),
+				con.getTxIsolation(), con.isAutocommit());
+	}
+
+	private void addIdle(BackendConnection con) {
+		ConnectionMeta meta = getMeta(con);
+		Deque<BackendConnection> idles = idleCons.get(meta);
+		if (idles == null) {
+			idles = new ConcurrentLinkedDeque<BackendConnection>();
+			Deque<BackendConnection> old = idleCons.putIfAbsent(meta, idles);
+			if (old != null) {
+				idles = old;
+			}
+		}
+		idleCount.incrementAndGet();
+		idles.offerFirst(con);
+	}
+
+	/**
+	 * @return true if the idle connection is taken by caller
+	 */
+	private boolean removeIdle(BackendConnection con) {
+		Deque<BackendConnection> idles = idleCons.get(getMeta(con));
+		if (idles != null && idles.remove(con)) {
+			idleCount.decrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	private BackendConnection pollIdle(Deque<BackendConnection> idles) {
+		if (idles == null) {
+			return null;
+		}
+		BackendConnection con;
+		while ((con = idles.pollFirst()) != null) {
+			idleCount.decrementAndGet();
+			if (!con.isClosedOrQuit()) {
+				return con;
+			}
+			removeCon(con);
+		}
+		return null;
+	}
+
+	/**
+	 * idle connection of the same state ,or of the most similar state
+	 */
+	private BackendConnection pollIdle(ConnectionMeta conMeta) {
+		BackendConnection con = pollIdle(idleCons.get(conMeta));
+		while (con == null) {
+			Deque<BackendConnection> best = null;
+			int bestSimilarity = -1;
+			for (Map.Entry<ConnectionMeta, Deque<BackendConnection>> entry : idleCons
+					.entrySet()) {
+				if (!entry.getValue().isEmpty()) {
+					int similarity = conMeta.getMetaSimilarity(entry.getKey());
+					if (bestSimilarity < similarity) {
+						bestSimilarity = similarity;
+						best = entry.getValue();
+					}
+				}
+			}
+			if (best == null) {
+				return null;
+			}
+			con = pollIdle(best);
+		}
+		return con;
+	}
+
+	private void removeCon(BackendConnection con) {
+		if (allCons.remove(con) != null) {
+			totalCount.decrementAndGet();
+		}
+	}
+
+	private void purgeClosedCons() {
+		for (BackendConnection con : allCons.keySet()) {
+			if (con.isClosedOrQuit()) {
+				removeIdle(con);
+				removeCon(con);
+			}
+		}
+	}
+
+	/**
+	 * reserve a place for new connection
+	 */
+	private boolean reserveNewCon() {
+		boolean purged = false;
+		while (true) {
+			int total = totalCount.get();
+			if (total >= size) {
+				if (purged) {
+					return false;
+				}
+				// closed connections not removed yet
+				purgeClosedCons();
+				purged = true;
+			} else if (totalCount.compareAndSet(total, total + 1)) {
+				creatingCount.incrementAndGet();
+				return true;
+			}
+		}
+	}
+
+	private void cancelNewCon() {
+		creatingCount.decrementAndGet();
+		totalCount.decrementAndGet();
+	}
+
 	public void heatBeatCheck(long timeout, long conHeartBeatPeriod) {
 		int IDLE_CLOSE_COUNT = 3;
 		int MAX_CONS_IN_ONE_CHECK = 10;
 		LinkedList<BackendConnection> heartBeatCons = new LinkedList<BackendConnection>();
 		LinkedList<BackendConnection> idleConList = new LinkedList<BackendConnection>();
-		int idleCons = 0;
-		int activeCons = 0;
 		long hearBeatTime = TimeUtil.currentTimeMillis() - conHeartBeatPeriod;
 		long hearBeatTime2 = TimeUtil.currentTimeMillis() - 2
 				* conHeartBeatPeriod;
-		final ReentrantLock lock = this.lock;
-		lock.lock();
-		try {
-
-			for (int i = 0; i < items.length; i++) {
-				BackendConnection con = items[i];
-				if (con == null) {
-					continue;
-				} else if (con.isClosedOrQuit()) {
-					continue;
-				}
-				boolean borrowed = con.isBorrowed();
-				if (borrowed && !con.isFake()) {
-					activeCons++;
-				} else if(!con.isFake()) {
-					idleCons++;
+		purgeClosedCons();
+		int idleCons = getIdleCount();
+		int activeCons = getActiveCount();
+		for (BackendConnection con : allCons.keySet()) {
+			if (con.isBorrowed() || con.isClosedOrQuit()) {
+				continue;
+			}
+			if (validSchema(con.getSchema())) {
+				if (con.getLastTime() < hearBeatTime
+						&& heartBeatCons.size() < MAX_CONS_IN_ONE_CHECK
+						&& removeIdle(con)) {
+					// Heart beat check
+					con.setBorrowed(true);
+					heartBeatCons.add(con);
+				} else {
 					idleConList.add(con);
 				}
-				if (!borrowed) {
-					if (validSchema(con.getSchema())) {
-						if (con.getLastTime() < hearBeatTime) {
-							if (heartBeatCons.size() < MAX_CONS_IN_ONE_CHECK) {
-								// Heart beat check
-								con.setBorrowed(true);
-								heartBeatCons.add(con);
-							}
-						}
-					} else if (con.getLastTime() < hearBeatTime2) {
-						{// not valid schema conntion should close for idle
-							// exceed 2*conHeartBeatPeriod
-							con.close(" heart beate idle ");
-							items[i] = null;
-						}
-
-					}
-				}
+			} else if (con.getLastTime() < hearBeatTime2 && removeIdle(con)) {
+				// not valid schema conntion should close for idle
+				// exceed 2*conHeartBeatPeriod
+				con.close(" heart beate idle ");
+				removeCon(con);
 			}
-		} finally {
-			lock.unlock();
 		}
 		if (!heartBeatCons.isEmpty()) {
 			for (BackendConnection con : heartBeatCons) {
@@ -214,78 +376,48 @@ public abstract class PhysicalDatasource {
 					+ hostConfig.getMinCon()
 					+ " for " + name);
 			SimpleLogHandler simpleHandler = new SimpleLogHandler();
-			lock.lock();
-			try {
-				int createCount = (hostConfig.getMinCon() - idleCons) / 3;
-				final BackendConnection[] items = this.items;
-				for (int i = 0; i < items.length; i++) {
-					if (this.getActiveCount() + this.getIdleCount() >= size) {
-						break;
-					}
-					if (items[i] == null) {
-						items[i] = new FakeConnection();
-						--createCount;
-						try {
-							// creat new connection
-							this.createNewConnection(false, simpleHandler, i,
-									null, "");
-						} catch (IOException e) {
-							LOGGER.warn("create connection err " + e);
-						}
-						if (createCount <= 0) {
-							break;
-						}
-					}
+			int createCount = Math.max(1,
+					(hostConfig.getMinCon() - idleCons) / 3);
+			for (int i = 0; i < createCount && reserveNewCon(); i++) {
+				try {
+					// creat new connection
+					this.createNewConnection(false, simpleHandler, null, "",
+							0);
+				} catch (IOException e) {
+					LOGGER.warn("create connection err " + e);
 				}
-			} finally {
-				lock.unlock();
 			}
 
 		} else if (idleCons > hostConfig.getMinCon() + IDLE_CLOSE_COUNT) {// too
 																			// many
 																			// idle
-			int closedCount = 0;
 			ArrayList<BackendConnection> readyCloseCons = new ArrayList<BackendConnection>(
 					IDLE_CLOSE_COUNT);
 			for (BackendConnection idleCon : idleConList) {
-				if (closedCount < IDLE_CLOSE_COUNT) {
-					if (!idleCon.isBorrowed() && !idleCon.isClosedOrQuit()
-							&& !lock.isLocked()) {
-						lock.lock();
-						try {
-							if (!idleCon.isBorrowed()
-									&& !idleCon.isClosedOrQuit()) {
-								idleCon.setBorrowed(true);
-								readyCloseCons.add(idleCon);
-								closedCount++;
-
-							}
-						} finally {
-							lock.unlock();
-						}
-					}
+				if (readyCloseCons.size() >= IDLE_CLOSE_COUNT) {
+					break;
+				}
+				if (removeIdle(idleCon)) {
+					idleCon.setBorrowed(true);
+					readyCloseCons.add(idleCon);
 				}
 			}
 			for (BackendConnection realidleCon : readyCloseCons) {
 				realidleCon.close("too many idle con");
+				removeCon(realidleCon);
 			}
 		}
 	}
 
 	public void clearCons(String reason) {
-		final ReentrantLock lock = this.lock;
-		lock.lock();
-		try {
-			final BackendConnection[] items = this.items;
-			for (int i = 0; i < items.length; i++) {
-				BackendConnection c = items[i];
-				if (c != null) {
-					c.close(reason);
-					items[i] = null;
-				}
+		for (Deque<BackendConnection> idles : idleCons.values()) {
+			while (idles.pollFirst() != null) {
+				idleCount.decrementAndGet();
 			}
-		} finally {
-			lock.unlock();
+		}
+		for (BackendConnection c : allCons.keySet()) {
+			c.close(reason);
+			removeCon(c);
 		}
 	}
 
@@ -313,121 +445,92 @@ public abstract class PhysicalDatasource {
 
 	private BackendConnection takeCon(BackendConnection conn,
 			final ResponseHandler handler, final Object attachment,
-			String schema) {
+			String schema, long startTime) {
 		conn.setBorrowed(true);
 		if (schema != null) {
 			conn.setSchema(schema);
 		}
-		executeCount++;
+		executeCount.incrementAndGet();
 		conn.setAttachment(attachment);
+		long now = System.nanoTime();
+		acquireTime.record(now - startTime);
+		AtomicLong borrowTime = allCons.get(conn);
+		if (borrowTime != null) {
+			borrowTime.set(now);
+		}
 		handler.connectionAcquired(conn);
 		return conn;
 	}
 
+	/**
+	 * place of the connection must be reserved by reserveNewCon
+	 */
 	private void createNewConnection(final boolean consume,
-			final ResponseHandler handler, final int insertIndex,
-			final Object attachment, final String schema) throws IOException {
-		this.createNewConnection(new DelegateResponseHandler(handler) {
-			@Override
-			public void connectionError(Throwable e, BackendConnection conn) {
-				lock.lock();
-				try {
-					items[insertIndex] = null;
-				} finally {
-					lock.unlock();
+			final ResponseHandler handler, final Object attachment,
+			final String schema, final long startTime) throws IOException {
+		final AtomicBoolean created = new AtomicBoolean(false);
+		try {
+			this.createNewConnection(new DelegateResponseHandler(handler) {
+				@Override
+				public void connectionError(Throwable e, BackendConnection conn) {
+					if (created.compareAndSet(false, true)) {
+						cancelNewCon();
+					}
+					handler.connectionError(e, conn);
 				}
-				handler.connectionError(e, conn);
-			}
 
-			@Override
-			public void connectionAcquired(BackendConnection conn) {
-				lock.lock();
-				try {
-					items[insertIndex] = conn;
+				@Override
+				public void connectionAcquired(BackendConnection conn) {
+					if (!created.compareAndSet(false, true)) {
+						return;
+					}
+					allCons.put(conn, new AtomicLong());
+					creatingCount.decrementAndGet();
 					if (consume) {
-						takeCon(conn, handler, attachment, schema);
+						takeCon(conn, handler, attachment, schema, startTime);
+					} else {
+						addIdle(conn);
 					}
-				} finally {
-					lock.unlock();
 				}
+			});
+		} catch (IOException e) {
+			if (created.compareAndSet(false, true)) {
+				cancelNewCon();
 			}
-		});
+			throw e;
+		}
 	}
 
 	public void getConnection(final ConnectionMeta conMeta,
 			final ResponseHandler handler, final Object attachment)
 			throws Exception {
-		int activeCount = this.getActiveCount();
-		// used to store new created connection
-		int emptyIndex = -1;
-		int bestCandidate = -1;
-		int faKeIndex = -1;
-		int bestCandidateSimilarity = -1;
-		final ReentrantLock lock = this.lock;
-		lock.lock();
-		try {
-			// get connection from pool
-			final BackendConnection[] items = this.items;
-
-			for (int i = 0; i < items.length; i++) {
-				if (emptyIndex == -1 && items[i] == null) {
-					emptyIndex = i;
-				} else if (items[i] != null) {
-					BackendConnection conn = items[i];
-					if (conn.isFake()) {
-						faKeIndex = i;
-					}
-					// closed or quit
-					if (conn.isClosedOrQuit()) {
-						items[i] = null;
-						if (emptyIndex == -1) {
-							emptyIndex = i;
-						}
-					} else if (!conn.isBorrowed()) {
-						// compare if more similary
-						int similary = conMeta.getMetaSimilarity(conn);
-						if (bestCandidateSimilarity < similary) {
-							bestCandidateSimilarity = similary;
-							bestCandidate = i;
-						}
-					}
-				}
-			}
-			if (emptyIndex == -1) {
-				emptyIndex = faKeIndex;
-			}
-			if (bestCandidate != -1) {
-				takeCon(items[bestCandidate], handler, attachment,
-						conMeta.getSchema());
-				return;
-			} else if (emptyIndex == -1) {
-				StringBuilder s = new StringBuilder();
-				s.append(Alarms.DEFAULT).append("DATASOURCE EXCEED [name=")
-						.append(name).append(",active=");
-				s.append(activeCount).append(",size=").append(size).append(']');
-				LOGGER.warn(s.toString());
-				throw new IOException("datasource is full,can't get any more "
-						+ this.getName());
-			} else {
-				// creat new connection
-				items[emptyIndex] = new FakeConnection();
-			}
-		} finally {
-			lock.unlock();
+		long startTime = System.nanoTime();
+		BackendConnection con = pollIdle(conMeta);
+		if (con != null) {
+			takeCon(con, handler, attachment, conMeta.getSchema(), startTime);
+			return;
+		}
+		if (!reserveNewCon()) {
+			StringBuilder s = new StringBuilder();
+			s.append(Alarms.DEFAULT).append("DATASOURCE EXCEED [name=")
+					.append(name).append(",active=");
+			s.append(getActiveCount()).append(",size=").append(size)
+					.append(']');
+			LOGGER.warn(s.toString());
+			throw new IOException("datasource is full,can't get any more "
+					+ this.getName());
 		}
 
 		LOGGER.info("not ilde connection in pool,create new connection for "
 				+ this.name);
-		final int insertIndex = emptyIndex;
 		// create connection
-		createNewConnection(true, handler, insertIndex, attachment,
-				conMeta.getSchema());
+		createNewConnection(true, handler, attachment, conMeta.getSchema(),
+				startTime);
 		return;
 	}
 
 	private void returnCon(BackendConnection c) {
 		c.setAttachment(null);
-		c.setBorrowed(false);
 		c.setLastTime(TimeUtil.currentTimeMillis());
 	}
 
@@ -435,8 +538,24 @@ public abstract class PhysicalDatasource {
 		if (LOGGER.isDebugEnabled()) {
 			LOGGER.debug("release channel " + c);
 		}
+		if (!c.compareAndSetBorrowed(true, false)) {
+			// already released by another thread
+			return;
+		}
 		// release connection
 		returnCon(c);
+		AtomicLong borrowTime = allCons.get(c);
+		if (borrowTime != null) {
+			long start = borrowTime.getAndSet(0);
+			if (start != 0) {
+				recordLatency(System.nanoTime() - start);
+			}
+		}
+		if (c.isClosedOrQuit()) {
+			removeCon(c);
+		} else if (borrowTime != null) {
+			addIdle(c);
+		}
 	}
 
 	public abstract void createNewConnection(ResponseHandler handler)
@@ -454,189 +573,3 @@ public abstract class PhysicalDatasource {
 		return config;
 	}
 }
-
-class FakeConnection implements BackendConnection {
-
-	@Override
-	public boolean isFake() {
-		return true;
-	}
-
-	@Override
-	public boolean isFromSlaveDB() {
-		return false;
-	}
-
-	@Override
-	public String getSchema() {
-		return null;
-	}
-
-	@Override
-	public void setSchema(String newSchema) {
-
-	}
-
-	@Override
-	public long getLastTime() {
-		return System.currentTimeMillis();
-	}
-
-	@Override
-	public boolean isClosedOrQuit() {
-		return false;
-	}
-
-	@Override
-	public void setAttachment(Object attachment) {
-
-	}
-
-	@Override
-	public void quit() {
-
-	}
-
-	@Override
-	public void setLastTime(long currentTimeMillis) {
-	}
-
-	@Override
-	public void release() {
-	}
-
-	@Override
-	public void close(String reason) {
-
-	}
-
-	@Override
-	public void setRunning(boolean running) {
-
-	}
-
-	@Override
-	public boolean setResponseHandler(ResponseHandler commandHandler) {
-		return false;
-	}
-
-	@Override
-	public void commit() {
-
-	}
-
-	@Override
-	public void query(String sql) throws UnsupportedEncodingException {
-
-	}
-
-	@Override
-	public Object getAttachment() {
-		return null;
-	}
-
-	@Override
-	public String getCharset() {
-		return null;
-	}
-
-	@Override
-	public void execute(RouteResultsetNode node, ServerConnection source,
-			boolean autocommit) throws IOException {
-
-	}
-
-	@Override
-	public void recordSql(String host, String schema, String statement) {
-
-	}
-
-	@Override
-	public boolean syncAndExcute() {
-		return false;
-	}
-
-	@Override
-	public void rollback() {
-
-	}
-
-	
-
-	
-	@Override
-	public boolean isRunning() {
-		return false;
-	}
-
-	@Override
-	public boolean isBorrowed() {
-		return true;
-	}
-
-	@Override
-	public void setBorrowed(boolean borrowed) {
-
-	}
-
-	@Override
-	public boolean isAutocommit() {
-		return false;
-	}
-
-	@Override
-	public boolean isModifiedSQLExecuted() {
-		return false;
-	}
-
-	@Override
-	public int getTxIsolation() {
-		return 0;
-	}
-
-	@Override
-	public boolean isClosed() {
-		return false;
-	}
-
-	@Override
-	public long getId() {
-		return 0;
-	}
-
-	@Override
-	public void idleCheck() {
-
-	}
-
-	@Override
-	public long getStartupTime() {
-		return 0;
-	}
-
-	@Override
-	public String getHost() {
-		return null;
-	}
-
-	@Override
-	public int getPort() {
-		return 0;
-	}
-
-	@Override
-	public int getLocalPort() {
-		return 0;
-	}
-
-	@Override
-	public long getNetInBytes() {
-		return 0;
-	}
-
-	@Override
-	public long getNetOutBytes() {
-		return 0;
-	}
-
-}
\ No newline at end of file
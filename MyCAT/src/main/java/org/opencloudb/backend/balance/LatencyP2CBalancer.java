@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.backend.balance;
+
+import java.util.List;
+import java.util.Random;
+
+import org.opencloudb.backend.PhysicalDatasource;
+import org.opencloudb.util.TimeUtil;
+
+/**
+ * power of two choices ,picks two sources at random and takes the one of
+ * lower latency ewma * (active + 1). a source without latency sample in
+ * PROBE_TIME costs 0 ,so a once slow source is tried again
+ * 
+ * @author mycat
+ */
+public class LatencyP2CBalancer implements ReadBalancer {
+	private static final long PROBE_TIME = 10 * 1000L;
+	private final Random random = new Random();
+
+	@Override
+	public PhysicalDatasource select(List<PhysicalDatasource> sources) {
+		int size = sources.size();
+		if (size == 1) {
+			return sources.get(0);
+		}
+		int i = random.nextInt(size);
+		int j = random.nextInt(size - 1);
+		if (j >= i) {
+			j++;
+		}
+		PhysicalDatasource a = sources.get(i);
+		PhysicalDatasource b = sources.get(j);
+		return cost(a) <= cost(b) ? a : b;
+	}
+
+	private static long cost(PhysicalDatasource ds) {
+		if (TimeUtil.currentTimeMillis() - ds.getLatencyUpdateTime() > PROBE_TIME) {
+			return 0;
+		}
+		return (ds.getLatencyEwma() + 1) * (ds.getActiveCount() + 1);
+	}
+}
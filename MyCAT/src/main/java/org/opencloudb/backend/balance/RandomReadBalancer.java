@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.backend.balance;
+
+import java.util.List;
+import java.util.Random;
+
+import org.opencloudb.backend.PhysicalDatasource;
+import org.opencloudb.heartbeat.DBHeartbeat;
+
+/**
+ * uniform random ,or weighted by slave lag and heartbeat latency when slave
+ * lag is checked
+ * 
+ * @author mycat
+ */
+public class RandomReadBalancer implements ReadBalancer {
+	private final Random random = new Random();
+	private final boolean lagWeighted;
+
+	public RandomReadBalancer(boolean lagWeighted) {
+		this.lagWeighted = lagWeighted;
+	}
+
+	@Override
+	public PhysicalDatasource select(List<PhysicalDatasource> sources) {
+		if (!lagWeighted || sources.size() == 1) {
+			return sources.get(random.nextInt(sources.size()));
+		}
+		double[] weights = new double[sources.size()];
+		double total = 0;
+		for (int i = 0; i < weights.length; i++) {
+			DBHeartbeat hb = sources.get(i).getHeartbeat();
+			int lag = Math.max(hb.getSlaveBehindMaster(), 0);
+			long latency = Math.max(hb.getRecorder().getAvg1(), 0L);
+			weights[i] = 1.0 / ((1 + lag) * (1.0 + latency));
+			total += weights[i];
+		}
+		double r = random.nextDouble() * total;
+		for (int i = 0; i < weights.length - 1; i++) {
+			r -= weights[i];
+			if (r < 0) {
+				return sources.get(i);
+			}
+		}
+		return sources.get(weights.length - 1);
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.backend.balance;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opencloudb.backend.PhysicalDatasource;
+
+/**
+ * smooth weighted round robin by weight of readHost/writeHost ,a source of
+ * weight 3 is selected 3 times in every (total weight) selections and not
+ * in a row
+ * 
+ * @author mycat
+ */
+public class WeightedRoundRobinBalancer implements ReadBalancer {
+	private final Map<PhysicalDatasource, int[]> currentWeights = new IdentityHashMap<PhysicalDatasource, int[]>();
+
+	@Override
+	public synchronized PhysicalDatasource select(
+			List<PhysicalDatasource> sources) {
+		int total = 0;
+		PhysicalDatasource best = null;
+		int[] bestWeight = null;
+		for (PhysicalDatasource ds : sources) {
+			int weight = ds.getConfig().getWeight();
+			int[] current = currentWeights.get(ds);
+			if (current == null) {
+				current = new int[1];
+				currentWeights.put(ds, current);
+			}
+			current[0] += weight;
+			total += weight;
+			if (best == null || current[0] > bestWeight[0]) {
+				best = ds;
+				bestWeight = current;
+			}
+		}
+		bestWeight[0] -= total;
+		return best;
+	}
+}
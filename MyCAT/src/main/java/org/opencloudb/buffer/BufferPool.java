@@ -23,64 +23,204 @@
  */
 package org.opencloudb.buffer;
 
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
 /**
+ * direct buffer pool with power-of-two size classes (chunkSize, chunkSize*2,
+ * chunkSize*4 ...). every size class owns a lock-free shared free list, and
+ * every thread keeps a small private cache in front of the shared lists, so
+ * the common allocate/recycle path on an AIO thread touches no shared state.
+ * 
  * @author mycat
  */
 public final class BufferPool {
 	private static final Logger LOGGER = Logger.getLogger(BufferPool.class);
+	/**
+	 * max size classes,the largest class is chunkSize<<(MAX_SIZE_CLASSES-1)
+	 */
+	private static final int MAX_SIZE_CLASSES = 4;
+	/**
+	 * max buffers of one size class cached by one thread
+	 */
+	private static final int LOCAL_CACHE_SIZE = 32;
 	private final int chunkSize;
-	private final ByteBuffer[] items;
-	private final ReentrantLock lock;
-	private int putIndex;
-	private int takeIndex;
-	private int count;
-	private volatile int newCount;
+	private final SizeClass[] sizeClasses;
+	private final int capacity;
+	private final ThreadLocal<LocalCache> localCache;
+	private final ConcurrentLinkedQueue<LocalCache> allLocalCaches;
+	private final AtomicInteger newCount = new AtomicInteger();
+	// hit/miss counts of caches of dead threads
+	private final AtomicLong retiredHitCount = new AtomicLong();
+	private final AtomicLong retiredMissCount = new AtomicLong();
 
 	public BufferPool(int bufferSize, int chunkSize) {
 		this.chunkSize = chunkSize;
-		int capacity = bufferSize / chunkSize;
-		capacity = (bufferSize % chunkSize == 0) ? capacity : capacity + 1;
-		this.items = new ByteBuffer[capacity];
-		this.lock = new ReentrantLock();
-		for (int i = 0; i < capacity; i++) {
-			insert(createDirectBuffer(chunkSize));
+		// chunkSize class takes most of the memory, every larger class takes
+		// half of the memory of previous one (1/8,1/16,1/32 ...)
+		ArrayList<SizeClass> classes = new ArrayList<SizeClass>(
+				MAX_SIZE_CLASSES);
+		long leftBytes = bufferSize;
+		for (int i = 1; i < MAX_SIZE_CLASSES; i++) {
+			int size = chunkSize << i;
+			int count = (bufferSize >> (i + 2)) / size;
+			if (count == 0) {
+				break;
+			}
+			classes.add(new SizeClass(size, count));
+			leftBytes -= (long) size * count;
+		}
+		int baseCount = (int) (leftBytes / chunkSize);
+		baseCount = (leftBytes % chunkSize == 0) ? baseCount : baseCount + 1;
+		classes.add(0, new SizeClass(chunkSize, baseCount));
+		this.sizeClasses = classes.toArray(new SizeClass[classes.size()]);
+		int total = 0;
+		for (SizeClass sizeClass : sizeClasses) {
+			for (int i = 0; i < sizeClass.capacity; i++) {
+				sizeClass.offer(createDirectBuffer(sizeClass.size));
+			}
+			total += sizeClass.capacity;
 		}
+		this.capacity = total;
+		this.allLocalCaches = new ConcurrentLinkedQueue<LocalCache>();
+		this.localCache = new ThreadLocal<LocalCache>() {
+			@Override
+			protected LocalCache initialValue() {
+				// new threads often replace dead ones in thread pools
+				pruneDeadCaches();
+				LocalCache cache = new LocalCache(sizeClasses.length,
+						Thread.currentThread());
+				allLocalCaches.add(cache);
+				return cache;
+			}
+		};
 	}
 
+	/**
+	 * total buffers of all size classes
+	 */
 	public int capacity() {
-		return items.length;
+		return capacity;
 	}
 
+	/**
+	 * free buffers of all size classes,include the buffers cached by threads.
+	 * thread cache counters are read without synchronization,so the result is
+	 * only a snapshot
+	 */
 	public int size() {
-		return count;
+		int size = 0;
+		for (SizeClass sizeClass : sizeClasses) {
+			size += sizeClass.count.get();
+		}
+		for (LocalCache cache : allLocalCaches) {
+			size += cache.size();
+		}
+		return size;
 	}
 
 	public int getNewCount() {
-		return newCount;
+		return newCount.get();
+	}
+
+	/**
+	 * allocations served by thread cache
+	 */
+	public long getHitCount() {
+		long count = retiredHitCount.get();
+		for (LocalCache cache : allLocalCaches) {
+			count += cache.hitCount;
+		}
+		return count;
+	}
+
+	/**
+	 * allocations missed by thread cache and went to shared free list
+	 */
+	public long getMissCount() {
+		long count = retiredMissCount.get();
+		for (LocalCache cache : allLocalCaches) {
+			count += cache.missCount;
+		}
+		return count;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public int getMaxPooledSize() {
+		return sizeClasses[sizeClasses.length - 1].size;
 	}
 
 	public ByteBuffer allocate() {
-		ByteBuffer node = null;
-		final ReentrantLock lock = this.lock;
-		lock.lock();
-		try {
-			node = (count == 0) ? null : extract();
-		} finally {
-			lock.unlock();
+		return allocate(0, chunkSize);
+	}
+
+	public ByteBuffer allocate(int size) {
+		if (size <= this.chunkSize) {
+			return allocate();
+		}
+		int index = sizeClassIndex(size);
+		if (index < 0) {
+			LOGGER.warn("allocate buffer size large than max pooled size:"
+					+ getMaxPooledSize() + " he want " + size);
+			newCount.incrementAndGet();
+			return createTempBuffer(size);
+		}
+		return allocate(index, size);
+	}
+
+	private ByteBuffer allocate(int index, int size) {
+		LocalCache cache = localCache.get();
+		ByteBuffer node = cache.pop(index);
+		if (node != null) {
+			cache.hitCount++;
+			return node;
 		}
+		cache.missCount++;
+		SizeClass sizeClass = sizeClasses[index];
+		node = sizeClass.poll();
 		if (node == null) {
-			++newCount;
+			int times = newCount.incrementAndGet();
 			LOGGER.warn("pool is full ,allocate tempory buffer ,total alloccated times:"
-					+ newCount);
-			return createTempBuffer(chunkSize);
-		} else {
-			return node;
+					+ times);
+			return createTempBuffer(Math.max(size, sizeClass.size));
+		}
+		// refill half of thread cache,so the next allocations hit locally
+		for (int i = LOCAL_CACHE_SIZE >> 1; i > 0; i--) {
+			ByteBuffer more = sizeClass.poll();
+			if (more == null) {
+				break;
+			}
+			cache.push(index, more);
+		}
+		return node;
+	}
+
+	/**
+	 * give back buffers cached by dead threads to shared free lists
+	 */
+	void pruneDeadCaches() {
+		for (LocalCache cache : allLocalCaches) {
+			// only one thread wins the remove ,so a cache is drained once
+			if (cache.isOwnerDead() && allLocalCaches.remove(cache)) {
+				for (int i = 0; i < sizeClasses.length; i++) {
+					ByteBuffer buffer;
+					while ((buffer = cache.pop(i)) != null) {
+						sizeClasses[i].offer(buffer);
+					}
+				}
+				retiredHitCount.addAndGet(cache.hitCount);
+				retiredMissCount.addAndGet(cache.missCount);
+			}
 		}
 	}
 
@@ -91,92 +231,78 @@ public final class BufferPool {
 	 * @param buffer
 	 */
 	public void safeRecycle(ByteBuffer buffer) {
-		checkValidBuffer(buffer);
-		final boolean debug = LOGGER.isDebugEnabled();
-		final ReentrantLock lock = this.lock;
-		lock.lock();
-		try {
-			if (testIfDuplicate(buffer)) {
-				if (debug) {
-					LOGGER.debug("already recycled buffer ");
-				}
-				return;
+		if (testIfDuplicate(buffer)) {
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("already recycled buffer ");
 			}
-			recycleBuffer(buffer);
-		} finally {
-			lock.unlock();
-		}
-	}
-
-	private void checkValidBuffer(ByteBuffer buffer) {
-		// 拒绝回收null和容量大于chunkSize的缓存
-		if (buffer == null || !buffer.isDirect()) {
-			return;
-		} else if (buffer.capacity() > chunkSize) {
-			buffer.clear();
-			LOGGER.warn("cant' recycle  a buffer large than my pool chunksize "
-					+ buffer.capacity());
 			return;
 		}
+		recycle(buffer);
 	}
 
 	public void recycle(ByteBuffer buffer) {
-		if (buffer == null) {
+		int index = checkValidBuffer(buffer);
+		if (index < 0) {
 			return;
 		}
-		checkValidBuffer(buffer);
-		recycleBuffer(buffer);
-	}
-
-	private void recycleBuffer(ByteBuffer buffer) {
-		final ReentrantLock lock = this.lock;
-		lock.lock();
-		try {
-			// reportDuplicate(buffer);
-			if (count != items.length) {
-				buffer.clear();
-				insert(buffer);
-
-			} else {
-				if (LOGGER.isDebugEnabled()) {
-					LOGGER.debug("can't recycle  buffer ,pool is full ");
-				}
-
+		buffer.clear();
+		LocalCache cache = localCache.get();
+		if (cache.isFull(index)) {
+			// give back half of thread cache to shared free list
+			SizeClass sizeClass = sizeClasses[index];
+			for (int i = LOCAL_CACHE_SIZE >> 1; i > 0; i--) {
+				sizeClass.offer(cache.pop(index));
 			}
-		} finally {
-			lock.unlock();
 		}
+		cache.push(index, buffer);
 	}
 
-	private void insert(ByteBuffer buffer) {
-		items[putIndex] = buffer;
-
-		putIndex = inc(putIndex);
-		++count;
-
+	/**
+	 * @return size class index of the buffer, -1 if it should not be pooled
+	 */
+	private int checkValidBuffer(ByteBuffer buffer) {
+		// 拒绝回收null,非direct和非规格容量的缓存
+		if (buffer == null || !buffer.isDirect()) {
+			return -1;
+		}
+		int cap = buffer.capacity();
+		for (int i = 0; i < sizeClasses.length; i++) {
+			if (sizeClasses[i].size == cap) {
+				return i;
+			}
+		}
+		LOGGER.warn("cant' recycle  a buffer not match my pool chunksize "
+				+ cap);
+		return -1;
 	}
 
 	public boolean testIfDuplicate(ByteBuffer buffer) {
-		for (ByteBuffer exists : items) {
-			if (exists == buffer) {
+		if (buffer == null) {
+			return false;
+		}
+		for (LocalCache cache : allLocalCaches) {
+			if (cache.contains(buffer)) {
 				return true;
 			}
 		}
+		for (SizeClass sizeClass : sizeClasses) {
+			Iterator<ByteBuffer> itor = sizeClass.items.iterator();
+			while (itor.hasNext()) {
+				if (itor.next() == buffer) {
+					return true;
+				}
+			}
+		}
 		return false;
-
-	}
-
-	private ByteBuffer extract() {
-		final ByteBuffer[] items = this.items;
-		ByteBuffer item = items[takeIndex];
-		items[takeIndex] = null;
-		takeIndex = inc(takeIndex);
-		--count;
-		return item;
 	}
 
-	private int inc(int i) {
-		return (++i == items.length) ? 0 : i;
+	private int sizeClassIndex(int size) {
+		for (int i = 0; i < sizeClasses.length; i++) {
+			if (size <= sizeClasses[i].size) {
+				return i;
+			}
+		}
+		return -1;
 	}
 
 	private ByteBuffer createTempBuffer(int size) {
@@ -188,13 +314,100 @@ public final class BufferPool {
 		return ByteBuffer.allocateDirect(size);
 	}
 
-	public ByteBuffer allocate(int size) {
-		if (size <= this.chunkSize) {
-			return allocate();
-		} else {
-			LOGGER.warn("allocate buffer size large than default chunksize:"
-					+ this.chunkSize + " he want " + size);
-			return createTempBuffer(size);
+	/**
+	 * shared free list of one buffer size
+	 */
+	private static final class SizeClass {
+		private final int size;
+		private final int capacity;
+		private final ConcurrentLinkedQueue<ByteBuffer> items = new ConcurrentLinkedQueue<ByteBuffer>();
+		private final AtomicInteger count = new AtomicInteger();
+
+		SizeClass(int size, int capacity) {
+			this.size = size;
+			this.capacity = capacity;
+		}
+
+		ByteBuffer poll() {
+			ByteBuffer buffer = items.poll();
+			if (buffer != null) {
+				count.decrementAndGet();
+			}
+			return buffer;
+		}
+
+		void offer(ByteBuffer buffer) {
+			if (count.incrementAndGet() > capacity) {
+				count.decrementAndGet();
+				if (LOGGER.isDebugEnabled()) {
+					LOGGER.debug("can't recycle  buffer ,pool is full ");
+				}
+				return;
+			}
+			items.offer(buffer);
+		}
+	}
+
+	/**
+	 * per thread buffer stacks,only accessed by the owner thread except the
+	 * statistic fields ,or drained by others after the owner thread died
+	 */
+	private static final class LocalCache {
+		private final ByteBuffer[][] stacks;
+		private final int[] tops;
+		private final WeakReference<Thread> owner;
+		private long hitCount;
+		private long missCount;
+
+		LocalCache(int classes, Thread owner) {
+			stacks = new ByteBuffer[classes][LOCAL_CACHE_SIZE];
+			tops = new int[classes];
+			this.owner = new WeakReference<Thread>(owner);
+		}
+
+		boolean isOwnerDead() {
+			Thread thread = owner.get();
+			return thread == null || !thread.isAlive();
+		}
+
+		ByteBuffer pop(int index) {
+			int top = tops[index];
+			if (top == 0) {
+				return null;
+			}
+			ByteBuffer[] stack = stacks[index];
+			ByteBuffer buffer = stack[--top];
+			stack[top] = null;
+			tops[index] = top;
+			return buffer;
+		}
+
+		void push(int index, ByteBuffer buffer) {
+			stacks[index][tops[index]++] = buffer;
+		}
+
+		boolean isFull(int index) {
+			return tops[index] == LOCAL_CACHE_SIZE;
+		}
+
+		int size() {
+			int size = 0;
+			for (int top : tops) {
+				size += top;
+			}
+			return size;
+		}
+
+		boolean contains(ByteBuffer buffer) {
+			for (int i = 0; i < stacks.length; i++) {
+				ByteBuffer[] stack = stacks[i];
+				for (int j = tops[i] - 1; j >= 0; j--) {
+					if (stack[j] == buffer) {
+						return true;
+					}
+				}
+			}
+			return false;
 		}
 	}
 
@@ -210,4 +423,4 @@ public final class BufferPool {
 		}
 		System.out.println(pool.size());
 	}
-}
\ No newline at end of file
+}
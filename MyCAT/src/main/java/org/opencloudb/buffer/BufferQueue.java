@@ -33,10 +33,31 @@ public final class BufferQueue {
 	// private static final Logger LOGGER = Logger.getLogger(BufferQueue.class);
 	private ByteBuffer attachment;
 	private final int total;
+	private int highWater;
+	private int lowWater;
 	private final LinkedList<ByteBuffer> items = new LinkedList<ByteBuffer>();
 
 	public BufferQueue(int capacity) {
 		this.total = capacity;
+		this.highWater = capacity * 3 / 4;
+		this.lowWater = capacity / 4;
+	}
+
+	/**
+	 * the writer should stop producing above high water, and can produce
+	 * again below low water
+	 */
+	public void setWaterMarks(int highWater, int lowWater) {
+		this.highWater = highWater;
+		this.lowWater = lowWater;
+	}
+
+	public boolean isAboveHighWater() {
+		return items.size() >= highWater;
+	}
+
+	public boolean isBelowLowWater() {
+		return items.size() <= lowWater;
 	}
 
 	public ByteBuffer attachment() {
@@ -76,6 +97,13 @@ public final class BufferQueue {
 		}
 	}
 
+	/**
+	 * last queued buffer,which is not flipped yet
+	 */
+	public ByteBuffer peekLast() {
+		return items.peekLast();
+	}
+
 	public ByteBuffer poll() {
 		ByteBuffer buf = items.poll();
 		return buf;
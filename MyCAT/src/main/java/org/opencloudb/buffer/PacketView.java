@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.buffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * a MySQL packet (header included) viewed in place over a pooled read buffer,
+ * no bytes are copied when the view created. <br/>
+ * a view passed to a handler is only valid during that call, the buffer is
+ * reused for next packets after the call, copy the packet by
+ * {@link #toArray()} to keep it longer.
+ * 
+ * @author mycat
+ */
+public final class PacketView {
+	private final ByteBuffer buffer;
+	private ByteBuffer duplicate;
+	private int offset;
+	private int length;
+
+	public PacketView(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	/**
+	 * point this view to another packet in the same buffer
+	 */
+	public void reset(int offset, int length) {
+		this.offset = offset;
+		this.length = length;
+	}
+
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	public int length() {
+		return length;
+	}
+
+	public byte get(int index) {
+		return buffer.get(offset + index);
+	}
+
+	public byte getPacketId() {
+		return buffer.get(offset + 3);
+	}
+
+	public void setPacketId(byte packetId) {
+		buffer.put(offset + 3, packetId);
+	}
+
+	/**
+	 * copy len bytes starting at from of this packet to dest
+	 */
+	public void copyTo(int from, int len, ByteBuffer dest) {
+		dest.put(slice(from, len));
+	}
+
+	public byte[] toArray() {
+		byte[] data = new byte[length];
+		slice(0, length).get(data);
+		return data;
+	}
+
+	private ByteBuffer slice(int from, int len) {
+		ByteBuffer src = duplicate;
+		if (src == null) {
+			src = buffer.duplicate();
+			duplicate = src;
+		}
+		int start = offset + from;
+		src.clear();
+		src.position(start);
+		src.limit(start + len);
+		return src;
+	}
+
+}
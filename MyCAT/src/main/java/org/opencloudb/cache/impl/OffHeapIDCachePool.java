@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.cache.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.opencloudb.cache.CachePool;
+import org.opencloudb.cache.CacheStatic;
+
+/**
+ * off heap cache of id -> data node ,keys are integers or short strings (at
+ * most 24 bytes in utf-8) ,values are few distinct objects (data node names)
+ * stored as index. entries are kept in direct memory of fixed size slots
+ * ,a key can be in two buckets of 8 slots ,when both are full one of the
+ * first bucket is evicted by CLOCK (referenced slot gets a second chance).
+ * keys longer than 24 bytes are not cached.
+ * 
+ * <pre>
+ * slot (32 bytes): key type/length(1) ,referenced(1) ,value index(2) ,
+ * expire second(4) ,key(24)
+ * </pre>
+ * 
+ * @author wuzhih
+ */
+public class OffHeapIDCachePool implements CachePool {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int SLOT_SIZE = 32;
+	private static final int BUCKET_SLOTS = 8;
+	private static final int MAX_KEY_BYTES = 24;
+	private static final int MAX_VALUES = 0xffff;
+	private static final int SEGMENT_COUNT = 32;
+	// key length 0 means empty slot
+	private static final byte LONG_KEY = 0x7f;
+	private static final int OFF_REF = 1;
+	private static final int OFF_VALUE = 2;
+	private static final int OFF_EXPIRE = 4;
+	private static final int OFF_KEY = 8;
+
+	private final String name;
+	private final long maxSize;
+	private final int expireSeconds;
+	private final long baseTime = System.currentTimeMillis();
+	private final Segment[] segments;
+	private final CacheStatic cacheStati = new CacheStatic();
+	// value -> index ,index -> value
+	private final ConcurrentHashMap<Object, Integer> valueIndexes = new ConcurrentHashMap<Object, Integer>();
+	private volatile Object[] values = new Object[0];
+
+	private static final class Segment {
+		final ReentrantLock lock = new ReentrantLock();
+		final ByteBuffer buffer;
+		final int bucketMask;
+		// clock hand of every bucket
+		final byte[] hands;
+		int count;
+
+		Segment(int buckets) {
+			buffer = ByteBuffer.allocateDirect(buckets * BUCKET_SLOTS
+					* SLOT_SIZE);
+			bucketMask = buckets - 1;
+			hands = new byte[buckets];
+		}
+	}
+
+	/**
+	 * @param expireSeconds
+	 *            <=0 for not expired
+	 */
+	public OffHeapIDCachePool(String name, int maxSize, int expireSeconds) {
+		this.name = name;
+		this.expireSeconds = expireSeconds;
+		long bucketsPerSegment = 1;
+		while (bucketsPerSegment * BUCKET_SLOTS * SEGMENT_COUNT < maxSize) {
+			bucketsPerSegment <<= 1;
+		}
+		this.segments = new Segment[SEGMENT_COUNT];
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			segments[i] = new Segment((int) bucketsPerSegment);
+		}
+		this.maxSize = bucketsPerSegment * BUCKET_SLOTS * SEGMENT_COUNT;
+		cacheStati.setMaxSize(this.maxSize);
+		cacheStati.setMemorySize(this.maxSize * SLOT_SIZE);
+	}
+
+	/**
+	 * decimal string of long as a long key ,same key for "12" and 12L
+	 */
+	private static boolean isLongKey(String key) {
+		int len = key.length();
+		if (len == 0 || len > 20) {
+			return false;
+		}
+		int i = (key.charAt(0) == '-') ? 1 : 0;
+		if (i == len || (key.charAt(i) == '0' && len > i + 1)
+				|| (i == 1 && key.charAt(1) == '0')) {
+			return false;
+		}
+		for (; i < len; i++) {
+			char c = key.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int hashLong(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	private static int hashBytes(byte[] key) {
+		int h = 0x9747b28c;
+		for (byte b : key) {
+			h = (h ^ b) * 0x5bd1e995;
+			h ^= h >>> 15;
+		}
+		return hashLong(h);
+	}
+
+	/**
+	 * key as Long or byte[] ,null if not cacheable
+	 */
+	private static Object toKey(Object key) {
+		if (key instanceof Long || key instanceof Integer
+				|| key instanceof Short || key instanceof Byte) {
+			return ((Number) key).longValue();
+		}
+		String str = key.toString();
+		if (isLongKey(str)) {
+			try {
+				return Long.parseLong(str);
+			} catch (NumberFormatException e) {
+				// out of range ,as string
+			}
+		}
+		byte[] bytes = str.getBytes(UTF8);
+		return (bytes.length > MAX_KEY_BYTES) ? null : bytes;
+	}
+
+	private Segment segmentOf(int hash) {
+		return segments[(hash >>> 27) & (SEGMENT_COUNT - 1)];
+	}
+
+	private static int bucketOffset(Segment seg, int hash) {
+		return (hash & seg.bucketMask) * BUCKET_SLOTS * SLOT_SIZE;
+	}
+
+	/**
+	 * the other bucket of the key
+	 */
+	private static int bucketOffset2(Segment seg, int hash) {
+		int h = hash * 0x9e3779b9;
+		return ((h ^ (h >>> 15)) & seg.bucketMask) * BUCKET_SLOTS * SLOT_SIZE;
+	}
+
+	private int nowSeconds() {
+		return (int) ((System.currentTimeMillis() - baseTime) / 1000) + 1;
+	}
+
+	private static boolean matches(ByteBuffer buffer, int off, Object key) {
+		byte len = buffer.get(off);
+		if (key instanceof Long) {
+			return len == LONG_KEY
+					&& buffer.getLong(off + OFF_KEY) == (Long) key;
+		}
+		byte[] bytes = (byte[]) key;
+		if (len != bytes.length) {
+			return false;
+		}
+		for (int i = 0; i < bytes.length; i++) {
+			if (buffer.get(off + OFF_KEY + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean expired(ByteBuffer buffer, int off, int now) {
+		int expire = buffer.getInt(off + OFF_EXPIRE);
+		return expire != 0 && expire < now;
+	}
+
+	/**
+	 * slot of the key in the two buckets ,-1 if not found ,under lock
+	 */
+	private int find(Segment seg, int bucket, int bucket2, Object key, int now) {
+		int off = find(seg, bucket, key, now);
+		return (off >= 0 || bucket2 == bucket) ? off : find(seg, bucket2, key,
+				now);
+	}
+
+	private int find(Segment seg, int bucket, Object key, int now) {
+		ByteBuffer buffer = seg.buffer;
+		for (int i = 0; i < BUCKET_SLOTS; i++) {
+			int off = bucket + i * SLOT_SIZE;
+			if (buffer.get(off) != 0 && matches(buffer, off, key)) {
+				if (expired(buffer, off, now)) {
+					buffer.put(off, (byte) 0);
+					seg.count--;
+					return -1;
+				}
+				return off;
+			}
+		}
+		return -1;
+	}
+
+	private int valueIndex(Object value) {
+		Integer index = valueIndexes.get(value);
+		if (index != null) {
+			return index;
+		}
+		synchronized (valueIndexes) {
+			index = valueIndexes.get(value);
+			if (index == null) {
+				Object[] newValues = new Object[values.length + 1];
+				System.arraycopy(values, 0, newValues, 0, values.length);
+				if (newValues.length > MAX_VALUES) {
+					return -1;
+				}
+				index = values.length;
+				newValues[index] = value;
+				values = newValues;
+				valueIndexes.put(value, index);
+			}
+			return index;
+		}
+	}
+
+	@Override
+	public void putIfAbsent(Object key, Object value) {
+		Object theKey = toKey(key);
+		if (theKey == null || value == null) {
+			return;
+		}
+		int valueIndex = valueIndex(value);
+		if (valueIndex < 0) {
+			return;
+		}
+		int hash = (theKey instanceof Long) ? hashLong((Long) theKey)
+				: hashBytes((byte[]) theKey);
+		Segment seg = segmentOf(hash);
+		int bucket = bucketOffset(seg, hash);
+		int bucket2 = bucketOffset2(seg, hash);
+		int now = nowSeconds();
+		seg.lock.lock();
+		try {
+			if (find(seg, bucket, bucket2, theKey, now) >= 0) {
+				return;
+			}
+			ByteBuffer buffer = seg.buffer;
+			// the less used bucket
+			int slot = (used(buffer, bucket2) < used(buffer, bucket)) ? freeSlot(
+					seg, bucket2, now) : freeSlot(seg, bucket, now);
+			if (slot < 0) {
+				slot = freeSlot(seg, bucket2, now);
+			}
+			if (slot < 0) {
+				// clock ,clear referenced bit until an unreferenced slot
+				int bucketIndex = bucket / (BUCKET_SLOTS * SLOT_SIZE);
+				int hand = seg.hands[bucketIndex];
+				for (;;) {
+					int off = bucket + hand * SLOT_SIZE;
+					hand = (hand + 1) & (BUCKET_SLOTS - 1);
+					if (buffer.get(off + OFF_REF) != 0) {
+						buffer.put(off + OFF_REF, (byte) 0);
+					} else {
+						slot = off;
+						break;
+					}
+				}
+				seg.hands[bucketIndex] = (byte) hand;
+			}
+			if (theKey instanceof Long) {
+				buffer.put(slot, LONG_KEY);
+				buffer.putLong(slot + OFF_KEY, (Long) theKey);
+			} else {
+				byte[] bytes = (byte[]) theKey;
+				buffer.put(slot, (byte) bytes.length);
+				for (int i = 0; i < bytes.length; i++) {
+					buffer.put(slot + OFF_KEY + i, bytes[i]);
+				}
+			}
+			buffer.put(slot + OFF_REF, (byte) 0);
+			buffer.putShort(slot + OFF_VALUE, (short) valueIndex);
+			buffer.putInt(slot + OFF_EXPIRE, expireSeconds > 0 ? now
+					+ expireSeconds : 0);
+		} finally {
+			seg.lock.unlock();
+		}
+		cacheStati.incPutTimes();
+	}
+
+	private static int used(ByteBuffer buffer, int bucket) {
+		int used = 0;
+		for (int i = 0; i < BUCKET_SLOTS; i++) {
+			if (buffer.get(bucket + i * SLOT_SIZE) != 0) {
+				used++;
+			}
+		}
+		return used;
+	}
+
+	/**
+	 * empty or expired slot of bucket ,-1 if none ,under lock
+	 */
+	private static int freeSlot(Segment seg, int bucket, int now) {
+		ByteBuffer buffer = seg.buffer;
+		for (int i = 0; i < BUCKET_SLOTS; i++) {
+			int off = bucket + i * SLOT_SIZE;
+			if (buffer.get(off) == 0) {
+				seg.count++;
+				return off;
+			} else if (expired(buffer, off, now)) {
+				return off;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public Object get(Object key) {
+		Object theKey = toKey(key);
+		Object value = null;
+		if (theKey != null) {
+			int hash = (theKey instanceof Long) ? hashLong((Long) theKey)
+					: hashBytes((byte[]) theKey);
+			Segment seg = segmentOf(hash);
+			int bucket = bucketOffset(seg, hash);
+			int bucket2 = bucketOffset2(seg, hash);
+			int now = nowSeconds();
+			seg.lock.lock();
+			try {
+				int off = find(seg, bucket, bucket2, theKey, now);
+				if (off >= 0) {
+					seg.buffer.put(off + OFF_REF, (byte) 1);
+					value = values[seg.buffer.getShort(off + OFF_VALUE) & 0xffff];
+				}
+			} finally {
+				seg.lock.unlock();
+			}
+		}
+		if (value != null) {
+			cacheStati.incHitTimes();
+		} else {
+			cacheStati.incAccessTimes();
+		}
+		return value;
+	}
+
+	@Override
+	public void clearCache() {
+		for (Segment seg : segments) {
+			seg.lock.lock();
+			try {
+				ByteBuffer buffer = seg.buffer;
+				for (int off = 0; off < buffer.capacity(); off += SLOT_SIZE) {
+					buffer.put(off, (byte) 0);
+				}
+				seg.count = 0;
+			} finally {
+				seg.lock.unlock();
+			}
+		}
+		cacheStati.reset();
+	}
+
+	@Override
+	public CacheStatic getCacheStatic() {
+		long count = 0;
+		for (Segment seg : segments) {
+			count += seg.count;
+		}
+		cacheStati.setItemSize(count);
+		cacheStati.setMemorySize(maxSize * SLOT_SIZE);
+		return cacheStati;
+	}
+
+	@Override
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	@Override
+	public String toString() {
+		return "OffHeapIDCachePool [name=" + name + ", maxSize=" + maxSize
+				+ "]";
+	}
+}
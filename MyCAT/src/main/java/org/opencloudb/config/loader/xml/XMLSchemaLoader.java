@@ -315,6 +315,7 @@ public class XMLSchemaLoader implements SchemaLoader {
 		String nodeUrl = node.getAttribute("url");
 		String user = node.getAttribute("user");
 		String password = node.getAttribute("password");
+		String weightStr = node.getAttribute("weight");
 		String ip = null;
 		int port = 0;
 		if (empty(nodeHost) || empty(nodeUrl) || empty(user)) {
@@ -345,6 +346,14 @@ public class XMLSchemaLoader implements SchemaLoader {
 		conf.setDbType(dbType);
 		conf.setMaxCon(maxCon);
 		conf.setMinCon(minCon);
+		if (!empty(weightStr)) {
+			int weight = Integer.valueOf(weightStr);
+			if (weight <= 0) {
+				throw new ConfigException("dataHost " + dataHost
+						+ " define error,weight must be positive: " + nodeHost);
+			}
+			conf.setWeight(weight);
+		}
 		return conf;
 	}
 
@@ -363,6 +372,12 @@ public class XMLSchemaLoader implements SchemaLoader {
 			String writeTypStr = element.getAttribute("writeType");
 			int writeType = "".equals(writeTypStr) ? PhysicalDBPool.WRITE_ONLYONE_NODE
 					: Integer.valueOf(writeTypStr);
+			String thresholdStr = element.getAttribute("slaveThreshold");
+			int slaveThreshold = "".equals(thresholdStr) ? -1 : Integer
+					.valueOf(thresholdStr);
+			String readBalancer = element.getAttribute("readBalancer");
+			String fetchSizeStr = element.getAttribute("fetchSize");
+			String stmtCacheSizeStr = element.getAttribute("stmtCacheSize");
 			String dbDriver = element.getAttribute("dbDriver");
 			String dbType = element.getAttribute("dbType");
 			String heartbeatSQL = element.getElementsByTagName("heartbeat")
@@ -395,6 +410,16 @@ public class XMLSchemaLoader implements SchemaLoader {
 			hostConf.setBalance(balance);
 			hostConf.setWriteType(writeType);
 			hostConf.setHearbeatSQL(heartbeatSQL);
+			hostConf.setSlaveThreshold(slaveThreshold);
+			if (!empty(readBalancer)) {
+				hostConf.setReadBalancer(readBalancer);
+			}
+			if (!empty(fetchSizeStr)) {
+				hostConf.setFetchSize(Integer.valueOf(fetchSizeStr));
+			}
+			if (!empty(stmtCacheSizeStr)) {
+				hostConf.setStmtCacheSize(Integer.valueOf(stmtCacheSizeStr));
+			}
 			dataHosts.put(hostConf.getName(), hostConf);
 
 		}
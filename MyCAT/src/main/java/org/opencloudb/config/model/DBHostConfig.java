@@ -34,6 +34,7 @@ public class DBHostConfig {
 	private int maxCon ;
 	private int minCon ;
 	private String dbType;
+	private int weight = 1;
 	
 	public String getDbType() {
 		return dbType;
@@ -54,6 +55,17 @@ public class DBHostConfig {
 		this.password = password;
 	}
 
+	/**
+	 * read weight used by weighted round robin read balance
+	 */
+	public int getWeight() {
+		return weight;
+	}
+
+	public void setWeight(int weight) {
+		this.weight = weight;
+	}
+
 	public long getIdleTimeout() {
 		return idleTimeout;
 	}
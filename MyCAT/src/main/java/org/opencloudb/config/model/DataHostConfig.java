@@ -44,6 +44,10 @@ public class DataHostConfig {
 	private final DBHostConfig[] writeHosts;
 	private final Map<Integer, DBHostConfig[]> readHosts;
 	private String hearbeatSQL;
+	private int slaveThreshold = -1;
+	private String readBalancer = "random";
+	private int fetchSize = 1000;
+	private int stmtCacheSize;
 
 	public DataHostConfig(String name, String dbType, String dbDriver,
 			DBHostConfig[] writeHosts, Map<Integer, DBHostConfig[]> readHosts) {
@@ -111,6 +115,52 @@ public class DataHostConfig {
 		return readHosts;
 	}
 
+	/**
+	 * max seconds a read source may lag behind its master, -1 means lag is
+	 * not checked
+	 */
+	public int getSlaveThreshold() {
+		return slaveThreshold;
+	}
+
+	public void setSlaveThreshold(int slaveThreshold) {
+		this.slaveThreshold = slaveThreshold;
+	}
+
+	/**
+	 * random ,weight ,leastActive or latency
+	 */
+	public String getReadBalancer() {
+		return readBalancer;
+	}
+
+	public void setReadBalancer(String readBalancer) {
+		this.readBalancer = readBalancer;
+	}
+
+	/**
+	 * rows fetched in one round trip by jdbc dataHost
+	 */
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+
+	/**
+	 * prepared statements cached in one connection by jdbc dataHost ,0 if
+	 * every sql is executed by a plain statement
+	 */
+	public int getStmtCacheSize() {
+		return stmtCacheSize;
+	}
+
+	public void setStmtCacheSize(int stmtCacheSize) {
+		this.stmtCacheSize = stmtCacheSize;
+	}
+
 	public String getHearbeatSQL() {
 		return hearbeatSQL;
 	}
@@ -90,6 +90,19 @@ public final class SystemConfig {
     
     public static final int MUTINODELIMIT_PATCH_SIZE = 100;
     private int mutiNodePatchSize=MUTINODELIMIT_PATCH_SIZE;
+
+	// 跨节点合并结果的内存上限，超过则写入临时文件
+	private static final long DEFAULT_MERGE_SESSION_MEMORY = 16 * 1024 * 1024L;
+	private long mergeSessionMemory = DEFAULT_MERGE_SESSION_MEMORY;
+	private long mergeTotalMemory = Runtime.getRuntime().maxMemory() / 4;
+	private String mergeTempDir;
+	// sql shapes kept by route cache
+	private int routeShapeCacheSize = 10000;
+	// 多行insert按分片拆分后，每条后端语句的行数和字节数上限
+	private int maxInsertRows = 1000;
+	private int maxInsertBytes = 1024 * 1024;
+	// load data 等待写入后端的数据上限，超过则暂停读取客户端文件
+	private int loadDataBufferSize = 16 * 1024 * 1024;
 	
 	public SystemConfig() {
 		this.serverPort = DEFAULT_PORT;
@@ -368,6 +381,62 @@ public final class SystemConfig {
 		this.mutiNodeLimitType = mutiNodeLimitType;
 	}
 
+	public long getMergeSessionMemory() {
+		return mergeSessionMemory;
+	}
+
+	public void setMergeSessionMemory(long mergeSessionMemory) {
+		this.mergeSessionMemory = mergeSessionMemory;
+	}
+
+	public long getMergeTotalMemory() {
+		return mergeTotalMemory;
+	}
+
+	public void setMergeTotalMemory(long mergeTotalMemory) {
+		this.mergeTotalMemory = mergeTotalMemory;
+	}
+
+	public String getMergeTempDir() {
+		return mergeTempDir;
+	}
+
+	public void setMergeTempDir(String mergeTempDir) {
+		this.mergeTempDir = mergeTempDir;
+	}
+
+	public int getRouteShapeCacheSize() {
+		return routeShapeCacheSize;
+	}
+
+	public void setRouteShapeCacheSize(int routeShapeCacheSize) {
+		this.routeShapeCacheSize = routeShapeCacheSize;
+	}
+
+	public int getMaxInsertRows() {
+		return maxInsertRows;
+	}
+
+	public void setMaxInsertRows(int maxInsertRows) {
+		this.maxInsertRows = maxInsertRows;
+	}
+
+	public int getMaxInsertBytes() {
+		return maxInsertBytes;
+	}
+
+	public void setMaxInsertBytes(int maxInsertBytes) {
+		this.maxInsertBytes = maxInsertBytes;
+	}
+
+	public int getLoadDataBufferSize() {
+		return loadDataBufferSize;
+	}
+
+	public void setLoadDataBufferSize(int loadDataBufferSize) {
+		this.loadDataBufferSize = loadDataBufferSize;
+	}
+
 	public int getMutiNodePatchSize() {
 		return mutiNodePatchSize;
 	}
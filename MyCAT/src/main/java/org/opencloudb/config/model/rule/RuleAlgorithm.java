@@ -42,6 +42,11 @@ public interface RuleAlgorithm {
 	 * @return never null
 	 */
 	Integer calculate(String columnValue);
+
+	/**
+	 * calculate of integer value ,no string parsing
+	 */
+	Integer calculate(long columnValue);
 	
 	Integer[] calculateRange(String beginValue,String endValue);
 }
\ No newline at end of file
@@ -158,6 +158,12 @@ public final class ShowHandler {
 		case ManagerParseShow.CACHE:
 			ShowCache.execute(c);
 			break;
+		case ManagerParseShow.ROUTE_CACHE:
+			ShowRouteCache.execute(c);
+			break;
+		case ManagerParseShow.LOAD_DATA:
+			ShowLoadData.execute(c);
+			break;
 		case ManagerParseShow.SESSION:
 			ShowSession.execute(c);
 			break;
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.handler;
+
+import java.nio.ByteBuffer;
+
+import org.opencloudb.config.Fields;
+import org.opencloudb.manager.ManagerConnection;
+import org.opencloudb.mysql.PacketUtil;
+import org.opencloudb.net.mysql.EOFPacket;
+import org.opencloudb.net.mysql.FieldPacket;
+import org.opencloudb.net.mysql.ResultSetHeaderPacket;
+import org.opencloudb.net.mysql.RowDataPacket;
+import org.opencloudb.server.handler.LoadDataInfileHandler;
+import org.opencloudb.util.LongUtil;
+import org.opencloudb.util.StringUtil;
+import org.opencloudb.util.TimeUtil;
+
+/**
+ * running and recently finished load data local infile
+ */
+public class ShowLoadData {
+
+	private static final int FIELD_COUNT = 12;
+	private static final ResultSetHeaderPacket header = PacketUtil
+			.getHeader(FIELD_COUNT);
+	private static final FieldPacket[] fields = new FieldPacket[FIELD_COUNT];
+	private static final EOFPacket eof = new EOFPacket();
+	static {
+		int i = 0;
+		byte packetId = 0;
+		header.packetId = ++packetId;
+
+		fields[i] = PacketUtil.getField("ID", Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+		fields[i] = PacketUtil.getField("CONNECTION", Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+		fields[i] = PacketUtil.getField("SCHEMA", Fields.FIELD_TYPE_VAR_STRING);
+		fields[i++].packetId = ++packetId;
+		fields[i] = PacketUtil.getField("TABLE", Fields.FIELD_TYPE_VAR_STRING);
+		fields[i++].packetId = ++packetId;
+		fields[i] = PacketUtil.getField("ROWS", Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+		fields[i] = PacketUtil.getField("BYTES", Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+		fields[i] = PacketUtil.getField("BATCHES", Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+		fields[i] = PacketUtil.getField("AFFECTED", Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+		fields[i] = PacketUtil.getField("PENDING", Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+		fields[i] = PacketUtil.getField("TIME_MS", Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+		fields[i] = PacketUtil.getField("ROWS_PER_SEC",
+				Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+		fields[i] = PacketUtil.getField("STATUS", Fields.FIELD_TYPE_VAR_STRING);
+		fields[i++].packetId = ++packetId;
+		eof.packetId = ++packetId;
+	}
+
+	public static void execute(ManagerConnection c) {
+
+		ByteBuffer buffer = c.allocate();
+
+		// write header
+		buffer = header.write(buffer, c,true);
+
+		// write fields
+		for (FieldPacket field : fields) {
+			buffer = field.write(buffer, c,true);
+		}
+
+		// write eof
+		buffer = eof.write(buffer, c,true);
+
+		// write rows
+		byte packetId = eof.packetId;
+		for (LoadDataInfileHandler load : LoadDataInfileHandler.getLoads()) {
+			RowDataPacket row = getRow(load, c.getCharset());
+			row.packetId = ++packetId;
+			buffer = row.write(buffer, c,true);
+		}
+
+		// write last eof
+		EOFPacket lastEof = new EOFPacket();
+		lastEof.packetId = ++packetId;
+		buffer = lastEof.write(buffer, c,true);
+
+		// write buffer
+		c.write(buffer);
+	}
+
+	private static RowDataPacket getRow(LoadDataInfileHandler load,
+			String charset) {
+		RowDataPacket row = new RowDataPacket(FIELD_COUNT);
+		row.add(LongUtil.toBytes(load.getId()));
+		row.add(LongUtil.toBytes(load.getSourceId()));
+		row.add(StringUtil.encode(load.getSchema(), charset));
+		row.add(StringUtil.encode(load.getTable(), charset));
+		long rows = load.getRows();
+		row.add(LongUtil.toBytes(rows));
+		row.add(LongUtil.toBytes(load.getBytes()));
+		row.add(LongUtil.toBytes(load.getBatches()));
+		row.add(LongUtil.toBytes(load.getAffectedRows()));
+		row.add(LongUtil.toBytes(load.getPendingChars()));
+		long end = load.getEndTime() > 0 ? load.getEndTime() : TimeUtil
+				.currentTimeMillis();
+		long time = Math.max(0, end - load.getStartTime());
+		row.add(LongUtil.toBytes(time));
+		row.add(LongUtil.toBytes(time == 0 ? 0 : rows * 1000 / time));
+		row.add(StringUtil.encode(load.getStatus(), charset));
+		return row;
+	}
+
+}
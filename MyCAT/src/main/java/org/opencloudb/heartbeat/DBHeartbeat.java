@@ -32,6 +32,10 @@ public abstract class DBHeartbeat {
 	public static final int ERROR_STATUS = -1;
 	public static final int TIMEOUT_STATUS = -2;
 	public static final int INIT_STATUS = 0;
+	// slave lag not checked or source is not a slave
+	public static final int SLAVE_LAG_UNKNOWN = -1;
+	// Seconds_Behind_Master is NULL, replication is not running
+	public static final int SLAVE_LAG_BROKEN = -2;
 	private static final long DEFAULT_HEARTBEAT_TIMEOUT = 30 * 1000L;
 	private static final int DEFAULT_HEARTBEAT_RETRY = 10;
 	// heartbeat config
@@ -42,6 +46,7 @@ public abstract class DBHeartbeat {
 	protected final AtomicBoolean isChecking = new AtomicBoolean(false);
 	protected int errorCount;
 	protected volatile int status;
+	protected volatile int slaveBehindMaster = SLAVE_LAG_UNKNOWN;
 	protected final HeartbeatRecorder recorder = new HeartbeatRecorder();
 
 	public int getStatus() {
@@ -64,6 +69,14 @@ public abstract class DBHeartbeat {
 		return errorCount;
 	}
 
+	public int getSlaveBehindMaster() {
+		return slaveBehindMaster;
+	}
+
+	public void setSlaveBehindMaster(int slaveBehindMaster) {
+		this.slaveBehindMaster = slaveBehindMaster;
+	}
+
 	public HeartbeatRecorder getRecorder() {
 		return recorder;
 	}
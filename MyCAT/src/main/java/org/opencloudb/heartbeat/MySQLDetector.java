@@ -50,6 +50,7 @@ import org.opencloudb.util.TimeUtil;
 public class MySQLDetector extends BackendAIOConnection {
 	private static final Logger LOGGER = Logger.getLogger(MySQLDetector.class);
 	private static final long CLIENT_FLAGS = initClientFlags();
+	private static final String SLAVE_STATUS_SQL = "SHOW SLAVE STATUS";
 
 	private MySQLHeartbeat heartbeat;
 	private final long clientFlags;
@@ -170,6 +171,9 @@ public class MySQLDetector extends BackendAIOConnection {
 		if (isAuthenticated) {
 			String sql = heartbeat.getHeartbeatSQL();
 			if (sql != null) {
+				if (heartbeat.isCheckSlaveLag()) {
+					sql = SLAVE_STATUS_SQL;
+				}
 				CommandPacket packet = new CommandPacket();
 				packet.packetId = 0;
 				packet.command = MySQLPacket.COM_QUERY;
@@ -373,6 +377,11 @@ public class MySQLDetector extends BackendAIOConnection {
 		
 	}
 
+	@Override
+	public boolean compareAndSetBorrowed(boolean expect, boolean update) {
+		return false;
+	}
+
 	@Override
 	public int getTxIsolation() {
 		return 0;
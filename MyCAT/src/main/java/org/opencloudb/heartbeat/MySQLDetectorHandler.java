@@ -28,7 +28,9 @@ import org.opencloudb.exception.HeartbeatException;
 import org.opencloudb.net.handler.BackendAsyncHandler;
 import org.opencloudb.net.mysql.EOFPacket;
 import org.opencloudb.net.mysql.ErrorPacket;
+import org.opencloudb.net.mysql.FieldPacket;
 import org.opencloudb.net.mysql.OkPacket;
+import org.opencloudb.net.mysql.RowDataPacket;
 
 /**
  * @author mycat
@@ -37,9 +39,13 @@ public class MySQLDetectorHandler extends BackendAsyncHandler {
     private static final int RESULT_STATUS_INIT = 0;
     private static final int RESULT_STATUS_HEADER = 1;
     private static final int RESULT_STATUS_FIELD_EOF = 2;
+    private static final String SLAVE_LAG_FIELD = "Seconds_Behind_Master";
 
     private final MySQLDetector source;
     private volatile int resultStatus;
+    private int fieldCount;
+    private int lagFieldIndex;
+    private int slaveLag;
 
     public MySQLDetectorHandler(MySQLDetector source) {
         this.source = source;
@@ -71,6 +77,9 @@ public class MySQLDetectorHandler extends BackendAsyncHandler {
                 break;
             default:
                 resultStatus = RESULT_STATUS_HEADER;
+                fieldCount = 0;
+                lagFieldIndex = -1;
+                slaveLag = MySQLHeartbeat.SLAVE_LAG_UNKNOWN;
             }
             break;
         case RESULT_STATUS_HEADER:
@@ -82,6 +91,8 @@ public class MySQLDetectorHandler extends BackendAsyncHandler {
             case EOFPacket.FIELD_COUNT:
                 resultStatus = RESULT_STATUS_FIELD_EOF;
                 break;
+            default:
+                handleFieldPacket(data);
             }
             break;
         case RESULT_STATUS_FIELD_EOF:
@@ -94,6 +105,8 @@ public class MySQLDetectorHandler extends BackendAsyncHandler {
                 resultStatus = RESULT_STATUS_INIT;
                 handleRowEofPacket();
                 break;
+            default:
+                handleRowPacket(data);
             }
             break;
         default:
@@ -124,10 +137,47 @@ public class MySQLDetectorHandler extends BackendAsyncHandler {
         throw new HeartbeatException(new String(err.message));
     }
 
+    /**
+     * 字段包处理，记录SHOW SLAVE STATUS的延迟字段位置
+     */
+    private void handleFieldPacket(byte[] data) {
+        FieldPacket field = new FieldPacket();
+        field.read(data);
+        if (field.name != null && SLAVE_LAG_FIELD.equals(new String(field.name))) {
+            lagFieldIndex = fieldCount;
+        }
+        fieldCount++;
+    }
+
+    /**
+     * 行数据包处理，取出从库延迟秒数
+     */
+    private void handleRowPacket(byte[] data) {
+        if (lagFieldIndex < 0) {
+            return;
+        }
+        RowDataPacket row = new RowDataPacket(fieldCount);
+        row.read(data);
+        byte[] lag = row.fieldValues.get(lagFieldIndex);
+        // NULL is read as empty bytes
+        if (lag == null || lag.length == 0) {
+            slaveLag = MySQLHeartbeat.SLAVE_LAG_BROKEN;
+            return;
+        }
+        try {
+            slaveLag = Integer.parseInt(new String(lag));
+        } catch (NumberFormatException e) {
+            slaveLag = MySQLHeartbeat.SLAVE_LAG_BROKEN;
+        }
+    }
+
     /**
      * 行数据包结束处理
      */
     private void handleRowEofPacket() {
+        if (lagFieldIndex >= 0) {
+            source.getHeartbeat().setSlaveBehindMaster(slaveLag);
+        }
         source.getHeartbeat().setResult(MySQLHeartbeat.OK_STATUS, source, false,null);
     }
 
@@ -46,6 +46,7 @@ public class MySQLHeartbeat extends DBHeartbeat {
 
 	private final ReentrantLock lock;
 	private final int maxRetryCount;
+	private final boolean checkSlaveLag;
 
 	private MySQLDetector detector;
 
@@ -56,12 +57,20 @@ public class MySQLHeartbeat extends DBHeartbeat {
 		this.maxRetryCount = MAX_RETRY_COUNT;
 		this.status = INIT_STATUS;
 		this.heartbeatSQL = source.getHostConfig().getHearbeatSQL();
+		this.checkSlaveLag = source.getHostConfig().getSlaveThreshold() >= 0;
 	}
 
 	public MySQLDataSource getSource() {
 		return source;
 	}
 
+	/**
+	 * heartbeat with SHOW SLAVE STATUS to collect replication lag
+	 */
+	public boolean isCheckSlaveLag() {
+		return checkSlaveLag;
+	}
+
 	public MySQLDetector getDetector() {
 		return detector;
 	}
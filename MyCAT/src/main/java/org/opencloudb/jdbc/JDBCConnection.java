@@ -2,16 +2,19 @@ package org.opencloudb.jdbc;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.nio.ByteBuffer;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.log4j.Logger;
 import org.opencloudb.backend.BackendConnection;
 import org.opencloudb.config.ErrorCode;
 import org.opencloudb.mysql.nio.handler.ResponseHandler;
@@ -23,31 +26,59 @@ import org.opencloudb.net.mysql.ResultSetHeaderPacket;
 import org.opencloudb.net.mysql.RowDataPacket;
 import org.opencloudb.route.RouteResultsetNode;
 import org.opencloudb.server.ServerConnection;
-import org.opencloudb.server.parser.ServerParse;
 import org.opencloudb.util.ResultSetUtil;
+import org.opencloudb.util.StringUtil;
 
+/**
+ * statements run in the executor of JDBCDatasource ,rows are sent to the
+ * response handler as they are fetched
+ */
 public class JDBCConnection implements BackendConnection {
+	private static final Logger LOGGER = Logger.getLogger(JDBCConnection.class);
+	private static final AtomicLong ID_GENERATOR = new AtomicLong();
+	private static final String DEFAULT_CHARSET = "utf8";
 	private JDBCDatasource pool;
 	private volatile String schema;
 	private volatile String oldSchema;
 	private byte packetId;
 	private int txIsolation;
+	private volatile boolean autocommit = true;
 	private volatile boolean running = false;
-	private volatile boolean borrowed;
-	private long id = 0;
+	private final AtomicBoolean borrowed = new AtomicBoolean();
+	// frontend write queue is high ,fetching rows waits on readLock
+	private volatile boolean readSuspended;
+	private final Object readLock = new Object();
+	private final long id;
 	private String host;
 	private int port;
 	private Connection con;
 	private ResponseHandler respHandler;
 	private volatile Object attachement;
 
-	boolean headerOutputed = false;
 	private volatile boolean modifiedSQLExecuted;
 	private final long startTime;
 	private long lastTime;
+	// 0 if sql is executed by plain statement
+	private int stmtCacheSize;
+	// sql -> prepared statement ,least recently used closed first
+	private final Map<String, PreparedStatement> stmtCache = new LinkedHashMap<String, PreparedStatement>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(
+				Map.Entry<String, PreparedStatement> eldest) {
+			if (size() > stmtCacheSize) {
+				closeQuietly(eldest.getValue());
+				return true;
+			}
+			return false;
+		}
+	};
 
 	public JDBCConnection() {
 		startTime = System.currentTimeMillis();
+		id = ID_GENERATOR.incrementAndGet();
 	}
 
 	public Connection getCon() {
@@ -56,11 +87,23 @@ public class JDBCConnection implements BackendConnection {
 
 	public void setCon(Connection con) {
 		this.con = con;
-
+		try {
+			this.autocommit = con.getAutoCommit();
+			this.txIsolation = con.getTransactionIsolation();
+		} catch (SQLException e) {
+			LOGGER.warn("get connection state error " + this, e);
+		}
 	}
 
 	@Override
 	public void close(String reason) {
+		resumeRead();
+		synchronized (stmtCache) {
+			for (PreparedStatement stmt : stmtCache.values()) {
+				closeQuietly(stmt);
+			}
+			stmtCache.clear();
+		}
 		try {
 			con.close();
 		} catch (SQLException e) {
@@ -70,6 +113,7 @@ public class JDBCConnection implements BackendConnection {
 
 	public void setPool(JDBCDatasource pool) {
 		this.pool = pool;
+		this.stmtCacheSize = pool.getStmtCacheSize();
 	}
 
 	public void setHost(String host) {
@@ -133,7 +177,7 @@ public class JDBCConnection implements BackendConnection {
 
 	@Override
 	public boolean isFromSlaveDB() {
-		return false;
+		return pool.isReadNode();
 	}
 
 	@Override
@@ -179,6 +223,8 @@ public class JDBCConnection implements BackendConnection {
 
 	@Override
 	public void release() {
+		// never return a read suspended connection to pool
+		resumeRead();
 		modifiedSQLExecuted = false;
 		setResponseHandler(null);
 		pool.releaseChannel(this);
@@ -198,154 +244,244 @@ public class JDBCConnection implements BackendConnection {
 
 	@Override
 	public void commit() {
+		submit(new Runnable() {
+			@Override
+			public void run() {
+				endTransaction(true);
+			}
+		});
+	}
+
+	@Override
+	public void rollback() {
+		submit(new Runnable() {
+			@Override
+			public void run() {
+				endTransaction(false);
+			}
+		});
+	}
+
+	/**
+	 * run task in executor of the datasource ,error response if executor is
+	 * full
+	 */
+	private void submit(final Runnable task) {
+		running = true;
+		boolean submitted = pool.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					task.run();
+				} catch (Throwable e) {
+					LOGGER.warn("jdbc task error " + JDBCConnection.this, e);
+				}
+			}
+		});
+		if (!submitted) {
+			packetId = 0;
+			errorResponse(ErrorCode.ER_UNKNOWN_ERROR,
+					"jdbc executor is full ,datasource " + pool.getName(),
+					DEFAULT_CHARSET);
+		}
+	}
+
+	private void endTransaction(boolean commit) {
 		try {
-			con.commit();
+			if (commit) {
+				con.commit();
+			} else {
+				con.rollback();
+			}
 		} catch (SQLException e) {
-			throw new RuntimeException(e);
+			packetId = 0;
+			errorResponse(e, DEFAULT_CHARSET);
+			return;
 		}
+		running = false;
+		this.respHandler.okResponse(OkPacket.OK, this);
 	}
 
-	private void executeSQL(RouteResultsetNode rrn, ServerConnection sc,
-			boolean autocommit) throws IOException {
-		String orgin = rrn.getStatement();
-		String sql = rrn.getStatement().toLowerCase();
+	private void executeSQL(String sql, boolean autocommit, String charset) {
+		packetId = 0;
 		try {
-			if (!this.schema.equals(this.oldSchema)) {
+			if (schema != null && !schema.equals(this.oldSchema)) {
 				con.setCatalog(schema);
 				this.oldSchema = schema;
 			}
-			con.setAutoCommit(autocommit);
-			int sqlType=rrn.getSqlType();
-			if (sqlType==ServerParse.SELECT||sqlType==ServerParse.SHOW) {
-				ouputResultSet(sc, orgin);
+			if (this.autocommit != autocommit) {
+				con.setAutoCommit(autocommit);
+				this.autocommit = autocommit;
+			}
+			// sql with literals rarely repeats ,so plain statement by default
+			if (stmtCacheSize > 0) {
+				PreparedStatement stmt = prepare(sql);
+				stmt.setFetchSize(pool.getFetchSize());
+				outputResult(stmt, stmt.execute(), charset);
 			} else {
-				executeddl(sc, sql);
+				Statement stmt = con.createStatement();
+				try {
+					stmt.setFetchSize(pool.getFetchSize());
+					outputResult(stmt, stmt.execute(sql), charset);
+				} finally {
+					closeQuietly(stmt);
+				}
 			}
-
 		} catch (SQLException e) {
-			e.printStackTrace();
-			ErrorPacket error = new ErrorPacket();
-			error.packetId = ++packetId;
-			error.errno = ErrorCode.ERR_NOT_SUPPORTED;
-			error.message = "not supporeted yet".getBytes();
-			this.respHandler.errorResponse(error.writeToBytes(sc), this);
-		} finally {
-			this.running = false;
+			LOGGER.warn("execute sql error " + sql + " " + this, e);
+			evict(sql);
+			errorResponse(e, charset);
 		}
-
 	}
 
-	private void executeddl(ServerConnection sc, String sql)
-			throws SQLException {
-		Statement stmt = null;
-		try {
-			int count = con.createStatement().executeUpdate(sql);
+	private void outputResult(Statement stmt, boolean hasResultSet,
+			String charset) throws SQLException {
+		if (hasResultSet) {
+			ResultSet rs = stmt.getResultSet();
+			try {
+				ouputResultSet(rs, charset);
+			} finally {
+				closeQuietly(rs);
+			}
+		} else {
 			OkPacket okPck = new OkPacket();
-			okPck.affectedRows = count;
+			okPck.affectedRows = Math.max(stmt.getUpdateCount(), 0);
 			okPck.insertId = 0;
 			okPck.packetId = ++packetId;
 			okPck.message = " OK!".getBytes();
-			this.respHandler.okResponse(okPck.writeToBytes(sc), this);
-		} finally {
-			if (stmt != null) {
-				try {
-					stmt.close();
-				} catch (SQLException e) {
+			running = false;
+			this.respHandler.okResponse(okPck.writeToBytes(), this);
+		}
+	}
 
-				}
+	private PreparedStatement prepare(String sql) throws SQLException {
+		synchronized (stmtCache) {
+			PreparedStatement stmt = stmtCache.get(sql);
+			if (stmt == null) {
+				stmt = con.prepareStatement(sql);
+				stmtCache.put(sql, stmt);
 			}
+			return stmt;
 		}
 	}
 
-	private void ouputResultSet(ServerConnection sc, String sql)
-			throws SQLException {
-		ResultSet rs = null;
-		Statement stmt = null;
-
-		try {
-			stmt = con.createStatement();
-			rs = stmt.executeQuery(sql);
-			List<RowDataPacket> rowsPkg = new LinkedList<RowDataPacket>();
-			List<FieldPacket> fieldPks = new LinkedList<FieldPacket>();
-			ResultSetUtil.resultSetToPacket(sc.getCharset(), con, fieldPks, rs,
-					rowsPkg);
-			ByteBuffer byteBuf = sc.allocate();
-			ResultSetHeaderPacket headerPkg = new ResultSetHeaderPacket();
-			headerPkg.fieldCount = fieldPks.size();
-			headerPkg.packetId = ++packetId;
-
-			byteBuf = headerPkg.write(byteBuf, sc, true);
-			byteBuf.flip();
-			byte[] header = new byte[byteBuf.limit()];
-			byteBuf.get(header);
-			byteBuf.clear();
-			List<byte[]> fields = new ArrayList<byte[]>(fieldPks.size());
-			Iterator<FieldPacket> itor = fieldPks.iterator();
-			while (itor.hasNext()) {
-				FieldPacket curField = itor.next();
-				curField.packetId = ++packetId;
-				byteBuf = curField.write(byteBuf, sc, false);
-				byteBuf.flip();
-				byte[] field = new byte[byteBuf.limit()];
-				byteBuf.get(field);
-				byteBuf.clear();
-				fields.add(field);
-				itor.remove();
+	private void evict(String sql) {
+		synchronized (stmtCache) {
+			PreparedStatement stmt = stmtCache.remove(sql);
+			if (stmt != null) {
+				closeQuietly(stmt);
 			}
-			EOFPacket eofPckg = new EOFPacket();
-			eofPckg.packetId = ++packetId;
-			byteBuf = eofPckg.write(byteBuf, sc, false);
-			byteBuf.flip();
-			byte[] eof = new byte[byteBuf.limit()];
-			byteBuf.get(eof);
-			byteBuf.clear();
-			this.respHandler.fieldEofResponse(header, fields, eof, this);
-
-			// output row
-			Iterator<RowDataPacket> rowItor = rowsPkg.iterator();
-			while (rowItor.hasNext()) {
-				RowDataPacket curRow = rowItor.next();
-				curRow.packetId = ++packetId;
-				rowItor.remove();
-				byteBuf = curRow.write(byteBuf, sc, false);
-				byteBuf.flip();
-				byte[] row = new byte[byteBuf.limit()];
-				byteBuf.get(row);
-				byteBuf.clear();
-				this.respHandler.rowResponse(row, this);
+		}
+	}
 
-			}
+	private void errorResponse(SQLException e, String charset) {
+		int errno = (e.getErrorCode() > 0) ? e.getErrorCode()
+				: ErrorCode.ER_UNKNOWN_ERROR;
+		errorResponse(errno, String.valueOf(e.getMessage()), charset);
+	}
 
-			// end row
-			eofPckg = new EOFPacket();
-			eofPckg.packetId = ++packetId;
-			byteBuf = eofPckg.write(byteBuf, sc, false);
-			byteBuf.flip();
-			eof = new byte[byteBuf.limit()];
-			byteBuf.get(eof);
-			sc.recycle(byteBuf);
-			this.respHandler.rowEofResponse(eof, this);
-		} finally {
-			if (rs != null) {
-				try {
-					rs.close();
-				} catch (SQLException e) {
+	private void errorResponse(int errno, String msg, String charset) {
+		ErrorPacket error = new ErrorPacket();
+		error.packetId = ++packetId;
+		error.errno = errno;
+		error.message = StringUtil.encode(msg, charset);
+		running = false;
+		this.respHandler.errorResponse(error.writeToBytes(), this);
+	}
 
-				}
-			}
-			if (stmt != null) {
-				try {
-					stmt.close();
-				} catch (SQLException e) {
+	/**
+	 * fields first ,then each row when fetched ,fetchSize rows are buffered
+	 * by driver at most
+	 */
+	private void ouputResultSet(ResultSet rs, String charset)
+			throws SQLException {
+		List<FieldPacket> fieldPks = new ArrayList<FieldPacket>();
+		int colunmCount = ResultSetUtil.resultSetToFieldPacket(charset,
+				fieldPks, rs.getMetaData());
+		ResultSetHeaderPacket headerPkg = new ResultSetHeaderPacket();
+		headerPkg.fieldCount = colunmCount;
+		headerPkg.packetId = ++packetId;
+		byte[] header = headerPkg.writeToBytes();
+		List<byte[]> fields = new ArrayList<byte[]>(colunmCount);
+		for (FieldPacket curField : fieldPks) {
+			curField.packetId = ++packetId;
+			fields.add(curField.writeToBytes());
+		}
+		EOFPacket eofPckg = new EOFPacket();
+		eofPckg.packetId = ++packetId;
+		this.respHandler.fieldEofResponse(header, fields,
+				eofPckg.writeToBytes(), this);
+
+		// output row
+		while (rs.next()) {
+			waitReadResumed();
+			RowDataPacket curRow = ResultSetUtil.resultSetToRowPacket(charset,
+					rs, colunmCount);
+			curRow.packetId = ++packetId;
+			this.respHandler.rowResponse(curRow.writeToBytes(), this);
+		}
 
+		// end row
+		eofPckg = new EOFPacket();
+		eofPckg.packetId = ++packetId;
+		running = false;
+		this.respHandler.rowEofResponse(eofPckg.writeToBytes(), this);
+	}
+
+	/**
+	 * wait until the frontend drained its write queue
+	 */
+	private void waitReadResumed() throws SQLException {
+		if (!readSuspended) {
+			return;
+		}
+		synchronized (readLock) {
+			while (readSuspended && !isClosed()) {
+				try {
+					readLock.wait(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SQLException("interrupted when fetching rows");
 				}
 			}
 		}
 	}
 
 	@Override
-	public void query(String sql) throws UnsupportedEncodingException {
+	public void suspendRead() {
+		readSuspended = true;
+	}
+
+	@Override
+	public void resumeRead() {
+		synchronized (readLock) {
+			readSuspended = false;
+			readLock.notifyAll();
+		}
+	}
 
+	private static void closeQuietly(Statement stmt) {
+		try {
+			stmt.close();
+		} catch (SQLException e) {
+		}
+	}
+
+	private static void closeQuietly(ResultSet rs) {
+		try {
+			rs.close();
+		} catch (SQLException e) {
+		}
+	}
+
+	@Override
+	public void query(final String sql) throws UnsupportedEncodingException {
+		submit(new Runnable() {
+			@Override
+			public void run() {
+				executeSQL(sql, autocommit, DEFAULT_CHARSET);
+			}
+		});
 	}
 
 	@Override
@@ -360,9 +496,15 @@ public class JDBCConnection implements BackendConnection {
 
 	@Override
 	public void execute(RouteResultsetNode node, ServerConnection source,
-			boolean autocommit) throws IOException {
-		executeSQL(node, source, autocommit);
-
+			final boolean autocommit) throws IOException {
+		final String sql = node.getStatement();
+		final String charset = source.getCharset();
+		submit(new Runnable() {
+			@Override
+			public void run() {
+				executeSQL(sql, autocommit, charset);
+			}
+		});
 	}
 
 	@Override
@@ -375,15 +517,6 @@ public class JDBCConnection implements BackendConnection {
 		return true;
 	}
 
-	@Override
-	public void rollback() {
-		try {
-			con.rollback();
-		} catch (SQLException e) {
-			throw new RuntimeException(e);
-		}
-	}
-
 	
 
 	
@@ -394,40 +527,27 @@ public class JDBCConnection implements BackendConnection {
 
 	@Override
 	public boolean isBorrowed() {
-		return this.borrowed;
+		return this.borrowed.get();
 	}
 
 	@Override
 	public void setBorrowed(boolean borrowed) {
-		this.borrowed = borrowed;
+		this.borrowed.set(borrowed);
+	}
 
+	@Override
+	public boolean compareAndSetBorrowed(boolean expect, boolean update) {
+		return this.borrowed.compareAndSet(expect, update);
 	}
 
 	@Override
 	public int getTxIsolation() {
-		if (con != null) {
-			try {
-				return con.getTransactionIsolation();
-			} catch (SQLException e) {
-				return 0;
-			}
-		} else {
-			return -1;
-		}
+		return (con == null) ? -1 : txIsolation;
 	}
 
 	@Override
 	public boolean isAutocommit() {
-		if (con == null) {
-			return true;
-		} else {
-			try {
-				return con.getAutoCommit();
-			} catch (SQLException e) {
-
-			}
-		}
-		return true;
+		return autocommit;
 	}
 
 	@Override
@@ -439,12 +559,7 @@ public class JDBCConnection implements BackendConnection {
 	public String toString() {
 		return "JDBCConnection [autocommit=" + this.isAutocommit()
 				+ ", txIsolation=" + txIsolation + ", running=" + running
-				+ ", borrowed=" + borrowed + ", id=" + id + ", host=" + host
+				+ ", borrowed=" + borrowed.get() + ", id=" + id + ", host=" + host
 				+ ", port=" + port + "]";
 	}
-
-	@Override
-	public boolean isFake(){
-		return false;
-	}
 }
@@ -3,18 +3,50 @@ package org.opencloudb.jdbc;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.opencloudb.backend.PhysicalDatasource;
 import org.opencloudb.config.model.DBHostConfig;
 import org.opencloudb.config.model.DataHostConfig;
 import org.opencloudb.heartbeat.DBHeartbeat;
 import org.opencloudb.mysql.nio.handler.ResponseHandler;
+import org.opencloudb.util.ExecutorUtil;
+import org.opencloudb.util.NameableExecutor;
 
+/**
+ * blocking jdbc calls run in the executor of this datasource ,never in
+ * processor threads ,so a slow jdbc host only exhausts its own threads
+ */
 public class JDBCDatasource extends PhysicalDatasource {
+	private final NameableExecutor executor;
+
 	public JDBCDatasource(DBHostConfig config, DataHostConfig hostConfig,
 			boolean isReadNode) {
 		super(config, hostConfig, isReadNode);
+		// every task holds one connection ,so maxCon threads are enough
+		this.executor = ExecutorUtil.create("JDBCExecutor-"
+				+ config.getHostName() + "-", config.getMaxCon(),
+				config.getMaxCon());
+	}
+
+	/**
+	 * @return false if too many tasks waiting
+	 */
+	boolean submit(Runnable task) {
+		try {
+			executor.execute(task);
+			return true;
+		} catch (RejectedExecutionException e) {
+			return false;
+		}
+	}
+
+	public int getFetchSize() {
+		return getHostConfig().getFetchSize();
+	}
 
+	public int getStmtCacheSize() {
+		return getHostConfig().getStmtCacheSize();
 	}
 
 	@Override
@@ -23,24 +55,34 @@ public class JDBCDatasource extends PhysicalDatasource {
 	}
 
 	@Override
-	public void createNewConnection(ResponseHandler handler) throws IOException {
-		DBHostConfig dsc = getConfig();
-		JDBCConnection c = new JDBCConnection();
+	public void createNewConnection(final ResponseHandler handler)
+			throws IOException {
+		final DBHostConfig dsc = getConfig();
+		final JDBCConnection c = new JDBCConnection();
 
 		c.setHost(dsc.getIp());
 		c.setPort(dsc.getPort());
 		c.setPool(this);
-		try {
-			Connection con = DriverManager.getConnection(dsc.getUrl(),
-					dsc.getUser(), dsc.getPassword());
-			// c.setIdleTimeout(pool.getConfig().getIdleTimeout());
-			c.setCon(con);
-			// notify handler
-			handler.connectionAcquired(c);
-		} catch (Exception e) {
-			handler.connectionError(e, c);
+		boolean submitted = submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Connection con = DriverManager.getConnection(dsc.getUrl(),
+							dsc.getUser(), dsc.getPassword());
+					// c.setIdleTimeout(pool.getConfig().getIdleTimeout());
+					c.setCon(con);
+				} catch (Exception e) {
+					handler.connectionError(e, c);
+					return;
+				}
+				// notify handler
+				handler.connectionAcquired(c);
+			}
+		});
+		if (!submitted) {
+			throw new IOException("jdbc executor is full ,can't create connection for "
+					+ getName());
 		}
-
 	}
 
 }
@@ -53,11 +53,18 @@ public class ColMeta {
 	public static final int COL_TYPE_GEOMETRY = 0xff;
 	public final int colIndex;
 	public final int colType;
+	// charset(collation) index of the field ,0 if unknown
+	public final int charsetIndex;
 
 	public ColMeta(int colIndex, int colType) {
+		this(colIndex, colType, 0);
+	}
+
+	public ColMeta(int colIndex, int colType, int charsetIndex) {
 		super();
 		this.colIndex = colIndex;
 		this.colType = colType;
+		this.charsetIndex = charsetIndex;
 	}
 
 	public int getColIndex() {
@@ -68,6 +75,10 @@ public class ColMeta {
 		return colType;
 	}
 
+	public int getCharsetIndex() {
+		return charsetIndex;
+	}
+
 	@Override
 	public String toString() {
 		return "ColMeta [colIndex=" + colIndex + ", colType=" + colType + "]";
@@ -32,18 +32,44 @@ package org.opencloudb.mpp;
 public class ColumnRoutePair {
 	public final String colValue;
 	public final RangeValue rangeValue;
+	// colValue is an integer literal ,rule can calculate by longValue
+	public final boolean isLong;
+	public final long longValue;
 	public Integer nodeId;
 
 	public ColumnRoutePair(String colValue) {
 		super();
 		this.colValue = colValue;
 		this.rangeValue = null;
+		this.isLong = false;
+		this.longValue = 0;
+	}
+
+	public ColumnRoutePair(long longValue) {
+		super();
+		this.colValue = String.valueOf(longValue);
+		this.rangeValue = null;
+		this.isLong = true;
+		this.longValue = longValue;
 	}
 
 	public ColumnRoutePair(RangeValue rangeValue) {
 		super();
 		this.rangeValue = rangeValue;
 		this.colValue = null;
+		this.isLong = false;
+		this.longValue = 0;
+	}
+
+	/**
+	 * value of where condition to route pair
+	 */
+	public static ColumnRoutePair valueOf(Object value) {
+		if (value instanceof Long || value instanceof Integer
+				|| value instanceof Short || value instanceof Byte) {
+			return new ColumnRoutePair(((Number) value).longValue());
+		}
+		return new ColumnRoutePair(value.toString());
 	}
 
 	public Integer getNodeId() {
@@ -32,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
+import org.opencloudb.MycatServer;
 import org.opencloudb.net.mysql.RowDataPacket;
 import org.opencloudb.route.RouteResultset;
 
@@ -46,38 +47,63 @@ public class DataMergeService {
 			.getLogger(DataMergeService.class);
 	private RowDataPacketGrouper grouper = null;
 	private RowDataPacketSorter sorter = null;
+	// order by with limit ,keep only limit start+size rows
+	private RowDataPacketTopNSorter topNSorter = null;
+	private RowDataPacketMerger merger = null;
+	private final MergeMemoryManager memoryManager;
+	// rows of no order query ,or rows to sort (grouped rows if grouper)
+	private SpillableRowBuffer rowBuffer = null;
 	private Collection<RowDataPacket> result = new LinkedList<RowDataPacket>();
+	private Collection<RowDataPacket> mergedResult = null;
 
 	// private final Map<String, DataNodeResultInf> dataNodeResultSumMap;
 
 	public DataMergeService(RouteResultset rrs) {
-		this.rrs = rrs;
+		this(rrs, MycatServer.getInstance().getMergeMemoryManager());
 		// dataNodeResultSumMap = new HashMap<String, DataNodeResultInf>(
 		// rrs.getNodes().length);
 
 	}
 
+	DataMergeService(RouteResultset rrs, MergeMemoryManager memoryManager) {
+		this.rrs = rrs;
+		this.memoryManager = memoryManager;
+	}
+
 	/**
 	 * return merged data
 	 * 
 	 * @return
 	 */
 	public Collection<RowDataPacket> getResults() {
+		if (mergedResult != null) {
+			return mergedResult;
+		}
 		Collection<RowDataPacket> tmpResult = result;
 		if (this.grouper != null) {
 			tmpResult = grouper.getResult();
-			grouper = null;
+			if (sorter != null) {
+				Iterator<RowDataPacket> itor = tmpResult.iterator();
+				while (itor.hasNext()) {
+					rowBuffer.add(itor.next());
+					itor.remove();
+				}
+			}
 		}
-		if (sorter != null) {
+		if (rowBuffer != null) {
+			tmpResult = rowBuffer.getResult();
+		} else if (topNSorter != null) {
 			Iterator<RowDataPacket> itor = tmpResult.iterator();
 			while (itor.hasNext()) {
-				sorter.addRow(itor.next());
+				topNSorter.addRow(itor.next());
 				itor.remove();
-
 			}
-			tmpResult = sorter.getSortedResult();
-			sorter = null;
+			tmpResult = topNSorter.getSortedResult();
 		}
+		if (merger != null) {
+			merger.pollAll(tmpResult);
+		}
+		mergedResult = tmpResult;
 		return tmpResult;
 	}
 
@@ -123,7 +149,8 @@ public class DataMergeService {
 				}
 			}
 			grouper = new RowDataPacketGrouper(groupColumnIndexs,
-					mergCols.toArray(new MergeCol[mergCols.size()]));
+					mergCols.toArray(new MergeCol[mergCols.size()]),
+					memoryManager);
 		}
 		if (rrs.getOrderByCols() != null) {
 			LinkedHashMap<String, Integer> orders = rrs.getOrderByCols();
@@ -133,9 +160,22 @@ public class DataMergeService {
 				orderCols[i++] = new OrderCol(columToIndx.get(entry.getKey()
 						.toUpperCase()), entry.getValue());
 			}
-			sorter = new RowDataPacketSorter(orderCols);
-		} else {
-			result = new LinkedList<RowDataPacket>();
+			if (grouper == null && RowDataPacketMerger.canMerge(rrs)) {
+				// rows of every node are sorted ,merge them when received
+				merger = new RowDataPacketMerger(new RowDataPacketSorter(
+						orderCols), rrs);
+			} else if (rrs.getLimitSize() >= 0) {
+				int maxRows = (int) Math.min((long) rrs.getLimitStart()
+						+ rrs.getLimitSize(), Integer.MAX_VALUE);
+				topNSorter = new RowDataPacketTopNSorter(orderCols, maxRows);
+			} else {
+				sorter = new RowDataPacketSorter(orderCols);
+				// rows are sorted when spilled ,not kept all in memory
+				rowBuffer = new SpillableRowBuffer(memoryManager, fieldCount,
+						sorter);
+			}
+		} else if (grouper == null) {
+			rowBuffer = new SpillableRowBuffer(memoryManager, fieldCount, null);
 		}
 	}
 
@@ -153,14 +193,42 @@ public class DataMergeService {
 		rowDataPkg.read(rowData);
 		if (grouper != null) {
 			grouper.addRow(rowDataPkg);
+		} else if (merger != null) {
+			return merger.addRow(dataNode, rowDataPkg);
+		} else if (topNSorter != null) {
+			topNSorter.addRow(rowDataPkg);
+		} else if (rowBuffer != null) {
+			// spilled to disk if too large ,sorted if sorter
+			rowBuffer.add(rowDataPkg);
 		} else {
 			result.add(rowDataPkg);
 		}
-		// todo ,if too large result set ,should store to disk
 		return false;
 
 	}
 
+	/**
+	 * all rows of the dataNode received ,if data can output to client ,return
+	 * true
+	 */
+	public boolean onNodeEof(String dataNode) {
+		if (merger != null) {
+			return merger.nodeFinished(dataNode);
+		}
+		return false;
+	}
+
+	/**
+	 * next merged row can output to client before all dataNodes finished
+	 * ,null if none
+	 */
+	public RowDataPacket nextResult() {
+		if (merger != null) {
+			return merger.poll();
+		}
+		return null;
+	}
+
 	private static int[] toColumnIndex(String[] columns,
 			Map<String, ColMeta> toIndexMap) {
 		int[] result = new int[columns.length];
@@ -180,9 +248,22 @@ public class DataMergeService {
 	 * release resources
 	 */
 	public void clear() {
-		grouper = null;
+		if (grouper != null) {
+			grouper.clear();
+			grouper = null;
+		}
 		sorter = null;
+		topNSorter = null;
+		if (rowBuffer != null) {
+			rowBuffer.clear();
+			rowBuffer = null;
+		}
+		if (merger != null) {
+			merger.clear();
+			merger = null;
+		}
 		result = null;
+		mergedResult = null;
 	}
 
 }
@@ -23,6 +23,7 @@
  */
 package org.opencloudb.mpp;
 
+import java.util.List;
 import java.util.Map;
 
 import org.opencloudb.route.RouteParseInf;
@@ -35,6 +36,10 @@ public class InsertParseInf extends RouteParseInf{
 	 */
 		public String tableName;
 		public Map<String,String> columnPairMap;
+		/**
+		 * column values of every row of multi rows insert ,null if single row
+		 */
+		public List<Map<String,String>> rows;
 		public QueryTreeNode fromQryNode;
 
 }
\ No newline at end of file
@@ -24,7 +24,9 @@
 package org.opencloudb.mpp;
 
 import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.foundationdb.sql.parser.ConstantNode;
@@ -70,8 +72,21 @@ public class InsertSQLAnalyser {
 			RowResultSetNode rowSetNode = (RowResultSetNode) resultSetNode;
 			parseInsertParams(colMap, columnNames, rowSetNode);
 		} else if (resultSetNode instanceof RowsResultSetNode) {
-			throw new SQLSyntaxErrorException("insert multi rows not supported");
-
+			if (columnNames == null) {
+				throw new SQLSyntaxErrorException(
+						"insert multi rows must provide columns");
+			}
+			List<RowResultSetNode> rowNodes = ((RowsResultSetNode) resultSetNode)
+					.getRows();
+			List<Map<String, String>> rows = new ArrayList<Map<String, String>>(
+					rowNodes.size());
+			for (RowResultSetNode rowSetNode : rowNodes) {
+				Map<String, String> rowMap = (rows.isEmpty()) ? colMap
+						: new LinkedHashMap<String, String>();
+				parseInsertParams(rowMap, columnNames, rowSetNode);
+				rows.add(rowMap);
+			}
+			parsInf.rows = rows;
 		} else {
 			parsInf.fromQryNode = resultSetNode;
 		}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.mpp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * memory budget of all merge buffers ,rows over the budget of a session or
+ * the total budget are spilled to temp files
+ * 
+ * @author wuzhih
+ * 
+ */
+public class MergeMemoryManager {
+	private static final Logger LOGGER = Logger
+			.getLogger(MergeMemoryManager.class);
+	private static final String SPILL_PREFIX = "merge";
+	private static final String SPILL_SUFFIX = ".spill";
+	// a session spills only if its rows in memory reach 1/4 of session limit
+	private static final int MIN_SPILL_DIVISOR = 4;
+	private final long sessionLimit;
+	private final long totalLimit;
+	private final File tempDir;
+	private final AtomicLong usedMemory = new AtomicLong();
+	private final AtomicLong spillCount = new AtomicLong();
+	private final AtomicLong spillRows = new AtomicLong();
+	private final AtomicLong spillBytes = new AtomicLong();
+
+	public MergeMemoryManager(long sessionLimit, long totalLimit, File tempDir) {
+		this.sessionLimit = sessionLimit;
+		this.totalLimit = totalLimit;
+		this.tempDir = tempDir;
+	}
+
+	/**
+	 * reserve memory from total budget ,return false if not enough
+	 */
+	public boolean reserve(long bytes) {
+		for (;;) {
+			long used = usedMemory.get();
+			if (used + bytes > totalLimit) {
+				return false;
+			}
+			if (usedMemory.compareAndSet(used, used + bytes)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * reserve memory even if over the total budget
+	 */
+	public void forceReserve(long bytes) {
+		usedMemory.addAndGet(bytes);
+	}
+
+	public void release(long bytes) {
+		usedMemory.addAndGet(-bytes);
+	}
+
+	public File createSpillFile() throws IOException {
+		if (!tempDir.exists()) {
+			tempDir.mkdirs();
+		}
+		// deleted when the run is closed
+		return File.createTempFile(SPILL_PREFIX, SPILL_SUFFIX, tempDir);
+	}
+
+	/**
+	 * delete spill files left by last process ,called at startup
+	 */
+	public int cleanSpillFiles() {
+		File[] files = tempDir.listFiles();
+		if (files == null) {
+			return 0;
+		}
+		int count = 0;
+		for (File file : files) {
+			String name = file.getName();
+			if (file.isFile() && name.startsWith(SPILL_PREFIX)
+					&& name.endsWith(SPILL_SUFFIX) && file.delete()) {
+				count++;
+			}
+		}
+		if (count > 0) {
+			LOGGER.info("deleted " + count + " stale spill files in "
+					+ tempDir.getAbsolutePath());
+		}
+		return count;
+	}
+
+	void onSpill(long rows, long bytes) {
+		spillCount.incrementAndGet();
+		spillRows.addAndGet(rows);
+		spillBytes.addAndGet(bytes);
+	}
+
+	public long getSessionLimit() {
+		return sessionLimit;
+	}
+
+	/**
+	 * rows in memory of a session below this size are kept in memory even if
+	 * the total budget is used up ,so that tiny runs are not spilled
+	 */
+	public long getMinSpillBytes() {
+		return sessionLimit / MIN_SPILL_DIVISOR;
+	}
+
+	public long getTotalLimit() {
+		return totalLimit;
+	}
+
+	public long getUsedMemory() {
+		return usedMemory.get();
+	}
+
+	public long getSpillCount() {
+		return spillCount.get();
+	}
+
+	public long getSpillRows() {
+		return spillRows.get();
+	}
+
+	public long getSpillBytes() {
+		return spillBytes.get();
+	}
+}
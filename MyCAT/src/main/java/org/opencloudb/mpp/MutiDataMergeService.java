@@ -23,6 +23,7 @@
  */
 package org.opencloudb.mpp;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -131,31 +132,35 @@ public class MutiDataMergeService extends DataMergeService implements ResponseHa
 	 * @return
 	 */
 	public Collection<RowDataPacket> getResults() {
-		Collection<RowDataPacket> tmpResult = new LinkedList<RowDataPacket>();
-		Set<String> dataNodeNameSet = result.keySet();
-		for (Iterator<String> iter = dataNodeNameSet.iterator(); iter.hasNext();) {
-			String dataNodeName = iter.next();
-			NodeRowDataPacket nodePacket = result.get(dataNodeName);
-			List<RowDataPacket> list = nodePacket.loadData();
-			
-			tmpResult.addAll(list);
-		}
-		
+		return getResults(0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * return merged data in [start,end) ,rows are kept in columnar batches and
+	 * only rows in the window are created
+	 */
+	public Collection<RowDataPacket> getResults(int start, int end) {
+		List<RowDataBatch> batches = new ArrayList<RowDataBatch>();
 		if (this.grouper != null) {
-			tmpResult = grouper.getResult();
-			grouper = null;
-		}
-		if (sorter != null) {
-			Iterator<RowDataPacket> itor = tmpResult.iterator();
+			RowDataBatch batch = new RowDataBatch(fieldCount);
+			Iterator<RowDataPacket> itor = grouper.getResult().iterator();
 			while (itor.hasNext()) {
-				sorter.addRow(itor.next());
+				batch.add(itor.next());
 				itor.remove();
-
 			}
-			tmpResult = sorter.getSortedResult();
+			batches.add(batch);
+			grouper = null;
+		} else {
+			for (NodeRowDataPacket nodePacket : result.values()) {
+				nodePacket.loadData(batches);
+			}
+		}
+		long[] refs = null;
+		if (sorter != null) {
+			refs = RowDataBatch.sort(batches, sorter.getComparator());
 			sorter = null;
 		}
-		return tmpResult;
+		return RowDataBatch.asRows(batches, refs, start, end);
 	}
 
 	public void setFieldCount(int fieldCount) {
@@ -232,13 +237,14 @@ public class MutiDataMergeService extends DataMergeService implements ResponseHa
 	 *            raw data
 	 */
 	public boolean onNewRecord(String dataNode, byte[] rowData) {
-		NodeRowDataPacket nodePacket = this.result.get(dataNode);
-		RowDataPacket rowDataPkg = new RowDataPacket(fieldCount);
-		rowDataPkg.read(rowData);
 		if (grouper != null) {
+			RowDataPacket rowDataPkg = new RowDataPacket(fieldCount);
+			rowDataPkg.read(rowData);
 			grouper.addRow(rowDataPkg);
 		} else {
-			nodePacket.addPacket(rowDataPkg);
+			// keep raw field bytes ,no row object
+			NodeRowDataPacket nodePacket = this.result.get(dataNode);
+			nodePacket.addPacket(rowData, fieldCount);
 			this.dataController.newRecord(dataNode);
 		}
 		return false;
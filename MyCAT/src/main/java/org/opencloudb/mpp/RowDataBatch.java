@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.mpp;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.opencloudb.net.mysql.RowDataPacket;
+
+/**
+ * compact rows of merge path ,field values of all rows are kept in one byte
+ * slab ,and the start of every field in an int array. field (row,col) is
+ * slab[offsets[row*fieldCount+col],offsets[row*fieldCount+col+1]) ,null is
+ * stored as empty value like RowDataPacket.
+ * 
+ * @author wuzhih
+ * 
+ */
+public class RowDataBatch {
+	private static final int NULL_MARK = 251;
+	private final int fieldCount;
+	private byte[] slab;
+	private int slabSize;
+	private int[] offsets;
+	private int rows;
+
+	public RowDataBatch(int fieldCount) {
+		this(fieldCount, 16);
+	}
+
+	public RowDataBatch(int fieldCount, int initRows) {
+		this.fieldCount = fieldCount;
+		this.slab = new byte[initRows * fieldCount * 8 + 16];
+		this.offsets = new int[initRows * fieldCount + 1];
+	}
+
+	/**
+	 * add row of mysql row data packet (with packet header)
+	 */
+	public void add(byte[] packet) {
+		ensureSlab(packet.length);
+		ensureOffsets();
+		int pos = 4;
+		int index = rows * fieldCount;
+		for (int i = 0; i < fieldCount; i++) {
+			int length = packet[pos++] & 0xff;
+			switch (length) {
+			case NULL_MARK:
+				length = 0;
+				break;
+			case 252:
+				length = (packet[pos] & 0xff) | ((packet[pos + 1] & 0xff) << 8);
+				pos += 2;
+				break;
+			case 253:
+				length = (packet[pos] & 0xff)
+						| ((packet[pos + 1] & 0xff) << 8)
+						| ((packet[pos + 2] & 0xff) << 16);
+				pos += 3;
+				break;
+			case 254:
+				// field larger than 2G is not possible in a packet
+				length = (packet[pos] & 0xff)
+						| ((packet[pos + 1] & 0xff) << 8)
+						| ((packet[pos + 2] & 0xff) << 16)
+						| ((packet[pos + 3] & 0xff) << 24);
+				pos += 8;
+				break;
+			default:
+			}
+			System.arraycopy(packet, pos, slab, slabSize, length);
+			pos += length;
+			slabSize += length;
+			offsets[++index] = slabSize;
+		}
+		rows++;
+	}
+
+	public void add(RowDataPacket row) {
+		int size = 0;
+		for (int i = 0; i < fieldCount; i++) {
+			byte[] value = row.fieldValues.get(i);
+			if (value != null) {
+				size += value.length;
+			}
+		}
+		ensureSlab(size);
+		ensureOffsets();
+		int index = rows * fieldCount;
+		for (int i = 0; i < fieldCount; i++) {
+			byte[] value = row.fieldValues.get(i);
+			if (value != null) {
+				System.arraycopy(value, 0, slab, slabSize, value.length);
+				slabSize += value.length;
+			}
+			offsets[++index] = slabSize;
+		}
+		rows++;
+	}
+
+	/**
+	 * copy a row from other batch
+	 */
+	public void add(RowDataBatch batch, int row) {
+		int start = batch.offsets[row * fieldCount];
+		int end = batch.offsets[(row + 1) * fieldCount];
+		ensureSlab(end - start);
+		ensureOffsets();
+		int index = rows * fieldCount;
+		int delta = slabSize - start;
+		for (int i = 1; i <= fieldCount; i++) {
+			offsets[index + i] = batch.offsets[row * fieldCount + i] + delta;
+		}
+		System.arraycopy(batch.slab, start, slab, slabSize, end - start);
+		slabSize += end - start;
+		rows++;
+	}
+
+	private void ensureSlab(int size) {
+		if (slabSize + size > slab.length) {
+			int newSize = Math.max(slab.length << 1, slabSize + size);
+			byte[] newSlab = new byte[newSize];
+			System.arraycopy(slab, 0, newSlab, 0, slabSize);
+			slab = newSlab;
+		}
+	}
+
+	private void ensureOffsets() {
+		int need = (rows + 1) * fieldCount + 1;
+		if (need > offsets.length) {
+			int[] newOffsets = new int[Math.max(offsets.length << 1, need)];
+			System.arraycopy(offsets, 0, newOffsets, 0, rows * fieldCount + 1);
+			offsets = newOffsets;
+		}
+	}
+
+	public int size() {
+		return rows;
+	}
+
+	public boolean isEmpty() {
+		return rows == 0;
+	}
+
+	public int getFieldCount() {
+		return fieldCount;
+	}
+
+	public byte[] getSlab() {
+		return slab;
+	}
+
+	public int fieldOffset(int row, int col) {
+		return offsets[row * fieldCount + col];
+	}
+
+	public int fieldLength(int row, int col) {
+		int index = row * fieldCount + col;
+		return offsets[index + 1] - offsets[index];
+	}
+
+	/**
+	 * bytes used by slab and offsets
+	 */
+	public long memorySize() {
+		return slab.length + offsets.length * 4L;
+	}
+
+	/**
+	 * create row data packet of the row ,for output to frontend
+	 */
+	public RowDataPacket getRow(int row) {
+		RowDataPacket packet = new RowDataPacket(fieldCount);
+		int index = row * fieldCount;
+		for (int i = 0; i < fieldCount; i++) {
+			int start = offsets[index + i];
+			byte[] value = new byte[offsets[index + i + 1] - start];
+			System.arraycopy(slab, start, value, 0, value.length);
+			packet.add(value);
+		}
+		return packet;
+	}
+
+	public void removeLast() {
+		if (rows > 0) {
+			rows--;
+			slabSize = offsets[rows * fieldCount];
+		}
+	}
+
+	/**
+	 * remove all rows between first and last row
+	 */
+	public void retainHeadTail() {
+		if (rows <= 2) {
+			return;
+		}
+		int last = rows - 1;
+		int start = offsets[last * fieldCount];
+		int length = offsets[rows * fieldCount] - start;
+		int headEnd = offsets[fieldCount];
+		System.arraycopy(slab, start, slab, headEnd, length);
+		int delta = headEnd - start;
+		for (int i = 1; i <= fieldCount; i++) {
+			offsets[fieldCount + i] = offsets[last * fieldCount + i] + delta;
+		}
+		slabSize = headEnd + length;
+		rows = 2;
+	}
+
+	/**
+	 * sort rows of batches by comparator ,return refs of (batch index
+	 * <<32|row) in order
+	 */
+	public static long[] sort(List<RowDataBatch> batches,
+			RowDataPacketComparator comparator) {
+		int total = 0;
+		for (RowDataBatch batch : batches) {
+			total += batch.rows;
+		}
+		long[] refs = new long[total];
+		int n = 0;
+		for (int b = 0; b < batches.size(); b++) {
+			for (int r = 0, rows = batches.get(b).rows; r < rows; r++) {
+				refs[n++] = ((long) b << 32) | r;
+			}
+		}
+		RowDataBatch[] array = batches.toArray(new RowDataBatch[batches
+				.size()]);
+		mergeSort(refs, new long[total], 0, total, array, comparator);
+		return refs;
+	}
+
+	/**
+	 * stable merge sort of [from,to) ,no object created
+	 */
+	private static void mergeSort(long[] refs, long[] temp, int from, int to,
+			RowDataBatch[] batches, RowDataPacketComparator comparator) {
+		if (to - from < 2) {
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		mergeSort(refs, temp, from, mid, batches, comparator);
+		mergeSort(refs, temp, mid, to, batches, comparator);
+		if (compareRef(refs[mid - 1], refs[mid], batches, comparator) <= 0) {
+			return;
+		}
+		System.arraycopy(refs, from, temp, from, to - from);
+		int l = from;
+		int r = mid;
+		for (int i = from; i < to; i++) {
+			if (r >= to
+					|| (l < mid && compareRef(temp[l], temp[r], batches,
+							comparator) <= 0)) {
+				refs[i] = temp[l++];
+			} else {
+				refs[i] = temp[r++];
+			}
+		}
+	}
+
+	private static int compareRef(long l, long r, RowDataBatch[] batches,
+			RowDataPacketComparator comparator) {
+		return comparator.compare(batches[(int) (l >>> 32)], (int) l,
+				batches[(int) (r >>> 32)], (int) r);
+	}
+
+	/**
+	 * rows in [start,end) of refs (or all rows of batches in order if refs
+	 * is null) ,row packet is created only when iterated
+	 */
+	public static Collection<RowDataPacket> asRows(
+			final List<RowDataBatch> batches, final long[] refs,
+			final int start, final int end) {
+		return new AbstractCollection<RowDataPacket>() {
+			@Override
+			public Iterator<RowDataPacket> iterator() {
+				return new Iterator<RowDataPacket>() {
+					private int index = Math.max(start, 0);
+					// for refs is null
+					private int batch = 0;
+					private int row = -1;
+
+					{
+						if (refs == null) {
+							skip(index);
+						}
+					}
+
+					private void skip(int count) {
+						for (int i = 0; i <= count; i++) {
+							row++;
+							while (batch < batches.size()
+									&& row >= batches.get(batch).rows) {
+								batch++;
+								row = 0;
+							}
+						}
+					}
+
+					@Override
+					public boolean hasNext() {
+						if (index >= end) {
+							return false;
+						}
+						if (refs != null) {
+							return index < refs.length;
+						}
+						return batch < batches.size();
+					}
+
+					@Override
+					public RowDataPacket next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						index++;
+						if (refs != null) {
+							long ref = refs[index - 1];
+							return batches.get((int) (ref >>> 32)).getRow(
+									(int) ref);
+						}
+						RowDataPacket packet = batches.get(batch).getRow(row);
+						skip(0);
+						return packet;
+					}
+
+					@Override
+					public void remove() {
+						// rows are released with batches
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				int total = 0;
+				if (refs != null) {
+					total = refs.length;
+				} else {
+					for (RowDataBatch batch : batches) {
+						total += batch.rows;
+					}
+				}
+				return Math.max(0, Math.min(end, total) - Math.max(start, 0));
+			}
+		};
+	}
+}
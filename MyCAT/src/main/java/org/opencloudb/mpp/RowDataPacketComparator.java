@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.mpp;
+
+import java.util.Comparator;
+
+import org.opencloudb.net.mysql.RowDataPacket;
+
+/**
+ * row comparator built once from order columns of a query. every column gets
+ * a compare method by it's type ,values are compared on the raw bytes without
+ * creating any object.
+ * 
+ * @author wuzhih
+ * 
+ */
+public class RowDataPacketComparator implements Comparator<RowDataPacket> {
+	static final int KIND_NONE = 0;
+	// integer ,decimal and time text
+	static final int KIND_DECIMAL = 1;
+	// float ,double ,may be in exponent form
+	static final int KIND_DOUBLE = 2;
+	// date ,datetime ,timestamp ,bit ,binary string
+	static final int KIND_BYTES = 3;
+	// string of case insensitive collation ,single byte or utf8 charset
+	static final int KIND_STRING_CI = 4;
+	// case insensitive big5 ,gbk ,gb18030 ,second byte of a char may be ascii
+	static final int KIND_STRING_CI_DBCS = 5;
+	// case insensitive sjis ,cp932 ,same as dbcs but 0xa1-0xdf is one char
+	static final int KIND_STRING_CI_SJIS = 6;
+
+	// binary ,*_bin and *_cs collations
+	private static final int[] BINARY_COLLATIONS = { 46, 47, 49, 50, 52, 53,
+			55, 58, 61, 62, 63, 64, 65, 66, 68, 69, 70, 71, 72, 73, 74, 75,
+			77, 78, 79, 80, 81, 82, 83, 84, 85, 86, 87, 88, 89, 90, 91, 93,
+			249 };
+	// big5_chinese_ci ,gbk_chinese_ci ,gb18030_chinese_ci
+	// ,gb18030_unicode_520_ci
+	private static final int[] DBCS_COLLATIONS = { 1, 28, 248, 250 };
+	// sjis_japanese_ci ,cp932_japanese_ci
+	private static final int[] SJIS_COLLATIONS = { 13, 95 };
+
+	private final int[] colIndexs;
+	private final int[] kinds;
+	private final boolean[] descs;
+
+	public RowDataPacketComparator(OrderCol[] orderCols) {
+		int count = (orderCols == null) ? 0 : orderCols.length;
+		colIndexs = new int[count];
+		kinds = new int[count];
+		descs = new boolean[count];
+		for (int i = 0; i < count; i++) {
+			ColMeta colMeta = orderCols[i].colMeta;
+			colIndexs[i] = colMeta.colIndex;
+			kinds[i] = getKind(colMeta.colType, colMeta.charsetIndex);
+			descs[i] = orderCols[i].orderType == OrderCol.COL_ORDER_TYPE_DESC;
+		}
+	}
+
+	static int getKind(int colType, int charsetIndex) {
+		switch (colType) {
+		case ColMeta.COL_TYPE_DECIMAL:
+		case ColMeta.COL_TYPE_INT:
+		case ColMeta.COL_TYPE_SHORT:
+		case ColMeta.COL_TYPE_LONG:
+		case ColMeta.COL_TYPE_LONGLONG:
+		case ColMeta.COL_TYPE_INT24:
+		case ColMeta.COL_TYPE_NEWDECIMAL:
+		case ColMeta.COL_TYPE_YEAR:
+		case ColMeta.COL_TYPE_TIME:
+			return KIND_DECIMAL;
+		case ColMeta.COL_TYPE_FLOAT:
+		case ColMeta.COL_TYPE_DOUBLE:
+			return KIND_DOUBLE;
+		// 日期的文本格式定长，可以直接按字节比较
+		case ColMeta.COL_TYPE_DATE:
+		case ColMeta.COL_TYPE_TIMSTAMP:
+		case ColMeta.COL_TYPE_DATETIME:
+		case ColMeta.COL_TYPE_NEWDATE:
+		case ColMeta.COL_TYPE_BIT:
+			return KIND_BYTES;
+		case ColMeta.COL_TYPE_VAR_STRING:
+		case ColMeta.COL_TYPE_STRING:
+		case ColMeta.COL_TYPE_VACHAR:
+		case ColMeta.COL_TYPE_ENUM:
+		case ColMeta.COL_TYPE_SET:
+		case ColMeta.COL_TYPE_TINY_BLOB:
+		case ColMeta.COL_TYPE_TINY_TYPE_MEDIUM_BLOB:
+		case ColMeta.COL_TYPE_TINY_TYPE_LONG_BLOB:
+		case ColMeta.COL_TYPE_BLOB:
+			return getStringKind(charsetIndex);
+		default:
+			// GEOMETRY不支持排序
+			return KIND_NONE;
+		}
+	}
+
+	private static int getStringKind(int charsetIndex) {
+		if (contains(BINARY_COLLATIONS, charsetIndex)
+				|| isFixedWidthCollation(charsetIndex)) {
+			return KIND_BYTES;
+		} else if (contains(DBCS_COLLATIONS, charsetIndex)) {
+			return KIND_STRING_CI_DBCS;
+		} else if (contains(SJIS_COLLATIONS, charsetIndex)) {
+			return KIND_STRING_CI_SJIS;
+		}
+		return KIND_STRING_CI;
+	}
+
+	/**
+	 * ucs2 ,utf16 ,utf32 ,every byte of a char may be ascii ,compared by
+	 * bytes
+	 */
+	private static boolean isFixedWidthCollation(int charsetIndex) {
+		return charsetIndex == 35 || charsetIndex == 54 || charsetIndex == 56
+				|| charsetIndex == 60
+				|| (charsetIndex >= 101 && charsetIndex <= 124)
+				|| (charsetIndex >= 128 && charsetIndex <= 183);
+	}
+
+	private static boolean contains(int[] values, int value) {
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int compare(RowDataPacket l, RowDataPacket r) {
+		for (int i = 0; i < colIndexs.length; i++) {
+			byte[] left = l.fieldValues.get(colIndexs[i]);
+			byte[] right = r.fieldValues.get(colIndexs[i]);
+			int result = compareValue(left, 0, left.length, right, 0,
+					right.length, kinds[i]);
+			if (result != 0) {
+				return descs[i] ? -result : result;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * compare rows in batches
+	 */
+	public int compare(RowDataBatch lBatch, int lRow, RowDataBatch rBatch,
+			int rRow) {
+		for (int i = 0; i < colIndexs.length; i++) {
+			int col = colIndexs[i];
+			int result = compareValue(lBatch.getSlab(),
+					lBatch.fieldOffset(lRow, col),
+					lBatch.fieldLength(lRow, col), rBatch.getSlab(),
+					rBatch.fieldOffset(rRow, col),
+					rBatch.fieldLength(rRow, col), kinds[i]);
+			if (result != 0) {
+				return descs[i] ? -result : result;
+			}
+		}
+		return 0;
+	}
+
+	static int compareValue(byte[] left, byte[] right, int kind) {
+		return compareValue(left, 0, left.length, right, 0, right.length,
+				kind);
+	}
+
+	/**
+	 * compare two field values ,null (empty) value is the smallest
+	 */
+	static int compareValue(byte[] left, int lOff, int lLen, byte[] right,
+			int rOff, int rLen, int kind) {
+		if (lLen == 0 || rLen == 0) {
+			return lLen - rLen;
+		}
+		switch (kind) {
+		case KIND_DECIMAL:
+			return compareDecimal(left, lOff, lLen, right, rOff, rLen);
+		case KIND_DOUBLE:
+			if (hasExponent(left, lOff, lLen) || hasExponent(right, rOff, rLen)) {
+				return Double.compare(
+						Double.parseDouble(new String(left, lOff, lLen)),
+						Double.parseDouble(new String(right, rOff, rLen)));
+			}
+			return compareDecimal(left, lOff, lLen, right, rOff, rLen);
+		case KIND_BYTES:
+			return compareBytes(left, lOff, lLen, right, rOff, rLen);
+		case KIND_STRING_CI:
+		case KIND_STRING_CI_DBCS:
+		case KIND_STRING_CI_SJIS:
+			return compareBytesIgnoreCase(left, lOff, lLen, right, rOff, rLen,
+					kind);
+		default:
+			return 0;
+		}
+	}
+
+	private static boolean hasExponent(byte[] value, int off, int len) {
+		for (int i = off, end = off + len; i < end; i++) {
+			if (value[i] == 'e' || value[i] == 'E') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * compare decimal text like -123.45 ,integer part by length then digits
+	 * ,fraction part by digits
+	 */
+	static int compareDecimal(byte[] left, int lOff, int lLen, byte[] right,
+			int rOff, int rLen) {
+		boolean leftNegative = left[lOff] == '-';
+		boolean rightNegative = right[rOff] == '-';
+		if (leftNegative != rightNegative) {
+			return leftNegative ? -1 : 1;
+		}
+		int result = compareAbsDecimal(left, leftNegative ? lOff + 1 : lOff,
+				lOff + lLen, right, rightNegative ? rOff + 1 : rOff, rOff
+						+ rLen);
+		return leftNegative ? -result : result;
+	}
+
+	private static int compareAbsDecimal(byte[] left, int leftStart,
+			int leftEnd, byte[] right, int rightStart, int rightEnd) {
+		leftStart = skipLeadingZero(left, leftStart, leftEnd);
+		rightStart = skipLeadingZero(right, rightStart, rightEnd);
+		int leftDot = indexOfDot(left, leftStart, leftEnd);
+		int rightDot = indexOfDot(right, rightStart, rightEnd);
+		int leftIntLen = leftDot - leftStart;
+		int rightIntLen = rightDot - rightStart;
+		if (leftIntLen != rightIntLen) {
+			return leftIntLen - rightIntLen;
+		}
+		for (int i = 0; i < leftIntLen; i++) {
+			int result = left[leftStart + i] - right[rightStart + i];
+			if (result != 0) {
+				return result;
+			}
+		}
+		// fraction part ,missing digit is 0
+		int l = leftDot + 1;
+		int r = rightDot + 1;
+		while (l < leftEnd || r < rightEnd) {
+			int lv = (l < leftEnd) ? left[l] : '0';
+			int rv = (r < rightEnd) ? right[r] : '0';
+			if (lv != rv) {
+				return lv - rv;
+			}
+			l++;
+			r++;
+		}
+		return 0;
+	}
+
+	private static int skipLeadingZero(byte[] value, int start, int end) {
+		while (start < end - 1 && value[start] == '0'
+				&& value[start + 1] != '.') {
+			start++;
+		}
+		return start;
+	}
+
+	private static int indexOfDot(byte[] value, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (value[i] == '.') {
+				return i;
+			}
+		}
+		return end;
+	}
+
+	static int compareBytes(byte[] left, int lOff, int lLen, byte[] right,
+			int rOff, int rLen) {
+		int len = Math.min(lLen, rLen);
+		for (int i = 0; i < len; i++) {
+			int result = (left[lOff + i] & 0xff) - (right[rOff + i] & 0xff);
+			if (result != 0) {
+				return result;
+			}
+		}
+		return lLen - rLen;
+	}
+
+	/**
+	 * ascii letters are compared in upper case like mysql *_general_ci
+	 * ,multibyte chars by unsigned bytes. the bytes before the first
+	 * difference are equal ,so both sides are at the same char boundary and
+	 * the second byte of a double byte char is never folded
+	 */
+	static int compareBytesIgnoreCase(byte[] left, int lOff, int lLen,
+			byte[] right, int rOff, int rLen, int kind) {
+		int len = Math.min(lLen, rLen);
+		boolean trail = false;
+		for (int i = 0; i < len; i++) {
+			int lv = left[lOff + i] & 0xff;
+			int rv = right[rOff + i] & 0xff;
+			if (lv != rv) {
+				if (trail) {
+					return lv - rv;
+				}
+				if (lv >= 'a' && lv <= 'z') {
+					lv -= 32;
+				}
+				if (rv >= 'a' && rv <= 'z') {
+					rv -= 32;
+				}
+				if (lv != rv) {
+					return lv - rv;
+				}
+			}
+			trail = !trail && isLeadByte(lv, kind);
+		}
+		return lLen - rLen;
+	}
+
+	/**
+	 * first byte of a double byte char ,utf8 and other multibyte charsets
+	 * have no ascii in later bytes ,so never lead here
+	 */
+	private static boolean isLeadByte(int b, int kind) {
+		switch (kind) {
+		case KIND_STRING_CI_DBCS:
+			return b >= 0x81 && b <= 0xfe;
+		case KIND_STRING_CI_SJIS:
+			return (b >= 0x81 && b <= 0x9f) || (b >= 0xe0 && b <= 0xfc);
+		default:
+			return false;
+		}
+	}
+}
@@ -23,134 +23,448 @@
  */
 package org.opencloudb.mpp;
 
+import java.math.BigDecimal;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.opencloudb.net.mysql.RowDataPacket;
 import org.opencloudb.util.ByteUtil;
 import org.opencloudb.util.LongUtil;
 
 /**
- * implement group function select a,count(*),sum(*) from A group by a
+ * implement group function select a,count(*),sum(*) from A group by a <br/>
+ * groups are found by hash of group columns' bytes, aggregate values are kept
+ * in primitive accumulators of every group, and written back to MySQL text
+ * only once when the result is fetched.
  * 
  * @author wuzhih
  * 
  */
 public class RowDataPacketGrouper {
+	private static final byte[] NO_GROUP_KEY = new byte[0];
+	private static final int ACC_LONG = 1;
+	private static final int ACC_DOUBLE = 2;
+	private static final int ACC_DECIMAL = 3;
+	private static final int ACC_MIN = 4;
+	private static final int ACC_MAX = 5;
 
 	private final MergeCol[] mergCols;
+	private final int[] accTypes;
 	private final int[] groupColumnIndexs;
-	private Collection<RowDataPacket> result = new LinkedList<RowDataPacket>();
+	private final Map<GroupKey, GroupState> groups = new LinkedHashMap<GroupKey, GroupState>();
+	// null if groups never spill to disk
+	private final MergeMemoryManager memoryManager;
+	private SpillableRowBuffer spillBuffer;
+	private long memoryBytes;
 
 	public RowDataPacketGrouper(int[] groupColumnIndexs, MergeCol[] mergCols) {
+		this(groupColumnIndexs, mergCols, null);
+	}
+
+	public RowDataPacketGrouper(int[] groupColumnIndexs, MergeCol[] mergCols,
+			MergeMemoryManager memoryManager) {
 		super();
 		this.groupColumnIndexs = groupColumnIndexs;
 		this.mergCols = mergCols;
+		this.memoryManager = memoryManager;
+		if (mergCols == null) {
+			accTypes = new int[0];
+		} else {
+			accTypes = new int[mergCols.length];
+			for (int i = 0; i < mergCols.length; i++) {
+				accTypes[i] = getAccType(mergCols[i]);
+			}
+		}
 	}
 
+	private static int getAccType(MergeCol merg) {
+		int colType = merg.colMeta.colType;
+		switch (merg.mergeType) {
+		case MergeCol.MERGE_SUM:
+			if (colType == ColMeta.COL_TYPE_NEWDECIMAL
+					|| colType == ColMeta.COL_TYPE_DECIMAL) {
+				return ACC_DECIMAL;
+			} else if (colType == ColMeta.COL_TYPE_DOUBLE
+					|| colType == ColMeta.COL_TYPE_FLOAT) {
+				return ACC_DOUBLE;
+			}
+			// continue to count case
+		case MergeCol.MERGE_COUNT:
+			return ACC_LONG;
+		case MergeCol.MERGE_MIN:
+			return ACC_MIN;
+		case MergeCol.MERGE_MAX:
+			return ACC_MAX;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * grouped rows in the order groups first found (in group columns order if
+	 * spilled) ,can only be called once after all rows added
+	 */
 	public Collection<RowDataPacket> getResult() {
+		if (spillBuffer != null) {
+			if (!groups.isEmpty()) {
+				spillGroups();
+			}
+			return mergeSpilledGroups(spillBuffer.getResult());
+		}
+		// callers drain the result by iterator().remove()
+		List<RowDataPacket> result = new LinkedList<RowDataPacket>();
+		for (GroupState group : groups.values()) {
+			result.add(group.toRow());
+		}
+		groups.clear();
 		return result;
 	}
 
 	public void addRow(RowDataPacket rowDataPkg) {
-		for (RowDataPacket row : result) {
-			if (sameGropuColums(rowDataPkg, row)) {
-				aggregateRow(row, rowDataPkg);
-				return;
+		byte[] keyData = groupKey(rowDataPkg);
+		GroupKey key = new GroupKey(keyData);
+		GroupState group = groups.get(key);
+		if (group == null) {
+			if (memoryManager != null) {
+				reserveGroup(rowDataPkg, keyData);
 			}
+			// not aggreated ,insert new
+			groups.put(key, new GroupState(rowDataPkg));
+		} else {
+			group.aggregate(rowDataPkg);
 		}
-		// not aggreated ,insert new
-		result.add(rowDataPkg);
+	}
 
+	/**
+	 * reserve memory of a new group ,groups are spilled if over budget
+	 */
+	private void reserveGroup(RowDataPacket row, byte[] keyData) {
+		long size = SpillableRowBuffer.estimateSize(row, row.fieldCount)
+				+ keyData.length + 64;
+		if (memoryBytes + size > memoryManager.getSessionLimit()
+				|| !memoryManager.reserve(size)) {
+			if (!groups.isEmpty()
+					&& memoryBytes >= memoryManager.getMinSpillBytes()) {
+				if (spillBuffer == null) {
+					spillBuffer = new SpillableRowBuffer(memoryManager,
+							row.fieldCount, new GroupColumnComparator());
+				}
+				spillGroups();
+			}
+			memoryManager.forceReserve(size);
+		}
+		memoryBytes += size;
 	}
 
-	private void aggregateRow(RowDataPacket toRow, RowDataPacket newRow) {
-		if (mergCols == null) {
-			return;
+	/**
+	 * write partial aggregated groups to a run sorted by group columns
+	 */
+	private void spillGroups() {
+		List<RowDataPacket> partial = new ArrayList<RowDataPacket>(
+				groups.size());
+		for (GroupState group : groups.values()) {
+			partial.add(group.toRow());
 		}
-		for (MergeCol merg : mergCols) {
+		groups.clear();
+		spillBuffer.addRun(partial);
+		memoryManager.release(memoryBytes);
+		memoryBytes = 0;
+	}
 
-			byte[] result = mertFields(
-					toRow.fieldValues.get(merg.colMeta.colIndex),
-					newRow.fieldValues.get(merg.colMeta.colIndex),
-					merg.colMeta.colType, merg.mergeType);
-			if (result != null) {
-				toRow.fieldValues.set(merg.colMeta.colIndex, result);
+	/**
+	 * aggregate partial groups of the same group columns ,which are adjacent
+	 * after runs merged
+	 */
+	private Collection<RowDataPacket> mergeSpilledGroups(
+			final Collection<RowDataPacket> partials) {
+		final Comparator<RowDataPacket> comparator = new GroupColumnComparator();
+		return new AbstractCollection<RowDataPacket>() {
+			@Override
+			public Iterator<RowDataPacket> iterator() {
+				final Iterator<RowDataPacket> itor = partials.iterator();
+				return new Iterator<RowDataPacket>() {
+					private RowDataPacket pending = itor.hasNext() ? itor
+							.next() : null;
+
+					@Override
+					public boolean hasNext() {
+						return pending != null;
+					}
+
+					@Override
+					public RowDataPacket next() {
+						if (pending == null) {
+							throw new NoSuchElementException();
+						}
+						RowDataPacket first = pending;
+						GroupState group = new GroupState(first);
+						pending = null;
+						while (itor.hasNext()) {
+							RowDataPacket row = itor.next();
+							if (comparator.compare(first, row) == 0) {
+								group.aggregate(row);
+							} else {
+								pending = row;
+								break;
+							}
+						}
+						return group.toRow();
+					}
+
+					@Override
+					public void remove() {
+						// partial groups already removed
+					}
+				};
 			}
+
+			@Override
+			public int size() {
+				return partials.size();
+			}
+		};
+	}
+
+	/**
+	 * release memory and temp files
+	 */
+	public void clear() {
+		groups.clear();
+		if (memoryManager != null) {
+			memoryManager.release(memoryBytes);
+			memoryBytes = 0;
+		}
+		if (spillBuffer != null) {
+			spillBuffer.clear();
 		}
+	}
 
+	private byte[] groupKey(RowDataPacket row) {
+		if (groupColumnIndexs == null) {// select count(*) from aaa , or group
+										// column
+			return NO_GROUP_KEY;
+		}
+		int size = 0;
+		for (int i = 0; i < groupColumnIndexs.length; i++) {
+			size += 4 + row.fieldValues.get(groupColumnIndexs[i]).length;
+		}
+		byte[] key = new byte[size];
+		int pos = 0;
+		for (int i = 0; i < groupColumnIndexs.length; i++) {
+			byte[] value = row.fieldValues.get(groupColumnIndexs[i]);
+			int len = value.length;
+			key[pos++] = (byte) len;
+			key[pos++] = (byte) (len >>> 8);
+			key[pos++] = (byte) (len >>> 16);
+			key[pos++] = (byte) (len >>> 24);
+			System.arraycopy(value, 0, key, pos, len);
+			pos += len;
+		}
+		return key;
 	}
 
-	private byte[] mertFields(byte[] bs, byte[] bs2, int colType, int mergeType) {
-		// System.out.println("mergeType:"+ mergeType+" colType "+colType+
-		// " field:"+Arrays.toString(bs)+ " ->  "+Arrays.toString(bs2));
-		if(bs2.length==0)
-		{
-			return bs;
-		}else if(bs.length==0)
-		{
-			return bs2;
-		}
-		switch (mergeType) {
-		case MergeCol.MERGE_SUM:
-			if (colType == ColMeta.COL_TYPE_NEWDECIMAL
-					|| colType == ColMeta.COL_TYPE_DOUBLE
-					|| colType == ColMeta.COL_TYPE_FLOAT) {
+	/**
+	 * parse ascii integer without creating String
+	 */
+	static long parseLong(byte[] bs) {
+		int i = 0;
+		boolean negative = false;
+		if (bs[0] == '-') {
+			negative = true;
+			i = 1;
+		} else if (bs[0] == '+') {
+			i = 1;
+		}
+		if (i == bs.length) {
+			throw new NumberFormatException(new String(bs));
+		}
+		long result = 0;
+		for (; i < bs.length; i++) {
+			int digit = bs[i] - '0';
+			if (digit < 0 || digit > 9) {
+				throw new NumberFormatException(new String(bs));
+			}
+			result = result * 10 - digit;
+		}
+		return negative ? result : -result;
+	}
+
+	static BigDecimal parseDecimal(byte[] bs) {
+		char[] chars = new char[bs.length];
+		for (int i = 0; i < bs.length; i++) {
+			chars[i] = (char) bs[i];
+		}
+		return new BigDecimal(chars);
+	}
 
-				Double vale = ByteUtil.getDouble(bs) + ByteUtil.getDouble(bs2);
-				return vale.toString().getBytes();
-				// return String.valueOf(vale).getBytes();
+	/**
+	 * order of group columns' bytes ,only used to make same groups adjacent
+	 */
+	private final class GroupColumnComparator implements
+			Comparator<RowDataPacket> {
+		@Override
+		public int compare(RowDataPacket o1, RowDataPacket o2) {
+			if (groupColumnIndexs == null) {
+				return 0;
 			}
-			// continue to count case
-		case MergeCol.MERGE_COUNT: {
-			long s1 = Long.parseLong(new String(bs));
-			long s2 = Long.parseLong(new String(bs2));
-			long total = s1 + s2;
-			return LongUtil.toBytes(total);
-		}
-		case MergeCol.MERGE_MAX: {
-			// System.out.println("value:"+
-			// ByteUtil.getNumber(bs).doubleValue());
-			// System.out.println("value2:"+
-			// ByteUtil.getNumber(bs2).doubleValue());
-			// int compare = CompareUtil.compareDouble(ByteUtil.getNumber(bs)
-			// .doubleValue(), ByteUtil.getNumber(bs2).doubleValue());
-			// return ByteUtil.compareNumberByte(bs, bs2);
-			int compare = ByteUtil.compareNumberByte(bs, bs2);
-			return (compare > 0) ? bs : bs2;
-
-		}
-		case MergeCol.MERGE_MIN: {
-			// int compare = CompareUtil.compareDouble(ByteUtil.getNumber(bs)
-			// .doubleValue(), ByteUtil.getNumber(bs2).doubleValue());
-			// int compare = ByteUtil.compareNumberArray(bs, bs2);
-			//return (compare > 0) ? bs2 : bs;
-			int compare = ByteUtil.compareNumberByte(bs, bs2);
-			return (compare > 0) ? bs2 : bs;
-			// return ByteUtil.compareNumberArray2(bs, bs2, 2);
+			for (int i = 0; i < groupColumnIndexs.length; i++) {
+				byte[] b1 = o1.fieldValues.get(groupColumnIndexs[i]);
+				byte[] b2 = o2.fieldValues.get(groupColumnIndexs[i]);
+				int len = Math.min(b1.length, b2.length);
+				for (int j = 0; j < len; j++) {
+					int result = (b1[j] & 0xff) - (b2[j] & 0xff);
+					if (result != 0) {
+						return result;
+					}
+				}
+				if (b1.length != b2.length) {
+					return b1.length - b2.length;
+				}
+			}
+			return 0;
 		}
-		default:
-			return null;
+	}
+
+	private static final class GroupKey {
+		private final byte[] data;
+		private final int hash;
+
+		GroupKey(byte[] data) {
+			this.data = data;
+			this.hash = Arrays.hashCode(data);
 		}
 
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			GroupKey other = (GroupKey) obj;
+			return hash == other.hash && Arrays.equals(data, other.data);
+		}
 	}
 
-	// private static final
+	/**
+	 * first row of a group and the accumulators of its merge columns, a null
+	 * (empty) value is ignored by the accumulator
+	 */
+	private final class GroupState {
+		private final RowDataPacket row;
+		private final boolean[] hasValue;
+		private long[] longs;
+		private double[] doubles;
+		private BigDecimal[] decimals;
 
-	private boolean sameGropuColums(RowDataPacket newRow, RowDataPacket existRow) {
-		if (groupColumnIndexs == null) {// select count(*) from aaa , or group
-										// column
-			return true;
+		GroupState(RowDataPacket row) {
+			this.row = row;
+			this.hasValue = new boolean[accTypes.length];
+			for (int i = 0; i < accTypes.length; i++) {
+				byte[] value = row.fieldValues.get(mergCols[i].colMeta.colIndex);
+				if (value.length != 0) {
+					hasValue[i] = true;
+					init(i, value);
+				}
+			}
 		}
-		for (int i = 0; i < groupColumnIndexs.length; i++) {
-			if (!Arrays.equals(newRow.fieldValues.get(groupColumnIndexs[i]),
-					existRow.fieldValues.get(groupColumnIndexs[i]))) {
-				return false;
+
+		private void init(int i, byte[] value) {
+			switch (accTypes[i]) {
+			case ACC_LONG:
+				if (longs == null) {
+					longs = new long[accTypes.length];
+				}
+				longs[i] = parseLong(value);
+				break;
+			case ACC_DOUBLE:
+				if (doubles == null) {
+					doubles = new double[accTypes.length];
+				}
+				doubles[i] = ByteUtil.getDouble(value);
+				break;
+			case ACC_DECIMAL:
+				if (decimals == null) {
+					decimals = new BigDecimal[accTypes.length];
+				}
+				decimals[i] = parseDecimal(value);
+				break;
+			default:
+				// min ,max compare the bytes in row directly
 			}
+		}
 
+		void aggregate(RowDataPacket newRow) {
+			for (int i = 0; i < accTypes.length; i++) {
+				int colIndex = mergCols[i].colMeta.colIndex;
+				byte[] value = newRow.fieldValues.get(colIndex);
+				if (value.length == 0) {
+					continue;
+				}
+				if (!hasValue[i]) {
+					hasValue[i] = true;
+					row.fieldValues.set(colIndex, value);
+					init(i, value);
+					continue;
+				}
+				switch (accTypes[i]) {
+				case ACC_LONG:
+					longs[i] += parseLong(value);
+					break;
+				case ACC_DOUBLE:
+					doubles[i] += ByteUtil.getDouble(value);
+					break;
+				case ACC_DECIMAL:
+					decimals[i] = decimals[i].add(parseDecimal(value));
+					break;
+				case ACC_MIN:
+					if (ByteUtil.compareNumberByte(row.fieldValues.get(colIndex),
+							value) > 0) {
+						row.fieldValues.set(colIndex, value);
+					}
+					break;
+				case ACC_MAX:
+					if (ByteUtil.compareNumberByte(row.fieldValues.get(colIndex),
+							value) < 0) {
+						row.fieldValues.set(colIndex, value);
+					}
+					break;
+				default:
+				}
+			}
 		}
-		return true;
 
+		RowDataPacket toRow() {
+			for (int i = 0; i < accTypes.length; i++) {
+				if (!hasValue[i]) {
+					continue;
+				}
+				int colIndex = mergCols[i].colMeta.colIndex;
+				switch (accTypes[i]) {
+				case ACC_LONG:
+					row.fieldValues.set(colIndex, LongUtil.toBytes(longs[i]));
+					break;
+				case ACC_DOUBLE:
+					row.fieldValues.set(colIndex, Double.toString(doubles[i])
+							.getBytes());
+					break;
+				case ACC_DECIMAL:
+					row.fieldValues.set(colIndex, decimals[i].toPlainString()
+							.getBytes());
+					break;
+				default:
+				}
+			}
+			return row;
+		}
 	}
-}
\ No newline at end of file
+}
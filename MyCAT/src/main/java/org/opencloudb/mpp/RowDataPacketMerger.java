@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.mpp;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.opencloudb.net.mysql.RowDataPacket;
+import org.opencloudb.route.RouteResultset;
+import org.opencloudb.route.RouteResultsetNode;
+
+/**
+ * k-way merge of the sorted results of every data node for multi node
+ * order by. a row can be output as soon as every unfinished node has its next
+ * row buffered, and no more rows are kept after limit start+size rows merged.
+ * with limit ,rows of a node after its first limit start+size rows are dropped
+ * ,so buffered rows are at most nodes*(start+size).
+ * 
+ * @author wuzhih
+ * 
+ */
+public class RowDataPacketMerger {
+	private final Map<String, NodeStream> streams;
+	private final PriorityQueue<NodeStream> heap;
+	// max rows to merge ,-1 if no limit
+	private final long maxRows;
+	// unfinished nodes that have no buffered row
+	private int emptyStreams;
+	private long mergedRows;
+
+	public RowDataPacketMerger(final RowDataPacketSorter sorter,
+			RouteResultset rrs) {
+		RouteResultsetNode[] nodes = rrs.getNodes();
+		streams = new HashMap<String, NodeStream>(nodes.length);
+		for (RouteResultsetNode node : nodes) {
+			streams.put(node.getName(), new NodeStream(streams.size()));
+		}
+		emptyStreams = streams.size();
+		heap = new PriorityQueue<NodeStream>(streams.size(),
+				new Comparator<NodeStream>() {
+					@Override
+					public int compare(NodeStream o1, NodeStream o2) {
+						int result = sorter.compareRow(o1.rows.getFirst(),
+								o2.rows.getFirst());
+						// keep rows of the same order in data node order
+						return (result != 0) ? result : o1.seq - o2.seq;
+					}
+				});
+		maxRows = (rrs.getLimitSize() < 0) ? -1 : (long) rrs.getLimitStart()
+				+ rrs.getLimitSize();
+	}
+
+	/**
+	 * rows of a node are sorted only if it's routed once
+	 */
+	public static boolean canMerge(RouteResultset rrs) {
+		RouteResultsetNode[] nodes = rrs.getNodes();
+		Set<String> names = new HashSet<String>(nodes.length);
+		for (RouteResultsetNode node : nodes) {
+			if (!names.add(node.getName())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * add a row of the data node,return true if merged rows can be output
+	 */
+	public boolean addRow(String dataNode, RowDataPacket row) {
+		if (isLimitReached()) {
+			return false;
+		}
+		NodeStream stream = streams.get(dataNode);
+		if (maxRows >= 0 && stream.received++ >= maxRows) {
+			// can't be in the first maxRows rows of the merged result
+			return false;
+		}
+		if (stream.rows.isEmpty()) {
+			stream.rows.add(row);
+			heap.add(stream);
+			emptyStreams--;
+		} else {
+			stream.rows.add(row);
+		}
+		if (stream.received == maxRows) {
+			// later rows of the node are not needed ,don't wait for them
+			stream.finished = true;
+		}
+		return emptyStreams == 0;
+	}
+
+	/**
+	 * all rows of the data node received ,return true if merged rows can be
+	 * output
+	 */
+	public boolean nodeFinished(String dataNode) {
+		NodeStream stream = streams.get(dataNode);
+		if (!stream.finished) {
+			stream.finished = true;
+			if (stream.rows.isEmpty()) {
+				emptyStreams--;
+			}
+		}
+		return emptyStreams == 0 && !heap.isEmpty();
+	}
+
+	/**
+	 * next merged row ,null if no row can be output now
+	 */
+	public RowDataPacket poll() {
+		if (emptyStreams != 0 || heap.isEmpty()) {
+			return null;
+		}
+		if (isLimitReached()) {
+			clear();
+			return null;
+		}
+		NodeStream stream = heap.poll();
+		RowDataPacket row = stream.rows.removeFirst();
+		if (!stream.rows.isEmpty()) {
+			heap.add(stream);
+		} else if (!stream.finished) {
+			emptyStreams++;
+		}
+		mergedRows++;
+		return row;
+	}
+
+	/**
+	 * move all rows can be output to result
+	 */
+	public void pollAll(Collection<RowDataPacket> result) {
+		RowDataPacket row;
+		while ((row = poll()) != null) {
+			result.add(row);
+		}
+	}
+
+	public boolean isLimitReached() {
+		return maxRows >= 0 && mergedRows >= maxRows;
+	}
+
+	public void clear() {
+		heap.clear();
+		for (NodeStream stream : streams.values()) {
+			stream.rows.clear();
+		}
+	}
+
+	private static final class NodeStream {
+		private final int seq;
+		private final LinkedList<RowDataPacket> rows = new LinkedList<RowDataPacket>();
+		private boolean finished;
+		private long received;
+
+		NodeStream(int seq) {
+			this.seq = seq;
+		}
+	}
+}
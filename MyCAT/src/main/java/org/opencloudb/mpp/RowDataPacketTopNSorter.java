@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.mpp;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+
+import org.opencloudb.net.mysql.RowDataPacket;
+
+/**
+ * sorter for order by with limit ,only the first limit start+size rows are
+ * kept in a bounded heap ,the worst kept row is on the top and is replaced
+ * when a better row comes.
+ * 
+ * @author wuzhih
+ * 
+ */
+public class RowDataPacketTopNSorter extends RowDataPacketSorter {
+	private final int maxRows;
+	private final PriorityQueue<Slot> heap;
+	private long seq;
+
+	public RowDataPacketTopNSorter(OrderCol[] orderCols, int maxRows) {
+		super(orderCols);
+		this.maxRows = maxRows;
+		this.heap = new PriorityQueue<Slot>(Math.max(1, Math.min(maxRows,
+				1024)), new Comparator<Slot>() {
+			@Override
+			public int compare(Slot o1, Slot o2) {
+				// reversed ,later row of the same order is worse
+				int result = compareRow(o2.row, o1.row);
+				if (result != 0) {
+					return result;
+				}
+				return (o1.seq < o2.seq) ? 1 : ((o1.seq == o2.seq) ? 0 : -1);
+			}
+		});
+	}
+
+	@Override
+	public void addRow(RowDataPacket row) {
+		if (heap.size() < maxRows) {
+			heap.add(new Slot(row, seq++));
+			return;
+		}
+		// a row not better than the worst kept row is dropped
+		if (maxRows == 0 || compareRow(row, heap.peek().row) >= 0) {
+			seq++;
+			return;
+		}
+		Slot worst = heap.poll();
+		worst.row = row;
+		worst.seq = seq++;
+		heap.add(worst);
+	}
+
+	/**
+	 * kept rows in order ,the heap is emptied
+	 */
+	@Override
+	public Collection<RowDataPacket> getSortedResult() {
+		LinkedList<RowDataPacket> result = new LinkedList<RowDataPacket>();
+		Slot slot;
+		while ((slot = heap.poll()) != null) {
+			result.addFirst(slot.row);
+		}
+		return result;
+	}
+
+	public int size() {
+		return heap.size();
+	}
+
+	public int getMaxRows() {
+		return maxRows;
+	}
+
+	private static final class Slot {
+		private RowDataPacket row;
+		private long seq;
+
+		Slot(RowDataPacket row, long seq) {
+			this.row = row;
+			this.seq = seq;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.mpp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.opencloudb.mysql.BufferUtil;
+import org.opencloudb.net.mysql.RowDataPacket;
+
+/**
+ * a run of rows spilled to temp file ,rows are kept in mysql row packet
+ * format
+ * 
+ * @author wuzhih
+ * 
+ */
+public class RowDataSpillFile {
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final byte NULL_MARK = (byte) 251;
+	private final File file;
+	private final int fieldCount;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private ByteBuffer buffer;
+	private long rows;
+	private long bytes;
+
+	public RowDataSpillFile(File file, int fieldCount) throws IOException {
+		this.file = file;
+		this.fieldCount = fieldCount;
+		this.raf = new RandomAccessFile(file, "rw");
+		this.channel = raf.getChannel();
+		this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	}
+
+	public void write(RowDataPacket row) throws IOException {
+		int size = row.calcPacketSize();
+		if (buffer.remaining() < size + 4) {
+			flush();
+			if (buffer.capacity() < size + 4) {
+				buffer = ByteBuffer.allocate(size + 4);
+			}
+		}
+		BufferUtil.writeUB3(buffer, size);
+		buffer.put((byte) 0);
+		for (int i = 0; i < fieldCount; i++) {
+			byte[] fv = row.fieldValues.get(i);
+			if (fv == null || fv.length == 0) {
+				buffer.put(NULL_MARK);
+			} else {
+				BufferUtil.writeLength(buffer, fv.length);
+				buffer.put(fv);
+			}
+		}
+		rows++;
+		bytes += size + 4;
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * finish writing and read from the beginning
+	 */
+	public void startRead() throws IOException {
+		flush();
+		channel.position(0);
+		buffer.flip();
+	}
+
+	/**
+	 * next row ,null if end of file
+	 */
+	public RowDataPacket read() throws IOException {
+		if (!fill(4)) {
+			return null;
+		}
+		int pos = buffer.position();
+		int size = (buffer.get(pos) & 0xff) | ((buffer.get(pos + 1) & 0xff) << 8)
+				| ((buffer.get(pos + 2) & 0xff) << 16);
+		if (!fill(size + 4)) {
+			throw new IOException("spill file truncated " + file);
+		}
+		byte[] data = new byte[size + 4];
+		buffer.get(data);
+		RowDataPacket row = new RowDataPacket(fieldCount);
+		row.read(data);
+		return row;
+	}
+
+	/**
+	 * make sure len bytes can be read from buffer
+	 */
+	private boolean fill(int len) throws IOException {
+		if (buffer.remaining() >= len) {
+			return true;
+		}
+		if (buffer.capacity() < len) {
+			ByteBuffer bigger = ByteBuffer.allocate(len);
+			bigger.put(buffer);
+			buffer = bigger;
+		} else {
+			buffer.compact();
+		}
+		while (buffer.position() < len) {
+			if (channel.read(buffer) < 0) {
+				break;
+			}
+		}
+		buffer.flip();
+		return buffer.remaining() >= len;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public void close() {
+		try {
+			raf.close();
+		} catch (IOException e) {
+			// ignore
+		}
+		file.delete();
+	}
+}
@@ -57,12 +57,12 @@ public class ShardingParseInfo {
 
 		if (value instanceof Object[]) {
 			for (Object item : (Object[]) value) {
-				columValues.add(new ColumnRoutePair(item.toString()));
+				columValues.add(ColumnRoutePair.valueOf(item));
 			}
 		} else if (value instanceof RangeValue) {
 			columValues.add(new ColumnRoutePair((RangeValue) value));
 		} else {
-			columValues.add(new ColumnRoutePair(value.toString()));
+			columValues.add(ColumnRoutePair.valueOf(value));
 		}
 	}
 
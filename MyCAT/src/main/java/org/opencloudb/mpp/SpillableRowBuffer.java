@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.mpp;
+
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.apache.log4j.Logger;
+import org.opencloudb.net.mysql.RowDataPacket;
+
+/**
+ * merge buffer of a session with memory budget. rows over the budget are
+ * sorted (if comparator is given) and spilled to temp file as a run ,then
+ * runs are merged when the result is read.
+ * 
+ * @author wuzhih
+ * 
+ */
+public class SpillableRowBuffer {
+	private static final Logger LOGGER = Logger
+			.getLogger(SpillableRowBuffer.class);
+	// estimated object overhead of a row and each field
+	private static final int ROW_OVERHEAD = 64;
+	private static final int FIELD_OVERHEAD = 24;
+	// runs are merged into one file when so many runs are open
+	static final int MAX_OPEN_RUNS = 16;
+
+	private final MergeMemoryManager memoryManager;
+	private final int fieldCount;
+	private final Comparator<RowDataPacket> comparator;
+	private LinkedList<RowDataPacket> rows = new LinkedList<RowDataPacket>();
+	private final List<RowDataSpillFile> runs = new ArrayList<RowDataSpillFile>();
+	private long memoryBytes;
+	private long spilledRows;
+
+	/**
+	 * @param comparator
+	 *            null if rows are read in adding order
+	 */
+	public SpillableRowBuffer(MergeMemoryManager memoryManager,
+			int fieldCount, Comparator<RowDataPacket> comparator) {
+		this.memoryManager = memoryManager;
+		this.fieldCount = fieldCount;
+		this.comparator = comparator;
+	}
+
+	public void add(RowDataPacket row) {
+		long size = estimateSize(row, fieldCount);
+		if (memoryBytes + size > memoryManager.getSessionLimit()
+				|| !memoryManager.reserve(size)) {
+			if (!rows.isEmpty()
+					&& memoryBytes >= memoryManager.getMinSpillBytes()) {
+				spill();
+			}
+			memoryManager.forceReserve(size);
+		}
+		rows.add(row);
+		memoryBytes += size;
+	}
+
+	static long estimateSize(RowDataPacket row, int fieldCount) {
+		long size = ROW_OVERHEAD;
+		for (int i = 0; i < fieldCount; i++) {
+			size += row.fieldValues.get(i).length + FIELD_OVERHEAD;
+		}
+		return size;
+	}
+
+	/**
+	 * write rows in memory to a new run
+	 */
+	private void spill() {
+		addRun(rows);
+		rows = new LinkedList<RowDataPacket>();
+		memoryManager.release(memoryBytes);
+		memoryBytes = 0;
+	}
+
+	/**
+	 * write rows to a new run directly ,rows are sorted first if comparator
+	 * is given
+	 */
+	public void addRun(List<RowDataPacket> runRows) {
+		if (comparator != null) {
+			Collections.sort(runRows, comparator);
+		}
+		RowDataSpillFile run = null;
+		try {
+			run = new RowDataSpillFile(memoryManager.createSpillFile(),
+					fieldCount);
+			for (RowDataPacket row : runRows) {
+				run.write(row);
+			}
+			run.startRead();
+		} catch (IOException e) {
+			if (run != null) {
+				run.close();
+			}
+			throw new RuntimeException("spill merge rows to file failed", e);
+		}
+		runs.add(run);
+		spilledRows += run.getRows();
+		memoryManager.onSpill(run.getRows(), run.getBytes());
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("spill " + run.getRows() + " rows ," + run.getBytes()
+					+ " bytes to run " + runs.size());
+		}
+		if (runs.size() >= MAX_OPEN_RUNS) {
+			compactRuns();
+		}
+	}
+
+	/**
+	 * merge all runs into one run ,so that open files and the heap of final
+	 * merge are bounded
+	 */
+	private void compactRuns() {
+		Iterator<RowDataPacket> itor = (comparator != null) ? new MergeIterator()
+				: new ConcatIterator();
+		RowDataSpillFile merged = null;
+		try {
+			merged = new RowDataSpillFile(memoryManager.createSpillFile(),
+					fieldCount);
+			while (itor.hasNext()) {
+				merged.write(itor.next());
+			}
+			merged.startRead();
+		} catch (IOException e) {
+			if (merged != null) {
+				merged.close();
+			}
+			throw new RuntimeException("merge spilled runs failed", e);
+		}
+		for (RowDataSpillFile run : runs) {
+			run.close();
+		}
+		runs.clear();
+		runs.add(merged);
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("merge runs to one run of " + merged.getRows()
+					+ " rows ," + merged.getBytes() + " bytes");
+		}
+	}
+
+	public boolean isSpilled() {
+		return !runs.isEmpty();
+	}
+
+	int getRunCount() {
+		return runs.size();
+	}
+
+	public long size() {
+		return spilledRows + rows.size();
+	}
+
+	/**
+	 * sorted or in adding order rows ,can only be called once after all rows
+	 * added. rows are removed when iterated
+	 */
+	public Collection<RowDataPacket> getResult() {
+		if (runs.isEmpty()) {
+			if (comparator != null) {
+				Collections.sort(rows, comparator);
+			}
+			return rows;
+		}
+		if (!rows.isEmpty()) {
+			spill();
+		}
+		final int total = (int) spilledRows;
+		return new AbstractCollection<RowDataPacket>() {
+			@Override
+			public Iterator<RowDataPacket> iterator() {
+				return (comparator != null) ? new MergeIterator()
+						: new ConcatIterator();
+			}
+
+			@Override
+			public int size() {
+				return total;
+			}
+		};
+	}
+
+	/**
+	 * release memory and delete temp files
+	 */
+	public void clear() {
+		rows.clear();
+		memoryManager.release(memoryBytes);
+		memoryBytes = 0;
+		for (RowDataSpillFile run : runs) {
+			run.close();
+		}
+		runs.clear();
+	}
+
+	private RowDataPacket readRun(RowDataSpillFile run) {
+		try {
+			RowDataPacket row = run.read();
+			if (row == null) {
+				run.close();
+			}
+			return row;
+		} catch (IOException e) {
+			throw new RuntimeException("read merge rows from file failed", e);
+		}
+	}
+
+	private abstract class RunIterator implements Iterator<RowDataPacket> {
+		private RowDataPacket next;
+		private boolean fetched;
+
+		protected abstract RowDataPacket fetch();
+
+		@Override
+		public boolean hasNext() {
+			if (!fetched) {
+				next = fetch();
+				fetched = true;
+			}
+			return next != null;
+		}
+
+		@Override
+		public RowDataPacket next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			fetched = false;
+			return next;
+		}
+
+		@Override
+		public void remove() {
+			// row already removed from run
+		}
+	}
+
+	/**
+	 * runs are read one by one
+	 */
+	private final class ConcatIterator extends RunIterator {
+		private int index;
+
+		@Override
+		protected RowDataPacket fetch() {
+			while (index < runs.size()) {
+				RowDataPacket row = readRun(runs.get(index));
+				if (row != null) {
+					return row;
+				}
+				index++;
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * k-way merge of sorted runs
+	 */
+	private final class MergeIterator extends RunIterator {
+		private final PriorityQueue<RunHead> heap;
+
+		MergeIterator() {
+			heap = new PriorityQueue<RunHead>(runs.size(),
+					new Comparator<RunHead>() {
+						@Override
+						public int compare(RunHead o1, RunHead o2) {
+							int result = comparator.compare(o1.row, o2.row);
+							return (result != 0) ? result : o1.seq - o2.seq;
+						}
+					});
+			for (int i = 0; i < runs.size(); i++) {
+				RowDataPacket row = readRun(runs.get(i));
+				if (row != null) {
+					heap.add(new RunHead(i, row));
+				}
+			}
+		}
+
+		@Override
+		protected RowDataPacket fetch() {
+			RunHead head = heap.poll();
+			if (head == null) {
+				return null;
+			}
+			RowDataPacket row = head.row;
+			head.row = readRun(runs.get(head.seq));
+			if (head.row != null) {
+				heap.add(head);
+			}
+			return row;
+		}
+	}
+
+	private static final class RunHead {
+		private final int seq;
+		private RowDataPacket row;
+
+		RunHead(int seq, RowDataPacket row) {
+			this.seq = seq;
+			this.row = row;
+		}
+	}
+}
@@ -227,10 +227,10 @@ public class NodeExcutionController {
 			NodeRowDataPacket nodePacket = result.get(dn);
 			
 			RangRowDataPacket rangRowDataPacket = nodePacket.loadTailPacket();
-			if (rangRowDataPacket == null || rangRowDataPacket.getRowDataPacketList().isEmpty()) {
+			if (rangRowDataPacket == null || rangRowDataPacket.isEmpty()) {
 				rangRowDataPacket = nodePacket.loadTailPacket(2);
 				
-				if (rangRowDataPacket == null || rangRowDataPacket.getRowDataPacketList().isEmpty()) {
+				if (rangRowDataPacket == null || rangRowDataPacket.isEmpty()) {
 					continue;
 				}
 			}
@@ -398,7 +398,7 @@ public class NodeExcutionController {
 		for (String dataName : nextDataNameList) {
 			NodeRowDataPacket nodePacket = result.get(dataName);
 			RangRowDataPacket rangPacket = nodePacket.loadTailPacket();
-			if (rangPacket == null || rangPacket.getRowDataPacketList().isEmpty()) {
+			if (rangPacket == null || rangPacket.isEmpty()) {
 				continue;
 			}
 			RowDataPacket tailPacket = rangPacket.getTail();
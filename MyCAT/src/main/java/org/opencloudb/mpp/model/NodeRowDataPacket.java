@@ -3,7 +3,7 @@ package org.opencloudb.mpp.model;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.opencloudb.net.mysql.RowDataPacket;
+import org.opencloudb.mpp.RowDataBatch;
 import org.opencloudb.route.RouteResultsetNode;
 
 public class NodeRowDataPacket {
@@ -99,33 +99,36 @@ public class NodeRowDataPacket {
 			RangRowDataPacket packet = this.rangRDPacketList.remove(0);
 			
 			//this.trimRangRDPacketList.add(packet);
-			if (packet.getRowDataPacketList().size() == this.trimSize) {
+			if (packet.size() == this.trimSize) {
 				packet.leftHeadTail();
 			}
 			addTrimWithCombine(packet);
 		}
 	}
 	
-	public void addPacket(RowDataPacket packet) {
+	public void addPacket(byte[] rowData, int fieldCount) {
 		RangRowDataPacket rangPacket = rangRDPacketList.get(rangRDPacketList.size() - 1);
-		rangPacket.appendPacket(packet);
+		rangPacket.appendPacket(rowData, fieldCount);
 	}
 	
 	public RouteResultsetNode getNode() {
 		return node;
 	}
 	
-	public List<RowDataPacket> loadData() {
-		List<RowDataPacket> result = new ArrayList<RowDataPacket>();
+	/**
+	 * add row batches not trimmed to result
+	 */
+	public void loadData(List<RowDataBatch> result) {
 		for (RangRowDataPacket packet : rangRDPacketList) {
-			result.addAll(packet.getRowDataPacketList());
+			if (!packet.isEmpty()) {
+				result.add(packet.getBatch());
+			}
 		}
 		for (RangRowDataPacket packet : trimRangRDPacketList) {
-			if (!packet.isTrim()) {
-				result.addAll(packet.getRowDataPacketList());
+			if (!packet.isTrim() && !packet.isEmpty()) {
+				result.add(packet.getBatch());
 			}
 		}
-		return result;
 	}
 	
 	public RangRowDataPacket loadHeadPacket() {
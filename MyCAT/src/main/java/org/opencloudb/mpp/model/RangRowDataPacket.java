@@ -1,15 +1,14 @@
 package org.opencloudb.mpp.model;
 
-import java.util.ArrayList;
-import java.util.List;
-
+import org.opencloudb.mpp.RowDataBatch;
 import org.opencloudb.net.mysql.RowDataPacket;
 
 public class RangRowDataPacket {
 	public static final int DATA_TYPE_ALL = 100;
 	public static final int DATA_TYPE_TRIM = 200;
 	private int dataType = DATA_TYPE_ALL;
-	private List<RowDataPacket> rowDataPacketList = new ArrayList<RowDataPacket>();
+	// created when first row appended
+	private RowDataBatch batch;
 	
 	private int trimCount = 0;
 	public int getTrimCount() {
@@ -18,12 +17,11 @@ public class RangRowDataPacket {
 
 	private boolean dataOk = false;
 	
-	public void appendPacket(List<RowDataPacket> packetList) {
-		this.rowDataPacketList.addAll(packetList);
-	}
-	
-	public void appendPacket(RowDataPacket packet) {
-		this.rowDataPacketList.add(packet);
+	public void appendPacket(byte[] rowData, int fieldCount) {
+		if (batch == null) {
+			batch = new RowDataBatch(fieldCount);
+		}
+		batch.add(rowData);
 	}
 	
 	public void dataOk() {
@@ -35,59 +33,70 @@ public class RangRowDataPacket {
 	}
 	
 	public void leftHeadTail() {
-		while (this.rowDataPacketList.size() > 2) {
-			this.rowDataPacketList.remove(1);
-			trimCount++;
+		if (size() > 2) {
+			trimCount += size() - 2;
+			batch.retainHeadTail();
 		}
 		dataType = DATA_TYPE_TRIM;
 	}
 	
+	public int size() {
+		return (batch == null) ? 0 : batch.size();
+	}
+	
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+	
 	public int allSize() {
 		if (dataType == DATA_TYPE_TRIM) {
-			return trimCount + rowDataPacketList.size();
+			return trimCount + size();
 		} else {
-			return rowDataPacketList.size();
+			return size();
 		}
 	}
 	
 	public void combine(RangRowDataPacket rowData) {
 		if (dataType == DATA_TYPE_TRIM) {
-			if (this.rowDataPacketList.isEmpty()) {
+			if (this.isEmpty()) {
 				this.trimCount = rowData.getTrimCount();
-				this.rowDataPacketList.addAll(rowData.getRowDataPacketList());
+				this.batch = rowData.getBatch();
 			} else {
 				if (rowData.allSize() == 0) {
 					return;
 				}
-				this.rowDataPacketList.remove(1);
+				if (this.size() > 1) {
+					this.batch.removeLast();
+				}
 				
 				if (rowData.allSize() == 1) {
 					this.trimCount += 1 + rowData.getTrimCount();
-					this.rowDataPacketList.add(rowData.getHead());
+					this.batch.add(rowData.getBatch(), 0);
 				} else if (rowData.allSize() >= 2) {
 					this.trimCount += 2 + rowData.getTrimCount();
-					this.rowDataPacketList.add(rowData.getTail());
+					RowDataBatch other = rowData.getBatch();
+					this.batch.add(other, other.size() - 1);
 				}
 			}
 		}
 		
 	}
 	
-	public List<RowDataPacket> getRowDataPacketList() {
-		return rowDataPacketList;
+	public RowDataBatch getBatch() {
+		return batch;
 	}
 	
 	public RowDataPacket getHead() {
-		if (this.rowDataPacketList.isEmpty()) {
+		if (this.isEmpty()) {
 			return null;
 		}
-		return this.rowDataPacketList.get(0);
+		return this.batch.getRow(0);
 	}
 	
 	public RowDataPacket getTail() {
-		if (this.rowDataPacketList.size() < 2) {
+		if (this.size() < 2) {
 			return null;
 		}
-		return this.rowDataPacketList.get(this.rowDataPacketList.size()-1);
+		return this.batch.getRow(this.batch.size() - 1);
 	}
 }
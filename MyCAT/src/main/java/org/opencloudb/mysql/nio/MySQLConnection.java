@@ -26,9 +26,13 @@ package org.opencloudb.mysql.nio;
 import java.io.UnsupportedEncodingException;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
+import org.opencloudb.backend.PhysicalDatasource;
 import org.opencloudb.config.Capabilities;
 import org.opencloudb.config.ErrorCode;
 import org.opencloudb.config.Isolations;
@@ -58,7 +62,7 @@ public class MySQLConnection extends BackendAIOConnection {
 	private volatile long lastTime; // QS_TODO
 	private volatile String schema = "";
 	private volatile String oldSchema;
-	private volatile boolean borrowed = false;
+	private final AtomicBoolean borrowed = new AtomicBoolean(false);
 	private volatile boolean modifiedSQLExecuted = false;
 	private volatile boolean txSetCmdExecuted = false;
 
@@ -300,6 +304,10 @@ public class MySQLConnection extends BackendAIOConnection {
 		private final int txIsolation;
 		private final boolean autocommit;
 		private volatile boolean executed;
+		// updaters of sent commands in order ,run when it's OK received
+		private final List<Runnable> updaters = new ArrayList<Runnable>(4);
+		private final AtomicInteger pendingResponses = new AtomicInteger();
+		private byte[] errorPacket;
 
 		public StatusSync(MySQLConnection conn, RouteResultsetNode rrn,
 				int scCharIndex, int scTxtIsolation, boolean autocommit) {
@@ -350,8 +358,6 @@ public class MySQLConnection extends BackendAIOConnection {
 
 		}
 
-		private Runnable updater;
-
 		public boolean isExecuted() {
 			return executed;
 		}
@@ -361,37 +367,34 @@ public class MySQLConnection extends BackendAIOConnection {
 					&& acCmd == null;
 		}
 
-		public void update() {
-			Runnable updater = this.updater;
-			if (updater != null) {
-				updater.run();
-			}
-		}
-
 		/**
+		 * send all commands back-to-back without waiting for OK ,the sql is
+		 * sent after all OK received ,so it never runs if one of them failed
+		 * 
 		 * @return false if sync complete
 		 */
 		public boolean sync() {
-			CommandPacket cmd;
+			List<CommandPacket> cmds = new ArrayList<CommandPacket>(4);
+			MySQLDataSource pool = conn.pool;
 			if (schemaCmd != null) {
 				conn.schema = "snyn...";
-				updater = new Runnable() {
+				updaters.add(new Runnable() {
 					@Override
 					public void run() {
 						conn.schema = schema;
 						conn.oldSchema = conn.schema;
 					}
-				};
-				cmd = schemaCmd;
+				});
+				cmds.add(schemaCmd);
 				schemaCmd = null;
-				cmd.write(conn);
-				// System.out.println("syn schema "+conn+" schema "+schema);
-				return true;
+				if (pool != null) {
+					pool.recordSync(PhysicalDatasource.SYNC_SCHEMA);
+				}
 			}
 			if (charCmd != null) {
 				conn.charsetIndex = conn.oldCharsetIndex;
 				conn.charset = conn.oldCharset;
-				updater = new Runnable() {
+				updaters.add(new Runnable() {
 					@Override
 					public void run() {
 						int ci = StatusSync.this.charIndex;
@@ -400,31 +403,31 @@ public class MySQLConnection extends BackendAIOConnection {
 						conn.oldCharsetIndex = ci;
 						conn.oldCharset = CharsetUtil.getCharset(ci);
 					}
-				};
-				cmd = charCmd;
+				});
+				cmds.add(charCmd);
 				charCmd = null;
-				cmd.write(conn);
-				// System.out.println("syn charCmd "+conn);
-				return true;
+				if (pool != null) {
+					pool.recordSync(PhysicalDatasource.SYNC_CHARSET);
+				}
 			}
 			if (isoCmd != null) {
 				conn.txIsolation = conn.oldTxIsolation;
-				updater = new Runnable() {
+				updaters.add(new Runnable() {
 					@Override
 					public void run() {
 						conn.txIsolation = StatusSync.this.txIsolation;
 						conn.oldTxIsolation = conn.txIsolation;
 					}
-				};
-				cmd = isoCmd;
+				});
+				cmds.add(isoCmd);
 				isoCmd = null;
-				cmd.write(conn);
-				// System.out.println("syn iso "+conn);
-				return true;
+				if (pool != null) {
+					pool.recordSync(PhysicalDatasource.SYNC_ISOLATION);
+				}
 			}
 			if (acCmd != null) {
 				conn.autocommit = conn.oldAutoCommit;
-				updater = new Runnable() {
+				updaters.add(new Runnable() {
 					@Override
 					public void run() {
 						conn.autocommit = StatusSync.this.autocommit;
@@ -433,14 +436,50 @@ public class MySQLConnection extends BackendAIOConnection {
 							conn.txSetCmdExecuted = true;
 						}
 					}
-				};
-				cmd = acCmd;
+				});
+				cmds.add(acCmd);
 				acCmd = null;
+				if (pool != null) {
+					pool.recordSync(PhysicalDatasource.SYNC_AUTOCOMMIT);
+				}
+			}
+			if (cmds.isEmpty()) {
+				return false;
+			}
+			// all counted before the first response may come
+			pendingResponses.set(cmds.size());
+			for (CommandPacket cmd : cmds) {
 				cmd.write(conn);
-				// System.out.println("syn autocomit "+conn);
-				return true;
 			}
-			return false;
+			return true;
+		}
+
+		/**
+		 * @return false if not response of sync commands
+		 */
+		public boolean onResponse(byte[] data, boolean ok) {
+			int pending = pendingResponses.get();
+			if (executed || pending <= 0) {
+				return false;
+			}
+			if (ok) {
+				updaters.get(updaters.size() - pending).run();
+			} else if (errorPacket == null) {
+				errorPacket = data;
+			}
+			if (pendingResponses.decrementAndGet() == 0) {
+				if (errorPacket == null) {
+					execute();
+				} else {
+					// all responses consumed ,connection is clean for handler
+					executed = true;
+					ResponseHandler handler = conn.respHandler;
+					if (handler != null) {
+						handler.errorResponse(errorPacket, conn);
+					}
+				}
+			}
+			return true;
 		}
 
 		public void execute() {
@@ -499,21 +538,20 @@ public class MySQLConnection extends BackendAIOConnection {
 
 	/**
 	 * @return if synchronization finished and execute-sql has already been sent
-	 *         before
+	 *         before ,responses of sync commands are consumed by
+	 *         onSyncResponse and never passed to handlers
 	 */
 	public boolean syncAndExcute() {
 		StatusSync sync = statusSync;
-		if (sync.isExecuted()) {
-			return true;
-		}
-		if (sync.isSync()) {
-			sync.update();
-			sync.execute();
-		} else {
-			sync.update();
-			sync.sync();
-		}
-		return false;
+		return sync == null || sync.isExecuted();
+	}
+
+	/**
+	 * @return true if it's the response of status sync commands
+	 */
+	boolean onSyncResponse(byte[] data, boolean ok) {
+		StatusSync sync = statusSync;
+		return sync != null && sync.onResponse(data, ok);
 	}
 
 	public void execute(RouteResultsetNode rrn, ServerConnection sc,
@@ -591,6 +629,8 @@ public class MySQLConnection extends BackendAIOConnection {
 	}
 
 	public void release() {
+		// never return a read suspended connection to pool
+		resumeRead();
 		attachment = null;
 		statusSync = null;
 		modifiedSQLExecuted = false;
@@ -694,12 +734,17 @@ public class MySQLConnection extends BackendAIOConnection {
 
 	@Override
 	public boolean isBorrowed() {
-		return borrowed;
+		return borrowed.get();
 	}
 
 	@Override
 	public void setBorrowed(boolean borrowed) {
-		this.borrowed = borrowed;
+		this.borrowed.set(borrowed);
+	}
+
+	@Override
+	public boolean compareAndSetBorrowed(boolean expect, boolean update) {
+		return this.borrowed.compareAndSet(expect, update);
 	}
 
 	@Override
@@ -713,7 +758,7 @@ public class MySQLConnection extends BackendAIOConnection {
 				+ ", schema="
 				+ schema
 				+ ", borrowed="
-				+ borrowed
+				+ borrowed.get()
 				+ ", fromSlaveDB="
 				+ fromSlaveDB
 				+ ", threadId="
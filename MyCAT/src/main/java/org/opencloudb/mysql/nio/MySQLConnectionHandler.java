@@ -27,8 +27,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.log4j.Logger;
+import org.opencloudb.buffer.PacketView;
 import org.opencloudb.mysql.ByteUtil;
+import org.opencloudb.mysql.nio.handler.PacketViewResponseHandler;
 import org.opencloudb.mysql.nio.handler.ResponseHandler;
+import org.opencloudb.net.PacketViewHandler;
 import org.opencloudb.net.handler.BackendAsyncHandler;
 import org.opencloudb.net.mysql.EOFPacket;
 import org.opencloudb.net.mysql.ErrorPacket;
@@ -39,7 +42,8 @@ import org.opencloudb.net.mysql.OkPacket;
  * 
  * @author mycat
  */
-public class MySQLConnectionHandler extends BackendAsyncHandler {
+public class MySQLConnectionHandler extends BackendAsyncHandler implements
+		PacketViewHandler {
 	private static final Logger logger = Logger
 			.getLogger(MySQLConnectionHandler.class);
 	private static final int RESULT_STATUS_INIT = 0;
@@ -80,6 +84,41 @@ public class MySQLConnectionHandler extends BackendAsyncHandler {
 		offerData(data, source.getProcessor().getExecutor());
 	}
 
+	/**
+	 * row packets are passed to PacketViewResponseHandler in place when no
+	 * other packet is queued, others are copied and queued as before
+	 */
+	@Override
+	public void handle(PacketView packet) {
+		if (dataQueue.isEmpty() && isHandling.compareAndSet(false, true)) {
+			boolean handled = false;
+			try {
+				ResponseHandler respHandler = responseHandler;
+				if (resultStatus == RESULT_STATUS_FIELD_EOF
+						&& respHandler instanceof PacketViewResponseHandler) {
+					byte type = packet.get(4);
+					if (type != ErrorPacket.FIELD_COUNT
+							&& type != EOFPacket.FIELD_COUNT) {
+						handled = true;
+						((PacketViewResponseHandler) respHandler).rowResponse(
+								packet, source);
+					}
+				}
+			} catch (Throwable t) {
+				handleDataError(t);
+			} finally {
+				isHandling.set(false);
+				if (!dataQueue.isEmpty()) {
+					handleQueue();
+				}
+			}
+			if (handled) {
+				return;
+			}
+		}
+		handle(packet.toArray());
+	}
+
 	@Override
 	protected void offerDataError() {
 		dataQueue.clear();
@@ -162,6 +201,9 @@ public class MySQLConnectionHandler extends BackendAsyncHandler {
 	 * OK数据包处理
 	 */
 	private void handleOkPacket(byte[] data) {
+		if (source.onSyncResponse(data, true)) {
+			return;
+		}
 		if (responseHandler != null) {
 			responseHandler.okResponse(data, source);
 		}
@@ -171,6 +213,9 @@ public class MySQLConnectionHandler extends BackendAsyncHandler {
 	 * ERROR数据包处理
 	 */
 	private void handleErrorPacket(byte[] data) {
+		if (source.onSyncResponse(data, false)) {
+			return;
+		}
 		if (responseHandler != null) {
 			responseHandler.errorResponse(data, source);
 		}
@@ -23,10 +23,11 @@
  */
 package org.opencloudb.mysql.nio.handler;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 import org.opencloudb.MycatConfig;
@@ -39,166 +40,265 @@ import org.opencloudb.net.mysql.ErrorPacket;
 import org.opencloudb.net.mysql.RowDataPacket;
 import org.opencloudb.route.RouteResultsetNode;
 import org.opencloudb.server.parser.ServerParse;
+import org.opencloudb.util.TimeUtil;
 
 /**
  * company where id=(select company_id from customer where id=3); the one which
  * return data (id) is the datanode to store child table's records
  * 
+ * the query is sent to all candidate data nodes at once and never blocks the
+ * caller ,the first node which returns a row wins and the result is given to
+ * the callback ,queries of other nodes not sent yet are dropped. found nodes
+ * are cached in ER_SQL2PARENTID ,a lookup missed in all nodes is cached in
+ * ER_SQL2PARENTID_MISS (short expire time) if the pool is configured
+ * 
  * @author wuzhih
  * 
  */
-public class FetchStoreNodeOfChildTableHandler implements ResponseHandler {
+public class FetchStoreNodeOfChildTableHandler {
 	private static final Logger LOGGER = Logger
 			.getLogger(FetchStoreNodeOfChildTableHandler.class);
-	private String sql;
-	private volatile String result;
-	private volatile String dataNode;
-	private AtomicInteger finished = new AtomicInteger(0);
-	protected final ReentrantLock lock = new ReentrantLock();
-
-	public String execute(String schema, String sql, ArrayList<String> dataNodes) {
-		String key = schema + ":" + sql;
-		CachePool cache = MycatServer.getInstance().getCacheService()
-				.getCachePool("ER_SQL2PARENTID");
-		String result = (String) cache.get(key);
-		if (result != null) {
-			return result;
-		}
+	public static final String CACHE_POOL = "ER_SQL2PARENTID";
+	public static final String MISS_CACHE_POOL = "ER_SQL2PARENTID_MISS";
+	private static final long TIMEOUT = 5 * 60 * 1000L;
+	// running lookups ,checked by timer for timeout
+	private static final Set<FetchStoreNodeOfChildTableHandler> RUNNINGS = Collections
+			.newSetFromMap(new ConcurrentHashMap<FetchStoreNodeOfChildTableHandler, Boolean>());
+
+	/**
+	 * called once in backend thread when the lookup finished
+	 */
+	public interface Callback {
+		void onFound(String dataNode);
+
+		void onNotFound(String reason);
+	}
+
+	private final String sql;
+	private final String key;
+	private final List<String> dataNodes;
+	private final Callback callback;
+	private final Set<String> pendingNodes = Collections
+			.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final AtomicBoolean finished = new AtomicBoolean(false);
+	private volatile boolean hasError;
+	private volatile long startTime;
+
+	public FetchStoreNodeOfChildTableHandler(String schema, String sql,
+			List<String> dataNodes, Callback callback) {
 		this.sql = sql;
-		int totalCount = dataNodes.size();
-		long startTime = System.currentTimeMillis();
-		long endTime = startTime + 5 * 60 * 1000L;
-		MycatConfig conf = MycatServer.getInstance().getConfig();
+		this.key = schema + ":" + sql;
+		this.dataNodes = dataNodes;
+		this.callback = callback;
+	}
+
+	/**
+	 * cached data node of the lookup sql ,null if not cached
+	 */
+	public static String getCachedNode(String schema, String sql) {
+		CachePool cache = getCachePool(CACHE_POOL);
+		return (cache == null) ? null : (String) cache.get(schema + ":" + sql);
+	}
+
+	/**
+	 * if the lookup sql found nothing in all data nodes recently
+	 */
+	public static boolean isCachedMiss(String schema, String sql) {
+		CachePool cache = getCachePool(MISS_CACHE_POOL);
+		return cache != null && cache.get(schema + ":" + sql) != null;
+	}
+
+	private static CachePool getCachePool(String name) {
+		return MycatServer.getInstance().getCacheService().getAllCachePools()
+				.get(name);
+	}
+
+	/**
+	 * fail the lookups which not finished in time
+	 */
+	public static void checkTimeout() {
+		long now = TimeUtil.currentTimeMillis();
+		for (FetchStoreNodeOfChildTableHandler handler : RUNNINGS) {
+			if (now - handler.startTime > TIMEOUT) {
+				LOGGER.warn("find parent data node timeout ,sql: "
+						+ handler.sql + " ,pending nodes: "
+						+ handler.pendingNodes);
+				handler.hasError = true;
+				handler.finish(null, "timeout");
+			}
+		}
+	}
 
+	public void execute() {
+		CachePool cache = getCachePool(CACHE_POOL);
+		String dataNode = (cache == null) ? null : (String) cache.get(key);
+		if (dataNode != null) {
+			finish(dataNode, null);
+			return;
+		}
+		if (dataNodes.isEmpty()) {
+			finish(null, "no data node");
+			return;
+		}
+		startTime = TimeUtil.currentTimeMillis();
+		pendingNodes.addAll(dataNodes);
+		RUNNINGS.add(this);
+		MycatConfig conf = MycatServer.getInstance().getConfig();
 		for (String dn : dataNodes) {
-			if (dataNode != null) {
-				return dataNode;
+			if (finished.get()) {
+				nodeFinished(dn, false);
+				continue;
 			}
 			PhysicalDBNode mysqlDN = conf.getDataNodes().get(dn);
-			ConnectionMeta conMeta = new ConnectionMeta(mysqlDN.getDatabase(),
-					null, -1, true);
 			try {
 				if (LOGGER.isDebugEnabled()) {
 					LOGGER.debug("execute in datanode " + dn);
 				}
+				ConnectionMeta conMeta = new ConnectionMeta(
+						mysqlDN.getDatabase(), null, -1, true);
 				mysqlDN.getConnection(conMeta, new RouteResultsetNode(dn,
-						ServerParse.SELECT, sql), this, dn);
+						ServerParse.SELECT, sql), new NodeFetcher(dn), dn);
 			} catch (Exception e) {
 				LOGGER.warn("get connection err " + e);
-			}
-			try {
-				Thread.sleep(200);
-			} catch (InterruptedException e) {
-
+				nodeFinished(dn, true);
 			}
 		}
+	}
 
-		while (dataNode == null && System.currentTimeMillis() < endTime) {
-			try {
-				Thread.sleep(50);
-			} catch (InterruptedException e) {
-				break;
-			}
-			if (dataNode != null || finished.get() >= totalCount) {
-				break;
-			}
+	private void nodeFinished(String dn, boolean error) {
+		if (error) {
+			hasError = true;
 		}
-		if (dataNode != null) {
-			cache.putIfAbsent(key, dataNode);
+		if (pendingNodes.remove(dn) && pendingNodes.isEmpty()) {
+			finish(null, hasError ? "error in some data nodes"
+					: "no parent row");
 		}
-		return dataNode;
-
 	}
 
-	@Override
-	public void connectionAcquired(BackendConnection conn) {
-		conn.setRunning(true);
-		conn.setResponseHandler(this);
-		try {
-			conn.query(sql);
-		} catch (Exception e) {
-			executeException(conn, e);
+	/**
+	 * @return false if already finished
+	 */
+	private boolean finish(String dataNode, String reason) {
+		if (!finished.compareAndSet(false, true)) {
+			return false;
+		}
+		RUNNINGS.remove(this);
+		if (dataNode != null) {
+			CachePool cache = getCachePool(CACHE_POOL);
+			if (cache != null) {
+				cache.putIfAbsent(key, dataNode);
+			}
+			callback.onFound(dataNode);
+		} else {
+			// only a clean miss in all nodes is reliable
+			CachePool missCache = getCachePool(MISS_CACHE_POOL);
+			if (!hasError && missCache != null) {
+				missCache.putIfAbsent(key, Boolean.TRUE);
+			}
+			callback.onNotFound(reason);
 		}
+		return true;
 	}
 
-	@Override
-	public void connectionError(Throwable e, BackendConnection conn) {
-		finished.incrementAndGet();
-		LOGGER.warn("connectionError " + e);
+	/**
+	 * query the parent row in one data node
+	 */
+	private class NodeFetcher implements ResponseHandler {
+		private final String dataNode;
 
-	}
+		public NodeFetcher(String dataNode) {
+			this.dataNode = dataNode;
+		}
 
-	@Override
-	public void errorResponse(byte[] data, BackendConnection conn) {
-		finished.incrementAndGet();
-		conn.setRunning(false);
-		ErrorPacket err = new ErrorPacket();
-		err.read(data);
-		LOGGER.warn("errorResponse " + err.errno + " "
-				+ new String(err.message));
-		conn.setRunning(false);
-		conn.release();
+		@Override
+		public void connectionAcquired(BackendConnection conn) {
+			if (finished.get()) {
+				// found in other node ,no need to query
+				conn.release();
+				nodeFinished(dataNode, false);
+				return;
+			}
+			conn.setRunning(true);
+			conn.setResponseHandler(this);
+			try {
+				conn.query(sql);
+			} catch (Exception e) {
+				executeException(conn, e);
+			}
+		}
 
-	}
+		@Override
+		public void connectionError(Throwable e, BackendConnection conn) {
+			LOGGER.warn("connectionError " + e);
+			nodeFinished(dataNode, true);
+		}
 
-	@Override
-	public void okResponse(byte[] ok, BackendConnection conn) {
-		boolean executeResponse = conn.syncAndExcute();
-		if (executeResponse) {
-			finished.incrementAndGet();
+		@Override
+		public void errorResponse(byte[] data, BackendConnection conn) {
+			ErrorPacket err = new ErrorPacket();
+			err.read(data);
+			LOGGER.warn("errorResponse " + err.errno + " "
+					+ new String(err.message));
 			conn.setRunning(false);
 			conn.release();
+			nodeFinished(dataNode, true);
 		}
 
-	}
-
-	@Override
-	public void rowResponse(byte[] row, BackendConnection conn) {
-		if (result == null) {
+		@Override
+		public void okResponse(byte[] ok, BackendConnection conn) {
+			boolean executeResponse = conn.syncAndExcute();
+			if (executeResponse) {
+				conn.setRunning(false);
+				conn.release();
+				nodeFinished(dataNode, false);
+			}
+		}
 
+		@Override
+		public void rowResponse(byte[] row, BackendConnection conn) {
 			RowDataPacket rowDataPkg = new RowDataPacket(1);
 			rowDataPkg.read(row);
-			byte[] columnData = rowDataPkg.fieldValues.get(0);
-			String columnVal = new String(columnData);
-			result = columnVal;
-			dataNode = (String) conn.getAttachment();
-		} else {
-			LOGGER.warn("find multi data nodes for child table store, sql is:  "
-					+ sql);
+			// row reader decodes SQL NULL as empty bytes
+			byte[] value = rowDataPkg.fieldValues.get(0);
+			if (value == null || value.length == 0) {
+				return;
+			}
+			if (!finish(dataNode, null)) {
+				LOGGER.warn("find multi data nodes for child table store, sql is:  "
+						+ sql);
+			}
 		}
 
-	}
-
-	@Override
-	public void rowEofResponse(byte[] eof, BackendConnection conn) {
-		finished.incrementAndGet();
-		conn.setRunning(false);
-		conn.release();
-	}
-
-	private void executeException(BackendConnection c, Throwable e) {
-		finished.incrementAndGet();
-		LOGGER.warn("executeException   " + e);
-		c.setRunning(false);
-		c.close("exception:" + e);
-
-	}
+		@Override
+		public void rowEofResponse(byte[] eof, BackendConnection conn) {
+			conn.setRunning(false);
+			conn.release();
+			nodeFinished(dataNode, false);
+		}
 
-	@Override
-	public void writeQueueAvailable() {
+		private void executeException(BackendConnection c, Throwable e) {
+			LOGGER.warn("executeException   " + e);
+			c.setRunning(false);
+			c.close("exception:" + e);
+			nodeFinished(dataNode, true);
+		}
 
-	}
+		@Override
+		public void writeQueueAvailable() {
 
-	@Override
-	public void connectionClose(BackendConnection conn, String reason) {
+		}
 
-		LOGGER.warn("connection closed " + conn + " reason:" + reason);
-	}
+		@Override
+		public void connectionClose(BackendConnection conn, String reason) {
+			LOGGER.warn("connection closed " + conn + " reason:" + reason);
+			nodeFinished(dataNode, true);
+		}
 
-	@Override
-	public void fieldEofResponse(byte[] header, List<byte[]> fields,
-			byte[] eof, BackendConnection conn) {
+		@Override
+		public void fieldEofResponse(byte[] header, List<byte[]> fields,
+				byte[] eof, BackendConnection conn) {
 
+		}
 	}
 
-}
\ No newline at end of file
+}
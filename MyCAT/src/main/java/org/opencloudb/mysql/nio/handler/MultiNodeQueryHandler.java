@@ -25,6 +25,7 @@ package org.opencloudb.mysql.nio.handler;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -37,6 +38,7 @@ import org.opencloudb.MycatServer;
 import org.opencloudb.backend.BackendConnection;
 import org.opencloudb.backend.ConnectionMeta;
 import org.opencloudb.backend.PhysicalDBNode;
+import org.opencloudb.buffer.PacketView;
 import org.opencloudb.cache.LayerCachePool;
 import org.opencloudb.mpp.ColMeta;
 import org.opencloudb.mpp.DataMergeService;
@@ -52,7 +54,8 @@ import org.opencloudb.server.ServerConnection;
 /**
  * @author mycat
  */
-public class MultiNodeQueryHandler extends MultiNodeHandler {
+public class MultiNodeQueryHandler extends MultiNodeHandler implements
+		PacketViewResponseHandler {
 	private static final Logger LOGGER = Logger
 			.getLogger(MultiNodeQueryHandler.class);
 
@@ -69,6 +72,10 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
 	private long affectedRows;
 	private long insertId;
 	private boolean fieldsReturned;
+	// merged rows passed ,for limit start and size
+	private int mergedRows;
+	// next round of rrs to execute ,for split multi rows insert
+	private int nextRound;
 
 	public MultiNodeQueryHandler(RouteResultset rrs, boolean autocommit,
 			NonBlockingSession session, DataMergeService dataMergeSvr) {
@@ -88,20 +95,32 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
 	}
 
 	public void execute() throws Exception {
-		ServerConnection sc = session.getSource();
 		final ReentrantLock lock = this.lock;
 		lock.lock();
 		try {
-			this.reset(rrs.getNodes().length);
 			this.fieldsReturned = false;
+			this.mergedRows = 0;
 			this.affectedRows = 0L;
 			this.insertId = 0L;
+			this.nextRound = 0;
+		} finally {
+			lock.unlock();
+		}
+		executeNodes(rrs.getNodes());
+	}
+
+	private void executeNodes(RouteResultsetNode[] nodes) throws Exception {
+		ServerConnection sc = session.getSource();
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			this.reset(nodes.length);
 		} finally {
 			lock.unlock();
 		}
 		MycatConfig conf = MycatServer.getInstance().getConfig();
 
-		for (final RouteResultsetNode node : rrs.getNodes()) {
+		for (final RouteResultsetNode node : nodes) {
 			final BackendConnection conn = session.getTarget(node);
 			if (session.tryExistsCon(conn, node, new Runnable() {
 				@Override
@@ -212,6 +231,25 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
 					tryErrorFinished(conn, true);
 					return;
 				}
+				RouteResultsetNode[] nextNodes = null;
+				lock.lock();
+				try {
+					if (rrs.hasNextRounds()
+							&& nextRound < rrs.getNextRounds().size()) {
+						nextNodes = rrs.getNextRounds().get(nextRound++);
+					}
+				} finally {
+					lock.unlock();
+				}
+				if (nextNodes != null) {
+					// affected rows and insert id accumulated till last round
+					try {
+						executeNodes(nextNodes);
+					} catch (Exception e) {
+						handleDataProcessException(e, conn);
+					}
+					return;
+				}
 				
 				lock.lock();
 				try {
@@ -254,6 +292,19 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
 		}
 		
 		ServerConnection source = session.getSource();
+		if (dataMergeSvr != null) {
+			lock.lock();
+			try {
+				if (dataMergeSvr.onNodeEof(((RouteResultsetNode) conn
+						.getAttachment()).getName())) {
+					outputReadyMergeRows(source);
+				}
+			} catch (Exception e) {
+				handleDataProcessException(e, conn);
+			} finally {
+				lock.unlock();
+			}
+		}
 		if ( !source.isHasOkRsp().get() )
 		{
 			if (clearIfSessionClosed(session)) {
@@ -281,29 +332,20 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
 				// lazy allocate buffer
 				allocBuffer();
 				if (dataMergeSvr != null && !mergeOutputed) {
-					int i = 0;
-					int start = dataMergeSvr.getRrs().getLimitStart();
-					int end = start + dataMergeSvr.getRrs().getLimitSize();
-					Iterator<RowDataPacket> itor = dataMergeSvr.getResults()
-							.iterator();
+					Collection<RowDataPacket> results = dataMergeSvr
+							.getResults();
 					if (LOGGER.isDebugEnabled()) {
 						LOGGER.debug("output merge result ,total data "
-								+ dataMergeSvr.getResults().size() + " start :"
-								+ start + " end :" + end + " package id start:"
-								+ packetId);
+								+ results.size() + " outputed :" + mergedRows
+								+ " package id start:" + packetId);
 					}
+					Iterator<RowDataPacket> itor = results.iterator();
 					while (itor.hasNext()) {
 						RowDataPacket row = itor.next();
 						itor.remove();
-						if (i < start) {
-							i++;
-							continue;
-						} else if (i == end) {
+						if (!outputMergeRow(row, source)) {
 							break;
 						}
-						i++;
-						row.packetId = ++packetId;
-						buffer = row.write(buffer, source, true);
 					}
 				}
 				eof[3] = ++packetId;
@@ -315,10 +357,41 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
 			} catch (Exception e) {
 				handleDataProcessException(e, conn);
 			} finally {
-				lock.unlock();
+				// rows may still be added or cleared by other threads
 				if (dataMergeSvr != null) {
 					dataMergeSvr.clear();
 				}
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * write merged row to frontend if it's in limit range ,return false if
+	 * limit reached
+	 */
+	private boolean outputMergeRow(RowDataPacket row, ServerConnection source) {
+		int start = dataMergeSvr.getRrs().getLimitStart();
+		int size = dataMergeSvr.getRrs().getLimitSize();
+		if (size >= 0 && mergedRows >= start + size) {
+			return false;
+		}
+		if (mergedRows++ < start) {
+			return true;
+		}
+		row.packetId = ++packetId;
+		buffer = row.write(allocBuffer(), source, true);
+		return true;
+	}
+
+	/**
+	 * stream the merged rows which are ready before all nodes finished
+	 */
+	private void outputReadyMergeRows(ServerConnection source) {
+		RowDataPacket row;
+		while ((row = dataMergeSvr.nextResult()) != null) {
+			if (!outputMergeRow(row, source)) {
+				break;
 			}
 		}
 	}
@@ -360,7 +433,8 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
 							&& !columToIndx.containsKey(fieldName)) {
 
 						columToIndx.put(fieldName,
-								new ColMeta(i, fieldPkg.type));
+								new ColMeta(i, fieldPkg.type,
+										fieldPkg.charsetIndex));
 					}
 				} else if (primaryKey != null && primaryKeyIndex == -1) {
 					// find primary key index
@@ -406,9 +480,11 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
 		lock.lock();
 		try {
 			if (dataMergeSvr != null) {
-				dataMergeSvr.onNewRecord(
+				if (dataMergeSvr.onNewRecord(
 						((RouteResultsetNode) conn.getAttachment()).getName(),
-						row);
+						row)) {
+					outputReadyMergeRows(session.getSource());
+				}
 			} else {
 				if (primaryKeyIndex != -1) {// cache
 											// primaryKey->
@@ -434,15 +510,37 @@ public class MultiNodeQueryHandler extends MultiNodeHandler {
 		}
 	}
 
+	/**
+	 * pass through rows are copied to frontend buffer directly
+	 */
 	@Override
-	public void clearResources() {
-		if (dataMergeSvr != null) {
-			dataMergeSvr.clear();
+	public void rowResponse(PacketView row, BackendConnection conn) {
+		if (dataMergeSvr != null || primaryKeyIndex != -1) {
+			rowResponse(row.toArray(), conn);
+			return;
+		}
+		if (errorRepsponsed) {
+			return;
+		}
+		lock.lock();
+		try {
+			row.setPacketId(++packetId);
+			buffer = session.getSource().writeToBuffer(row, buffer);
+		} catch (Exception e) {
+			handleDataProcessException(e, conn);
+		} finally {
+			lock.unlock();
 		}
+	}
 
+	@Override
+	public void clearResources() {
 		ByteBuffer buf;
 		lock.lock();
 		try {
+			if (dataMergeSvr != null) {
+				dataMergeSvr.clear();
+			}
 			buf = buffer;
 			if (buf != null) {
 				buffer = null;
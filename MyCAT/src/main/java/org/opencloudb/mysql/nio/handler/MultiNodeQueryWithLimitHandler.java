@@ -24,8 +24,8 @@
 package org.opencloudb.mysql.nio.handler;
 
 import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantLock;
@@ -36,6 +36,7 @@ import org.opencloudb.MycatServer;
 import org.opencloudb.backend.BackendConnection;
 import org.opencloudb.backend.ConnectionMeta;
 import org.opencloudb.backend.PhysicalDBNode;
+import org.opencloudb.buffer.PacketView;
 import org.opencloudb.cache.LayerCachePool;
 import org.opencloudb.mpp.ColMeta;
 import org.opencloudb.mpp.MutiDataMergeService;
@@ -268,28 +269,18 @@ public class MultiNodeQueryWithLimitHandler extends MultiNodeQueryHandler {
 			// lazy allocate buffer
 			allocBuffer();
 			if (dataMergeSvr != null && !mergeOutputed) {
-				int i = 0;
 				int start = dataMergeSvr.getRrs().getLimitStart();
 				start -= this.dataMergeSvr.loadTrimTotal();
-				int end = start + dataMergeSvr.getRrs().getLimitSize();
-				Iterator<RowDataPacket> itor = dataMergeSvr.getResults()
-						.iterator();
+				int limitSize = dataMergeSvr.getRrs().getLimitSize();
+				int end = limitSize < 0 ? Integer.MAX_VALUE : start + limitSize;
+				Collection<RowDataPacket> results = dataMergeSvr.getResults(
+						start, end);
 				if (LOGGER.isDebugEnabled()) {
 					LOGGER.debug("output merge result ,total data "
-							+ dataMergeSvr.getResults().size() + " start :"
-							+ start + " end :" + end + " package id start:"
-							+ packetId);
+							+ results.size() + " start :" + start + " end :"
+							+ end + " package id start:" + packetId);
 				}
-				while (itor.hasNext()) {
-					RowDataPacket row = itor.next();
-					itor.remove();
-					if (i < start) {
-						i++;
-						continue;
-					} else if (i == end) {
-						break;
-					}
-					i++;
+				for (RowDataPacket row : results) {
 					row.packetId = ++packetId;
 					buffer = row.write(buffer, source, true);
 				}
@@ -347,7 +338,8 @@ public class MultiNodeQueryWithLimitHandler extends MultiNodeQueryHandler {
 							&& !columToIndx.containsKey(fieldName)) {
 
 						columToIndx.put(fieldName,
-								new ColMeta(i, fieldPkg.type));
+								new ColMeta(i, fieldPkg.type,
+										fieldPkg.charsetIndex));
 					}
 				} else if (primaryKey != null && primaryKeyIndex == -1) {
 					// find primary key index
@@ -421,6 +413,29 @@ public class MultiNodeQueryWithLimitHandler extends MultiNodeQueryHandler {
 		}
 	}
 
+	/**
+	 * pass through rows are copied to frontend buffer directly
+	 */
+	@Override
+	public void rowResponse(PacketView row, BackendConnection conn) {
+		if (dataMergeSvr != null || primaryKeyIndex != -1) {
+			rowResponse(row.toArray(), conn);
+			return;
+		}
+		if (errorRepsponsed) {
+			return;
+		}
+		lock.lock();
+		try {
+			row.setPacketId(++packetId);
+			buffer = session.getSource().writeToBuffer(row, buffer);
+		} catch (Exception e) {
+			handleDataProcessException(e, conn);
+		} finally {
+			lock.unlock();
+		}
+	}
+
 	@Override
 	public void clearResources() {
 		if (dataMergeSvr != null) {
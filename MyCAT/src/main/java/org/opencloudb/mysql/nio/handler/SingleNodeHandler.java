@@ -33,6 +33,7 @@ import org.opencloudb.MycatServer;
 import org.opencloudb.backend.BackendConnection;
 import org.opencloudb.backend.ConnectionMeta;
 import org.opencloudb.backend.PhysicalDBNode;
+import org.opencloudb.buffer.PacketView;
 import org.opencloudb.config.ErrorCode;
 import org.opencloudb.net.mysql.ErrorPacket;
 import org.opencloudb.net.mysql.OkPacket;
@@ -44,7 +45,8 @@ import org.opencloudb.util.StringUtil;
 /**
  * @author mycat
  */
-public class SingleNodeHandler implements ResponseHandler, Terminatable {
+public class SingleNodeHandler implements PacketViewResponseHandler,
+		Terminatable {
 	private static final Logger LOGGER = Logger
 			.getLogger(SingleNodeHandler.class);
 	private final RouteResultsetNode node;
@@ -271,6 +273,12 @@ public class SingleNodeHandler implements ResponseHandler, Terminatable {
 		buffer = session.getSource().writeToBuffer(row, allocBuffer());
 	}
 
+	@Override
+	public void rowResponse(PacketView row, BackendConnection conn) {
+		row.setPacketId(++packetId);
+		buffer = session.getSource().writeToBuffer(row, allocBuffer());
+	}
+
 	@Override
 	public void writeQueueAvailable() {
 
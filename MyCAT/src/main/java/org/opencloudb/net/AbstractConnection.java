@@ -28,11 +28,13 @@ import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.CompletionHandler;
 import java.nio.channels.SelectionKey;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
 import org.opencloudb.buffer.BufferQueue;
+import org.opencloudb.buffer.PacketView;
 import org.opencloudb.config.ErrorCode;
 import org.opencloudb.util.TimeUtil;
 
@@ -42,6 +44,10 @@ import org.opencloudb.util.TimeUtil;
 public abstract class AbstractConnection implements NIOConnection {
 	protected static final Logger LOGGER = Logger
 			.getLogger(AbstractConnection.class);
+	/**
+	 * max queued buffers sent by one gathering write
+	 */
+	private static final int MAX_GATHER_BUFFERS = 16;
 	protected final AsynchronousSocketChannel channel;
 	protected NIOProcessor processor;
 	protected NIOHandler handler;
@@ -51,8 +57,19 @@ public abstract class AbstractConnection implements NIOConnection {
 	private java.util.concurrent.locks.ReentrantLock writeLock = new ReentrantLock();
 	protected volatile int readBufferOffset;
 	private volatile ByteBuffer readBuffer;
-	private volatile ByteBuffer writeBuffer;
+	// view of readBuffer,only created for PacketViewHandler
+	private PacketView readView;
+	// buffers of the writing gathering write,from writeOffset to writeOffset +
+	// writeCount
+	private final ByteBuffer[] writeBuffers = new ByteBuffer[MAX_GATHER_BUFFERS];
+	private int writeOffset;
+	private int writeCount;
 	private volatile boolean writing;
+	// changed under writeLock
+	private volatile boolean writeQueueHigh;
+	// read flow control,a paused connection has no read pending
+	private volatile boolean readSuspended;
+	private final AtomicBoolean readPaused = new AtomicBoolean(false);
 	// private volatile boolean writing = false;
 	protected BufferQueue writeQueue;
 	protected boolean isRegistered;
@@ -187,6 +204,19 @@ public abstract class AbstractConnection implements NIOConnection {
 		}
 	}
 
+	public void handle(PacketView packet) {
+		try {
+			((PacketViewHandler) handler).handle(packet);
+		} catch (Throwable e) {
+			close("exeption:" + e.toString());
+			if (e instanceof ConnectionException) {
+				error(ErrorCode.ERR_CONNECT_SOCKET, e);
+			} else {
+				error(ErrorCode.ERR_HANDLE_DATA, e);
+			}
+		}
+	}
+
 	@Override
 	public void register() throws IOException {
 
@@ -207,6 +237,62 @@ public abstract class AbstractConnection implements NIOConnection {
 		}
 	}
 
+	/**
+	 * issue next read after a read finished, unless read suspended
+	 */
+	void continueRead() {
+		if (!readSuspended) {
+			asynRead();
+			return;
+		}
+		readPaused.set(true);
+		// resumed between the check and the pause
+		if (!readSuspended && readPaused.compareAndSet(true, false)) {
+			asynRead();
+		}
+	}
+
+	/**
+	 * stop reading from socket after the pending read finished, used when the
+	 * consumer of the data can't keep up
+	 */
+	public void suspendRead() {
+		readSuspended = true;
+	}
+
+	public void resumeRead() {
+		readSuspended = false;
+		if (readPaused.compareAndSet(true, false) && !isClosed.get()) {
+			asynRead();
+		}
+	}
+
+	public boolean isReadSuspended() {
+		return readSuspended;
+	}
+
+	/**
+	 * if the write queue is over high water and not drained below low water
+	 * yet
+	 */
+	public boolean isWriteQueueHigh() {
+		return writeQueueHigh;
+	}
+
+	/**
+	 * write queue crossed high water, producers should stop
+	 */
+	protected void onWriteQueueHigh() {
+
+	}
+
+	/**
+	 * write queue drained below low water, producers can continue
+	 */
+	protected void onWriteQueueLow() {
+
+	}
+
 	public void onReadData(int got) throws IOException {
 		if (isClosed.get()) {
 			return;
@@ -235,10 +321,14 @@ public abstract class AbstractConnection implements NIOConnection {
 				break;
 			}
 			if (position >= offset + length) {
-				buffer.position(offset);
-				byte[] data = new byte[length];
-				buffer.get(data, 0, length);
-				handle(data);
+				if (handler instanceof PacketViewHandler) {
+					handle(getReadView(buffer, offset, length));
+				} else {
+					buffer.position(offset);
+					byte[] data = new byte[length];
+					buffer.get(data, 0, length);
+					handle(data);
+				}
 
 				offset += length;
 				if (position == offset) {
@@ -261,6 +351,24 @@ public abstract class AbstractConnection implements NIOConnection {
 		}
 	}
 
+	private PacketView getReadView(ByteBuffer buffer, int offset, int length) {
+		PacketView view = readView;
+		if (view == null || view.getBuffer() != buffer) {
+			view = new PacketView(buffer);
+			readView = view;
+		}
+		view.reset(offset, length);
+		return view;
+	}
+
+	/**
+	 * give up the read buffer and its view
+	 */
+	private void releaseReadBuffer(ByteBuffer buffer) {
+		readView = null;
+		recycle(buffer);
+	}
+
 	public void write(byte[] data) {
 		ByteBuffer buffer = allocate();
 		buffer = writeToBuffer(data, buffer);
@@ -275,13 +383,21 @@ public abstract class AbstractConnection implements NIOConnection {
 					"socket already closed "), this);
 			return;
 		}
+		boolean queueHigh = false;
 		try {
 			writeLock.lock();
 			if (writing == false && writeQueue.isEmpty()) {
-				writeBuffer = buffer;
-				asynWrite(buffer);
-			} else {
+				buffer.flip();
+				writeBuffers[0] = buffer;
+				writeOffset = 0;
+				writeCount = 1;
+				asynWrite();
+			} else if (!coalesce(buffer)) {
 				writeQueue.put(buffer);
+				if (!writeQueueHigh && writeQueue.isAboveHighWater()) {
+					writeQueueHigh = true;
+					queueHigh = true;
+				}
 			}
 		} catch (InterruptedException e) {
 			error(ErrorCode.ERR_PUT_WRITE_QUEUE, e);
@@ -289,13 +405,33 @@ public abstract class AbstractConnection implements NIOConnection {
 		} finally {
 			writeLock.unlock();
 		}
+		if (queueHigh) {
+			onWriteQueueHigh();
+		}
 
 	}
 
-	private void asynWrite(ByteBuffer buffer) {
-		writing = true;
+	/**
+	 * append a small buffer to the last queued buffer if it has enough room,
+	 * so more data is sent by one write and the small buffer is recycled at
+	 * once
+	 */
+	private boolean coalesce(ByteBuffer buffer) {
+		ByteBuffer last = writeQueue.peekLast();
+		if (last == null || last.remaining() < buffer.position()) {
+			return false;
+		}
 		buffer.flip();
-		this.channel.write(buffer, this, aioWriteHandler);
+		last.put(buffer);
+		recycle(buffer);
+		return true;
+	}
+
+	private void asynWrite() {
+		writing = true;
+		processor.addWriteCall(writeCount);
+		this.channel.write(writeBuffers, writeOffset, writeCount, 0L,
+				TimeUnit.MILLISECONDS, this, aioWriteHandler);
 	}
 
 	public ByteBuffer checkWriteBuffer(ByteBuffer buffer, int capacity,
@@ -316,6 +452,27 @@ public abstract class AbstractConnection implements NIOConnection {
 		}
 	}
 
+	public ByteBuffer writeToBuffer(PacketView src, ByteBuffer buffer) {
+		int offset = 0;
+		int length = src.length();
+		int remaining = buffer.remaining();
+		while (length > 0) {
+			if (remaining >= length) {
+				src.copyTo(offset, length, buffer);
+				break;
+			} else {
+				src.copyTo(offset, remaining, buffer);
+				write(buffer);
+				buffer = allocate();
+				offset += remaining;
+				length -= remaining;
+				remaining = buffer.remaining();
+				continue;
+			}
+		}
+		return buffer;
+	}
+
 	public ByteBuffer writeToBuffer(byte[] src, ByteBuffer buffer) {
 		int offset = 0;
 		int length = src.length;
@@ -365,7 +522,7 @@ public abstract class AbstractConnection implements NIOConnection {
 
 		// 鍥炴敹鎺ユ敹缂撳瓨
 		if (readBuffer != null) {
-			recycle(readBuffer);
+			releaseReadBuffer(readBuffer);
 			this.readBuffer = null;
 			this.readBufferOffset = 0;
 		}
@@ -404,7 +561,7 @@ public abstract class AbstractConnection implements NIOConnection {
 			buffer.position(offset);
 			newBuffer.put(buffer);
 			readBuffer = newBuffer;
-			recycle(buffer);
+			releaseReadBuffer(buffer);
 			return newBuffer;
 		} else {
 			buffer.position(offset);
@@ -414,40 +571,56 @@ public abstract class AbstractConnection implements NIOConnection {
 		}
 	}
 
-	protected void onWriteFinished(int result) {
+	protected void onWriteFinished(long result) {
 		if (isClosed.get()) {
 			return;
 		}
 		netOutBytes += result;
 		processor.addNetOutBytes(result);
 		lastWriteTime = TimeUtil.currentTimeMillis();
+		boolean queueLow = false;
 		try {
 			writeLock.lock();
 
-			ByteBuffer theBuffer = writeBuffer;
-			if (theBuffer.hasRemaining()) {
-				theBuffer.compact();
-				asynWrite(theBuffer);
+			final ByteBuffer[] buffers = writeBuffers;
+			while (writeCount > 0 && !buffers[writeOffset].hasRemaining()) {
+				this.recycle(buffers[writeOffset]);
+				buffers[writeOffset++] = null;
+				writeCount--;
+			}
+			if (writeCount > 0) {
+				// partly written, continue from the first unfinished buffer
+				asynWrite();
 			} else {// write finished
-				this.recycle(theBuffer);
-				writeBuffer = null;
+				writeOffset = 0;
 				writing = false;
 				if (writeQueue == null) {
 					// closed already
 					return;
 				}
-				theBuffer = writeQueue.poll();
-				if (theBuffer != null) {
-					this.writeBuffer = theBuffer;
-					asynWrite(theBuffer);
-				} else {
-					writeBuffer = null;
+				int count = 0;
+				ByteBuffer theBuffer = null;
+				while (count < MAX_GATHER_BUFFERS
+						&& (theBuffer = writeQueue.poll()) != null) {
+					theBuffer.flip();
+					buffers[count++] = theBuffer;
+				}
+				if (count > 0) {
+					writeCount = count;
+					asynWrite();
+				}
+				if (writeQueueHigh && writeQueue.isBelowLowWater()) {
+					writeQueueHigh = false;
+					queueLow = true;
 				}
 
 			}
 		} finally {
 			writeLock.unlock();
 		}
+		if (queueLow) {
+			onWriteQueueLow();
+		}
 	}
 
 	private void closeSocket() {
@@ -468,10 +641,10 @@ public abstract class AbstractConnection implements NIOConnection {
 
 }
 
-class AIOWriteHandler implements CompletionHandler<Integer, AbstractConnection> {
+class AIOWriteHandler implements CompletionHandler<Long, AbstractConnection> {
 
 	@Override
-	public void completed(Integer result, AbstractConnection con) {
+	public void completed(Long result, AbstractConnection con) {
 		if (result >= 0) {
 			con.onWriteFinished(result);
 		} else {
@@ -493,7 +666,7 @@ class AIOReadHandler implements CompletionHandler<Integer, AbstractConnection> {
 		if (i > 0) {
 			try {
 				con.onReadData(i);
-				con.asynRead();
+				con.continueRead();
 			} catch (IOException e) {
 				con.close("handle err:" + e);
 			}
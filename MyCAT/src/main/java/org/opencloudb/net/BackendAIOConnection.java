@@ -114,9 +114,4 @@ public abstract class BackendAIOConnection extends AbstractConnection implements
 		return "BackendConnection [id=" + id + ", host=" + host + ", port="
 				+ port + ", localPort=" + localPort + "]";
 	}
-
-	@Override
-	public boolean isFake(){
-		return false;
-	}
 }
\ No newline at end of file
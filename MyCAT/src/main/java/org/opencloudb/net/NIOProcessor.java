@@ -47,6 +47,8 @@ public final class NIOProcessor {
 	private final CommandCount commands;
 	private long netInBytes;
 	private long netOutBytes;
+	private long writeCalls;
+	private long writeBuffers;
 
 	public NIOProcessor(String name, int bufferPoolSize, int bufferchunk,
 			ExecutorService executor) throws IOException {
@@ -105,6 +107,25 @@ public final class NIOProcessor {
 		netOutBytes += bytes;
 	}
 
+	/**
+	 * socket write calls issued
+	 */
+	public long getWriteCalls() {
+		return writeCalls;
+	}
+
+	/**
+	 * buffers sent by all write calls
+	 */
+	public long getWriteBuffers() {
+		return writeBuffers;
+	}
+
+	public void addWriteCall(int buffers) {
+		writeCalls++;
+		writeBuffers += buffers;
+	}
+
 	public void addFrontend(FrontendConnection c) {
 		frontends.put(c.getId(), c);
 	}
@@ -166,7 +187,7 @@ public final class NIOProcessor {
 			BackendConnection c = it.next().getValue();
 
 			// 删除空连接
-			if (c == null|| c.isFake()) {
+			if (c == null) {
 				it.remove();
 				continue;
 			}
@@ -74,6 +74,17 @@ public class EOFPacket extends MySQLPacket {
         return buffer;
     }
 
+    public byte[] writeToBytes() {
+        int size = calcPacketSize();
+        ByteBuffer buffer = ByteBuffer.allocate(PACKET_HEADER_SIZE + size);
+        BufferUtil.writeUB3(buffer, size);
+        buffer.put(packetId);
+        buffer.put(fieldCount);
+        BufferUtil.writeUB2(buffer, warningCount);
+        BufferUtil.writeUB2(buffer, status);
+        return buffer.array();
+    }
+
     @Override
     public int calcPacketSize() {
         return 5;// 1+2+2;
@@ -93,6 +93,21 @@ public class ErrorPacket extends MySQLPacket {
 		return data;
 	}
 
+	public byte[] writeToBytes() {
+		int size = calcPacketSize();
+		ByteBuffer buffer = ByteBuffer.allocate(PACKET_HEADER_SIZE + size);
+		BufferUtil.writeUB3(buffer, size);
+		buffer.put(packetId);
+		buffer.put(fieldCount);
+		BufferUtil.writeUB2(buffer, errno);
+		buffer.put(mark);
+		buffer.put(sqlState);
+		if (message != null) {
+			buffer.put(message);
+		}
+		return buffer.array();
+	}
+
 	@Override
 	public ByteBuffer write(ByteBuffer buffer, FrontendConnection c,
 			boolean writeSocketIfFull) {
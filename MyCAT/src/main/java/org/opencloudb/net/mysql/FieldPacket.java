@@ -105,6 +105,19 @@ public class FieldPacket extends MySQLPacket {
 		return buffer;
 	}
 
+	/**
+	 * packet bytes without frontend buffer ,for backends not speaking mysql
+	 * protocol
+	 */
+	public byte[] writeToBytes() {
+		int size = calcPacketSize();
+		ByteBuffer buffer = ByteBuffer.allocate(PACKET_HEADER_SIZE + size);
+		BufferUtil.writeUB3(buffer, size);
+		buffer.put(packetId);
+		writeBody(buffer);
+		return buffer.array();
+	}
+
 	@Override
 	public int calcPacketSize() {
 		int size = (catalog == null ? 1 : BufferUtil.getLength(catalog));
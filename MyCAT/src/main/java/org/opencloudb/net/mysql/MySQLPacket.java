@@ -182,6 +182,11 @@ public abstract class MySQLPacket {
      */
     public static final byte COM_HEARTBEAT = 64;
 
+    /**
+     * 包头长度，3字节长度加1字节序号
+     */
+    protected static final int PACKET_HEADER_SIZE = 4;
+
     public int packetLength;
     public byte packetId;
 
@@ -97,6 +97,13 @@ public class OkPacket extends MySQLPacket {
 		return data;
 	}
 
+	public byte[] writeToBytes() {
+		ByteBuffer buffer = ByteBuffer.allocate(PACKET_HEADER_SIZE
+				+ calcPacketSize());
+		this.write(buffer);
+		return buffer.array();
+	}
+
 	private void write(ByteBuffer buffer) {
 		BufferUtil.writeUB3(buffer, calcPacketSize());
 		buffer.put(packetId);
@@ -80,6 +80,18 @@ public class ResultSetHeaderPacket extends MySQLPacket {
         return buffer;
     }
 
+    public byte[] writeToBytes() {
+        int size = calcPacketSize();
+        ByteBuffer buffer = ByteBuffer.allocate(PACKET_HEADER_SIZE + size);
+        BufferUtil.writeUB3(buffer, size);
+        buffer.put(packetId);
+        BufferUtil.writeLength(buffer, fieldCount);
+        if (extra > 0) {
+            BufferUtil.writeLength(buffer, extra);
+        }
+        return buffer.array();
+    }
+
     @Override
     public int calcPacketSize() {
         int size = BufferUtil.getLength(fieldCount);
@@ -96,6 +96,23 @@ public class RowDataPacket extends MySQLPacket {
 		return bb;
 	}
 
+	public byte[] writeToBytes() {
+		int size = calcPacketSize();
+		ByteBuffer buffer = ByteBuffer.allocate(PACKET_HEADER_SIZE + size);
+		BufferUtil.writeUB3(buffer, size);
+		buffer.put(packetId);
+		for (int i = 0; i < fieldCount; i++) {
+			byte[] fv = fieldValues.get(i);
+			if (fv == null || fv.length == 0) {
+				buffer.put(RowDataPacket.NULL_MARK);
+			} else {
+				BufferUtil.writeLength(buffer, fv.length);
+				buffer.put(fv);
+			}
+		}
+		return buffer.array();
+	}
+
 	@Override
 	public int calcPacketSize() {
 		int size = 0;
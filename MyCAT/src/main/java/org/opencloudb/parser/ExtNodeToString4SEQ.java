@@ -38,14 +38,16 @@ public class ExtNodeToString4SEQ extends NodeToString {
 
 	public ExtNodeToString4SEQ(int seqHandlerType) {
 		super();
+		sequenceHandler = getSequenceHandler(seqHandlerType);
+	}
+
+	public static SequenceHandler getSequenceHandler(int seqHandlerType) {
 		switch(seqHandlerType)
 		{
 		case SystemConfig.SEQUENCEHANDLER_MYSQLDB:
-			sequenceHandler = IncrSequenceMySQLHandler.getInstance();
-			break;
+			return IncrSequenceMySQLHandler.getInstance();
 		case SystemConfig.SEQUENCEHANDLER_LOCALFILE:
-			sequenceHandler = IncrSequencePropHandler.getInstance();
-			break;
+			return IncrSequencePropHandler.getInstance();
 			default:
 				throw new java.lang.IllegalArgumentException("Invalid sequnce handler type "+seqHandlerType);
 		}
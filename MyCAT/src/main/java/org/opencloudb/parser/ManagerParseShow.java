@@ -60,6 +60,8 @@ public final class ManagerParseShow {
     public static final int BACKEND = 27;
     public static final int CACHE = 28;
     public static final int SESSION = 29;
+    public static final int ROUTE_CACHE = 30;
+    public static final int LOAD_DATA = 31;
 
     public static int parse(String stmt, int offset) {
         int i = offset;
@@ -103,6 +105,9 @@ public final class ManagerParseShow {
                 case 'H':
                 case 'h':
                     return show2HCheck(stmt, offset);
+                case 'L':
+                case 'l':
+                    return show2LCheck(stmt, offset);
                 case 'P':
                 case 'p':
                     return show2PCheck(stmt, offset);
@@ -213,9 +218,23 @@ public final class ManagerParseShow {
     	 {
     		 return CACHE;
     	 }
+    	 // SHOW @@CACHE.ROUTE
+    	 if(remain.equalsIgnoreCase("ACHE.ROUTE"))
+    	 {
+    		 return ROUTE_CACHE;
+    	 }
     	return OTHER;
 	}
 
+    // SHOW @@LOADDATA
+    static int show2LCheck(String stmt, int offset) {
+        String remain = stmt.substring(offset).trim();
+        if (remain.equalsIgnoreCase("LOADDATA")) {
+            return LOAD_DATA;
+        }
+        return OTHER;
+    }
+
 	// SHOW @@DATA
     static int show2DCheck(String stmt, int offset) {
         if (stmt.length() > offset + "ATA".length()) {
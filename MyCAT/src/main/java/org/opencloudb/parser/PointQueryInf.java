@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.parser;
+
+import java.util.Arrays;
+
+/**
+ * result of {@link PointQueryParse} ,table and column=value conditions of a
+ * simple single table sql. names are upper case ,value is null if it's not a
+ * literal.
+ * 
+ * @author mycat
+ */
+public final class PointQueryInf {
+	private String tableName;
+	private String alias;
+	private String[] columns = new String[4];
+	private String[] values = new String[4];
+	private int count;
+	// columns in set clause of update
+	private String[] setColumns;
+	private int setCount;
+	// last parsed name or literal
+	String token;
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	void setTableName(String tableName) {
+		this.tableName = tableName;
+	}
+
+	String getAlias() {
+		return alias;
+	}
+
+	void setAlias(String alias) {
+		this.alias = alias;
+	}
+
+	void addCondition(String column, String value) {
+		if (count == columns.length) {
+			columns = Arrays.copyOf(columns, count << 1);
+			values = Arrays.copyOf(values, count << 1);
+		}
+		columns[count] = column;
+		values[count++] = value;
+	}
+
+	void setValue(int index, String value) {
+		values[index] = value;
+	}
+
+	int getConditionCount() {
+		return count;
+	}
+
+	void addSetColumn(String column) {
+		if (setColumns == null) {
+			setColumns = new String[4];
+		} else if (setCount == setColumns.length) {
+			setColumns = Arrays.copyOf(setColumns, setCount << 1);
+		}
+		setColumns[setCount++] = column;
+	}
+
+	/**
+	 * literal value of the column ,null if not found ,not a literal or the
+	 * column appears more than once
+	 */
+	public String getValue(String column) {
+		String value = null;
+		boolean found = false;
+		for (int i = 0; i < count; i++) {
+			if (columns[i].equals(column)) {
+				if (found) {
+					return null;
+				}
+				found = true;
+				value = values[i];
+			}
+		}
+		return value;
+	}
+
+	public boolean isSetColumn(String column) {
+		for (int i = 0; i < setCount; i++) {
+			if (setColumns[i].equals(column)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
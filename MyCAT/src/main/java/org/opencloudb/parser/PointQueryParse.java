@@ -0,0 +1,517 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.parser;
+
+import java.util.Locale;
+
+import org.opencloudb.parser.util.CharTypes;
+import org.opencloudb.server.parser.ServerParse;
+
+/**
+ * char scanner for simple single table sql ,route can be calculated without
+ * AST:
+ * 
+ * <pre>
+ * SELECT cols FROM tb [[AS] alias] WHERE col=const [AND col=const]* [ORDER BY cols] [LIMIT n[,m]]
+ * UPDATE tb SET col=val [,col=val]* WHERE col=const [AND col=const]* [LIMIT n]
+ * DELETE FROM tb WHERE col=const [AND col=const]* [LIMIT n]
+ * INSERT INTO tb (col [,col]*) VALUES (val [,val]*)
+ * </pre>
+ * 
+ * const is integer or single quoted string without escape ,return null for
+ * other sql and use full parser.
+ * 
+ * @author mycat
+ */
+public final class PointQueryParse {
+	private static final char[] SELECT = "SELECT".toCharArray();
+	private static final char[] FROM = "FROM".toCharArray();
+	private static final char[] WHERE = "WHERE".toCharArray();
+	private static final char[] AND = "AND".toCharArray();
+	private static final char[] AS = "AS".toCharArray();
+	private static final char[] ORDER = "ORDER".toCharArray();
+	private static final char[] BY = "BY".toCharArray();
+	private static final char[] ASC = "ASC".toCharArray();
+	private static final char[] DESC = "DESC".toCharArray();
+	private static final char[] LIMIT = "LIMIT".toCharArray();
+	private static final char[] OFFSET = "OFFSET".toCharArray();
+	private static final char[] UPDATE = "UPDATE".toCharArray();
+	private static final char[] SET = "SET".toCharArray();
+	private static final char[] DELETE = "DELETE".toCharArray();
+	private static final char[] INSERT = "INSERT".toCharArray();
+	private static final char[] INTO = "INTO".toCharArray();
+	private static final char[] VALUES = "VALUES".toCharArray();
+	private static final char[] NULL = "NULL".toCharArray();
+
+	/**
+	 * @return null if not a simple single table sql
+	 */
+	public static PointQueryInf parse(String stmt, int sqlType) {
+		PointQueryInf inf = new PointQueryInf();
+		int i;
+		switch (sqlType) {
+		case ServerParse.SELECT:
+			i = select(stmt, inf);
+			break;
+		case ServerParse.UPDATE:
+			i = update(stmt, inf);
+			break;
+		case ServerParse.DELETE:
+			i = delete(stmt, inf);
+			break;
+		case ServerParse.INSERT:
+			i = insert(stmt, inf);
+			break;
+		default:
+			return null;
+		}
+		if (i < 0) {
+			return null;
+		}
+		i = skip(stmt, i);
+		if (i < stmt.length() && stmt.charAt(i) == ';') {
+			i = skip(stmt, i + 1);
+		}
+		return (i == stmt.length()) ? inf : null;
+	}
+
+	// SELECT cols FROM tb [[AS] alias] WHERE conds [ORDER BY cols] [LIMIT]
+	private static int select(String stmt, PointQueryInf inf) {
+		int i = keyword(stmt, 0, SELECT);
+		if (i < 0) {
+			return -1;
+		}
+		// column list of names ,'*' ,'.' and ','
+		while (true) {
+			i = skip(stmt, i);
+			if (i >= stmt.length()) {
+				return -1;
+			}
+			char c = stmt.charAt(i);
+			if (c == '*' || c == ',' || c == '.') {
+				i++;
+			} else if (c == '`' || CharTypes.isIdentifierChar(c)) {
+				int end = keyword(stmt, i, FROM);
+				if (end >= 0) {
+					i = end;
+					break;
+				}
+				i = identifier(stmt, i);
+				if (i < 0) {
+					return -1;
+				}
+			} else {
+				return -1;
+			}
+		}
+		i = table(stmt, i, inf);
+		if (i < 0) {
+			return -1;
+		}
+		int end = keyword(stmt, i, WHERE);
+		if (end < 0) {
+			// [AS] alias
+			end = keyword(stmt, i, AS);
+			if (end >= 0) {
+				i = end;
+			}
+			i = skip(stmt, i);
+			end = identifier(stmt, i);
+			if (end < 0) {
+				return -1;
+			}
+			inf.setAlias(name(stmt, i, end));
+			end = keyword(stmt, end, WHERE);
+			if (end < 0) {
+				return -1;
+			}
+		}
+		i = conditions(stmt, end, inf);
+		if (i < 0) {
+			return -1;
+		}
+		end = keyword(stmt, i, ORDER);
+		if (end >= 0) {
+			i = keyword(stmt, end, BY);
+			while (i >= 0) {
+				i = column(stmt, i, inf);
+				if (i < 0) {
+					return -1;
+				}
+				end = keyword(stmt, i, ASC);
+				if (end < 0) {
+					end = keyword(stmt, i, DESC);
+				}
+				if (end >= 0) {
+					i = end;
+				}
+				i = skip(stmt, i);
+				if (i < stmt.length() && stmt.charAt(i) == ',') {
+					i++;
+				} else {
+					break;
+				}
+			}
+			if (i < 0) {
+				return -1;
+			}
+		}
+		return limit(stmt, i, true);
+	}
+
+	// UPDATE tb SET col=val [,col=val]* WHERE conds [LIMIT n]
+	private static int update(String stmt, PointQueryInf inf) {
+		int i = keyword(stmt, 0, UPDATE);
+		if (i < 0) {
+			return -1;
+		}
+		i = table(stmt, i, inf);
+		if (i < 0) {
+			return -1;
+		}
+		i = keyword(stmt, i, SET);
+		while (i >= 0) {
+			i = column(stmt, i, inf);
+			if (i < 0) {
+				return -1;
+			}
+			inf.addSetColumn(inf.token);
+			i = expect(stmt, i, '=');
+			if (i < 0) {
+				return -1;
+			}
+			i = setValue(stmt, i, inf);
+			if (i < 0) {
+				return -1;
+			}
+			i = skip(stmt, i);
+			if (i < stmt.length() && stmt.charAt(i) == ',') {
+				i++;
+			} else {
+				break;
+			}
+		}
+		if (i < 0) {
+			return -1;
+		}
+		i = keyword(stmt, i, WHERE);
+		if (i < 0) {
+			return -1;
+		}
+		i = conditions(stmt, i, inf);
+		return (i < 0) ? -1 : limit(stmt, i, false);
+	}
+
+	// DELETE FROM tb WHERE conds [LIMIT n]
+	private static int delete(String stmt, PointQueryInf inf) {
+		int i = keyword(stmt, 0, DELETE);
+		if (i < 0 || (i = keyword(stmt, i, FROM)) < 0) {
+			return -1;
+		}
+		i = table(stmt, i, inf);
+		if (i < 0 || (i = keyword(stmt, i, WHERE)) < 0) {
+			return -1;
+		}
+		i = conditions(stmt, i, inf);
+		return (i < 0) ? -1 : limit(stmt, i, false);
+	}
+
+	// INSERT INTO tb (col [,col]*) VALUES (val [,val]*)
+	private static int insert(String stmt, PointQueryInf inf) {
+		int i = keyword(stmt, 0, INSERT);
+		if (i < 0 || (i = keyword(stmt, i, INTO)) < 0) {
+			return -1;
+		}
+		i = table(stmt, i, inf);
+		if (i < 0 || (i = expect(stmt, i, '(')) < 0) {
+			return -1;
+		}
+		while (true) {
+			i = column(stmt, i, inf);
+			if (i < 0) {
+				return -1;
+			}
+			inf.addCondition(inf.token, null);
+			i = skip(stmt, i);
+			if (i >= stmt.length()) {
+				return -1;
+			}
+			char c = stmt.charAt(i++);
+			if (c == ')') {
+				break;
+			} else if (c != ',') {
+				return -1;
+			}
+		}
+		i = keyword(stmt, i, VALUES);
+		if (i < 0 || (i = expect(stmt, i, '(')) < 0) {
+			return -1;
+		}
+		int count = 0;
+		while (true) {
+			i = insertValue(stmt, i, inf);
+			if (i < 0 || count == inf.getConditionCount()) {
+				return -1;
+			}
+			inf.setValue(count++, inf.token);
+			i = skip(stmt, i);
+			if (i >= stmt.length()) {
+				return -1;
+			}
+			char c = stmt.charAt(i++);
+			if (c == ')') {
+				break;
+			} else if (c != ',') {
+				return -1;
+			}
+		}
+		return (count == inf.getConditionCount()) ? i : -1;
+	}
+
+	// table name without schema
+	private static int table(String stmt, int offset, PointQueryInf inf) {
+		int i = skip(stmt, offset);
+		int end = identifier(stmt, i);
+		if (end < 0 || (end < stmt.length() && stmt.charAt(end) == '.')) {
+			return -1;
+		}
+		inf.setTableName(name(stmt, i, end));
+		return end;
+	}
+
+	// col=const [AND col=const]*
+	private static int conditions(String stmt, int offset, PointQueryInf inf) {
+		int i = offset;
+		while (true) {
+			i = column(stmt, i, inf);
+			if (i < 0) {
+				return -1;
+			}
+			String column = inf.token;
+			i = expect(stmt, i, '=');
+			if (i < 0 || (i = literal(stmt, i, inf)) < 0) {
+				return -1;
+			}
+			inf.addCondition(column, inf.token);
+			int end = keyword(stmt, i, AND);
+			if (end < 0) {
+				return i;
+			}
+			i = end;
+		}
+	}
+
+	// [LIMIT n[,m]] ,[LIMIT n OFFSET m]
+	private static int limit(String stmt, int offset, boolean withOffset) {
+		int i = keyword(stmt, offset, LIMIT);
+		if (i < 0) {
+			return offset;
+		}
+		i = number(stmt, skip(stmt, i));
+		if (i < 0 || !withOffset) {
+			return i;
+		}
+		int end = skip(stmt, i);
+		if (end < stmt.length() && stmt.charAt(end) == ',') {
+			return number(stmt, skip(stmt, end + 1));
+		}
+		end = keyword(stmt, i, OFFSET);
+		return (end < 0) ? i : number(stmt, skip(stmt, end));
+	}
+
+	// const ,NULL or col [+|- n]
+	private static int setValue(String stmt, int offset, PointQueryInf inf) {
+		int i = literal(stmt, offset, inf);
+		if (i >= 0) {
+			return i;
+		}
+		i = keyword(stmt, offset, NULL);
+		if (i >= 0) {
+			return i;
+		}
+		i = column(stmt, offset, inf);
+		if (i < 0) {
+			return -1;
+		}
+		int end = skip(stmt, i);
+		if (end < stmt.length()
+				&& (stmt.charAt(end) == '+' || stmt.charAt(end) == '-')) {
+			return number(stmt, skip(stmt, end + 1));
+		}
+		return i;
+	}
+
+	// const ,NULL or func() ,token is null if not const
+	private static int insertValue(String stmt, int offset, PointQueryInf inf) {
+		int i = literal(stmt, offset, inf);
+		if (i >= 0) {
+			return i;
+		}
+		inf.token = null;
+		i = keyword(stmt, offset, NULL);
+		if (i >= 0) {
+			return i;
+		}
+		i = skip(stmt, offset);
+		i = identifier(stmt, i);
+		if (i < 0 || (i = expect(stmt, i, '(')) < 0) {
+			return -1;
+		}
+		return expect(stmt, i, ')');
+	}
+
+	// [tb.]col ,tb must be the table or its alias
+	private static int column(String stmt, int offset, PointQueryInf inf) {
+		int i = skip(stmt, offset);
+		int end = identifier(stmt, i);
+		if (end < 0) {
+			return -1;
+		}
+		String name = name(stmt, i, end);
+		if (end < stmt.length() && stmt.charAt(end) == '.') {
+			if (!name.equals(inf.getTableName())
+					&& !name.equals(inf.getAlias())) {
+				return -1;
+			}
+			i = end + 1;
+			end = identifier(stmt, i);
+			if (end < 0) {
+				return -1;
+			}
+			name = name(stmt, i, end);
+		}
+		inf.token = name;
+		return end;
+	}
+
+	/**
+	 * integer without leading zero or quoted string without escape
+	 */
+	private static int literal(String stmt, int offset, PointQueryInf inf) {
+		int i = skip(stmt, offset);
+		if (i >= stmt.length()) {
+			return -1;
+		}
+		char c = stmt.charAt(i);
+		if (c == '\'') {
+			int end = i + 1;
+			for (; end < stmt.length(); end++) {
+				char ch = stmt.charAt(end);
+				if (ch == '\\') {
+					return -1;
+				} else if (ch == c) {
+					break;
+				}
+			}
+			if (end >= stmt.length()
+					|| (end + 1 < stmt.length() && stmt.charAt(end + 1) == c)) {
+				return -1;
+			}
+			inf.token = stmt.substring(i + 1, end);
+			return end + 1;
+		}
+		int end = number(stmt, i);
+		if (end < 0 || (c == '0' && end > i + 1)) {
+			return -1;
+		}
+		inf.token = stmt.substring(i, end);
+		return end;
+	}
+
+	private static int number(String stmt, int offset) {
+		int i = offset;
+		while (i < stmt.length() && CharTypes.isDigit(stmt.charAt(i))) {
+			i++;
+		}
+		if (i == offset
+				|| (i < stmt.length() && (stmt.charAt(i) == '.' || CharTypes
+						.isIdentifierChar(stmt.charAt(i))))) {
+			return -1;
+		}
+		return i;
+	}
+
+	/**
+	 * end of name or `name` at offset ,-1 if not a name
+	 */
+	private static int identifier(String stmt, int offset) {
+		if (offset >= stmt.length()) {
+			return -1;
+		}
+		if (stmt.charAt(offset) == '`') {
+			int end = stmt.indexOf('`', offset + 1);
+			return (end <= offset + 1) ? -1 : end + 1;
+		}
+		if (CharTypes.isDigit(stmt.charAt(offset))) {
+			return -1;
+		}
+		int i = offset;
+		while (i < stmt.length() && CharTypes.isIdentifierChar(stmt.charAt(i))) {
+			i++;
+		}
+		return (i == offset) ? -1 : i;
+	}
+
+	private static String name(String stmt, int start, int end) {
+		if (stmt.charAt(start) == '`') {
+			start++;
+			end--;
+		}
+		return stmt.substring(start, end).toUpperCase(Locale.US);
+	}
+
+	/**
+	 * end of the keyword after whitespaces ,-1 if not the keyword
+	 */
+	private static int keyword(String stmt, int offset, char[] keyword) {
+		int i = skip(stmt, offset);
+		if (i + keyword.length > stmt.length()) {
+			return -1;
+		}
+		for (int j = 0; j < keyword.length; j++) {
+			char c = stmt.charAt(i + j);
+			if (c != keyword[j] && c != (char) (keyword[j] + 32)) {
+				return -1;
+			}
+		}
+		i += keyword.length;
+		if (i < stmt.length() && CharTypes.isIdentifierChar(stmt.charAt(i))) {
+			return -1;
+		}
+		return i;
+	}
+
+	private static int expect(String stmt, int offset, char c) {
+		int i = skip(stmt, offset);
+		return (i < stmt.length() && stmt.charAt(i) == c) ? i + 1 : -1;
+	}
+
+	private static int skip(String stmt, int offset) {
+		int i = offset;
+		while (i < stmt.length() && CharTypes.isWhitespace(stmt.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+}
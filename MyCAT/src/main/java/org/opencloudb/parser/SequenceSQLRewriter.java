@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.parser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * find "next value for MYCATSEQ_XXX" in sql text and replace them with the
+ * fetched ids ,no sql parsing and no change of other parts of the sql.
+ * quoted strings ,quoted identifiers and comments are skipped
+ * 
+ * @author mycat
+ */
+public final class SequenceSQLRewriter {
+	private static final String SEQ_PREFIX = "MYCATSEQ_";
+	private final String sql;
+	// start ,end of each "next value for ..." and it's sequence name
+	private final List<int[]> positions = new ArrayList<int[]>();
+	private final List<String> names = new ArrayList<String>();
+	// sequence name -> ids needed
+	private final Map<String, Integer> sequenceCounts = new LinkedHashMap<String, Integer>();
+
+	private SequenceSQLRewriter(String sql) {
+		this.sql = sql;
+	}
+
+	/**
+	 * @return null if no global sequence found
+	 */
+	public static SequenceSQLRewriter parse(String sql) {
+		SequenceSQLRewriter rewriter = new SequenceSQLRewriter(sql);
+		int len = sql.length();
+		int i = 0;
+		while (i < len) {
+			char c = sql.charAt(i);
+			switch (c) {
+			case '\'':
+			case '"':
+			case '`':
+				i = skipQuoted(sql, i, c);
+				break;
+			case '#':
+				i = skipLine(sql, i);
+				break;
+			case '-':
+				if (i + 2 < len && sql.charAt(i + 1) == '-'
+						&& Character.isWhitespace(sql.charAt(i + 2))) {
+					i = skipLine(sql, i);
+				} else {
+					i++;
+				}
+				break;
+			case '/':
+				if (i + 1 < len && sql.charAt(i + 1) == '*') {
+					int end = sql.indexOf("*/", i + 2);
+					i = (end < 0) ? len : end + 2;
+				} else {
+					i++;
+				}
+				break;
+			default:
+				if (isIdentifierChar(c)) {
+					int end = skipIdentifier(sql, i);
+					if ((end - i) == 4 && sql.regionMatches(true, i, "NEXT", 0, 4)) {
+						end = rewriter.matchNextValue(i, end);
+					}
+					i = end;
+				} else {
+					i++;
+				}
+			}
+		}
+		return rewriter.names.isEmpty() ? null : rewriter;
+	}
+
+	/**
+	 * match "VALUE FOR MYCATSEQ_XXX" after "NEXT"
+	 * 
+	 * @return position to continue scanning
+	 */
+	private int matchNextValue(int start, int nextEnd) {
+		int pos = matchWord(nextEnd, "VALUE");
+		if (pos < 0) {
+			return nextEnd;
+		}
+		pos = matchWord(pos, "FOR");
+		if (pos < 0) {
+			return nextEnd;
+		}
+		pos = skipWhitespace(sql, pos);
+		int end = skipIdentifier(sql, pos);
+		if (end - pos <= SEQ_PREFIX.length()
+				|| !sql.regionMatches(true, pos, SEQ_PREFIX, 0,
+						SEQ_PREFIX.length())) {
+			return nextEnd;
+		}
+		String name = sql.substring(pos + SEQ_PREFIX.length(), end)
+				.toUpperCase(Locale.US);
+		positions.add(new int[] { start, end });
+		names.add(name);
+		Integer count = sequenceCounts.get(name);
+		sequenceCounts.put(name, (count == null) ? 1 : count + 1);
+		return end;
+	}
+
+	private int matchWord(int pos, String word) {
+		int begin = skipWhitespace(sql, pos);
+		if (begin == pos) {
+			return -1;
+		}
+		int end = skipIdentifier(sql, begin);
+		if (end - begin != word.length()
+				|| !sql.regionMatches(true, begin, word, 0, word.length())) {
+			return -1;
+		}
+		return end;
+	}
+
+	/**
+	 * sequence name (without MYCATSEQ_ ,upper case) -> ids needed ,in order
+	 * of appearance
+	 */
+	public Map<String, Integer> getSequenceCounts() {
+		return sequenceCounts;
+	}
+
+	/**
+	 * @param ids
+	 *            sequence name -> ids ,used in order of appearance
+	 */
+	public String rewrite(Map<String, long[]> ids) {
+		StringBuilder sb = new StringBuilder(sql.length());
+		Map<String, Integer> used = new LinkedHashMap<String, Integer>();
+		int last = 0;
+		for (int i = 0; i < positions.size(); i++) {
+			int[] pos = positions.get(i);
+			String name = names.get(i);
+			Integer index = used.get(name);
+			int idx = (index == null) ? 0 : index;
+			used.put(name, idx + 1);
+			sb.append(sql, last, pos[0]).append(ids.get(name)[idx]);
+			last = pos[1];
+		}
+		sb.append(sql, last, sql.length());
+		return sb.toString();
+	}
+
+	private static boolean isIdentifierChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+				|| (c >= '0' && c <= '9') || c == '_' || c == '$';
+	}
+
+	private static int skipIdentifier(String sql, int pos) {
+		int len = sql.length();
+		while (pos < len && isIdentifierChar(sql.charAt(pos))) {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static int skipWhitespace(String sql, int pos) {
+		int len = sql.length();
+		while (pos < len && Character.isWhitespace(sql.charAt(pos))) {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static int skipLine(String sql, int pos) {
+		int end = sql.indexOf('\n', pos);
+		return (end < 0) ? sql.length() : end + 1;
+	}
+
+	private static int skipQuoted(String sql, int pos, char quote) {
+		int len = sql.length();
+		int i = pos + 1;
+		while (i < len) {
+			char c = sql.charAt(i);
+			if (c == '\\' && quote != '`') {
+				i += 2;
+			} else if (c == quote) {
+				if (i + 1 < len && sql.charAt(i + 1) == quote) {
+					i += 2;
+				} else {
+					return i + 1;
+				}
+			} else {
+				i++;
+			}
+		}
+		return len;
+	}
+
+}
@@ -192,6 +192,11 @@ public class PostgresConnection extends BackendAIOConnection {
 		
 	}
 
+	@Override
+	public boolean compareAndSetBorrowed(boolean expect, boolean update) {
+		return false;
+	}
+
 	@Override
 	public int getTxIsolation() {
 		// TODO Auto-generated method stub
@@ -40,6 +40,7 @@ import org.opencloudb.net.mysql.EOFPacket;
 import org.opencloudb.net.mysql.FieldPacket;
 import org.opencloudb.net.mysql.ResultSetHeaderPacket;
 import org.opencloudb.net.mysql.RowDataPacket;
+import org.opencloudb.statistic.LatencyHistogram;
 import org.opencloudb.util.IntegerUtil;
 import org.opencloudb.util.LongUtil;
 import org.opencloudb.util.StringUtil;
@@ -52,7 +53,7 @@ import org.opencloudb.util.StringUtil;
  */
 public final class ShowDataSource {
 
-	private static final int FIELD_COUNT = 10;
+	private static final int FIELD_COUNT = 19;
 	private static final ResultSetHeaderPacket header = PacketUtil
 			.getHeader(FIELD_COUNT);
 	private static final FieldPacket[] fields = new FieldPacket[FIELD_COUNT];
@@ -93,6 +94,42 @@ public final class ShowDataSource {
 		fields[i] = PacketUtil.getField("EXECUTE", Fields.FIELD_TYPE_LONGLONG);
 		fields[i++].packetId = ++packetId;
 
+		fields[i] = PacketUtil.getField("ACQUIRE_P50_US",
+				Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+
+		fields[i] = PacketUtil.getField("ACQUIRE_P99_US",
+				Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+
+		fields[i] = PacketUtil.getField("ACQUIRE_MAX_US",
+				Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+
+		fields[i] = PacketUtil.getField("SYNC_SCHEMA",
+				Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+
+		fields[i] = PacketUtil.getField("SYNC_CHARSET",
+				Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+
+		fields[i] = PacketUtil.getField("SYNC_ISOLATION",
+				Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+
+		fields[i] = PacketUtil.getField("SYNC_AUTOCOMMIT",
+				Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+
+		fields[i] = PacketUtil.getField("READ_SELECT",
+				Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+
+		fields[i] = PacketUtil.getField("LATENCY_EWMA_US",
+				Fields.FIELD_TYPE_LONGLONG);
+		fields[i++].packetId = ++packetId;
+
 		eof.packetId = ++packetId;
 	}
 
@@ -165,6 +202,20 @@ public final class ShowDataSource {
 		row.add(IntegerUtil.toBytes(ds.getIdleCount()));
 		row.add(IntegerUtil.toBytes(ds.getSize()));
 		row.add(LongUtil.toBytes(ds.getExecuteCount()));
+		LatencyHistogram acquireTime = ds.getAcquireTime();
+		row.add(LongUtil.toBytes(acquireTime.getPercentile(0.5)));
+		row.add(LongUtil.toBytes(acquireTime.getPercentile(0.99)));
+		row.add(LongUtil.toBytes(acquireTime.getMax()));
+		row.add(LongUtil.toBytes(ds
+				.getSyncCount(PhysicalDatasource.SYNC_SCHEMA)));
+		row.add(LongUtil.toBytes(ds
+				.getSyncCount(PhysicalDatasource.SYNC_CHARSET)));
+		row.add(LongUtil.toBytes(ds
+				.getSyncCount(PhysicalDatasource.SYNC_ISOLATION)));
+		row.add(LongUtil.toBytes(ds
+				.getSyncCount(PhysicalDatasource.SYNC_AUTOCOMMIT)));
+		row.add(LongUtil.toBytes(ds.getReadSelectCount()));
+		row.add(LongUtil.toBytes(ds.getLatencyEwma()));
 		return row;
 	}
 
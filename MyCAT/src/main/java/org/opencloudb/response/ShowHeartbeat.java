@@ -48,7 +48,7 @@ import org.opencloudb.util.LongUtil;
  */
 public class ShowHeartbeat {
 
-	private static final int FIELD_COUNT = 11;
+	private static final int FIELD_COUNT = 12;
 	private static final ResultSetHeaderPacket header = PacketUtil
 			.getHeader(FIELD_COUNT);
 	private static final FieldPacket[] fields = new FieldPacket[FIELD_COUNT];
@@ -93,6 +93,10 @@ public class ShowHeartbeat {
 		fields[i] = PacketUtil.getField("STOP", Fields.FIELD_TYPE_VAR_STRING);
 		fields[i++].packetId = ++packetId;
 
+		fields[i] = PacketUtil.getField("SLAVE_BEHIND_MASTER",
+				Fields.FIELD_TYPE_LONG);
+		fields[i++].packetId = ++packetId;
+
 		eof.packetId = ++packetId;
 	}
 
@@ -150,6 +154,7 @@ public class ShowHeartbeat {
 					row.add(lat == null ? null : lat.getBytes());
 					row.add(hb.isStop() ? "true".getBytes() : "false"
 							.getBytes());
+					row.add(IntegerUtil.toBytes(hb.getSlaveBehindMaster()));
 				} else {
 					row.add(null);
 					row.add(null);
@@ -160,6 +165,7 @@ public class ShowHeartbeat {
 					row.add(null);
 					row.add(null);
 					row.add(null);
+					row.add(null);
 				}
 				list.add(row);
 			}
@@ -121,6 +121,8 @@ public final class ShowHelp {
         helps.put("show @@command", "Report commands status");
         helps.put("show @@connection", "Report connection status");
         helps.put("show @@cache", "Report system cache usage");
+        helps.put("show @@cache.route", "Report route cache hit ratio of sql shapes");
+        helps.put("show @@loaddata", "Report running and recent load data local infile");
         helps.put("show @@backend", "Report backend connection status");
         helps.put("show @@session", "Report front session details");
         helps.put("show @@connection.sql", "Report connection sql");
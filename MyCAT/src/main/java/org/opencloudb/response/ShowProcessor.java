@@ -37,6 +37,7 @@ import org.opencloudb.net.mysql.ResultSetHeaderPacket;
 import org.opencloudb.net.mysql.RowDataPacket;
 import org.opencloudb.util.IntegerUtil;
 import org.opencloudb.util.LongUtil;
+import org.opencloudb.util.StringUtil;
 
 /**
  * 查看处理器状态
@@ -46,7 +47,7 @@ import org.opencloudb.util.LongUtil;
  */
 public final class ShowProcessor {
 
-    private static final int FIELD_COUNT = 12;
+    private static final int FIELD_COUNT = 17;
     private static final ResultSetHeaderPacket header = PacketUtil.getHeader(FIELD_COUNT);
     private static final FieldPacket[] fields = new FieldPacket[FIELD_COUNT];
     private static final EOFPacket eof = new EOFPacket();
@@ -84,7 +85,22 @@ public final class ShowProcessor {
 
         fields[i] = PacketUtil.getField("BU_WARNS", Fields.FIELD_TYPE_TINY);
         fields[i++].packetId = ++packetId;
+
+        fields[i] = PacketUtil.getField("BU_HITS", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].packetId = ++packetId;
+
+        fields[i] = PacketUtil.getField("BU_MISSES", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].packetId = ++packetId;
         
+        fields[i] = PacketUtil.getField("W_CALLS", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].packetId = ++packetId;
+
+        fields[i] = PacketUtil.getField("W_BUFS_PER_CALL", Fields.FIELD_TYPE_DOUBLE);
+        fields[i++].packetId = ++packetId;
+
+        fields[i] = PacketUtil.getField("W_BYTES_PER_CALL", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].packetId = ++packetId;
+
         fields[i] = PacketUtil.getField("FC_COUNT", Fields.FIELD_TYPE_LONG);
         fields[i++].packetId = ++packetId;
 
@@ -142,6 +158,14 @@ public final class ShowProcessor {
         row.add(IntegerUtil.toBytes(bufferCapacity));
         row.add(IntegerUtil.toBytes(bufferUsagePercent));
         row.add(IntegerUtil.toBytes(bufferTempLocatedTimes));
+        row.add(LongUtil.toBytes(bufferPool.getHitCount()));
+        row.add(LongUtil.toBytes(bufferPool.getMissCount()));
+        long writeCalls = processor.getWriteCalls();
+        row.add(LongUtil.toBytes(writeCalls));
+        row.add(StringUtil.encode(writeCalls == 0 ? "0" : String.format("%.2f",
+                (double) processor.getWriteBuffers() / writeCalls), charset));
+        row.add(LongUtil.toBytes(writeCalls == 0 ? 0 : processor.getNetOutBytes()
+                / writeCalls));
         row.add(IntegerUtil.toBytes(processor.getFrontends().size()));
         row.add(IntegerUtil.toBytes(processor.getBackends().size()));
         return row;
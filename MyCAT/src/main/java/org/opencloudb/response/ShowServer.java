@@ -28,6 +28,7 @@ import java.nio.ByteBuffer;
 import org.opencloudb.MycatServer;
 import org.opencloudb.config.Fields;
 import org.opencloudb.manager.ManagerConnection;
+import org.opencloudb.mpp.MergeMemoryManager;
 import org.opencloudb.mysql.PacketUtil;
 import org.opencloudb.net.mysql.EOFPacket;
 import org.opencloudb.net.mysql.FieldPacket;
@@ -46,7 +47,7 @@ import org.opencloudb.util.TimeUtil;
  */
 public final class ShowServer {
 
-    private static final int FIELD_COUNT = 8;
+    private static final int FIELD_COUNT = 11;
     private static final ResultSetHeaderPacket header = PacketUtil.getHeader(FIELD_COUNT);
     private static final FieldPacket[] fields = new FieldPacket[FIELD_COUNT];
     private static final EOFPacket eof = new EOFPacket();
@@ -79,6 +80,15 @@ public final class ShowServer {
         fields[i] = PacketUtil.getField("STATUS", Fields.FIELD_TYPE_VAR_STRING);
         fields[i++].packetId = ++packetId;
 
+        fields[i] = PacketUtil.getField("MERGE_MEMORY", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].packetId = ++packetId;
+
+        fields[i] = PacketUtil.getField("SPILL_COUNT", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].packetId = ++packetId;
+
+        fields[i] = PacketUtil.getField("SPILL_BYTES", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].packetId = ++packetId;
+
         eof.packetId = ++packetId;
     }
 
@@ -129,6 +139,10 @@ public final class ShowServer {
         row.add(LongUtil.toBytes(server.getConfig().getRollbackTime()));
         row.add(StringUtil.encode(charset, charset));
         row.add(StringUtil.encode(MycatServer.getInstance().isOnline() ? "ON" : "OFF", charset));
+        MergeMemoryManager merge = server.getMergeMemoryManager();
+        row.add(LongUtil.toBytes(merge.getUsedMemory()));
+        row.add(LongUtil.toBytes(merge.getSpillCount()));
+        row.add(LongUtil.toBytes(merge.getSpillBytes()));
         return row;
     }
 
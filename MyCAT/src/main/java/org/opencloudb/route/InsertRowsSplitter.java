@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.route;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * split "insert ... values (...),(...)" into the head (till VALUES) and the
+ * text of every row by char scanning ,so rows routed to the same data node
+ * can be rewritten as one insert without regenerating sql from the AST
+ * 
+ * @author mycat
+ */
+public final class InsertRowsSplitter {
+	private final String head;
+	private final List<String> rows;
+
+	private InsertRowsSplitter(String head, List<String> rows) {
+		this.head = head;
+		this.rows = rows;
+	}
+
+	/**
+	 * insert sql till VALUES keyword (included) ,end with a space
+	 */
+	public String getHead() {
+		return head;
+	}
+
+	public int getRowCount() {
+		return rows.size();
+	}
+
+	/**
+	 * text of the row ,brackets included
+	 */
+	public String getRow(int index) {
+		return rows.get(index);
+	}
+
+	/**
+	 * build insert sqls of the rows ,a new sql is started when maxRows or
+	 * maxBytes (chars of sql) reached ,one row is never split. values less
+	 * than 1 means no limit
+	 */
+	public List<String> buildStatements(List<Integer> rowIndexes, int maxRows,
+			int maxBytes) {
+		List<String> sqls = new ArrayList<String>(1);
+		StringBuilder sb = null;
+		int rowsInSql = 0;
+		for (Integer rowIndex : rowIndexes) {
+			String row = rows.get(rowIndex);
+			if (sb != null
+					&& ((maxRows > 0 && rowsInSql >= maxRows) || (maxBytes > 0 && sb
+							.length() + 1 + row.length() > maxBytes))) {
+				sqls.add(sb.toString());
+				sb = null;
+			}
+			if (sb == null) {
+				sb = new StringBuilder(head.length() + row.length() * 2);
+				sb.append(head).append(row);
+				rowsInSql = 1;
+			} else {
+				sb.append(',').append(row);
+				rowsInSql++;
+			}
+		}
+		if (sb != null) {
+			sqls.add(sb.toString());
+		}
+		return sqls;
+	}
+
+	/**
+	 * @return null if VALUES or rows not found ,or something not supported
+	 *         (line comments ,text after rows) is found
+	 */
+	public static InsertRowsSplitter parse(String stmt) {
+		int length = stmt.length();
+		int valuesEnd = -1;
+		for (int i = 0; i < length; i++) {
+			char c = stmt.charAt(i);
+			switch (c) {
+			case '\'':
+			case '"':
+			case '`':
+				i = skipQuoted(stmt, i);
+				break;
+			case '(':
+				i = skipBracket(stmt, i);
+				break;
+			case '/':
+				i = skipComment(stmt, i);
+				break;
+			case '#':
+				return null;
+			case '-':
+				if (i + 1 < length && stmt.charAt(i + 1) == '-') {
+					return null;
+				}
+				break;
+			case 'v':
+			case 'V':
+				if (i > 0 && isIdentifierChar(stmt.charAt(i - 1))) {
+					break;
+				}
+				int end = i;
+				while (end < length && isIdentifierChar(stmt.charAt(end))) {
+					end++;
+				}
+				String word = stmt.substring(i, end);
+				if ("VALUES".equalsIgnoreCase(word)
+						|| "VALUE".equalsIgnoreCase(word)) {
+					valuesEnd = end;
+				} else {
+					i = end - 1;
+				}
+				break;
+			default:
+			}
+			if (i < 0) {
+				return null;
+			} else if (valuesEnd >= 0) {
+				break;
+			}
+		}
+		if (valuesEnd < 0) {
+			return null;
+		}
+		List<String> rows = new ArrayList<String>();
+		int i = skipSpace(stmt, valuesEnd);
+		while (i < length && stmt.charAt(i) == '(') {
+			int end = skipBracket(stmt, i);
+			if (end < 0) {
+				return null;
+			}
+			rows.add(stmt.substring(i, end + 1));
+			i = skipSpace(stmt, end + 1);
+			if (i < length && stmt.charAt(i) == ',') {
+				i = skipSpace(stmt, i + 1);
+			} else {
+				break;
+			}
+		}
+		if (rows.isEmpty()) {
+			return null;
+		}
+		while (i < length && stmt.charAt(i) == ';') {
+			i = skipSpace(stmt, i + 1);
+		}
+		if (i < length) {
+			return null;
+		}
+		return new InsertRowsSplitter(stmt.substring(0, valuesEnd) + ' ',
+				rows);
+	}
+
+	private static boolean isIdentifierChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+	}
+
+	/**
+	 * skip whitespaces and block comments
+	 */
+	private static int skipSpace(String stmt, int i) {
+		while (i < stmt.length()) {
+			char c = stmt.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '/' && skipComment(stmt, i) > i) {
+				i = skipComment(stmt, i) + 1;
+			} else {
+				break;
+			}
+		}
+		return i;
+	}
+
+	/**
+	 * @return index of the close quote ,-1 if not closed
+	 */
+	private static int skipQuoted(String stmt, int start) {
+		char quote = stmt.charAt(start);
+		for (int i = start + 1; i < stmt.length(); i++) {
+			char c = stmt.charAt(i);
+			if (c == '\\' && quote != '`') {
+				i++;
+			} else if (c == quote) {
+				if (i + 1 < stmt.length() && stmt.charAt(i + 1) == quote) {
+					i++;
+				} else {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return index of the end of block comment ,start itself if not a
+	 *         comment ,-1 if not closed
+	 */
+	private static int skipComment(String stmt, int start) {
+		if (start + 1 >= stmt.length() || stmt.charAt(start + 1) != '*') {
+			return start;
+		}
+		int end = stmt.indexOf("*/", start + 2);
+		return end < 0 ? -1 : end + 1;
+	}
+
+	/**
+	 * @return index of the matched close bracket ,-1 if not found
+	 */
+	private static int skipBracket(String stmt, int start) {
+		int depth = 0;
+		for (int i = start; i < stmt.length(); i++) {
+			char c = stmt.charAt(i);
+			switch (c) {
+			case '\'':
+			case '"':
+			case '`':
+				i = skipQuoted(stmt, i);
+				break;
+			case '/':
+				i = skipComment(stmt, i);
+				break;
+			case '#':
+				return -1;
+			case '-':
+				if (i + 1 < stmt.length() && stmt.charAt(i + 1) == '-') {
+					return -1;
+				}
+				break;
+			case '(':
+				depth++;
+				break;
+			case ')':
+				if (--depth == 0) {
+					return i;
+				}
+				break;
+			default:
+			}
+			if (i < 0) {
+				return -1;
+			}
+		}
+		return -1;
+	}
+}
@@ -1,11 +1,9 @@
 package org.opencloudb.route;
 
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.Iterator;
-import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.log4j.Logger;
 import org.opencloudb.MycatServer;
@@ -16,23 +14,92 @@ import org.opencloudb.net.mysql.ResultSetHeaderPacket;
 import org.opencloudb.net.mysql.RowDataPacket;
 import org.opencloudb.parser.ExtNodeToString4SEQ;
 import org.opencloudb.parser.SQLParserDelegate;
+import org.opencloudb.parser.SequenceSQLRewriter;
+import org.opencloudb.sequence.handler.BatchSequenceHandler;
+import org.opencloudb.sequence.handler.SequenceHandler;
 import org.opencloudb.server.ServerConnection;
+import org.opencloudb.util.ExecutorUtil;
 import org.opencloudb.util.StringUtil;
 
 import com.foundationdb.sql.parser.QueryTreeNode;
 import com.foundationdb.sql.unparser.NodeToString;
 
+/**
+ * replace global sequences of sql with ids then route and execute it. sql
+ * whose ids are taken from memory by tryNextIds is executed in caller's
+ * thread ,others are executed in parallel by sequence executor because
+ * fetching ids may wait for db or file io. all ids of one sequence in a sql
+ * are taken in one operation
+ */
 public class MyCATSequnceProcessor {
 	private static final Logger LOGGER = Logger
 			.getLogger(MyCATSequnceProcessor.class);
-	private ConcurrentLinkedQueue<SessionSQLPair> seqSQLQueue = new ConcurrentLinkedQueue<SessionSQLPair>();
+	// not processor executor ,backend responses of id fetching need it
+	private final ExecutorService executor = ExecutorUtil.create(
+			"SequenceExecutor", Runtime.getRuntime().availableProcessors());
 
-	public MyCATSequnceProcessor() {
-		new ExecuteThread().start();
+	public void addNewSql(final SessionSQLPair pair) {
+		final SequenceSQLRewriter rewriter = SequenceSQLRewriter
+				.parse(pair.sql);
+		final Map<String, long[]> ids = new HashMap<String, long[]>();
+		if (rewriter != null && tryNextIds(rewriter, ids)) {
+			executeSeq(pair, rewriter, ids);
+			return;
+		}
+		// ids already taken are used ,the others are fetched by executor
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				executeSeq(pair, rewriter, ids);
+			}
+		});
 	}
 
-	public void addNewSql(SessionSQLPair pair) {
-		seqSQLQueue.offer(pair);
+	private static SequenceHandler getSequenceHandler() {
+		return ExtNodeToString4SEQ.getSequenceHandler(MycatServer
+				.getInstance().getConfig().getSystem().getSequnceHandlerType());
+	}
+
+	/**
+	 * take ids of sequences cached in memory without io ,return true if ids
+	 * of all sequences are taken
+	 */
+	private boolean tryNextIds(SequenceSQLRewriter rewriter,
+			Map<String, long[]> ids) {
+		SequenceHandler handler;
+		try {
+			handler = getSequenceHandler();
+		} catch (RuntimeException e) {
+			// reported to client by executeSeq
+			return false;
+		}
+		if (!(handler instanceof BatchSequenceHandler)) {
+			return false;
+		}
+		boolean all = true;
+		for (Map.Entry<String, Integer> entry : rewriter.getSequenceCounts()
+				.entrySet()) {
+			long[] taken = ((BatchSequenceHandler) handler).tryNextIds(
+					entry.getKey(), entry.getValue());
+			if (taken != null) {
+				ids.put(entry.getKey(), taken);
+			} else {
+				all = false;
+			}
+		}
+		return all;
+	}
+
+	private static long[] nextIds(SequenceHandler handler, String name,
+			int count) {
+		if (handler instanceof BatchSequenceHandler) {
+			return ((BatchSequenceHandler) handler).nextIds(name, count);
+		}
+		long[] ids = new long[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = handler.nextId(name);
+		}
+		return ids;
 	}
 
 	private void outRawData(ServerConnection sc,String value) {
@@ -66,20 +133,41 @@ public class MyCATSequnceProcessor {
 		sc.write(byteBuf);
 	}
 
-	private void executeSeq(SessionSQLPair pair) {
+	/**
+	 * @param ids
+	 *            ids taken already ,ids of other sequences are fetched
+	 */
+	private void executeSeq(SessionSQLPair pair, SequenceSQLRewriter rewriter,
+			Map<String, long[]> ids) {
 		try {
-
-			// @micmiu 扩展NodeToString实现自定义全局序列号
-			NodeToString strHandler = new ExtNodeToString4SEQ(MycatServer
-					.getInstance().getConfig().getSystem()
-					.getSequnceHandlerType());
-			// 如果存在sequence 转化sequence为实际数值
-			String charset = pair.session.getSource().getCharset();
-			QueryTreeNode ast = SQLParserDelegate.parse(pair.sql,
-					charset == null ? "utf-8" : charset);
-			String sql = strHandler.toString(ast);
+			String sql;
+			if (rewriter != null) {
+				SequenceHandler handler = getSequenceHandler();
+				for (Map.Entry<String, Integer> entry : rewriter
+						.getSequenceCounts().entrySet()) {
+					if (!ids.containsKey(entry.getKey())) {
+						ids.put(entry.getKey(), nextIds(handler,
+								entry.getKey(), entry.getValue()));
+					}
+				}
+				sql = rewriter.rewrite(ids).trim();
+			} else {
+				// not the "next value for" form ,by sql parser
+				// @micmiu 扩展NodeToString实现自定义全局序列号
+				NodeToString strHandler = new ExtNodeToString4SEQ(MycatServer
+						.getInstance().getConfig().getSystem()
+						.getSequnceHandlerType());
+				// 如果存在sequence 转化sequence为实际数值
+				String charset = pair.session.getSource().getCharset();
+				QueryTreeNode ast = SQLParserDelegate.parse(pair.sql,
+						charset == null ? "utf-8" : charset);
+				sql = strHandler.toString(ast);
+			}
 			if (sql.toUpperCase().startsWith("SELECT")) {
 				String value=sql.substring("SELECT".length()).trim();
+				if (value.endsWith(";")) {
+					value = value.substring(0, value.length() - 1).trim();
+				}
 				outRawData(pair.session.getSource(),value);
 				return;
 			}
@@ -93,22 +181,4 @@ public class MyCATSequnceProcessor {
 			return;
 		}
 	}
-
-	class ExecuteThread extends Thread {
-		public void run() {
-			while (true) {
-				SessionSQLPair pair = null;
-				try {
-					pair = seqSQLQueue.poll();
-					if (pair == null) {
-						Thread.sleep(100);
-					} else {
-						executeSeq(pair);
-					}
-				} catch (Exception e) {
-					LOGGER.error(e);
-				}
-			}
-		}
-	}
 }
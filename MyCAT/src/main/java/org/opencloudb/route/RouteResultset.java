@@ -25,6 +25,7 @@ package org.opencloudb.route;
 
 import java.io.Serializable;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.opencloudb.util.FormatUtil;
@@ -48,6 +49,17 @@ public final class RouteResultset implements Serializable {
 	
 	private Boolean callStatement = false;  //处理call关键字
 
+	// routed to one node by this value of the partition column of the table
+	private String partitionTable;
+	private String partitionValue;
+	// split multi rows insert ,nodes of next rounds executed after previous
+	// round finished ,because one connection per data node in a session
+	private List<RouteResultsetNode[]> nextRounds;
+	// child table insert whose node is found by querying root parent's nodes
+	// asynchronously ,nodes is null before found
+	private String parentLookupSql;
+	private List<String> parentLookupNodes;
+
 	public RouteResultset(String stmt, int sqlType) {
 		this.statement = stmt;
 		this.limitSize = -1;
@@ -191,6 +203,49 @@ public final class RouteResultset implements Serializable {
 		this.statement = statement;
 	}
 	
+	public String getPartitionTable() {
+		return partitionTable;
+	}
+
+	public String getPartitionValue() {
+		return partitionValue;
+	}
+
+	public void setPartitionValue(String partitionTable, String partitionValue) {
+		this.partitionTable = partitionTable;
+		this.partitionValue = partitionValue;
+	}
+
+	public List<RouteResultsetNode[]> getNextRounds() {
+		return nextRounds;
+	}
+
+	public boolean hasNextRounds() {
+		return nextRounds != null && !nextRounds.isEmpty();
+	}
+
+	public void setNextRounds(List<RouteResultsetNode[]> nextRounds) {
+		this.nextRounds = nextRounds;
+	}
+
+	public String getParentLookupSql() {
+		return parentLookupSql;
+	}
+
+	public List<String> getParentLookupNodes() {
+		return parentLookupNodes;
+	}
+
+	public boolean isParentLookupPending() {
+		return parentLookupSql != null && nodes == null;
+	}
+
+	public void setParentLookup(String parentLookupSql,
+			List<String> parentLookupNodes) {
+		this.parentLookupSql = parentLookupSql;
+		this.parentLookupNodes = parentLookupNodes;
+	}
+
 	public Boolean isCallStatement() {
 		return callStatement;
 	}
@@ -209,6 +264,18 @@ public final class RouteResultset implements Serializable {
 				s.append(" -> ").append(nodes[i]);
 			}
 		}
+		if (isParentLookupPending()) {
+			s.append("\n find parent node by: ").append(parentLookupSql)
+					.append(" in ").append(parentLookupNodes);
+		}
+		if (nextRounds != null) {
+			for (RouteResultsetNode[] round : nextRounds) {
+				s.append("\n next round:");
+				for (RouteResultsetNode node : round) {
+					s.append("\n     -> ").append(node);
+				}
+			}
+		}
 		s.append("\n}");
 		return s.toString();
 	}
@@ -48,6 +48,7 @@ public class RouteService {
             .getLogger(RouteService.class);
 	private final CachePool sqlRouteCache;
 	private final LayerCachePool tableId2DataNodeCache;
+	private final RouteShapeCache routeShapeCache;
 
     //sql注释的类型处理handler 集合，现在支持两种类型的处理：sql,schema
     private static Map<String,HintHandler> hintHandlerMap = new HashMap<String,HintHandler>();
@@ -57,10 +58,15 @@ public class RouteService {
         hintHandlerMap.put("schema",new HintSchemaHandler());
     }
 
-	public RouteService(CacheService cachService) {
+	public RouteService(CacheService cachService, int routeShapeCacheSize) {
 		sqlRouteCache = cachService.getCachePool("SQLRouteCache");
 		tableId2DataNodeCache = (LayerCachePool) cachService
 				.getCachePool("TableID2DataNodeCache");
+		routeShapeCache = new RouteShapeCache(routeShapeCacheSize);
+	}
+
+	public RouteShapeCache getRouteShapeCache() {
+		return routeShapeCache;
 	}
 
 	public LayerCachePool getTableId2DataNodeCache() {
@@ -72,8 +78,17 @@ public class RouteService {
 			throws SQLNonTransientException {
 		RouteResultset rrs = null;
 		String cacheKey = null;
+		SQLShape shape = null;
 
 		if (sqlType == ServerParse.SELECT) {
+			// sql of the same shape routed by literal directly
+			shape = SQLShape.parse(stmt);
+			if (shape != null) {
+				rrs = routeShapeCache.route(schema, sqlType, shape, stmt);
+				if (rrs != null) {
+					return rrs;
+				}
+			}
 			cacheKey = schema.getName() + stmt;
 			rrs = (RouteResultset) sqlRouteCache.get(cacheKey);
 			if (rrs != null) {
@@ -115,7 +130,11 @@ public class RouteService {
 		}
 
 		if (sqlType == ServerParse.SELECT && rrs.isCacheAble()) {
-			sqlRouteCache.putIfAbsent(cacheKey, rrs);
+			// no single use sql cached if the shape is learned
+			if (shape == null
+					|| !routeShapeCache.learn(schema, shape, stmt, rrs)) {
+				sqlRouteCache.putIfAbsent(cacheKey, rrs);
+			}
 		}
 		return rrs;
 	}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.route;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opencloudb.config.model.SchemaConfig;
+import org.opencloudb.config.model.TableConfig;
+import org.opencloudb.config.model.rule.RuleConfig;
+import org.opencloudb.route.function.AbstractPartionAlgorithm;
+
+/**
+ * route cache keyed by sql shape. a select routed to one node by the
+ * partition column value is learned as a plan (table ,literal slot of the
+ * value) ,then later selects of the same shape are routed by the rule of the
+ * table with the literal directly ,no sql parsing. only learned shapes are
+ * kept ,when full a shape not hit since the clock hand passed is evicted.
+ * 
+ * @author mycat
+ */
+public class RouteShapeCache {
+	private final int maxShapes;
+	private final ConcurrentMap<String, RouteShape> shapes = new ConcurrentHashMap<String, RouteShape>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	// clock hand of eviction ,guarded by this
+	private Iterator<RouteShape> hand;
+
+	public RouteShapeCache(int maxShapes) {
+		this.maxShapes = maxShapes;
+	}
+
+	/**
+	 * route by the learned plan of the shape ,null if no plan
+	 */
+	public RouteResultset route(SchemaConfig schema, int sqlType,
+			SQLShape shape, String stmt) {
+		RouteShape routeShape = shapes.get(key(schema, shape));
+		if (routeShape == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		String dataNode = routeShape.plan.route(schema, shape);
+		if (dataNode == null) {
+			routeShape.misses.incrementAndGet();
+			misses.incrementAndGet();
+			return null;
+		}
+		routeShape.referenced = true;
+		routeShape.hits.incrementAndGet();
+		hits.incrementAndGet();
+		stmt = stmt.trim();
+		RouteResultset rrs = new RouteResultset(stmt, sqlType);
+		rrs.setCacheAble(true);
+		rrs.setNodes(new RouteResultsetNode[] { new RouteResultsetNode(
+				dataNode, sqlType, stmt) });
+		return rrs;
+	}
+
+	/**
+	 * learn plan from the result of full route ,return true if learned
+	 */
+	public boolean learn(SchemaConfig schema, SQLShape shape, String stmt,
+			RouteResultset rrs) {
+		if (maxShapes <= 0) {
+			return false;
+		}
+		String key = key(schema, shape);
+		if (shapes.containsKey(key)) {
+			return true;
+		}
+		Plan plan = Plan.create(schema, shape, stmt.trim(), rrs);
+		if (plan == null) {
+			return false;
+		}
+		RouteShape newShape = new RouteShape(schema.getName(),
+				shape.getShape(), plan);
+		// the full route of the first sql
+		newShape.misses.incrementAndGet();
+		if (shapes.putIfAbsent(key, newShape) == null
+				&& shapes.size() > maxShapes) {
+			evict(newShape);
+		}
+		return true;
+	}
+
+	/**
+	 * clock eviction ,a referenced shape gets a second chance ,the new shape
+	 * is kept to be hit once at least
+	 */
+	private synchronized void evict(RouteShape newShape) {
+		while (shapes.size() > maxShapes) {
+			if (hand == null || !hand.hasNext()) {
+				hand = shapes.values().iterator();
+				if (!hand.hasNext()) {
+					return;
+				}
+			}
+			RouteShape routeShape = hand.next();
+			if (routeShape.referenced) {
+				routeShape.referenced = false;
+			} else if (routeShape != newShape) {
+				hand.remove();
+			}
+		}
+	}
+
+	public Collection<RouteShape> getShapes() {
+		return shapes.values();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public void clear() {
+		shapes.clear();
+	}
+
+	private static String key(SchemaConfig schema, SQLShape shape) {
+		return schema.getName() + ':' + shape.getShape();
+	}
+
+	public static final class RouteShape {
+		private final String schema;
+		private final String shape;
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+		private final Plan plan;
+		// hit since the clock hand passed
+		private volatile boolean referenced;
+
+		RouteShape(String schema, String shape, Plan plan) {
+			this.schema = schema;
+			this.shape = shape;
+			this.plan = plan;
+		}
+
+		public String getSchema() {
+			return schema;
+		}
+
+		public String getShape() {
+			return shape;
+		}
+
+		/**
+		 * table of the plan
+		 */
+		public String getTable() {
+			return plan.table.getName();
+		}
+
+		public long getHits() {
+			return hits.get();
+		}
+
+		public long getMisses() {
+			return misses.get();
+		}
+	}
+
+	private static final class Plan {
+		private final TableConfig table;
+		private final int slot;
+
+		private Plan(TableConfig table, int slot) {
+			this.table = table;
+			this.slot = slot;
+		}
+
+		static Plan create(SchemaConfig schema, SQLShape shape, String stmt,
+				RouteResultset rrs) {
+			RouteResultsetNode[] nodes = rrs.getNodes();
+			if (rrs.getPartitionTable() == null || nodes == null
+					|| nodes.length != 1
+					|| !stmt.equals(nodes[0].getStatement())) {
+				return null;
+			}
+			TableConfig tc = schema.getTables().get(rrs.getPartitionTable());
+			int slot = shape.indexOfLiteral(rrs.getPartitionValue());
+			if (tc == null || tc.getRule() == null || slot < 0) {
+				return null;
+			}
+			Plan plan = new Plan(tc, slot);
+			if (!nodes[0].getName().equals(plan.route(schema, shape))) {
+				return null;
+			}
+			return plan;
+		}
+
+		/**
+		 * data node of the literal in slot ,null if can't route
+		 */
+		String route(SchemaConfig schema, SQLShape shape) {
+			// table config changed by reload
+			if (schema.getTables().get(table.getName()) != table
+					|| shape.getLiterals().size() <= slot) {
+				return null;
+			}
+			String value = shape.getLiterals().get(slot);
+			if (schema.isCheckSQLSchema()
+					&& value.toUpperCase(Locale.US).indexOf(
+							schema.getName().toUpperCase(Locale.US)) >= 0) {
+				// schema name in literal is removed by router
+				return null;
+			}
+			RuleConfig rule = table.getRule();
+			AbstractPartionAlgorithm algorithm = rule.getRuleAlgorithm();
+			Integer nodeIndx;
+			try {
+				nodeIndx = algorithm.calculate(value);
+			} catch (RuntimeException e) {
+				// let full route report the error
+				return null;
+			}
+			if (nodeIndx == null || nodeIndx < 0
+					|| nodeIndx >= table.getDataNodes().size()) {
+				return null;
+			}
+			return table.getDataNodes().get(nodeIndx);
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.route;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * shape of a sql statement ,literal numbers and strings are replaced by '?'
+ * and whitespaces are collapsed ,so statements differ only in literal values
+ * have the same shape. literals are kept in order ,string literals without
+ * quotes.
+ * 
+ * @author mycat
+ */
+public final class SQLShape {
+	private final String shape;
+	private final List<String> literals;
+
+	private SQLShape(String shape, List<String> literals) {
+		this.shape = shape;
+		this.literals = literals;
+	}
+
+	public String getShape() {
+		return shape;
+	}
+
+	public List<String> getLiterals() {
+		return literals;
+	}
+
+	/**
+	 * index of the only literal equals value ,-1 if not found or more than one
+	 */
+	public int indexOfLiteral(String value) {
+		int index = -1;
+		for (int i = 0; i < literals.size(); i++) {
+			if (literals.get(i).equals(value)) {
+				if (index >= 0) {
+					return -1;
+				}
+				index = i;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @return null if the sql can't be shaped safely ,such as sql with
+	 *         comments ,escaped strings or system variables
+	 */
+	public static SQLShape parse(String sql) {
+		int length = sql.length();
+		StringBuilder shape = new StringBuilder(length);
+		List<String> literals = new ArrayList<String>(4);
+		boolean space = false;
+		for (int i = 0; i < length; i++) {
+			char c = sql.charAt(i);
+			switch (c) {
+			case ' ':
+			case '\t':
+			case '\r':
+			case '\n':
+				space = shape.length() > 0;
+				continue;
+			case '\'':
+			case '"': {
+				int end = sql.indexOf(c, i + 1);
+				if (end < 0) {
+					return null;
+				}
+				String value = sql.substring(i + 1, end);
+				// escaped quote or backslash is changed by interceptor
+				if (value.indexOf('\\') >= 0
+						|| (end + 1 < length && sql.charAt(end + 1) == c)) {
+					return null;
+				}
+				space = appendSpace(shape, space);
+				shape.append('?');
+				literals.add(value);
+				i = end;
+				continue;
+			}
+			case '`': {
+				int end = sql.indexOf('`', i + 1);
+				if (end < 0) {
+					return null;
+				}
+				space = appendSpace(shape, space);
+				shape.append(sql, i, end + 1);
+				i = end;
+				continue;
+			}
+			case '/':
+			case '#':
+				if (c == '#' || (i + 1 < length && sql.charAt(i + 1) == '*')) {
+					return null;
+				}
+				break;
+			case '-':
+				if (i + 1 < length && sql.charAt(i + 1) == '-') {
+					return null;
+				}
+				break;
+			case '@':
+			case '?':
+				return null;
+			default:
+				if (c >= '0' && c <= '9' && !isIdentifierPart(shape, space)) {
+					int end = i;
+					boolean number = true;
+					boolean dot = false;
+					while (end < length) {
+						char ch = sql.charAt(end);
+						if (ch >= '0' && ch <= '9') {
+							end++;
+						} else if (ch == '.' && !dot) {
+							dot = true;
+							end++;
+						} else if (Character.isLetter(ch) || ch == '_'
+								|| ch == '$' || ch == '.') {
+							// identifier or hex/exponent number ,keep it
+							number = false;
+							end++;
+						} else {
+							break;
+						}
+					}
+					space = appendSpace(shape, space);
+					if (number) {
+						shape.append('?');
+						literals.add(sql.substring(i, end));
+					} else {
+						shape.append(sql, i, end);
+					}
+					i = end - 1;
+					continue;
+				}
+			}
+			space = appendSpace(shape, space);
+			shape.append(c);
+		}
+		return new SQLShape(shape.toString(), literals);
+	}
+
+	private static boolean appendSpace(StringBuilder shape, boolean space) {
+		if (space) {
+			shape.append(' ');
+		}
+		return false;
+	}
+
+	private static boolean isIdentifierPart(StringBuilder shape, boolean space) {
+		if (space || shape.length() == 0) {
+			return false;
+		}
+		char c = shape.charAt(shape.length() - 1);
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.'
+				|| c == '`';
+	}
+}
@@ -31,6 +31,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
@@ -58,6 +59,8 @@ import org.opencloudb.mpp.UpdateParsInf;
 import org.opencloudb.mpp.UpdateSQLAnalyser;
 import org.opencloudb.mysql.nio.handler.FetchStoreNodeOfChildTableHandler;
 import org.opencloudb.parser.ExtNodeToString4SEQ;
+import org.opencloudb.parser.PointQueryInf;
+import org.opencloudb.parser.PointQueryParse;
 import org.opencloudb.parser.SQLParserDelegate;
 import org.opencloudb.route.function.AbstractPartionAlgorithm;
 import org.opencloudb.server.parser.ServerParse;
@@ -137,6 +140,13 @@ public final class ServerRouterUtil {
 			return analyseDescrSQL(schema, rrs, stmt, ind + 1);
 		}
 
+		// 简单单表语句直接按分片字段路由，不生成AST
+		RouteResultset pointRrs = tryRouteForPointSQL(schema, rrs, sqlType,
+				stmt);
+		if (pointRrs != null) {
+			return pointRrs;
+		}
+
 		// 生成和展开AST
 		QueryTreeNode ast = SQLParserDelegate.parse(stmt,
 				charset == null ? "utf-8" : charset);
@@ -171,6 +181,9 @@ public final class ServerRouterUtil {
 				throw new SQLNonTransientException(inf);
 			}
 			TableConfig tc = getTableConfig(schema, parsInf.tableName);
+			if (parsInf.rows != null && parsInf.rows.size() > 1) {
+				return routeMultiRowsInsert(sysConfig, rrs, tc, parsInf, stmt);
+			}
 			Set<ColumnRoutePair> col2Val = null;
 			String partColumn = null;
 			// for partition table ,partion column must provided
@@ -199,13 +212,20 @@ public final class ServerRouterUtil {
 						LOGGER.debug("find root parent's node sql "
 								+ findRootTBSql);
 					}
-					FetchStoreNodeOfChildTableHandler fetchHandler = new FetchStoreNodeOfChildTableHandler();
-					String dn = fetchHandler.execute(schema.getName(),
-							findRootTBSql, tc.getRootParent().getDataNodes());
+					String dn = FetchStoreNodeOfChildTableHandler
+							.getCachedNode(schema.getName(), findRootTBSql);
 					if (dn == null) {
-						throw new SQLNonTransientException(
-								"can't find (root) parent sharding node for sql:"
-										+ stmt);
+						if (FetchStoreNodeOfChildTableHandler.isCachedMiss(
+								schema.getName(), findRootTBSql)) {
+							throw new SQLNonTransientException(
+									"can't find (root) parent sharding node for sql:"
+											+ stmt);
+						}
+						// not cached ,caller queries parent's nodes
+						// asynchronously then routes by routeToParentNode
+						rrs.setParentLookup(findRootTBSql, tc.getRootParent()
+								.getDataNodes());
+						return rrs;
 					}
 					if (LOGGER.isDebugEnabled()) {
 						LOGGER.debug("found partion node for child table to insert "
@@ -284,6 +304,156 @@ public final class ServerRouterUtil {
 
 	}
 
+	/**
+	 * route sql like "select ... from tb where partition_col=const" by char
+	 * scanner ,return null if the sql or table is not supported ,then the full
+	 * parser is used
+	 */
+	private static RouteResultset tryRouteForPointSQL(SchemaConfig schema,
+			RouteResultset rrs, int sqlType, String stmt) {
+		PointQueryInf inf = PointQueryParse.parse(stmt, sqlType);
+		if (inf == null) {
+			return null;
+		}
+		TableConfig tc = schema.getTables().get(inf.getTableName());
+		if (tc == null || tc.getTableType() == TableConfig.TYPE_GLOBAL_TABLE
+				|| tc.isChildTable() || tc.getRule() == null
+				|| tc.getPartitionColumn() == null) {
+			return null;
+		}
+		String partColumn = tc.getPartitionColumn();
+		if (sqlType == ServerParse.UPDATE
+				&& (inf.isSetColumn(partColumn) || (tc.getJoinKey() != null && inf
+						.isSetColumn(tc.getJoinKey())))) {
+			// full parser reports the error
+			return null;
+		}
+		String value = inf.getValue(partColumn);
+		if (value == null) {
+			return null;
+		}
+		Integer nodeIndx;
+		try {
+			nodeIndx = tc.getRule().getRuleAlgorithm().calculate(value);
+		} catch (RuntimeException e) {
+			return null;
+		}
+		if (nodeIndx == null || nodeIndx < 0
+				|| nodeIndx >= tc.getDataNodes().size()) {
+			return null;
+		}
+		boolean isSelect = sqlType == ServerParse.SELECT;
+		rrs.setCacheAble(isSelect);
+		if (isSelect) {
+			rrs.setPartitionValue(tc.getName(), value);
+		}
+		return routeToSingleNode(rrs, tc.getDataNodes().get(nodeIndx), stmt);
+	}
+
+	/**
+	 * route multi rows insert ,rows are grouped by data node and rewritten as
+	 * one insert per data node ,inserts more than maxInsertRows or
+	 * maxInsertBytes are split and executed in next rounds
+	 */
+	private static RouteResultset routeMultiRowsInsert(SystemConfig sysConfig,
+			RouteResultset rrs, TableConfig tc, InsertParseInf parsInf,
+			String stmt) throws SQLNonTransientException {
+		InsertRowsSplitter splitter = InsertRowsSplitter.parse(stmt);
+		if (splitter == null || splitter.getRowCount() != parsInf.rows.size()) {
+			String inf = "not supported insert sql (can't split rows)," + stmt;
+			LOGGER.warn(inf);
+			throw new SQLNonTransientException(inf);
+		}
+		// data node -> index of rows ,keep the order of rows
+		Map<String, List<Integer>> nodeRows = new LinkedHashMap<String, List<Integer>>();
+		if (tc.getTableType() == TableConfig.TYPE_GLOBAL_TABLE
+				|| (!tc.isChildTable() && tc.getPartitionColumn() == null)) {
+			List<Integer> allRows = new ArrayList<Integer>(parsInf.rows.size());
+			for (int i = 0; i < parsInf.rows.size(); i++) {
+				allRows.add(i);
+			}
+			for (String dataNode : tc.getDataNodes()) {
+				nodeRows.put(dataNode, allRows);
+			}
+		} else {
+			TableConfig ruleTC = tc;
+			String ruleColumn = tc.getPartitionColumn();
+			if (tc.isChildTable()) {
+				if (!tc.isSecondLevel()
+						|| !tc.getParentTC().getPartitionColumn()
+								.equals(tc.getParentKey())) {
+					String inf = "not supported insert sql (multi rows of child table not joined by parent's partition column),"
+							+ stmt;
+					LOGGER.warn(inf);
+					throw new SQLNonTransientException(inf);
+				}
+				ruleTC = tc.getParentTC();
+				ruleColumn = tc.getJoinKey();
+			}
+			AbstractPartionAlgorithm algorithm = ruleTC.getRule()
+					.getRuleAlgorithm();
+			for (int i = 0; i < parsInf.rows.size(); i++) {
+				String value = parsInf.rows.get(i).get(ruleColumn);
+				if (value == null) {
+					String inf = "bad insert sql (sharding column:"
+							+ ruleColumn + " not provided," + stmt;
+					LOGGER.warn(inf);
+					throw new SQLNonTransientException(inf);
+				}
+				Integer nodeIndx = algorithm.calculate(value);
+				if (nodeIndx == null) {
+					throw new IllegalArgumentException(
+							"can't find datanode for sharding column:"
+									+ ruleColumn + " val:" + value);
+				}
+				String dataNode = ruleTC.getDataNodes().get(nodeIndx);
+				List<Integer> rows = nodeRows.get(dataNode);
+				if (rows == null) {
+					rows = new ArrayList<Integer>();
+					nodeRows.put(dataNode, rows);
+				}
+				rows.add(i);
+			}
+		}
+
+		List<List<RouteResultsetNode>> rounds = new ArrayList<List<RouteResultsetNode>>(
+				1);
+		for (Map.Entry<String, List<Integer>> entry : nodeRows.entrySet()) {
+			List<String> sqls = splitter.buildStatements(entry.getValue(),
+					sysConfig.getMaxInsertRows(), sysConfig.getMaxInsertBytes());
+			if (nodeRows.size() == 1 && sqls.size() == 1) {
+				// all rows in one node ,send the origin sql
+				return routeToSingleNode(rrs, entry.getKey(), stmt);
+			}
+			for (int i = 0; i < sqls.size(); i++) {
+				if (rounds.size() <= i) {
+					rounds.add(new ArrayList<RouteResultsetNode>(nodeRows
+							.size()));
+				}
+				rounds.get(i).add(
+						new RouteResultsetNode(entry.getKey(), rrs
+								.getSqlType(), sqls.get(i)));
+			}
+		}
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("multi rows insert split to " + nodeRows.size()
+					+ " nodes ," + rounds.size() + " rounds ,sql:" + stmt);
+		}
+		rrs.setNodes(rounds.get(0).toArray(
+				new RouteResultsetNode[rounds.get(0).size()]));
+		if (rounds.size() > 1) {
+			List<RouteResultsetNode[]> nextRounds = new ArrayList<RouteResultsetNode[]>(
+					rounds.size() - 1);
+			for (List<RouteResultsetNode> round : rounds.subList(1,
+					rounds.size())) {
+				nextRounds.add(round.toArray(new RouteResultsetNode[round
+						.size()]));
+			}
+			rrs.setNextRounds(nextRounds);
+		}
+		return rrs;
+	}
+
 	/**
 	 * 根据 ER分片规则获取路由集合
 	 * 
@@ -652,6 +822,11 @@ public final class ServerRouterUtil {
 		Set<String> dataNodeSet = ruleCalculate(tc, ruleCol2Val);
 		if (dataNodeSet.size() == 1) {
 			rrs.setCacheAble(isSelect);
+			if (isSelect && ruleCol2Val.size() == 1) {
+				// for route cache of the sql shape
+				rrs.setPartitionValue(tc.getName(),
+						ruleCol2Val.iterator().next().colValue);
+			}
 			return routeToSingleNode(rrs, dataNodeSet.iterator().next(), sql);
 		} else {
 			return routeToMultiNode(schema, isSelect, isSelect, ast, rrs,
@@ -923,6 +1098,18 @@ public final class ServerRouterUtil {
 
 	}
 
+	/**
+	 * route child table insert to the node found by parent lookup
+	 */
+	public static RouteResultset routeToParentNode(RouteResultset rrs,
+			String dataNode) {
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("found partion node for child table to insert "
+					+ dataNode + " sql :" + rrs.getStatement());
+		}
+		return routeToSingleNode(rrs, dataNode, rrs.getStatement());
+	}
+
 	/**
 	 * 获取第一个节点作为路由
 	 * 
@@ -1066,7 +1253,9 @@ public final class ServerRouterUtil {
 		AbstractPartionAlgorithm algorithm = rule.getRuleAlgorithm();
 		for (ColumnRoutePair colPair : colRoutePairSet) {
 			if (colPair.colValue != null) {
-				Integer nodeIndx = algorithm.calculate(colPair.colValue);
+				Integer nodeIndx = colPair.isLong ? algorithm
+						.calculate(colPair.longValue) : algorithm
+						.calculate(colPair.colValue);
 				if (nodeIndx == null) {
 					throw new IllegalArgumentException(
 							"can't find datanode for sharding column:" + col
@@ -1077,7 +1266,7 @@ public final class ServerRouterUtil {
 					colPair.setNodeId(nodeIndx);
 				}
 			} else if (colPair.rangeValue != null) {
-				Integer[] nodeRange = algorithm.calculateRange(
+				int[] nodeRange = algorithm.calculateRangeNodes(
 						String.valueOf(colPair.rangeValue.beginValue),
 						String.valueOf(colPair.rangeValue.endValue));
 				if (nodeRange != null) {
@@ -1088,10 +1277,12 @@ public final class ServerRouterUtil {
 						routeNodeSet.addAll(tc.getDataNodes());
 					} else {
 						ArrayList<String> dataNodes = tc.getDataNodes();
-						String dataNode = null;
-						for (Integer nodeId : nodeRange) {
-							dataNode = dataNodes.get(nodeId);
-							routeNodeSet.add(dataNode);
+						for (int w = 0; w < nodeRange.length; w++) {
+							for (int word = nodeRange[w]; word != 0; word &= word - 1) {
+								int nodeId = (w << 5)
+										+ Integer.numberOfTrailingZeros(word);
+								routeNodeSet.add(dataNodes.get(nodeId));
+							}
 						}
 					}
 				}
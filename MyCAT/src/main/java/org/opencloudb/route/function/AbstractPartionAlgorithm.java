@@ -24,6 +24,74 @@ public abstract class AbstractPartionAlgorithm implements RuleAlgorithm {
 	public Integer[] calculateRange(String beginValue, String endValue) {
 		return new Integer[0];
 	}
+
+	@Override
+	public Integer calculate(long columnValue) {
+		return calculate(String.valueOf(columnValue));
+	}
+
+	/**
+	 * 同calculateRange ,结果为节点位图 ,第i个节点为bitmap[i>>>5]的第(i&31)位
+	 * 返回长度为0的数组表示所有节点都被路由 ,返回null表示没有节点被路由到
+	 */
+	public int[] calculateRangeNodes(String beginValue, String endValue) {
+		return toNodeBitmap(calculateRange(beginValue, endValue));
+	}
+
+	public static int[] newNodeBitmap(int maxNode) {
+		return new int[(maxNode >>> 5) + 1];
+	}
+
+	public static void setNode(int[] bitmap, int node) {
+		bitmap[node >>> 5] |= 1 << (node & 31);
+	}
+
+	public static boolean hasNode(int[] bitmap, int node) {
+		return (node >>> 5) < bitmap.length
+				&& (bitmap[node >>> 5] & (1 << (node & 31))) != 0;
+	}
+
+	/**
+	 * node index array to bitmap ,keep the meaning of null and empty array
+	 */
+	public static int[] toNodeBitmap(Integer[] nodes) {
+		if (nodes == null || nodes.length == 0) {
+			return (nodes == null) ? null : new int[0];
+		}
+		int maxNode = 0;
+		for (Integer node : nodes) {
+			maxNode = Math.max(maxNode, node);
+		}
+		int[] bitmap = newNodeBitmap(maxNode);
+		for (Integer node : nodes) {
+			setNode(bitmap, node);
+		}
+		return bitmap;
+	}
+
+	/**
+	 * bitmap to node index array ,keep the meaning of null and empty array
+	 */
+	public static Integer[] toNodeArray(int[] bitmap) {
+		if (bitmap == null || bitmap.length == 0) {
+			return (bitmap == null) ? null : new Integer[0];
+		}
+		int count = 0;
+		for (int word : bitmap) {
+			count += Integer.bitCount(word);
+		}
+		if (count == 0) {
+			return null;
+		}
+		Integer[] nodes = new Integer[count];
+		int i = 0;
+		for (int w = 0; w < bitmap.length; w++) {
+			for (int word = bitmap[w]; word != 0; word &= word - 1) {
+				nodes[i++] = (w << 5) + Integer.numberOfTrailingZeros(word);
+			}
+		}
+		return nodes;
+	}
 	
 	/**
 	 * 对于存储数据按顺序存放的字段做范围路由，可以使用这个函数
@@ -26,7 +26,8 @@ package org.opencloudb.route.function;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.opencloudb.config.model.rule.RuleAlgorithm;
 
@@ -38,7 +39,8 @@ import org.opencloudb.config.model.rule.RuleAlgorithm;
 public class AutoPartitionByLong extends AbstractPartionAlgorithm implements RuleAlgorithm{
 
 	private String mapFile;
-	private LongRange[] longRongs;
+	// ranges sorted for binary search
+	private LongRangeIndex rangeIndex;
 
 	@Override
 	public void init() {
@@ -52,19 +54,31 @@ public class AutoPartitionByLong extends AbstractPartionAlgorithm implements Rul
 
 	@Override
 	public Integer calculate(String columnValue) {
-		long value = Long.valueOf(columnValue);
-		Integer rst = null;
-		for (LongRange longRang : this.longRongs) {
-			if (value <= longRang.valueEnd && value >= longRang.valueStart) {
-				return longRang.nodeIndx;
-			}
-		}
-		return rst;
+		return calculate(Long.parseLong(columnValue));
+	}
+
+	@Override
+	public Integer calculate(long columnValue) {
+		int node = rangeIndex.find(columnValue);
+		return (node < 0) ? null : node;
 	}
-	
+
 	@Override
 	public Integer[] calculateRange(String beginValue, String endValue) {
-		return AbstractPartionAlgorithm.calculateSequenceRange(this, beginValue, endValue);
+		return toNodeArray(calculateRangeNodes(beginValue, endValue));
+	}
+
+	/**
+	 * nodes of all ranges intersect [beginValue,endValue]
+	 */
+	@Override
+	public int[] calculateRangeNodes(String beginValue, String endValue) {
+		int[] bitmap = newNodeBitmap(Math.max(0, rangeIndex.getMaxNode()));
+		if (rangeIndex.fill(Long.parseLong(beginValue),
+				Long.parseLong(endValue), bitmap) == 0) {
+			return null;
+		}
+		return bitmap;
 	}
 
 	private void initialize() {
@@ -78,7 +92,7 @@ public class AutoPartitionByLong extends AbstractPartionAlgorithm implements Rul
 						+ mapFile);
 			}
 			in = new BufferedReader(new InputStreamReader(fin));
-			LinkedList<LongRange> longRangeList = new LinkedList<LongRange>();
+			List<long[]> rangeList = new ArrayList<long[]>();
 
 			for (String line = null; (line = in.readLine()) != null;) {
 				line = line.trim();
@@ -96,14 +110,12 @@ public class AutoPartitionByLong extends AbstractPartionAlgorithm implements Rul
 					long longEnd = NumberParseUtil.parseLong(pairs[1].trim());
 					int nodeId = Integer.parseInt(line.substring(ind + 1)
 							.trim());
-					longRangeList
-							.add(new LongRange(nodeId, longStart, longEnd));
+					rangeList.add(new long[] { longStart, longEnd, nodeId });
 
 				} catch (Exception e) {
 				}
 			}
-			longRongs = longRangeList.toArray(new LongRange[longRangeList
-					.size()]);
+			rangeIndex = LongRangeIndex.build(rangeList);
 		} catch (Exception e) {
 			if (e instanceof RuntimeException) {
 				throw (RuntimeException) e;
@@ -118,18 +130,4 @@ public class AutoPartitionByLong extends AbstractPartionAlgorithm implements Rul
 			}
 		}
 	}
-
-	static class LongRange {
-		public final int nodeIndx;
-		public final long valueStart;
-		public final long valueEnd;
-
-		public LongRange(int nodeIndx, long valueStart, long valueEnd) {
-			super();
-			this.nodeIndx = nodeIndx;
-			this.valueStart = valueStart;
-			this.valueEnd = valueEnd;
-		}
-
-	}
 }
\ No newline at end of file
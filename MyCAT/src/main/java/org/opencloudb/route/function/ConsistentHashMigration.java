@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.route.function;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * hash ranges of keys moved between nodes when the config of
+ * PartitionByMurmurHash changed (nodes added ,weights changed) ,data of a
+ * range should be moved from the old node to the new node. hash of a key is
+ * PartitionByMurmurHash.hash(key).
+ * 
+ * <pre>
+ * usage: ConsistentHashMigration old.properties new.properties
+ * properties: count ,virtualBucketTimes ,seed ,weightMapFile (class resource)
+ * </pre>
+ * 
+ * @author mycat
+ */
+public final class ConsistentHashMigration {
+	private static final double HASH_SPACE = 4294967296.0;
+
+	private ConsistentHashMigration() {
+	}
+
+	/**
+	 * hash range [start,end] moved from node to node
+	 */
+	public static final class MovedRange {
+		public final int start;
+		public final int end;
+		public final int fromNode;
+		public final int toNode;
+
+		public MovedRange(int start, int end, int fromNode, int toNode) {
+			this.start = start;
+			this.end = end;
+			this.fromNode = fromNode;
+			this.toNode = toNode;
+		}
+
+		public boolean contains(int hash) {
+			return hash >= start && hash <= end;
+		}
+
+		/**
+		 * part of all keys in the range
+		 */
+		public double fraction() {
+			return ((long) end - start + 1) / HASH_SPACE;
+		}
+
+		@Override
+		public String toString() {
+			return "[" + start + "," + end + "] " + fromNode + " -> "
+					+ toNode;
+		}
+	}
+
+	/**
+	 * ranges moved ,ordered by hash
+	 */
+	public static List<MovedRange> diff(PartitionByMurmurHash from,
+			PartitionByMurmurHash to) {
+		if (from.getSeed() != to.getSeed()) {
+			throw new IllegalArgumentException(
+					"seed changed ,every key may move");
+		}
+		int[] points = union(from.getBucketHashes(), to.getBucketHashes());
+		List<MovedRange> moved = new ArrayList<MovedRange>();
+		if (points.length == 0) {
+			return moved;
+		}
+		// keys larger than all buckets wrap to the first bucket
+		int wrapFrom = from.nodeOfHash(points[0]);
+		int wrapTo = to.nodeOfHash(points[0]);
+		if (wrapFrom != wrapTo) {
+			add(moved, Integer.MIN_VALUE, points[0], wrapFrom, wrapTo);
+		}
+		for (int i = 1; i < points.length; i++) {
+			int fromNode = from.nodeOfHash(points[i]);
+			int toNode = to.nodeOfHash(points[i]);
+			if (fromNode != toNode) {
+				add(moved, points[i - 1] + 1, points[i], fromNode, toNode);
+			}
+		}
+		int last = points[points.length - 1];
+		if (wrapFrom != wrapTo && last != Integer.MAX_VALUE) {
+			add(moved, last + 1, Integer.MAX_VALUE, wrapFrom, wrapTo);
+		}
+		return moved;
+	}
+
+	private static void add(List<MovedRange> moved, int start, int end,
+			int fromNode, int toNode) {
+		if (!moved.isEmpty()) {
+			MovedRange prev = moved.get(moved.size() - 1);
+			if (prev.fromNode == fromNode && prev.toNode == toNode
+					&& prev.end + 1 == start) {
+				moved.set(moved.size() - 1, new MovedRange(prev.start, end,
+						fromNode, toNode));
+				return;
+			}
+		}
+		moved.add(new MovedRange(start, end, fromNode, toNode));
+	}
+
+	/**
+	 * sorted distinct values of two sorted arrays
+	 */
+	private static int[] union(int[] a, int[] b) {
+		int[] result = new int[a.length + b.length];
+		int i = 0, j = 0, n = 0;
+		while (i < a.length || j < b.length) {
+			int v;
+			if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+				v = a[i++];
+			} else {
+				v = b[j++];
+			}
+			if (n == 0 || result[n - 1] != v) {
+				result[n++] = v;
+			}
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * part of keys moved from node to node ,key is "from -> to"
+	 */
+	public static Map<String, Double> summary(List<MovedRange> moved) {
+		Map<String, Double> summary = new LinkedHashMap<String, Double>();
+		for (MovedRange range : moved) {
+			String key = range.fromNode + " -> " + range.toNode;
+			Double fraction = summary.get(key);
+			summary.put(key, (fraction == null ? 0 : fraction)
+					+ range.fraction());
+		}
+		return summary;
+	}
+
+	private static PartitionByMurmurHash load(String file) throws IOException {
+		Properties props = new Properties();
+		InputStream in = new FileInputStream(file);
+		try {
+			props.load(in);
+		} finally {
+			in.close();
+		}
+		PartitionByMurmurHash function = new PartitionByMurmurHash();
+		function.setCount(Integer.parseInt(props.getProperty("count").trim()));
+		if (props.getProperty("virtualBucketTimes") != null) {
+			function.setVirtualBucketTimes(Integer.parseInt(props.getProperty(
+					"virtualBucketTimes").trim()));
+		}
+		if (props.getProperty("seed") != null) {
+			function.setSeed(Integer.parseInt(props.getProperty("seed").trim()));
+		}
+		if (props.getProperty("weightMapFile") != null) {
+			function.setWeightMapFile(props.getProperty("weightMapFile").trim());
+		}
+		function.init();
+		return function;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out
+					.println("usage: ConsistentHashMigration old.properties new.properties");
+			return;
+		}
+		List<MovedRange> moved = diff(load(args[0]), load(args[1]));
+		for (MovedRange range : moved) {
+			System.out.println(range);
+		}
+		double total = 0;
+		for (Map.Entry<String, Double> entry : summary(moved).entrySet()) {
+			System.out.println(String.format("%s : %.4f%%", entry.getKey(),
+					entry.getValue() * 100));
+			total += entry.getValue();
+		}
+		System.out.println(String.format("ranges %d ,keys moved %.4f%%",
+				moved.size(), total * 100));
+	}
+}
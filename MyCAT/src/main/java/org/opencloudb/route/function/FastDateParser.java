@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.route.function;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * thread safe date parser of a fixed format ,patterns of yyyy MM dd HH mm ss
+ * SSS and non letter chars are parsed by scanning the chars without any
+ * allocation ,other patterns are parsed by a SimpleDateFormat of each thread.
+ * the result is millis of the local date time counted as UTC ,so that a day
+ * is always 86400000 millis. text after the pattern is ignored as
+ * SimpleDateFormat.parse(String).
+ * 
+ * @author mycat
+ */
+public final class FastDateParser {
+	public static final long ONE_DAY = 86400000L;
+	private static final String FAST_LETTERS = "yMdHmsS";
+
+	private final String pattern;
+	// fast path tokens ,letter of field or 0 for literal char
+	private final char[] tokenFields;
+	private final int[] tokenWidths;
+	// field followed by another number field must have fixed width
+	private final boolean[] tokenFixed;
+	private final char[] literals;
+	private final ThreadLocal<SimpleDateFormat> formats;
+
+	public FastDateParser(String pattern) {
+		this.pattern = pattern;
+		List<int[]> tokens = compile(pattern);
+		if (tokens == null) {
+			tokenFields = null;
+			tokenWidths = null;
+			tokenFixed = null;
+			literals = null;
+			formats = new ThreadLocal<SimpleDateFormat>() {
+				@Override
+				protected SimpleDateFormat initialValue() {
+					SimpleDateFormat format = new SimpleDateFormat(
+							FastDateParser.this.pattern);
+					format.setTimeZone(TimeZone.getTimeZone("UTC"));
+					return format;
+				}
+			};
+			// pattern error at once
+			formats.get();
+		} else {
+			int size = tokens.size();
+			tokenFields = new char[size];
+			tokenWidths = new int[size];
+			tokenFixed = new boolean[size];
+			literals = new char[size];
+			for (int i = 0; i < size; i++) {
+				int[] token = tokens.get(i);
+				tokenFields[i] = (char) token[0];
+				tokenWidths[i] = token[1];
+				literals[i] = (char) token[2];
+				tokenFixed[i] = tokenFields[i] != 0 && i + 1 < size
+						&& tokens.get(i + 1)[0] != 0;
+			}
+			formats = null;
+		}
+	}
+
+	/**
+	 * tokens of {field ,width ,literal} ,null if not supported by fast path
+	 */
+	private static List<int[]> compile(String pattern) {
+		List<int[]> tokens = new ArrayList<int[]>();
+		for (int i = 0; i < pattern.length();) {
+			char c = pattern.charAt(i);
+			if (c == '\'') {
+				return null;
+			} else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+				int j = i;
+				while (j < pattern.length() && pattern.charAt(j) == c) {
+					j++;
+				}
+				int width = j - i;
+				if (FAST_LETTERS.indexOf(c) < 0) {
+					return null;
+				}
+				boolean valid = (c == 'y') ? width == 4 : (c == 'S') ? width == 3
+						: width == 2;
+				if (!valid) {
+					return null;
+				}
+				tokens.add(new int[] { c, width, 0 });
+				i = j;
+			} else {
+				tokens.add(new int[] { 0, 0, c });
+				i++;
+			}
+		}
+		return tokens;
+	}
+
+	public String getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * @return millis of the local date time counted as UTC
+	 * @throws IllegalArgumentException
+	 *             if value not match the pattern
+	 */
+	public long parse(String value) {
+		if (tokenFields == null) {
+			ParsePosition pos = new ParsePosition(0);
+			Date date = formats.get().parse(value, pos);
+			if (date == null) {
+				throw badValue(value);
+			}
+			return date.getTime();
+		}
+		int year = 1970, month = 1, day = 1, hour = 0, minute = 0, second = 0, millis = 0;
+		int p = 0;
+		int length = value.length();
+		for (int t = 0; t < tokenFields.length; t++) {
+			char field = tokenFields[t];
+			if (field == 0) {
+				if (p >= length || value.charAt(p) != literals[t]) {
+					throw badValue(value);
+				}
+				p++;
+				continue;
+			}
+			int maxWidth = tokenFixed[t] ? tokenWidths[t] : 9;
+			int num = 0;
+			int start = p;
+			while (p < length && p - start < maxWidth) {
+				char c = value.charAt(p);
+				if (c < '0' || c > '9') {
+					break;
+				}
+				num = num * 10 + (c - '0');
+				p++;
+			}
+			if (p == start || (tokenFixed[t] && p - start != tokenWidths[t])) {
+				throw badValue(value);
+			}
+			switch (field) {
+			case 'y':
+				year = num;
+				break;
+			case 'M':
+				month = num;
+				break;
+			case 'd':
+				day = num;
+				break;
+			case 'H':
+				hour = num;
+				break;
+			case 'm':
+				minute = num;
+				break;
+			case 's':
+				second = num;
+				break;
+			default:
+				millis = num;
+			}
+		}
+		if (month < 1 || month > 12) {
+			throw badValue(value);
+		}
+		// day ,hour... out of range are added as lenient SimpleDateFormat
+		return (daysFromCivil(year, month, 1) + day - 1) * ONE_DAY + hour
+				* 3600000L + minute * 60000L + second * 1000L + millis;
+	}
+
+	private IllegalArgumentException badValue(String value) {
+		return new IllegalArgumentException("can't parse date value '"
+				+ value + "' by format " + pattern);
+	}
+
+	/**
+	 * days from 1970-01-01 of the date of proleptic gregorian calendar
+	 */
+	public static long daysFromCivil(int year, int month, int day) {
+		long y = (month <= 2) ? year - 1 : year;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yoe = y - era * 400;
+		long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097 + doe - 719468;
+	}
+
+	/**
+	 * months from 1970-01 of the millis returned by parse
+	 */
+	public static long monthOf(long millis) {
+		long days = floorDiv(millis, ONE_DAY);
+		long z = days + 719468;
+		long era = (z >= 0 ? z : z - 146096) / 146097;
+		long doe = z - era * 146097;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		long month = mp < 10 ? mp + 3 : mp - 9;
+		long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+		return (year - 1970) * 12 + month - 1;
+	}
+
+	/**
+	 * millis of the first day of month returned by monthOf
+	 */
+	public static long monthStart(long month) {
+		long year = 1970 + floorDiv(month, 12);
+		int monthOfYear = (int) (month - (year - 1970) * 12) + 1;
+		return daysFromCivil((int) year, monthOfYear, 1) * ONE_DAY;
+	}
+
+	public static long floorDiv(long x, long y) {
+		long r = x / y;
+		if ((x % y != 0) && ((x ^ y) < 0)) {
+			r--;
+		}
+		return r;
+	}
+}
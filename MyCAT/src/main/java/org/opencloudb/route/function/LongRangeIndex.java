@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.route.function;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * ranges of map file (start-end=node) compiled to sorted disjoint segments
+ * ,value is found by binary search. if ranges overlap ,the one defined first
+ * in file wins ,same as scanning the ranges in file order.
+ * 
+ * @author wuzhih
+ */
+public final class LongRangeIndex {
+	// segment i is [starts[i],ends[i]] of node nodes[i] ,sorted by start
+	private final long[] starts;
+	private final long[] ends;
+	private final int[] nodes;
+	private final int maxNode;
+
+	/**
+	 * @param rangeStarts
+	 *            start of ranges in file order
+	 * @param rangeEnds
+	 *            end of ranges (inclusive)
+	 * @param rangeNodes
+	 *            node index of ranges
+	 */
+	public LongRangeIndex(long[] rangeStarts, long[] rangeEnds,
+			int[] rangeNodes) {
+		int count = rangeStarts.length;
+		// boundaries ,a range covers [start ,end+1)
+		TreeSet<Long> points = new TreeSet<Long>();
+		List<List<Integer>> adds = new ArrayList<List<Integer>>();
+		for (int i = 0; i < count; i++) {
+			if (rangeStarts[i] > rangeEnds[i]) {
+				continue;
+			}
+			points.add(rangeStarts[i]);
+			if (rangeEnds[i] != Long.MAX_VALUE) {
+				points.add(rangeEnds[i] + 1);
+			}
+		}
+		long[] pointArray = new long[points.size()];
+		int n = 0;
+		for (Long point : points) {
+			pointArray[n++] = point;
+			adds.add(null);
+		}
+		List<List<Integer>> removes = new ArrayList<List<Integer>>(adds);
+		for (int i = 0; i < count; i++) {
+			if (rangeStarts[i] > rangeEnds[i]) {
+				continue;
+			}
+			addEvent(adds, Arrays.binarySearch(pointArray, rangeStarts[i]), i);
+			if (rangeEnds[i] != Long.MAX_VALUE) {
+				addEvent(removes,
+						Arrays.binarySearch(pointArray, rangeEnds[i] + 1), i);
+			}
+		}
+		// sweep the points ,active ranges ordered by file position
+		TreeSet<Integer> actives = new TreeSet<Integer>();
+		long[] segStarts = new long[pointArray.length];
+		long[] segEnds = new long[pointArray.length];
+		int[] segNodes = new int[pointArray.length];
+		int segCount = 0;
+		int theMaxNode = -1;
+		for (int p = 0; p < pointArray.length; p++) {
+			if (removes.get(p) != null) {
+				actives.removeAll(removes.get(p));
+			}
+			if (adds.get(p) != null) {
+				actives.addAll(adds.get(p));
+			}
+			if (actives.isEmpty()) {
+				continue;
+			}
+			int node = rangeNodes[actives.first()];
+			long start = pointArray[p];
+			long end = (p + 1 < pointArray.length) ? pointArray[p + 1] - 1
+					: Long.MAX_VALUE;
+			if (segCount > 0 && segNodes[segCount - 1] == node
+					&& segEnds[segCount - 1] == start - 1) {
+				segEnds[segCount - 1] = end;
+			} else {
+				segStarts[segCount] = start;
+				segEnds[segCount] = end;
+				segNodes[segCount] = node;
+				segCount++;
+			}
+			theMaxNode = Math.max(theMaxNode, node);
+		}
+		this.starts = Arrays.copyOf(segStarts, segCount);
+		this.ends = Arrays.copyOf(segEnds, segCount);
+		this.nodes = Arrays.copyOf(segNodes, segCount);
+		this.maxNode = theMaxNode;
+	}
+
+	/**
+	 * @param rangeList
+	 *            {start,end,node} of ranges in file order
+	 */
+	public static LongRangeIndex build(List<long[]> rangeList) {
+		int size = rangeList.size();
+		long[] starts = new long[size];
+		long[] ends = new long[size];
+		int[] nodes = new int[size];
+		for (int i = 0; i < size; i++) {
+			long[] range = rangeList.get(i);
+			starts[i] = range[0];
+			ends[i] = range[1];
+			nodes[i] = (int) range[2];
+		}
+		return new LongRangeIndex(starts, ends, nodes);
+	}
+
+	private static void addEvent(List<List<Integer>> events, int point,
+			int range) {
+		List<Integer> list = events.get(point);
+		if (list == null) {
+			list = new ArrayList<Integer>(1);
+			events.set(point, list);
+		}
+		list.add(range);
+	}
+
+	/**
+	 * index of the segment contains value ,-1 if none
+	 */
+	private int segment(long value) {
+		int low = 0;
+		int high = starts.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (starts[mid] > value) {
+				high = mid - 1;
+			} else if (ends[mid] < value) {
+				low = mid + 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * node of the value ,-1 if not in any range
+	 */
+	public int find(long value) {
+		int seg = segment(value);
+		return (seg < 0) ? -1 : nodes[seg];
+	}
+
+	/**
+	 * set bits of nodes have values in [begin,end] to bitmap
+	 * 
+	 * @return count of segments matched
+	 */
+	public int fill(long begin, long end, int[] bitmap) {
+		if (begin > end) {
+			return 0;
+		}
+		// first segment ends at or after begin
+		int low = 0;
+		int high = starts.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (ends[mid] < begin) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		int matched = 0;
+		for (int i = low; i < starts.length && starts[i] <= end; i++) {
+			AbstractPartionAlgorithm.setNode(bitmap, nodes[i]);
+			matched++;
+		}
+		return matched;
+	}
+
+	/**
+	 * max node index of all ranges ,-1 if no range
+	 */
+	public int getMaxNode() {
+		return maxNode;
+	}
+
+	/**
+	 * count of disjoint segments
+	 */
+	public int size() {
+		return starts.length;
+	}
+
+}
@@ -1,59 +1,132 @@
 package org.opencloudb.route.function;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-
-import org.apache.log4j.Logger;
 import org.opencloudb.config.model.rule.RuleAlgorithm;
-import org.opencloudb.route.ServerRouterUtil;
 
 /**
  * 例子 按日期列分区  格式 between操作解析的范例
+ * 分区单位sPartionUnit可以是day(默认) ,week ,month ,每个分区sPartionDay个单位
+ * 可选partitionCount为分区(节点)数量 ,超出的日期找不到分区
  * 
  * @author lxy
  * 
  */
 public class PartionByDate extends AbstractPartionAlgorithm implements RuleAlgorithm {
-	private static final Logger LOGGER = Logger
-			.getLogger(ServerRouterUtil.class);
+	private static final String UNIT_DAY = "day";
+	private static final String UNIT_WEEK = "week";
+	private static final String UNIT_MONTH = "month";
+	// ranges over so many partitions go to all nodes if partitionCount not set
+	private static final int MAX_RANGE_PARTITIONS = 1024;
 
 	private String sBeginDate;
 	private String sPartionDay;
+	private String sPartionUnit = UNIT_DAY;
 	private String dateFormat;
+	// 0 if partitions are not limited
+	private int partitionCount;
 
+	private FastDateParser parser;
 	private long beginDate;
+	// millis of a partition ,for day and week
 	private long partionTime;
-	
-	private static final long oneDay = 86400000;
+	// months of a partition ,0 if not by month
+	private int partionMonths;
+	private long beginMonth;
+	// millis of begin date from start of begin month
+	private long beginMonthOffset;
 
 	@Override
 	public void init() {
-		try {
-			beginDate = new SimpleDateFormat(dateFormat).parse(sBeginDate)
-					.getTime();
-		} catch (ParseException e) {
-			e.printStackTrace();
+		parser = new FastDateParser(dateFormat);
+		beginDate = parser.parse(sBeginDate);
+		int count = Integer.parseInt(sPartionDay);
+		if (count <= 0) {
+			throw new IllegalArgumentException("sPartionDay must > 0 :"
+					+ sPartionDay);
+		}
+		if (UNIT_MONTH.equalsIgnoreCase(sPartionUnit)) {
+			partionMonths = count;
+			beginMonth = FastDateParser.monthOf(beginDate);
+			beginMonthOffset = beginDate
+					- FastDateParser.monthStart(beginMonth);
+		} else if (UNIT_WEEK.equalsIgnoreCase(sPartionUnit)) {
+			partionTime = count * 7 * FastDateParser.ONE_DAY;
+		} else if (UNIT_DAY.equalsIgnoreCase(sPartionUnit)) {
+			partionTime = count * FastDateParser.ONE_DAY;
+		} else {
+			throw new IllegalArgumentException("unknown sPartionUnit :"
+					+ sPartionUnit);
 		}
-		partionTime = Integer.parseInt(sPartionDay) * oneDay;
 	}
 
+	/**
+	 * @throws IllegalArgumentException
+	 *             if value not match the date format
+	 */
 	@Override
 	public Integer calculate(String columnValue) {
-		try {
-			long targetTime = new SimpleDateFormat(dateFormat).parse(
-					columnValue).getTime();
-			int targetPartition = (int) ((targetTime - beginDate) / partionTime);
-			return targetPartition;
+		long partition = partitionOf(parser.parse(columnValue));
+		if (partition < 0
+				|| (partitionCount > 0 && partition >= partitionCount)) {
+			return null;
+		}
+		return (int) partition;
+	}
 
-		} catch (ParseException e) {
-			LOGGER.error("date partion rule wrong", e);
+	/**
+	 * partition of the parsed time ,negative if before begin date
+	 */
+	private long partitionOf(long targetTime) {
+		if (targetTime < beginDate) {
+			return -1;
+		}
+		if (partionMonths > 0) {
+			long month = FastDateParser.monthOf(targetTime);
+			long months = month - beginMonth;
+			if (targetTime - FastDateParser.monthStart(month) < beginMonthOffset) {
+				// not reach the day of month of begin date
+				months--;
+			}
+			return months / partionMonths;
 		}
-		return null;
+		return (targetTime - beginDate) / partionTime;
 	}
 
 	@Override
 	public Integer[] calculateRange(String beginValue, String endValue) {
-		return AbstractPartionAlgorithm.calculateSequenceRange(this, beginValue, endValue);
+		return toNodeArray(calculateRangeNodes(beginValue, endValue));
+	}
+
+	/**
+	 * partitions between the two dates ,all nodes if not dates
+	 */
+	@Override
+	public int[] calculateRangeNodes(String beginValue, String endValue) {
+		long begin;
+		long end;
+		try {
+			begin = parser.parse(beginValue);
+			end = parser.parse(endValue);
+		} catch (IllegalArgumentException e) {
+			return new int[0];
+		}
+		if (begin > end || end < beginDate) {
+			return null;
+		}
+		long first = Math.max(0, partitionOf(Math.max(begin, beginDate)));
+		long last = partitionOf(end);
+		if (partitionCount > 0) {
+			last = Math.min(last, partitionCount - 1);
+			if (first > last) {
+				return null;
+			}
+		} else if (last - first >= MAX_RANGE_PARTITIONS) {
+			return new int[0];
+		}
+		int[] bitmap = newNodeBitmap((int) last);
+		for (long i = first; i <= last; i++) {
+			setNode(bitmap, (int) i);
+		}
+		return bitmap;
 	}
 
 	public void setsBeginDate(String sBeginDate) {
@@ -64,8 +137,16 @@ public class PartionByDate extends AbstractPartionAlgorithm implements RuleAlgor
 		this.sPartionDay = sPartionDay;
 	}
 
+	public void setsPartionUnit(String sPartionUnit) {
+		this.sPartionUnit = sPartionUnit;
+	}
+
 	public void setDateFormat(String dateFormat) {
 		this.dateFormat = dateFormat;
 	}
 
+	public void setPartitionCount(String partitionCount) {
+		this.partitionCount = Integer.parseInt(partitionCount);
+	}
+
 }
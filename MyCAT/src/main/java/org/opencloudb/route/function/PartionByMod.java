@@ -54,4 +54,10 @@ public class PartionByMod extends AbstractPartionAlgorithm implements RuleAlgori
 	 return (bigNum.mod(BigInteger.valueOf(count))).intValue();
 	}
 
+	@Override
+	public Integer calculate(long columnValue) {
+		// same as |value| mod count
+		return (int) Math.abs(columnValue % count);
+	}
+
 }
\ No newline at end of file
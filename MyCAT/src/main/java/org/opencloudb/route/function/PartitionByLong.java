@@ -59,6 +59,11 @@ public final class PartitionByLong extends AbstractPartionAlgorithm implements R
 		long key = Long.parseLong(columnValue);
 		return partitionUtil.partition(key);
 	}
+
+	@Override
+	public Integer calculate(long columnValue) {
+		return partitionUtil.partition(columnValue);
+	}
 	
 	@Override
 	public Integer[] calculateRange(String beginValue, String endValue) {
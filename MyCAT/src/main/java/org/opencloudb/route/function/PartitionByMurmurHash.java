@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.route.function;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.opencloudb.config.model.rule.RuleAlgorithm;
+import org.opencloudb.route.util.MurmurHash3;
+
+/**
+ * consistent hash by murmur3 ,every node has virtualBucketTimes*weight
+ * virtual buckets on the ring ,a key belongs to the first bucket whose hash
+ * >= hash of the key. adding a node only moves keys of the buckets taken by
+ * the new node ,see ConsistentHashMigration.
+ * 
+ * @author mycat
+ */
+public class PartitionByMurmurHash extends AbstractPartionAlgorithm implements RuleAlgorithm {
+	private static final int DEFAULT_VIRTUAL_BUCKET_TIMES = 160;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private int seed;
+	private int count;
+	private int virtualBucketTimes = DEFAULT_VIRTUAL_BUCKET_TIMES;
+	// node index=weight ,weight of node not in file is 1
+	private String weightMapFile;
+	private Map<Integer, Integer> weights;
+
+	// sorted hash of buckets and the node of bucket
+	private int[] bucketHashes;
+	private int[] bucketNodes;
+
+	@Override
+	public void init() {
+		if (count <= 0) {
+			throw new IllegalArgumentException("count must > 0 :" + count);
+		}
+		if (virtualBucketTimes <= 0) {
+			throw new IllegalArgumentException("virtualBucketTimes must > 0 :"
+					+ virtualBucketTimes);
+		}
+		weights = (weightMapFile == null) ? new HashMap<Integer, Integer>()
+				: loadWeights(weightMapFile);
+		buildRing();
+	}
+
+	private void buildRing() {
+		int total = 0;
+		for (int node = 0; node < count; node++) {
+			total += virtualBucketTimes * getWeight(node);
+		}
+		// hash in high 32 bits ,node in low 32 bits ,sorted as signed hash
+		long[] buckets = new long[total];
+		int n = 0;
+		for (int node = 0; node < count; node++) {
+			int bucketCount = virtualBucketTimes * getWeight(node);
+			for (int i = 0; i < bucketCount; i++) {
+				int hash = hash("SHARD-" + node + "-NODE-" + i);
+				buckets[n++] = ((long) hash << 32) | node;
+			}
+		}
+		Arrays.sort(buckets);
+		int[] hashes = new int[total];
+		int[] nodes = new int[total];
+		int size = 0;
+		for (long bucket : buckets) {
+			int hash = (int) (bucket >> 32);
+			// the same hash of two buckets ,the lower node wins
+			if (size > 0 && hashes[size - 1] == hash) {
+				continue;
+			}
+			hashes[size] = hash;
+			nodes[size] = (int) bucket;
+			size++;
+		}
+		bucketHashes = Arrays.copyOf(hashes, size);
+		bucketNodes = Arrays.copyOf(nodes, size);
+	}
+
+	private Map<Integer, Integer> loadWeights(String file) {
+		Map<Integer, Integer> theWeights = new HashMap<Integer, Integer>();
+		BufferedReader in = null;
+		try {
+			InputStream fin = this.getClass().getClassLoader()
+					.getResourceAsStream(file);
+			if (fin == null) {
+				throw new RuntimeException("can't find class resource file "
+						+ file);
+			}
+			in = new BufferedReader(new InputStreamReader(fin));
+			for (String line = null; (line = in.readLine()) != null;) {
+				line = line.trim();
+				if (line.startsWith("#") || line.startsWith("//"))
+					continue;
+				int ind = line.indexOf('=');
+				if (ind < 0)
+					continue;
+				int node = Integer.parseInt(line.substring(0, ind).trim());
+				int weight = Integer.parseInt(line.substring(ind + 1).trim());
+				if (weight <= 0) {
+					throw new IllegalArgumentException("weight must > 0 :"
+							+ line);
+				}
+				theWeights.put(node, weight);
+			}
+		} catch (Exception e) {
+			if (e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			} else {
+				throw new RuntimeException(e);
+			}
+		} finally {
+			try {
+				in.close();
+			} catch (Exception e2) {
+			}
+		}
+		return theWeights;
+	}
+
+	public int hash(String columnValue) {
+		return MurmurHash3.hash32(columnValue.getBytes(UTF8), seed);
+	}
+
+	@Override
+	public Integer calculate(String columnValue) {
+		return bucketNodes[bucketOf(hash(columnValue))];
+	}
+
+	/**
+	 * index of the first bucket whose hash >= the hash ,wrap to the first
+	 * bucket
+	 */
+	int bucketOf(int hash) {
+		int ind = Arrays.binarySearch(bucketHashes, hash);
+		if (ind < 0) {
+			ind = -ind - 1;
+			if (ind == bucketHashes.length) {
+				ind = 0;
+			}
+		}
+		return ind;
+	}
+
+	/**
+	 * node of the key whose hash is the value
+	 */
+	public int nodeOfHash(int hash) {
+		return bucketNodes[bucketOf(hash)];
+	}
+
+	/**
+	 * sorted hash of all buckets
+	 */
+	public int[] getBucketHashes() {
+		return bucketHashes.clone();
+	}
+
+	public int getWeight(int node) {
+		Integer weight = weights.get(node);
+		return (weight == null) ? 1 : weight;
+	}
+
+	public int getSeed() {
+		return seed;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public void setSeed(int seed) {
+		this.seed = seed;
+	}
+
+	public void setCount(int count) {
+		this.count = count;
+	}
+
+	public void setVirtualBucketTimes(int virtualBucketTimes) {
+		this.virtualBucketTimes = virtualBucketTimes;
+	}
+
+	public void setWeightMapFile(String weightMapFile) {
+		this.weightMapFile = weightMapFile;
+	}
+}
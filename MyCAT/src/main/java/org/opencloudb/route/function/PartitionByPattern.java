@@ -26,7 +26,8 @@ package org.opencloudb.route.function;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import org.opencloudb.config.model.rule.RuleAlgorithm;
@@ -38,9 +39,11 @@ import org.opencloudb.config.model.rule.RuleAlgorithm;
  */
 public class PartitionByPattern extends AbstractPartionAlgorithm implements RuleAlgorithm {
 	private static final int PARTITION_LENGTH = 1024;
+	private static final Pattern NUMERIC = Pattern.compile("[0-9]+");
 	private int patternValue = PARTITION_LENGTH;// 分区长度，取模数值
 	private String mapFile;
-	private LongRange[] longRongs;
+	// ranges of value % patternValue ,sorted for binary search
+	private LongRangeIndex rangeIndex;
 	private int defaultNode = 0;// 包含非数值字符，默认存储节点
 
 	@Override
@@ -66,20 +69,58 @@ public class PartitionByPattern extends AbstractPartionAlgorithm implements Rule
 		if (!isNumeric(columnValue)) {
 			return defaultNode;
 		}
-		long value = Long.valueOf(columnValue);
-		Integer rst = null;
-		for (LongRange longRang : this.longRongs) {
-			long hash = value % patternValue;
-			if (hash <= longRang.valueEnd && hash >= longRang.valueStart) {
-				return longRang.nodeIndx;
+		return calculate(Long.parseLong(columnValue));
+	}
+
+	@Override
+	public Integer calculate(long columnValue) {
+		if (columnValue < 0) {
+			return defaultNode;
+		}
+		int node = rangeIndex.find(columnValue % patternValue);
+		return (node < 0) ? null : node;
+	}
+
+	@Override
+	public Integer[] calculateRange(String beginValue, String endValue) {
+		return toNodeArray(calculateRangeNodes(beginValue, endValue));
+	}
+
+	/**
+	 * nodes of the hash values of [beginValue,endValue] ,all nodes if not
+	 * numeric
+	 */
+	@Override
+	public int[] calculateRangeNodes(String beginValue, String endValue) {
+		if (!isNumeric(beginValue) || !isNumeric(endValue)) {
+			return new int[0];
+		}
+		long begin = Long.parseLong(beginValue);
+		long end = Long.parseLong(endValue);
+		if (begin > end) {
+			return null;
+		}
+		int[] bitmap = newNodeBitmap(Math.max(defaultNode,
+				Math.max(0, rangeIndex.getMaxNode())));
+		int matched;
+		if (end - begin >= patternValue - 1) {
+			matched = rangeIndex.fill(0, patternValue - 1, bitmap);
+		} else {
+			long hashBegin = begin % patternValue;
+			long hashEnd = end % patternValue;
+			if (hashBegin <= hashEnd) {
+				matched = rangeIndex.fill(hashBegin, hashEnd, bitmap);
+			} else {
+				// wrapped
+				matched = rangeIndex.fill(hashBegin, patternValue - 1, bitmap)
+						+ rangeIndex.fill(0, hashEnd, bitmap);
 			}
 		}
-		return rst;
+		return (matched == 0) ? null : bitmap;
 	}
 
 	public static boolean isNumeric(String str) {
-		Pattern pattern = Pattern.compile("[0-9]*");
-		return pattern.matcher(str).matches();
+		return NUMERIC.matcher(str).matches();
 	}
 
 	private void initialize() {
@@ -93,7 +134,7 @@ public class PartitionByPattern extends AbstractPartionAlgorithm implements Rule
 						+ mapFile);
 			}
 			in = new BufferedReader(new InputStreamReader(fin));
-			LinkedList<LongRange> longRangeList = new LinkedList<LongRange>();
+			List<long[]> rangeList = new ArrayList<long[]>();
 
 			for (String line = null; (line = in.readLine()) != null;) {
 				line = line.trim();
@@ -111,14 +152,12 @@ public class PartitionByPattern extends AbstractPartionAlgorithm implements Rule
 					long longEnd = Long.parseLong(pairs[1].trim());
 					int nodeId = Integer.parseInt(line.substring(ind + 1)
 							.trim());
-					longRangeList
-							.add(new LongRange(nodeId, longStart, longEnd));
+					rangeList.add(new long[] { longStart, longEnd, nodeId });
 
 				} catch (Exception e) {
 				}
 			}
-			longRongs = longRangeList.toArray(new LongRange[longRangeList
-					.size()]);
+			rangeIndex = LongRangeIndex.build(rangeList);
 		} catch (Exception e) {
 			if (e instanceof RuntimeException) {
 				throw (RuntimeException) e;
@@ -134,17 +173,4 @@ public class PartitionByPattern extends AbstractPartionAlgorithm implements Rule
 		}
 	}
 
-	static class LongRange {
-		public final int nodeIndx;
-		public final long valueStart;
-		public final long valueEnd;
-
-		public LongRange(int nodeIndx, long valueStart, long valueEnd) {
-			super();
-			this.nodeIndx = nodeIndx;
-			this.valueStart = valueStart;
-			this.valueEnd = valueEnd;
-		}
-
-	}
 }
\ No newline at end of file
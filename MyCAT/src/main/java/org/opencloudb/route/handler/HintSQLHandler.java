@@ -27,6 +27,11 @@ public class HintSQLHandler implements HintHandler {
 
         RouteResultset rrs = ServerRouterUtil.route(sysConfig, schema, sqlType, hintSQLValue,
                 charset, info, cachePool);
+        if (rrs.isParentLookupPending()) {
+            // routed to the found node with realSQL later
+            rrs.setStatement(realSQL);
+            return rrs;
+        }
         // 替换RRS中的SQL执行
         RouteResultsetNode[] oldRsNodes = rrs.getNodes();
         RouteResultsetNode[] newRrsNodes = new RouteResultsetNode[oldRsNodes.length];
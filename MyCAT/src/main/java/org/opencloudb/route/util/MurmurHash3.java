@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.route.util;
+
+/**
+ * MurmurHash3 x86 32 bit
+ * 
+ * @author mycat
+ */
+public final class MurmurHash3 {
+	private static final int C1 = 0xcc9e2d51;
+	private static final int C2 = 0x1b873593;
+
+	private MurmurHash3() {
+	}
+
+	public static int hash32(byte[] data, int seed) {
+		return hash32(data, 0, data.length, seed);
+	}
+
+	public static int hash32(byte[] data, int offset, int length, int seed) {
+		int h1 = seed;
+		int end = offset + (length & ~3);
+		for (int i = offset; i < end; i += 4) {
+			int k1 = (data[i] & 0xff) | ((data[i + 1] & 0xff) << 8)
+					| ((data[i + 2] & 0xff) << 16) | (data[i + 3] << 24);
+			h1 ^= mixK1(k1);
+			h1 = Integer.rotateLeft(h1, 13);
+			h1 = h1 * 5 + 0xe6546b64;
+		}
+		int k1 = 0;
+		switch (length & 3) {
+		case 3:
+			k1 = (data[end + 2] & 0xff) << 16;
+		case 2:
+			k1 |= (data[end + 1] & 0xff) << 8;
+		case 1:
+			k1 |= data[end] & 0xff;
+			h1 ^= mixK1(k1);
+		}
+		h1 ^= length;
+		return fmix(h1);
+	}
+
+	private static int mixK1(int k1) {
+		k1 *= C1;
+		k1 = Integer.rotateLeft(k1, 15);
+		return k1 * C2;
+	}
+
+	private static int fmix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+}
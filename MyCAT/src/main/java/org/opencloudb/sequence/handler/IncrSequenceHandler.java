@@ -35,7 +35,7 @@ import org.slf4j.LoggerFactory;
  * @time Create on 2013-12-29 下午10:42:39
  * @version 1.0
  */
-public abstract class IncrSequenceHandler implements SequenceHandler {
+public abstract class IncrSequenceHandler implements BatchSequenceHandler {
 
 	public static final Logger logger = LoggerFactory
 			.getLogger(IncrSequenceHandler.class);
@@ -55,18 +55,41 @@ public abstract class IncrSequenceHandler implements SequenceHandler {
 
 	@Override
 	public long nextId(String prefixName) {
-		Map<String, String> paraMap = this.getParaValMap(prefixName);
-		if (null == paraMap) {
-			throw new RuntimeException("fetch Param Values error.");
-		}
-		Long nextId = Long.parseLong(paraMap.get(prefixName + KEY_CUR_NAME)) + 1;
-		Long maxId = Long.parseLong(paraMap.get(prefixName + KEY_MAX_NAME));
-		if (nextId > maxId) {
-			fetchNextPeriod(prefixName);
-			return nextId(prefixName);
+		return nextIds(prefixName, 1)[0];
+	}
+
+	/**
+	 * read and update CURID once per period for all ids ,synchronized because
+	 * sequences are taken in parallel
+	 */
+	@Override
+	public synchronized long[] nextIds(String prefixName, int count) {
+		long[] ids = new long[count];
+		int i = 0;
+		while (i < count) {
+			Map<String, String> paraMap = this.getParaValMap(prefixName);
+			if (null == paraMap) {
+				throw new RuntimeException("fetch Param Values error.");
+			}
+			long curId = Long.parseLong(paraMap.get(prefixName + KEY_CUR_NAME));
+			long maxId = Long.parseLong(paraMap.get(prefixName + KEY_MAX_NAME));
+			if (curId >= maxId) {
+				if (!fetchNextPeriod(prefixName)) {
+					throw new RuntimeException("fetch next period error.");
+				}
+				continue;
+			}
+			long lastId = Math.min(maxId, curId + (count - i));
+			for (long id = curId + 1; id <= lastId; id++) {
+				ids[i++] = id;
+			}
+			updateCURIDVal(prefixName, lastId);
 		}
-		updateCURIDVal(prefixName, nextId);
-		return nextId.longValue();
+		return ids;
+	}
 
+	@Override
+	public long[] tryNextIds(String prefixName, int count) {
+		return null;
 	}
 }
\ No newline at end of file
@@ -6,7 +6,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
@@ -21,7 +20,7 @@ import org.opencloudb.net.mysql.RowDataPacket;
 import org.opencloudb.route.RouteResultsetNode;
 import org.opencloudb.server.parser.ServerParse;
 
-public class IncrSequenceMySQLHandler implements SequenceHandler {
+public class IncrSequenceMySQLHandler implements BatchSequenceHandler {
 
 	protected static final Logger LOGGER = Logger
 			.getLogger(IncrSequenceMySQLHandler.class);
@@ -66,51 +65,66 @@ public class IncrSequenceMySQLHandler implements SequenceHandler {
 
 	@Override
 	public long nextId(String seqName) {
-		SequnceVal seqVal = seqValueMap.get(seqName);
-		if (!seqVal.isSuccessFetched()) {
-			return getSeqValueFromDB(seqVal);
-		} else {
-			return getNextValidSeqVal(seqVal);
-		}
+		return nextIds(seqName, 1)[0];
+	}
 
+	@Override
+	public long[] nextIds(String seqName, int count) {
+		SequnceVal seqVal = getSeqVal(seqName);
+		long[] ids = new long[count];
+		int i = 0;
+		while (i < count) {
+			int taken = seqVal.take(ids, i, count - i);
+			if (taken > 0) {
+				i += taken;
+			} else {
+				getSeqValueFromDB(seqVal);
+			}
+		}
+		return ids;
 	}
 
-	private Long getNextValidSeqVal(SequnceVal seqVal) {
-		Long nexVal = seqVal.nextValue();
-		if (seqVal.isNexValValid(nexVal)) {
-			return nexVal;
-		} else {
-			seqVal.fetching.compareAndSet(true, false);
-			return getSeqValueFromDB(seqVal);
+	@Override
+	public long[] tryNextIds(String seqName, int count) {
+		SequnceVal seqVal = seqValueMap.get(seqName);
+		if (seqVal == null) {
+			return null;
 		}
+		long[] ids = new long[count];
+		return seqVal.takeAll(ids) ? ids : null;
 	}
 
-	private long getSeqValueFromDB(SequnceVal seqVal) {
-		if (LOGGER.isDebugEnabled()) {
-			LOGGER.debug("get next segement of sequence from db for sequnce:"
-					+ seqVal.seqName + " curVal " + seqVal.curVal);
+	private SequnceVal getSeqVal(String seqName) {
+		SequnceVal seqVal = seqValueMap.get(seqName);
+		if (seqVal == null) {
+			throw new RuntimeException("sequnce not defined in db conf :"
+					+ seqName);
 		}
-		if (seqVal.fetching.compareAndSet(false, true)) {
+		return seqVal;
+	}
+
+	/**
+	 * one thread fetches next segment ,others wait and then take from it
+	 */
+	private void getSeqValueFromDB(SequnceVal seqVal) {
+		synchronized (seqVal.fetchLock) {
+			if (seqVal.remaining() > 0) {
+				return;
+			}
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("get next segement of sequence from db for sequnce:"
+						+ seqVal.seqName + " curVal " + seqVal.curVal);
+			}
 			seqVal.dbretVal = null;
 			seqVal.dbfinished = false;
-			seqVal.newValueSetted.set(false);
 			mysqlSeqFetcher.execute(seqVal);
-		}
-		Long[] values = seqVal.waitFinish();
-		if (values == null) {
-			throw new RuntimeException("can't fetch sequnce in db,sequnce :"
-					+ seqVal.seqName);
-		} else {
-			if (seqVal.newValueSetted.compareAndSet(false, true)) {
-				seqVal.setCurValue(values[0]);
-				seqVal.maxSegValue = values[1];
-				return values[0];
-			} else {
-				return seqVal.nextValue();
+			Long[] values = seqVal.waitFinish();
+			if (values == null) {
+				throw new RuntimeException(
+						"can't fetch sequnce in db,sequnce :" + seqVal.seqName);
 			}
-
+			seqVal.setSegment(values[0], values[1]);
 		}
-
 	}
 }
 
@@ -134,6 +148,7 @@ class FetchMySQLSequnceHandler implements ResponseHandler {
 					seqVal);
 		} catch (Exception e) {
 			LOGGER.warn("get connection err " + e);
+			seqVal.setFinished();
 		}
 
 	}
@@ -151,14 +166,14 @@ class FetchMySQLSequnceHandler implements ResponseHandler {
 
 	@Override
 	public void connectionError(Throwable e, BackendConnection conn) {
-		((SequnceVal) conn.getAttachment()).dbfinished = true;
+		((SequnceVal) conn.getAttachment()).setFinished();
 		LOGGER.warn("connectionError " + e);
 
 	}
 
 	@Override
 	public void errorResponse(byte[] data, BackendConnection conn) {
-		((SequnceVal) conn.getAttachment()).dbfinished = true;
+		((SequnceVal) conn.getAttachment()).setFinished();
 		conn.setRunning(false);
 		ErrorPacket err = new ErrorPacket();
 		err.read(data);
@@ -173,7 +188,7 @@ class FetchMySQLSequnceHandler implements ResponseHandler {
 	public void okResponse(byte[] ok, BackendConnection conn) {
 		boolean executeResponse = conn.syncAndExcute();
 		if (executeResponse) {
-			((SequnceVal) conn.getAttachment()).dbfinished = true;
+			((SequnceVal) conn.getAttachment()).setFinished();
 			conn.setRunning(false);
 			conn.release();
 		}
@@ -197,13 +212,13 @@ class FetchMySQLSequnceHandler implements ResponseHandler {
 
 	@Override
 	public void rowEofResponse(byte[] eof, BackendConnection conn) {
-		((SequnceVal) conn.getAttachment()).dbfinished = true;
+		((SequnceVal) conn.getAttachment()).setFinished();
 		conn.setRunning(false);
 		conn.release();
 	}
 
 	private void executeException(BackendConnection c, Throwable e) {
-		((SequnceVal) c.getAttachment()).dbfinished = true;
+		((SequnceVal) c.getAttachment()).setFinished();
 		LOGGER.warn("executeException   " + e);
 		c.setRunning(false);
 		c.close("exception:" + e);
@@ -230,16 +245,17 @@ class FetchMySQLSequnceHandler implements ResponseHandler {
 }
 
 class SequnceVal {
-	public AtomicBoolean newValueSetted = new AtomicBoolean(false);
 	public AtomicLong curVal = new AtomicLong(0);
 	public volatile String dbretVal = null;
 	public volatile boolean dbfinished;
-	public AtomicBoolean fetching = new AtomicBoolean(false);
+	// ids of current segment are (curVal ,maxSegValue)
 	public volatile long maxSegValue;
 	public volatile boolean successFetched;
 	public final String dataNode;
 	public final String seqName;
 	public final String sql;
+	// only one thread fetches next segment
+	public final Object fetchLock = new Object();
 
 	public SequnceVal(String seqName, String dataNode) {
 		this.seqName = seqName;
@@ -247,54 +263,105 @@ class SequnceVal {
 		sql = "SELECT mycat_seq_nextval('" + seqName + "')";
 	}
 
-	public boolean isNexValValid(Long nexVal) {
-		if (nexVal < this.maxSegValue) {
-			return true;
-		} else {
-			return false;
+	/**
+	 * new segment fetched from db ,first id is curValue
+	 */
+	public void setSegment(long curValue, long maxValue) {
+		// curVal set before maxSegValue ,a taker reads in reverse order
+		curVal.set(curValue - 1);
+		maxSegValue = maxValue;
+		successFetched = true;
+	}
+
+	public long remaining() {
+		if (!successFetched) {
+			return 0;
 		}
+		return maxSegValue - curVal.get() - 1;
 	}
 
-	FetchMySQLSequnceHandler seqHandler;
+	/**
+	 * take at most count ids of current segment in one cas
+	 * 
+	 * @return ids taken ,0 if segment used up
+	 */
+	public int take(long[] ids, int offset, int count) {
+		while (successFetched) {
+			long cur = curVal.get();
+			long n = Math.min(count, maxSegValue - cur - 1);
+			if (n <= 0) {
+				return 0;
+			}
+			if (curVal.compareAndSet(cur, cur + n)) {
+				for (int i = 0; i < n; i++) {
+					ids[offset + i] = cur + 1 + i;
+				}
+				return (int) n;
+			}
+		}
+		return 0;
+	}
 
-	public void setCurValue(long newValue) {
-		curVal.set(newValue);
-		successFetched = true;
+	/**
+	 * take ids.length ids of current segment in one cas ,or none
+	 * 
+	 * @return false if segment has not enough ids
+	 */
+	public boolean takeAll(long[] ids) {
+		while (successFetched) {
+			long cur = curVal.get();
+			if (maxSegValue - cur - 1 < ids.length) {
+				return false;
+			}
+			if (curVal.compareAndSet(cur, cur + ids.length)) {
+				for (int i = 0; i < ids.length; i++) {
+					ids[i] = cur + 1 + i;
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public void setFinished() {
+		synchronized (this) {
+			dbfinished = true;
+			notifyAll();
+		}
 	}
 
+	/**
+	 * wait the fetch of db ,woke up by setFinished
+	 */
 	public Long[] waitFinish() {
-		long start = System.currentTimeMillis();
-		long end = start + 10 * 1000;
-		while (System.currentTimeMillis() < end) {
-			if (dbretVal == IncrSequenceMySQLHandler.errSeqResult) {
-				throw new java.lang.RuntimeException(
-						"sequnce not found in db table ");
-			} else if (dbretVal != null) {
-				String[] items = dbretVal.split(",");
-				Long curVal = Long.valueOf(items[0]);
-				int span = Integer.valueOf(items[1]);
-				return new Long[] { curVal, curVal + span };
-			} else {
+		long end = System.currentTimeMillis() + 10 * 1000;
+		synchronized (this) {
+			long wait;
+			while (!dbfinished
+					&& (wait = end - System.currentTimeMillis()) > 0) {
 				try {
-					Thread.sleep(100);
+					wait(wait);
 				} catch (InterruptedException e) {
 					IncrSequenceMySQLHandler.LOGGER
 							.warn("wait db fetch sequnce err " + e);
+					break;
 				}
 			}
 		}
+		String retVal = dbretVal;
+		if (IncrSequenceMySQLHandler.errSeqResult.equals(retVal)) {
+			throw new java.lang.RuntimeException(
+					"sequnce not found in db table ");
+		} else if (retVal != null) {
+			String[] items = retVal.split(",");
+			Long curVal = Long.valueOf(items[0]);
+			int span = Integer.valueOf(items[1]);
+			return new Long[] { curVal, curVal + span };
+		}
 		return null;
 	}
 
 	public boolean isSuccessFetched() {
 		return successFetched;
 	}
-
-	public long nextValue() {
-		if (successFetched == false) {
-			throw new java.lang.RuntimeException(
-					"sequnce fetched failed  from db ");
-		}
-		return curVal.incrementAndGet();
-	}
 }
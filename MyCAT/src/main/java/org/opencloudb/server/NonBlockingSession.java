@@ -129,7 +129,7 @@ public class NonBlockingSession implements Session {
 			return;
 		}
 
-		if (nodes.length == 1) {
+		if (nodes.length == 1 && !rrs.hasNextRounds()) {
 			singleNodeHandler = new SingleNodeHandler(nodes[0], this);
 			try {
 				singleNodeHandler.execute();
@@ -141,7 +141,8 @@ public class NonBlockingSession implements Session {
 			boolean autocommit = source.isAutocommit();
 			SystemConfig sysConfig = MycatServer.getInstance().getConfig().getSystem();
 			int mutiNodeLimitType = sysConfig.getMutiNodeLimitType();
-			if (SystemConfig.MUTINODELIMIT_LAR_DATA == mutiNodeLimitType) {
+			if (SystemConfig.MUTINODELIMIT_LAR_DATA == mutiNodeLimitType
+					&& !rrs.hasNextRounds()) {
 				RouteResultset rrsCopy = (RouteResultset) ObjectUtil.copyObject(rrs);
 				MutiDataMergeService dataMergeSvr = null;
 				if (ServerParse.SELECT == type && rrsCopy.needMerge()) {
@@ -277,9 +278,27 @@ public class NonBlockingSession implements Session {
 			BackendConnection conn) {
 		// System.out.println("bind connection "+conn+
 		// " to key "+key.getName()+" on sesion "+this);
+		if (source.isWriteQueueHigh()) {
+			conn.suspendRead();
+		}
 		return target.put(key, conn);
 	}
 
+	/**
+	 * stop reading results of bound backends until resumeBackendRead
+	 */
+	public void suspendBackendRead() {
+		for (BackendConnection c : target.values()) {
+			c.suspendRead();
+		}
+	}
+
+	public void resumeBackendRead() {
+		for (BackendConnection c : target.values()) {
+			c.resumeRead();
+		}
+	}
+
 	private static class Terminator {
 		private LinkedList<Terminatable> list = new LinkedList<Terminatable>();
 		private Iterator<Terminatable> iter;
@@ -32,9 +32,12 @@ import org.apache.log4j.Logger;
 import org.opencloudb.MycatServer;
 import org.opencloudb.config.ErrorCode;
 import org.opencloudb.config.model.SchemaConfig;
+import org.opencloudb.mysql.nio.handler.FetchStoreNodeOfChildTableHandler;
 import org.opencloudb.net.FrontendConnection;
 import org.opencloudb.route.RouteResultset;
+import org.opencloudb.route.ServerRouterUtil;
 import org.opencloudb.route.SessionSQLPair;
+import org.opencloudb.server.handler.LoadDataInfileHandler;
 import org.opencloudb.server.response.Heartbeat;
 import org.opencloudb.server.response.Ping;
 import org.opencloudb.util.TimeUtil;
@@ -53,6 +56,8 @@ public class ServerConnection extends FrontendConnection {
 	private volatile String txInterrputMsg = "";
 	private long lastInsertId;
 	private NonBlockingSession session;
+	// running load data local infile ,file packets are sent to it
+	private volatile LoadDataInfileHandler loadDataHandler;
 
 	private AtomicBoolean hasOkRsp = new AtomicBoolean(false);  //表示在Data返回后还有OK Packet报文的语句
 	
@@ -107,6 +112,30 @@ public class ServerConnection extends FrontendConnection {
 		}
 	}
 
+	public LoadDataInfileHandler getLoadDataHandler() {
+		return loadDataHandler;
+	}
+
+	public void setLoadDataHandler(LoadDataInfileHandler loadDataHandler) {
+		this.loadDataHandler = loadDataHandler;
+	}
+
+	@Override
+	public void handle(byte[] data) {
+		LoadDataInfileHandler loadHandler = loadDataHandler;
+		if (loadHandler != null) {
+			// file content must be handled in order
+			try {
+				loadHandler.handle(data);
+			} catch (Throwable t) {
+				LOGGER.warn("load data err " + this, t);
+				close("load data err:" + t);
+			}
+			return;
+		}
+		super.handle(data);
+	}
+
 	public NonBlockingSession getSession2() {
 		return session;
 	}
@@ -182,11 +211,53 @@ public class ServerConnection extends FrontendConnection {
 					.getClass().getSimpleName() : msg);
 			return;
 		}
+		if (rrs.isParentLookupPending()) {
+			routeByParentLookup(rrs, type, schema);
+			return;
+		}
 
 		// session执行
 		session.execute(rrs, type);
 	}
 
+	/**
+	 * find the node of child table's insert by querying root parent's nodes
+	 * ,continue executing in the callback without blocking this thread. the
+	 * callback is called in backend's thread ,so the rest is dispatched to
+	 * executor of the processor
+	 */
+	private void routeByParentLookup(final RouteResultset rrs, final int type,
+			SchemaConfig schema) {
+		FetchStoreNodeOfChildTableHandler.Callback callback = new FetchStoreNodeOfChildTableHandler.Callback() {
+			@Override
+			public void onFound(final String dataNode) {
+				processor.getExecutor().execute(new Runnable() {
+					@Override
+					public void run() {
+						ServerRouterUtil.routeToParentNode(rrs, dataNode);
+						session.execute(rrs, type);
+					}
+				});
+			}
+
+			@Override
+			public void onNotFound(String reason) {
+				final String msg = "can't find (root) parent sharding node for sql:"
+						+ rrs.getStatement() + " ," + reason;
+				LOGGER.warn(ServerConnection.this + msg);
+				processor.getExecutor().execute(new Runnable() {
+					@Override
+					public void run() {
+						writeErrMessage(ErrorCode.ER_PARSE_ERROR, msg);
+					}
+				});
+			}
+		};
+		new FetchStoreNodeOfChildTableHandler(schema.getName(),
+				rrs.getParentLookupSql(), rrs.getParentLookupNodes(), callback)
+				.execute();
+	}
+
 	/**
 	 * 提交事务
 	 */
@@ -227,10 +298,35 @@ public class ServerConnection extends FrontendConnection {
 		});
 	}
 
+	/**
+	 * client can't receive as fast as backends return, pause the backends
+	 */
+	@Override
+	protected void onWriteQueueHigh() {
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("write queue high, suspend backend read " + this);
+		}
+		session.suspendBackendRead();
+	}
+
+	@Override
+	protected void onWriteQueueLow() {
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("write queue low, resume backend read " + this);
+		}
+		session.resumeBackendRead();
+	}
+
 	@Override
 	public void close(String reason) {
 
 		super.close(reason);
+		LoadDataInfileHandler loadHandler = loadDataHandler;
+		if (loadHandler != null) {
+			loadHandler.connectionClosed(reason);
+		}
+		// paused backends must read the result of kill or close
+		session.resumeBackendRead();
 		this.session.clearResources();
 		if (this.isClosed()) {
 			processor.getExecutor().execute(new Runnable() {
@@ -31,6 +31,7 @@ import org.opencloudb.net.mysql.OkPacket;
 import org.opencloudb.server.handler.BeginHandler;
 import org.opencloudb.server.handler.ExplainHandler;
 import org.opencloudb.server.handler.KillHandler;
+import org.opencloudb.server.handler.LoadDataInfileHandler;
 import org.opencloudb.server.handler.SavepointHandler;
 import org.opencloudb.server.handler.SelectHandler;
 import org.opencloudb.server.handler.SetHandler;
@@ -115,6 +116,13 @@ public class ServerQueryHandler implements FrontendQueryHandler {
 		case ServerParse.MYSQL_COMMENT:
 			c.write(c.writeToBuffer(OkPacket.OK, c.allocate()));
 			break;
+		case ServerParse.LOAD:
+			if (readOnly) {
+				c.writeErrMessage(ErrorCode.ER_USER_READ_ONLY, "User readonly");
+				break;
+			}
+			LoadDataInfileHandler.handle(sql, c);
+			break;
 		default:
 			if(readOnly){
 				c.writeErrMessage(ErrorCode.ER_USER_READ_ONLY, "User readonly");
@@ -25,6 +25,8 @@ package org.opencloudb.server.handler;
 
 import java.nio.ByteBuffer;
 import java.sql.SQLNonTransientException;
+import java.util.List;
+
 
 import org.apache.log4j.Logger;
 import org.opencloudb.MycatServer;
@@ -85,6 +87,15 @@ public class ExplainHandler {
 		// write rows
 		RouteResultsetNode[] rrsn = (rrs != null) ? rrs.getNodes()
 				: EMPTY_ARRAY;
+		if (rrs.isParentLookupPending()) {
+			// node unknown until the parent row found ,show the lookup
+			List<String> dataNodes = rrs.getParentLookupNodes();
+			rrsn = new RouteResultsetNode[dataNodes.size()];
+			for (int i = 0; i < rrsn.length; i++) {
+				rrsn[i] = new RouteResultsetNode(dataNodes.get(i),
+						ServerParse.SELECT, rrs.getParentLookupSql());
+			}
+		}
 		for (RouteResultsetNode node : rrsn) {
 			RowDataPacket row = getRow(node, c.getCharset());
 			row.packetId = ++packetId;
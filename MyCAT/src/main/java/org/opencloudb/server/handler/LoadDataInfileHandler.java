@@ -0,0 +1,894 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.server.handler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+import org.opencloudb.MycatConfig;
+import org.opencloudb.MycatServer;
+import org.opencloudb.backend.BackendConnection;
+import org.opencloudb.backend.ConnectionMeta;
+import org.opencloudb.backend.PhysicalDBNode;
+import org.opencloudb.config.ErrorCode;
+import org.opencloudb.config.model.SchemaConfig;
+import org.opencloudb.config.model.SystemConfig;
+import org.opencloudb.config.model.TableConfig;
+import org.opencloudb.mysql.BufferUtil;
+import org.opencloudb.mysql.nio.handler.ResponseHandler;
+import org.opencloudb.net.mysql.ErrorPacket;
+import org.opencloudb.net.mysql.OkPacket;
+import org.opencloudb.route.RouteResultsetNode;
+import org.opencloudb.route.function.AbstractPartionAlgorithm;
+import org.opencloudb.server.ServerConnection;
+import org.opencloudb.server.parser.LoadDataInf;
+import org.opencloudb.server.parser.LoadDataParse;
+import org.opencloudb.server.parser.LoadDataRowParser;
+import org.opencloudb.server.parser.ServerParse;
+import org.opencloudb.util.StringUtil;
+import org.opencloudb.util.TimeUtil;
+
+/**
+ * load data local infile ,rows of the file are routed by the partition rule of
+ * the table and written to data nodes as multi rows insert of at most
+ * maxInsertRows/maxInsertBytes ,one running insert per data node. file packets
+ * are handled in order by the read thread of the client connection ,reading
+ * is suspended when the rows waiting for backends exceed loadDataBufferSize.
+ * 
+ * @author mycat
+ */
+public final class LoadDataInfileHandler {
+	private static final Logger LOGGER = Logger
+			.getLogger(LoadDataInfileHandler.class);
+	// server requests the client to send local file
+	private static final byte REQUEST_FILE = (byte) 0xFB;
+	private static final int MAX_FINISHED = 16;
+	private static final AtomicLong ID_GENERATOR = new AtomicLong();
+	private static final Map<Long, LoadDataInfileHandler> runnings = new ConcurrentHashMap<Long, LoadDataInfileHandler>();
+	private static final LinkedList<LoadDataInfileHandler> finisheds = new LinkedList<LoadDataInfileHandler>();
+
+	private final long id;
+	private final ServerConnection source;
+	private final String schema;
+	private final LoadDataInf inf;
+	private final String insertHead;
+	private final int columnCount;
+	// index of partition column in columns ,-1 if rows to every data node
+	private final int partIndex;
+	private final AbstractPartionAlgorithm algorithm;
+	private final List<String> dataNodes;
+	private final CharsetDecoder decoder;
+	private final LoadDataRowParser parser;
+	private final int maxRows;
+	private final int maxBytes;
+	private final long maxPending;
+	// max chars of a line not parsed yet ,max_allowed_packet of client
+	private final int maxLineChars;
+	private final long startTime;
+	private final ReentrantLock lock = new ReentrantLock();
+	// data node -> loader ,changed under lock
+	private final Map<String, NodeLoader> loaders = new LinkedHashMap<String, NodeLoader>();
+	// bytes of file not decoded yet
+	private ByteBuffer undecoded;
+	private byte packetId;
+	private long lines;
+	private volatile long rows;
+	private volatile long bytes;
+	private volatile long batches;
+	private volatile long affectedRows;
+	// chars of insert sql waiting for or running in backends
+	private volatile long pendingChars;
+	private volatile boolean suspended;
+	private volatile boolean fileEnd;
+	private volatile String error;
+	private volatile long endTime;
+	private boolean responsed;
+
+	private LoadDataInfileHandler(ServerConnection source, String schema,
+			LoadDataInf inf, List<String> dataNodes, int partIndex,
+			AbstractPartionAlgorithm algorithm, Charset charset) {
+		this.id = ID_GENERATOR.incrementAndGet();
+		this.source = source;
+		this.schema = schema;
+		this.inf = inf;
+		this.dataNodes = dataNodes;
+		this.partIndex = partIndex;
+		this.algorithm = algorithm;
+		this.columnCount = (inf.getColumns() == null) ? -1 : inf
+				.getColumns().size();
+		this.insertHead = buildInsertHead(inf);
+		this.decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.parser = new LoadDataRowParser(inf);
+		SystemConfig sysConfig = MycatServer.getInstance().getConfig()
+				.getSystem();
+		this.maxRows = sysConfig.getMaxInsertRows();
+		this.maxBytes = sysConfig.getMaxInsertBytes();
+		this.maxPending = sysConfig.getLoadDataBufferSize();
+		this.maxLineChars = source.getMaxPacketSize();
+		this.startTime = TimeUtil.currentTimeMillis();
+	}
+
+	public static void handle(String stmt, ServerConnection c) {
+		LoadDataInf inf;
+		try {
+			inf = LoadDataParse.parse(stmt);
+		} catch (SQLSyntaxErrorException e) {
+			c.writeErrMessage(ErrorCode.ER_PARSE_ERROR, e.getMessage());
+			return;
+		}
+		if (!inf.isLocal()) {
+			c.writeErrMessage(ErrorCode.ER_NOT_SUPPORTED_YET,
+					"only LOAD DATA LOCAL INFILE is supported");
+			return;
+		}
+		if (!c.isAutocommit()) {
+			c.writeErrMessage(ErrorCode.ER_NOT_SUPPORTED_YET,
+					"LOAD DATA in transaction is not supported");
+			return;
+		}
+		String db = c.getSchema();
+		if (db == null) {
+			c.writeErrMessage(ErrorCode.ERR_BAD_LOGICDB,
+					"No MyCAT Database selected");
+			return;
+		}
+		SchemaConfig schema = MycatServer.getInstance().getConfig()
+				.getSchemas().get(db);
+		if (schema == null) {
+			c.writeErrMessage(ErrorCode.ERR_BAD_LOGICDB,
+					"Unknown MyCAT Database '" + db + "'");
+			return;
+		}
+		List<String> dataNodes;
+		int partIndex = -1;
+		AbstractPartionAlgorithm algorithm = null;
+		if (schema.isNoSharding()) {
+			dataNodes = Collections.singletonList(schema.getDataNode());
+		} else {
+			TableConfig tc = schema.getTables().get(
+					inf.getTableName().toUpperCase());
+			if (tc == null) {
+				c.writeErrMessage(ErrorCode.ER_NO_SUCH_TABLE,
+						"can't find table define in schema ,table:"
+								+ inf.getTableName() + " schema:" + db);
+				return;
+			} else if (tc.isChildTable()) {
+				c.writeErrMessage(ErrorCode.ER_NOT_SUPPORTED_YET,
+						"LOAD DATA of child table is not supported ,table:"
+								+ inf.getTableName());
+				return;
+			}
+			dataNodes = tc.getDataNodes();
+			if (tc.getTableType() != TableConfig.TYPE_GLOBAL_TABLE
+					&& tc.getRule() != null && tc.getPartitionColumn() != null) {
+				if (inf.getColumns() != null) {
+					for (int i = 0; i < inf.getColumns().size(); i++) {
+						if (tc.getPartitionColumn().equalsIgnoreCase(
+								inf.getColumns().get(i))) {
+							partIndex = i;
+						}
+					}
+				}
+				if (partIndex < 0) {
+					c.writeErrMessage(ErrorCode.ER_PARSE_ERROR,
+							"column list with sharding column "
+									+ tc.getPartitionColumn()
+									+ " must be provided ,table:"
+									+ inf.getTableName());
+					return;
+				}
+				algorithm = tc.getRule().getRuleAlgorithm();
+			}
+		}
+		Charset charset;
+		String charsetName = (inf.getCharset() != null) ? inf.getCharset() : c
+				.getCharset();
+		try {
+			charset = "utf8mb4".equalsIgnoreCase(charsetName) ? Charset
+					.forName("UTF-8") : Charset.forName(charsetName);
+		} catch (RuntimeException e) {
+			c.writeErrMessage(ErrorCode.ER_UNKNOWN_CHARACTER_SET,
+					"Unknown charset '" + charsetName + "'");
+			return;
+		}
+		LoadDataInfileHandler handler = new LoadDataInfileHandler(c, db, inf,
+				dataNodes, partIndex, algorithm, charset);
+		handler.requestFile();
+	}
+
+	/**
+	 * running and recently finished loads
+	 */
+	public static List<LoadDataInfileHandler> getLoads() {
+		List<LoadDataInfileHandler> loads = new ArrayList<LoadDataInfileHandler>(
+				runnings.values());
+		synchronized (finisheds) {
+			loads.addAll(finisheds);
+		}
+		return loads;
+	}
+
+	private static String buildInsertHead(LoadDataInf inf) {
+		StringBuilder sb = new StringBuilder();
+		if (inf.isReplace()) {
+			sb.append("REPLACE INTO ");
+		} else if (inf.isIgnore()) {
+			sb.append("INSERT IGNORE INTO ");
+		} else {
+			sb.append("INSERT INTO ");
+		}
+		sb.append('`').append(inf.getTableName()).append('`');
+		if (inf.getColumns() != null) {
+			sb.append('(');
+			for (int i = 0; i < inf.getColumns().size(); i++) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				sb.append('`').append(inf.getColumns().get(i)).append('`');
+			}
+			sb.append(')');
+		}
+		return sb.append(" VALUES ").toString();
+	}
+
+	private void requestFile() {
+		runnings.put(id, this);
+		source.setLoadDataHandler(this);
+		byte[] fileName = StringUtil.encode(inf.getFileName(),
+				source.getCharset());
+		ByteBuffer buffer = source.allocate();
+		BufferUtil.writeUB3(buffer, fileName.length + 1);
+		packetId = 1;
+		buffer.put(packetId);
+		buffer.put(REQUEST_FILE);
+		buffer.put(fileName);
+		source.write(buffer);
+	}
+
+	/**
+	 * packet of file content from client ,an empty packet is the end of file
+	 */
+	public void handle(byte[] data) {
+		packetId = data[3];
+		int length = data.length - 4;
+		if (length == 0) {
+			onFileEnd();
+			return;
+		}
+		bytes += length;
+		if (error != null) {
+			// read and drop the rest of file
+			return;
+		}
+		ByteBuffer in;
+		if (undecoded != null) {
+			in = ByteBuffer.allocate(undecoded.remaining() + length);
+			in.put(undecoded).put(data, 4, length).flip();
+			undecoded = null;
+		} else {
+			in = ByteBuffer.wrap(data, 4, length);
+		}
+		decode(in, false);
+		readRows(false);
+	}
+
+	private void decode(ByteBuffer in, boolean endOfInput) {
+		CharBuffer out = CharBuffer.allocate((int) (in.remaining()
+				* decoder.maxCharsPerByte() + 1));
+		decoder.decode(in, out, endOfInput);
+		if (endOfInput) {
+			decoder.flush(out);
+		} else if (in.hasRemaining()) {
+			// partial multi-byte char
+			undecoded = ByteBuffer.allocate(in.remaining());
+			undecoded.put(in).flip();
+		}
+		out.flip();
+		parser.append(out);
+	}
+
+	private void readRows(boolean eof) {
+		String[] fields;
+		try {
+			while ((fields = parser.nextRow(eof)) != null) {
+				if (lines++ < inf.getIgnoreLines()) {
+					continue;
+				}
+				addRow(fields);
+			}
+		} catch (RuntimeException e) {
+			LOGGER.warn("load data error " + this, e);
+			setError(e.getMessage() == null ? e.toString() : e.getMessage());
+			return;
+		}
+		if (parser.remaining() > maxLineChars) {
+			// a line without terminator would be buffered without limit
+			parser.clear();
+			setError("line " + (lines + 1)
+					+ " is longer than max_allowed_packet " + maxLineChars);
+			return;
+		}
+		if (!eof && pendingChars + parser.remaining() > maxPending) {
+			// backends can't keep up ,send what we have and wait
+			lock.lock();
+			try {
+				for (NodeLoader loader : loaders.values()) {
+					loader.flushCurrent();
+				}
+				// suspend before a finished insert can see suspended and resume
+				source.suspendRead();
+				suspended = true;
+			} finally {
+				lock.unlock();
+			}
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("suspend read of load data ,pending chars "
+						+ pendingChars + " " + source);
+			}
+			startLoaders();
+			resumeIfNeeded();
+		}
+	}
+
+	private void addRow(String[] fields) {
+		String values = toValues(fields);
+		rows++;
+		if (partIndex < 0) {
+			for (String dataNode : dataNodes) {
+				addRow(dataNode, values);
+			}
+			return;
+		}
+		String value = (partIndex < fields.length) ? fields[partIndex] : null;
+		if (value == null) {
+			throw new IllegalArgumentException(
+					"sharding column value not provided at line " + lines);
+		}
+		Integer nodeIndx = algorithm.calculate(value);
+		if (nodeIndx == null || nodeIndx < 0 || nodeIndx >= dataNodes.size()) {
+			throw new IllegalArgumentException(
+					"can't find datanode for sharding column:"
+							+ inf.getColumns().get(partIndex) + " val:" + value
+							+ " at line " + lines);
+		}
+		addRow(dataNodes.get(nodeIndx), values);
+	}
+
+	private void addRow(String dataNode, String values) {
+		NodeLoader loader;
+		boolean flushed;
+		lock.lock();
+		try {
+			loader = loaders.get(dataNode);
+			if (loader == null) {
+				loader = new NodeLoader(dataNode);
+				loaders.put(dataNode, loader);
+			}
+			flushed = loader.add(values);
+		} finally {
+			lock.unlock();
+		}
+		if (flushed) {
+			loader.tryStart();
+		}
+	}
+
+	/**
+	 * row of file to "(v1,v2,...)" ,missing columns are DEFAULT
+	 */
+	private String toValues(String[] fields) {
+		int count = (columnCount < 0) ? fields.length : columnCount;
+		StringBuilder sb = new StringBuilder();
+		sb.append('(');
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			if (i >= fields.length) {
+				sb.append("DEFAULT");
+			} else if (fields[i] == null) {
+				sb.append("NULL");
+			} else {
+				sb.append('\'');
+				String field = fields[i];
+				for (int j = 0; j < field.length(); j++) {
+					char c = field.charAt(j);
+					switch (c) {
+					case '\\':
+						sb.append("\\\\");
+						break;
+					case '\'':
+						sb.append("\\'");
+						break;
+					case 0:
+						sb.append("\\0");
+						break;
+					case '\n':
+						sb.append("\\n");
+						break;
+					case '\r':
+						sb.append("\\r");
+						break;
+					case 26:
+						sb.append("\\Z");
+						break;
+					default:
+						sb.append(c);
+					}
+				}
+				sb.append('\'');
+			}
+		}
+		return sb.append(')').toString();
+	}
+
+	private void onFileEnd() {
+		if (error == null) {
+			if (undecoded != null) {
+				decode(undecoded, true);
+				undecoded = null;
+			}
+			readRows(true);
+		}
+		lock.lock();
+		try {
+			fileEnd = true;
+			for (NodeLoader loader : loaders.values()) {
+				loader.flushCurrent();
+			}
+		} finally {
+			lock.unlock();
+		}
+		startLoaders();
+		checkFinished();
+	}
+
+	private void startLoaders() {
+		List<NodeLoader> list;
+		lock.lock();
+		try {
+			list = new ArrayList<NodeLoader>(loaders.values());
+		} finally {
+			lock.unlock();
+		}
+		for (NodeLoader loader : list) {
+			loader.tryStart();
+		}
+	}
+
+	private void setError(String msg) {
+		lock.lock();
+		try {
+			if (error == null) {
+				error = msg;
+			}
+			for (NodeLoader loader : loaders.values()) {
+				loader.clear();
+			}
+		} finally {
+			lock.unlock();
+		}
+		// client must send the rest of file
+		resumeIfNeeded();
+		checkFinished();
+	}
+
+	private void resumeIfNeeded() {
+		boolean resume = false;
+		lock.lock();
+		try {
+			if (suspended && (error != null || pendingChars <= maxPending / 2)) {
+				suspended = false;
+				resume = true;
+			}
+		} finally {
+			lock.unlock();
+		}
+		if (resume) {
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("resume read of load data ,pending chars "
+						+ pendingChars + " " + source);
+			}
+			source.resumeRead();
+		}
+	}
+
+	/**
+	 * response to client when file end and all inserts finished
+	 */
+	private void checkFinished() {
+		lock.lock();
+		try {
+			if (!fileEnd || responsed) {
+				return;
+			}
+			for (NodeLoader loader : loaders.values()) {
+				if (!loader.isIdle()) {
+					return;
+				}
+			}
+			responsed = true;
+		} finally {
+			lock.unlock();
+		}
+		endTime = TimeUtil.currentTimeMillis();
+		runnings.remove(id);
+		synchronized (finisheds) {
+			finisheds.addFirst(this);
+			if (finisheds.size() > MAX_FINISHED) {
+				finisheds.removeLast();
+			}
+		}
+		source.setLoadDataHandler(null);
+		if (suspended) {
+			suspended = false;
+			source.resumeRead();
+		}
+		if (source.isClosed()) {
+			return;
+		}
+		if (error != null) {
+			source.writeErrMessage(++packetId, ErrorCode.ER_YES, error);
+		} else {
+			OkPacket ok = new OkPacket();
+			ok.packetId = ++packetId;
+			ok.affectedRows = affectedRows;
+			ok.message = StringUtil.encode("Records: " + rows
+					+ "  Deleted: 0  Skipped: 0  Warnings: 0",
+					source.getCharset());
+			ok.write(source);
+		}
+	}
+
+	/**
+	 * client connection closed ,stop loading
+	 */
+	public void connectionClosed(String reason) {
+		fileEnd = true;
+		setError("client connection closed " + reason);
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public long getSourceId() {
+		return source.getId();
+	}
+
+	public String getSchema() {
+		return schema;
+	}
+
+	public String getTable() {
+		return inf.getTableName();
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public long getBatches() {
+		return batches;
+	}
+
+	public long getAffectedRows() {
+		return affectedRows;
+	}
+
+	public long getPendingChars() {
+		return pendingChars;
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * 0 if running
+	 */
+	public long getEndTime() {
+		return endTime;
+	}
+
+	public String getStatus() {
+		if (endTime > 0) {
+			return (error == null) ? "finished" : "failed:" + error;
+		} else if (error != null) {
+			return "failing:" + error;
+		}
+		return suspended ? "suspended" : "loading";
+	}
+
+	@Override
+	public String toString() {
+		return "load data [id=" + id + ",table=" + inf.getTableName()
+				+ ",rows=" + rows + "] of " + source;
+	}
+
+	/**
+	 * rows of one data node ,inserts are executed one by one in a backend
+	 * connection
+	 */
+	private final class NodeLoader implements ResponseHandler {
+		private final String dataNode;
+		private final LinkedList<String> queue = new LinkedList<String>();
+		private StringBuilder current;
+		private int currentRows;
+		// running insert
+		private String running;
+		private BackendConnection conn;
+
+		NodeLoader(String dataNode) {
+			this.dataNode = dataNode;
+		}
+
+		/**
+		 * under lock ,return true if an insert is ready to execute
+		 */
+		boolean add(String values) {
+			boolean flushed = false;
+			if (current != null
+					&& ((maxRows > 0 && currentRows >= maxRows) || (maxBytes > 0 && current
+							.length() + 1 + values.length() > maxBytes))) {
+				flushed = flushCurrent();
+			}
+			if (current == null) {
+				current = new StringBuilder(Math.max(256,
+						Math.min(maxBytes, 64 * 1024)));
+				current.append(insertHead).append(values);
+				pendingChars += insertHead.length() + values.length();
+				currentRows = 1;
+			} else {
+				current.append(',').append(values);
+				pendingChars += 1 + values.length();
+				currentRows++;
+			}
+			return flushed;
+		}
+
+		/**
+		 * under lock
+		 */
+		boolean flushCurrent() {
+			if (current == null) {
+				return false;
+			}
+			queue.add(current.toString());
+			current = null;
+			currentRows = 0;
+			return true;
+		}
+
+		/**
+		 * under lock ,drop rows not executed
+		 */
+		void clear() {
+			if (current != null) {
+				pendingChars -= current.length();
+				current = null;
+			}
+			for (String sql : queue) {
+				pendingChars -= sql.length();
+			}
+			queue.clear();
+		}
+
+		/**
+		 * under lock
+		 */
+		boolean isIdle() {
+			return running == null && conn == null
+					&& (error != null || queue.isEmpty());
+		}
+
+		/**
+		 * execute next insert if no one running
+		 */
+		void tryStart() {
+			String sql;
+			BackendConnection theConn;
+			lock.lock();
+			try {
+				if (running != null || error != null || queue.isEmpty()) {
+					return;
+				}
+				sql = queue.poll();
+				running = sql;
+				theConn = conn;
+			} finally {
+				lock.unlock();
+			}
+			RouteResultsetNode node = new RouteResultsetNode(dataNode,
+					ServerParse.INSERT, sql);
+			if (theConn != null) {
+				execute(theConn, node);
+				return;
+			}
+			MycatConfig conf = MycatServer.getInstance().getConfig();
+			PhysicalDBNode dn = conf.getDataNodes().get(dataNode);
+			ConnectionMeta conMeta = new ConnectionMeta(dn.getDatabase(),
+					source.getCharset(), source.getCharsetIndex(), true);
+			try {
+				dn.getConnection(conMeta, node, this, node);
+			} catch (Exception e) {
+				failed(null, "get connection of " + dataNode + " err:" + e);
+			}
+		}
+
+		private void execute(BackendConnection conn, RouteResultsetNode node) {
+			conn.setResponseHandler(this);
+			conn.setRunning(true);
+			try {
+				conn.execute(node, source, true);
+			} catch (IOException e) {
+				failed(conn, "execute err:" + e);
+			}
+		}
+
+		/**
+		 * insert finished ,release the connection if nothing to execute
+		 */
+		private void finished(BackendConnection theConn, long affected,
+				String err) {
+			boolean release;
+			lock.lock();
+			try {
+				if (running != null) {
+					pendingChars -= running.length();
+					running = null;
+				}
+				if (err == null) {
+					batches++;
+					affectedRows += affected;
+				} else if (error == null) {
+					error = err;
+				}
+				release = (error != null || queue.isEmpty());
+				if (release) {
+					conn = null;
+				}
+			} finally {
+				lock.unlock();
+			}
+			if (theConn != null) {
+				if (release) {
+					theConn.setRunning(false);
+					if (err == null) {
+						theConn.release();
+					} else {
+						theConn.close("load data err:" + err);
+					}
+				}
+			}
+			if (err != null) {
+				LOGGER.warn("load data to " + dataNode + " failed ," + err
+						+ " " + LoadDataInfileHandler.this);
+				setError(err);
+			} else {
+				tryStart();
+				resumeIfNeeded();
+				checkFinished();
+			}
+		}
+
+		private void failed(BackendConnection theConn, String err) {
+			finished(theConn, 0, err);
+		}
+
+		@Override
+		public void connectionAcquired(BackendConnection conn) {
+			lock.lock();
+			try {
+				this.conn = conn;
+			} finally {
+				lock.unlock();
+			}
+			execute(conn, (RouteResultsetNode) conn.getAttachment());
+		}
+
+		@Override
+		public void connectionError(Throwable e, BackendConnection conn) {
+			failed(null, "can't get connection of " + dataNode + " err:" + e);
+		}
+
+		@Override
+		public void errorResponse(byte[] data, BackendConnection conn) {
+			ErrorPacket err = new ErrorPacket();
+			err.read(data);
+			String msg = new String(err.message);
+			// connection is still usable
+			conn.setRunning(false);
+			lock.lock();
+			try {
+				this.conn = null;
+			} finally {
+				lock.unlock();
+			}
+			conn.release();
+			failed(null, msg);
+		}
+
+		@Override
+		public void okResponse(byte[] data, BackendConnection conn) {
+			if (!conn.syncAndExcute()) {
+				return;
+			}
+			OkPacket ok = new OkPacket();
+			ok.read(data);
+			finished(conn, ok.affectedRows, null);
+		}
+
+		@Override
+		public void fieldEofResponse(byte[] header, List<byte[]> fields,
+				byte[] eof, BackendConnection conn) {
+		}
+
+		@Override
+		public void rowResponse(byte[] row, BackendConnection conn) {
+		}
+
+		@Override
+		public void rowEofResponse(byte[] eof, BackendConnection conn) {
+		}
+
+		@Override
+		public void writeQueueAvailable() {
+		}
+
+		@Override
+		public void connectionClose(BackendConnection conn, String reason) {
+			lock.lock();
+			try {
+				if (this.conn == conn) {
+					this.conn = null;
+				}
+			} finally {
+				lock.unlock();
+			}
+			failed(null, "backend connection closed:" + reason);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.server.parser;
+
+import java.util.List;
+
+/**
+ * options of "load data local infile" statement
+ * 
+ * @author mycat
+ */
+public final class LoadDataInf {
+	String fileName;
+	boolean local;
+	boolean replace;
+	boolean ignore;
+	String tableName;
+	String charset;
+	String fieldsTerminated = "\t";
+	char enclosed;
+	boolean optionallyEnclosed;
+	char escaped = '\\';
+	String linesStarting = "";
+	String linesTerminated = "\n";
+	int ignoreLines;
+	List<String> columns;
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public boolean isLocal() {
+		return local;
+	}
+
+	public boolean isReplace() {
+		return replace;
+	}
+
+	public boolean isIgnore() {
+		return ignore;
+	}
+
+	/**
+	 * table name without schema ,as written in sql
+	 */
+	public String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * null if not defined
+	 */
+	public String getCharset() {
+		return charset;
+	}
+
+	public String getFieldsTerminated() {
+		return fieldsTerminated;
+	}
+
+	/**
+	 * 0 if fields not enclosed
+	 */
+	public char getEnclosed() {
+		return enclosed;
+	}
+
+	public boolean isOptionallyEnclosed() {
+		return optionallyEnclosed;
+	}
+
+	/**
+	 * 0 if no escape char
+	 */
+	public char getEscaped() {
+		return escaped;
+	}
+
+	public String getLinesStarting() {
+		return linesStarting;
+	}
+
+	public String getLinesTerminated() {
+		return linesTerminated;
+	}
+
+	public int getIgnoreLines() {
+		return ignoreLines;
+	}
+
+	/**
+	 * column names as written in sql ,null if not defined
+	 */
+	public List<String> getColumns() {
+		return columns;
+	}
+
+}
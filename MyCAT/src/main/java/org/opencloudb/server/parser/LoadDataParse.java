@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.server.parser;
+
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * parse statement:
+ * 
+ * <pre>
+ * LOAD DATA [LOW_PRIORITY | CONCURRENT] [LOCAL] INFILE 'file_name'
+ *     [REPLACE | IGNORE]
+ *     INTO TABLE tbl_name
+ *     [CHARACTER SET charset_name]
+ *     [{FIELDS | COLUMNS}
+ *         [TERMINATED BY 'string']
+ *         [[OPTIONALLY] ENCLOSED BY 'char']
+ *         [ESCAPED BY 'char']
+ *     ]
+ *     [LINES
+ *         [STARTING BY 'string']
+ *         [TERMINATED BY 'string']
+ *     ]
+ *     [IGNORE number {LINES | ROWS}]
+ *     [(col_name,...)]
+ * </pre>
+ * 
+ * user variables in column list and SET clause are not supported
+ * 
+ * @author mycat
+ */
+public final class LoadDataParse {
+	private final String stmt;
+	private int pos;
+	// last token is a quoted string
+	private boolean quoted;
+
+	private LoadDataParse(String stmt) {
+		this.stmt = stmt;
+	}
+
+	public static LoadDataInf parse(String stmt) throws SQLSyntaxErrorException {
+		return new LoadDataParse(stmt).parse();
+	}
+
+	private LoadDataInf parse() throws SQLSyntaxErrorException {
+		LoadDataInf inf = new LoadDataInf();
+		expectWord("LOAD");
+		expectWord("DATA");
+		String token = nextWord();
+		if ("LOW_PRIORITY".equalsIgnoreCase(token)
+				|| "CONCURRENT".equalsIgnoreCase(token)) {
+			token = nextWord();
+		}
+		if ("LOCAL".equalsIgnoreCase(token)) {
+			inf.local = true;
+			token = nextWord();
+		}
+		checkWord(token, "INFILE");
+		inf.fileName = nextString();
+		token = nextWord();
+		if ("REPLACE".equalsIgnoreCase(token)) {
+			inf.replace = true;
+			token = nextWord();
+		} else if ("IGNORE".equalsIgnoreCase(token)) {
+			inf.ignore = true;
+			token = nextWord();
+		}
+		checkWord(token, "INTO");
+		expectWord("TABLE");
+		String table = nextWord();
+		if (table == null) {
+			throw error("table name expected");
+		}
+		int dotInd = table.lastIndexOf('.');
+		inf.tableName = (dotInd < 0) ? table : table.substring(dotInd + 1);
+
+		token = nextToken();
+		if ("CHARACTER".equalsIgnoreCase(token)) {
+			expectWord("SET");
+			inf.charset = nextWord();
+			token = nextToken();
+		} else if ("CHARSET".equalsIgnoreCase(token)) {
+			inf.charset = nextWord();
+			token = nextToken();
+		}
+		if ("FIELDS".equalsIgnoreCase(token)
+				|| "COLUMNS".equalsIgnoreCase(token)) {
+			token = nextToken();
+			int options = 0;
+			for (;; options++) {
+				if ("TERMINATED".equalsIgnoreCase(token)) {
+					expectWord("BY");
+					inf.fieldsTerminated = nextString();
+					if (inf.fieldsTerminated.length() == 0) {
+						throw error("empty FIELDS TERMINATED BY not supported");
+					}
+				} else if ("OPTIONALLY".equalsIgnoreCase(token)) {
+					inf.optionallyEnclosed = true;
+					expectWord("ENCLOSED");
+					expectWord("BY");
+					inf.enclosed = nextChar();
+				} else if ("ENCLOSED".equalsIgnoreCase(token)) {
+					expectWord("BY");
+					inf.enclosed = nextChar();
+				} else if ("ESCAPED".equalsIgnoreCase(token)) {
+					expectWord("BY");
+					inf.escaped = nextChar();
+				} else {
+					break;
+				}
+				token = nextToken();
+			}
+			if (options == 0) {
+				throw error("FIELDS option expected");
+			}
+		}
+		if ("LINES".equalsIgnoreCase(token)) {
+			token = nextToken();
+			int options = 0;
+			for (;; options++) {
+				if ("STARTING".equalsIgnoreCase(token)) {
+					expectWord("BY");
+					inf.linesStarting = nextString();
+				} else if ("TERMINATED".equalsIgnoreCase(token)) {
+					expectWord("BY");
+					inf.linesTerminated = nextString();
+					if (inf.linesTerminated.length() == 0) {
+						throw error("empty LINES TERMINATED BY not supported");
+					}
+				} else {
+					break;
+				}
+				token = nextToken();
+			}
+			if (options == 0) {
+				throw error("LINES option expected");
+			}
+		}
+		if ("IGNORE".equalsIgnoreCase(token)) {
+			try {
+				inf.ignoreLines = Integer.parseInt(nextWord());
+			} catch (NumberFormatException e) {
+				throw error("number of IGNORE LINES expected");
+			}
+			token = nextWord();
+			if (!"LINES".equalsIgnoreCase(token)
+					&& !"ROWS".equalsIgnoreCase(token)) {
+				throw error("LINES or ROWS expected");
+			}
+			token = nextToken();
+		}
+		if ("(".equals(token)) {
+			List<String> columns = new ArrayList<String>();
+			do {
+				String column = nextWord();
+				if (column == null || column.startsWith("@")) {
+					throw error("column name expected ,user variables not supported");
+				}
+				columns.add(column);
+				token = nextToken();
+			} while (",".equals(token));
+			if (!")".equals(token)) {
+				throw error("')' expected");
+			}
+			inf.columns = columns;
+			token = nextToken();
+		}
+		if ("SET".equalsIgnoreCase(token)) {
+			throw error("SET clause not supported");
+		} else if (token != null) {
+			throw error("unexpected " + token);
+		}
+		return inf;
+	}
+
+	private SQLSyntaxErrorException error(String msg) {
+		return new SQLSyntaxErrorException("load data statement error ," + msg
+				+ " near position " + pos);
+	}
+
+	private void expectWord(String word) throws SQLSyntaxErrorException {
+		checkWord(nextWord(), word);
+	}
+
+	private void checkWord(String token, String word)
+			throws SQLSyntaxErrorException {
+		if (!word.equalsIgnoreCase(token)) {
+			throw error(word + " expected");
+		}
+	}
+
+	/**
+	 * @return null if end of statement or not a word
+	 */
+	private String nextWord() throws SQLSyntaxErrorException {
+		String token = nextToken();
+		return (quoted || "(".equals(token) || ")".equals(token) || ","
+				.equals(token)) ? null : token;
+	}
+
+	private String nextString() throws SQLSyntaxErrorException {
+		String token = nextToken();
+		if (!quoted) {
+			throw error("quoted string expected");
+		}
+		return token;
+	}
+
+	/**
+	 * enclosed and escaped char ,0 if empty string
+	 */
+	private char nextChar() throws SQLSyntaxErrorException {
+		String token = nextString();
+		if (token.length() > 1) {
+			throw error("single char expected");
+		}
+		return token.length() == 0 ? 0 : token.charAt(0);
+	}
+
+	/**
+	 * next word ,quoted string (unescaped) ,'(' ,')' or ',' ,null if end of
+	 * statement
+	 */
+	private String nextToken() throws SQLSyntaxErrorException {
+		quoted = false;
+		int length = stmt.length();
+		while (pos < length && Character.isWhitespace(stmt.charAt(pos))) {
+			pos++;
+		}
+		if (pos >= length) {
+			return null;
+		}
+		char c = stmt.charAt(pos);
+		switch (c) {
+		case '(':
+		case ')':
+		case ',':
+			pos++;
+			return String.valueOf(c);
+		case '\'':
+		case '"':
+			quoted = true;
+			return readString(c);
+		default:
+			StringBuilder sb = new StringBuilder();
+			while (pos < length) {
+				c = stmt.charAt(pos);
+				if (c == '`') {
+					int end = stmt.indexOf('`', pos + 1);
+					if (end < 0) {
+						throw error("unclosed `");
+					}
+					sb.append(stmt, pos + 1, end);
+					pos = end + 1;
+				} else if (Character.isWhitespace(c) || c == '(' || c == ')'
+						|| c == ',' || c == '\'' || c == '"') {
+					break;
+				} else {
+					sb.append(c);
+					pos++;
+				}
+			}
+			return sb.toString();
+		}
+	}
+
+	private String readString(char quote) throws SQLSyntaxErrorException {
+		StringBuilder sb = new StringBuilder();
+		int length = stmt.length();
+		for (pos++; pos < length; pos++) {
+			char c = stmt.charAt(pos);
+			if (c == '\\' && pos + 1 < length) {
+				sb.append(unescape(stmt.charAt(++pos)));
+			} else if (c == quote) {
+				if (pos + 1 < length && stmt.charAt(pos + 1) == quote) {
+					sb.append(quote);
+					pos++;
+				} else {
+					pos++;
+					return sb.toString();
+				}
+			} else {
+				sb.append(c);
+			}
+		}
+		throw error("unclosed string");
+	}
+
+	/**
+	 * char of escape sequence '\c' in sql string and data file
+	 */
+	public static char unescape(char c) {
+		switch (c) {
+		case '0':
+			return 0;
+		case 'b':
+			return '\b';
+		case 'n':
+			return '\n';
+		case 'r':
+			return '\r';
+		case 't':
+			return '\t';
+		case 'Z':
+			return 26;
+		default:
+			return c;
+		}
+	}
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.server.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * split the content of load data file into rows of fields ,content is
+ * appended by packets and a row is returned only when it's complete ,so a
+ * line can be across packets
+ * 
+ * @author mycat
+ */
+public final class LoadDataRowParser {
+	private static final int NEED_MORE = -1;
+	private static final int NO_MATCH = 0;
+	private static final String NULL_WORD = "NULL";
+
+	private final String fieldTerm;
+	private final String lineTerm;
+	private final String lineStart;
+	private final char enclosed;
+	private final char escaped;
+	private final StringBuilder buf = new StringBuilder();
+	// chars before start are parsed
+	private int start;
+
+	public LoadDataRowParser(LoadDataInf inf) {
+		this.fieldTerm = inf.getFieldsTerminated();
+		this.lineTerm = inf.getLinesTerminated();
+		this.lineStart = inf.getLinesStarting();
+		this.enclosed = inf.getEnclosed();
+		this.escaped = inf.getEscaped();
+	}
+
+	public void append(CharSequence data) {
+		if (start > 0 && start >= buf.length() / 2) {
+			buf.delete(0, start);
+			start = 0;
+		}
+		buf.append(data);
+	}
+
+	/**
+	 * drop all chars appended
+	 */
+	public void clear() {
+		buf.setLength(0);
+		start = 0;
+	}
+
+	/**
+	 * chars appended but not parsed as rows
+	 */
+	public int remaining() {
+		return buf.length() - start;
+	}
+
+	/**
+	 * @param eof
+	 *            no more data ,the last line may has no terminator
+	 * @return fields of next row ,null value of field means NULL. null if more
+	 *         data needed or no more rows
+	 */
+	public String[] nextRow(boolean eof) {
+		int p = start;
+		int length = buf.length();
+		if (p >= length) {
+			return null;
+		}
+		if (lineStart.length() > 0) {
+			int ind = buf.indexOf(lineStart, p);
+			if (ind < 0) {
+				if (eof) {
+					start = length;
+				}
+				return null;
+			}
+			p = ind + lineStart.length();
+		}
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		for (;;) {
+			field.setLength(0);
+			boolean isNull = false;
+			if (enclosed != 0 && p < length && buf.charAt(p) == enclosed) {
+				// enclosed field ,ends with enclosed char followed by
+				// terminator
+				for (p++;; p++) {
+					if (p >= length) {
+						if (!eof) {
+							return null;
+						}
+						break;
+					}
+					char c = buf.charAt(p);
+					if (c == escaped && escaped != 0) {
+						if (p + 1 >= length) {
+							if (!eof) {
+								return null;
+							}
+							field.append(c);
+							continue;
+						}
+						field.append(LoadDataParse.unescape(buf.charAt(++p)));
+					} else if (c == enclosed) {
+						if (p + 1 < length && buf.charAt(p + 1) == enclosed) {
+							field.append(c);
+							p++;
+							continue;
+						}
+						int m = matchTerm(p + 1, eof);
+						if (m == NEED_MORE && !eof) {
+							return null;
+						} else if (m > NO_MATCH) {
+							p++;
+							break;
+						}
+						field.append(c);
+					} else {
+						field.append(c);
+					}
+				}
+			} else {
+				boolean escapedN = false;
+				for (;; p++) {
+					if (p >= length) {
+						if (!eof) {
+							return null;
+						}
+						break;
+					}
+					char c = buf.charAt(p);
+					int m = matchTerm(p, false);
+					if (m == NEED_MORE && !eof) {
+						return null;
+					} else if (m > NO_MATCH) {
+						break;
+					}
+					if (c == escaped && escaped != 0) {
+						if (p + 1 >= length) {
+							if (!eof) {
+								return null;
+							}
+							field.append(c);
+							continue;
+						}
+						char next = buf.charAt(++p);
+						escapedN = (next == 'N' && field.length() == 0);
+						field.append(LoadDataParse.unescape(next));
+					} else {
+						escapedN = false;
+						field.append(c);
+					}
+				}
+				isNull = (escapedN && field.length() == 1)
+						|| (enclosed != 0 && NULL_WORD.contentEquals(field));
+			}
+			fields.add(isNull ? null : field.toString());
+			if (p >= length) {
+				// eof
+				start = length;
+				break;
+			}
+			if (startsWith(lineTerm, p)) {
+				start = p + lineTerm.length();
+				break;
+			}
+			// field terminator
+			p += fieldTerm.length();
+		}
+		return fields.toArray(new String[fields.size()]);
+	}
+
+	/**
+	 * @return length of line or field terminator at p ,NO_MATCH ,NEED_MORE if
+	 *         a terminator may start at p but data not enough. end of data
+	 *         matches if eof.
+	 */
+	private int matchTerm(int p, boolean eof) {
+		if (p >= buf.length()) {
+			return eof ? Integer.MAX_VALUE : NEED_MORE;
+		}
+		int m = match(lineTerm, p);
+		if (m == NO_MATCH) {
+			m = match(fieldTerm, p);
+		}
+		return m;
+	}
+
+	private int match(String term, int p) {
+		int length = buf.length();
+		for (int i = 0; i < term.length(); i++) {
+			if (p + i >= length) {
+				return NEED_MORE;
+			}
+			if (buf.charAt(p + i) != term.charAt(i)) {
+				return NO_MATCH;
+			}
+		}
+		return term.length();
+	}
+
+	private boolean startsWith(String term, int p) {
+		return match(term, p) > NO_MATCH;
+	}
+}
@@ -50,6 +50,7 @@ public final class ServerParse {
 	public static final int HELP = 17;
 	public static final int MYSQL_CMD_COMMENT = 18;
 	public static final int MYSQL_COMMENT = 19;
+	public static final int LOAD = 20;
 
 	public static int parse(String stmt) {
 		int lenth=stmt.length();
@@ -103,6 +104,9 @@ public final class ServerParse {
 			case 'H':
 			case 'h':
 				return helpCheck(stmt, i);
+			case 'L':
+			case 'l':
+				return loadCheck(stmt, i);
 			default:
 				return OTHER;
 			}
@@ -110,6 +114,30 @@ public final class ServerParse {
 		return OTHER;
 	}
 
+	private static final char[] DATA_KEYWORD = "DATA".toCharArray();
+
+	// LOAD' 'DATA' ' ,LOAD INDEX INTO CACHE and LOAD XML are OTHER
+	static int loadCheck(String stmt, int offset) {
+		if (stmt.length() > offset + "OAD ".length()) {
+			char c1 = stmt.charAt(++offset);
+			char c2 = stmt.charAt(++offset);
+			char c3 = stmt.charAt(++offset);
+			char c4 = stmt.charAt(++offset);
+			if ((c1 == 'O' || c1 == 'o') && (c2 == 'A' || c2 == 'a')
+					&& (c3 == 'D' || c3 == 'd')
+					&& (c4 == ' ' || c4 == '\t' || c4 == '\r' || c4 == '\n')) {
+				int data = ParseUtil.move(stmt, offset, 0);
+				if (ParseUtil.compare(stmt, data, DATA_KEYWORD)
+						&& stmt.length() > data + DATA_KEYWORD.length
+						&& ParseUtil.currentCharIsSep(stmt, data
+								+ DATA_KEYWORD.length)) {
+					return (offset << 8) | LOAD;
+				}
+			}
+		}
+		return OTHER;
+	}
+
 	// HELP' '
 	static int helpCheck(String stmt, int offset) {
 		if (stmt.length() > offset + "ELP ".length()) {
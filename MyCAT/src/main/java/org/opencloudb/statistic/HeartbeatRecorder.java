@@ -40,7 +40,7 @@ public class HeartbeatRecorder {
     private static final long AVG2_TIME = 10 * 60 * 1000L;
     private static final long AVG3_TIME = 30 * 60 * 1000L;
 
-    private long avg1;
+    private volatile long avg1;
     private long avg2;
     private long avg3;
     private final List<Record> records;
@@ -53,6 +53,13 @@ public class HeartbeatRecorder {
         return new StringBuilder().append(avg1).append(',').append(avg2).append(',').append(avg3).toString();
     }
 
+    /**
+     * 最近1分钟的平均响应时间
+     */
+    public long getAvg1() {
+        return avg1;
+    }
+
     public void set(long value) {
         if (value < 0) {
             return;
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.statistic;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * lock free histogram of latency in micro seconds since startup. 4 buckets
+ * for each power of 2 ,so a percentile is at most 25% bigger than the exact
+ * value
+ * 
+ * @author mycat
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BITS = 2;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int BUCKETS = SUB_COUNT * 40;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long nanos) {
+		long micros = (nanos < 0) ? 0 : nanos / 1000;
+		counts.incrementAndGet(indexOf(micros));
+		count.incrementAndGet();
+		long curMax;
+		while ((curMax = max.get()) < micros
+				&& !max.compareAndSet(curMax, micros)) {
+			// retry
+		}
+	}
+
+	static int indexOf(long micros) {
+		if (micros < SUB_COUNT) {
+			return (int) micros;
+		}
+		int exp = 63 - Long.numberOfLeadingZeros(micros);
+		int sub = (int) (micros >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+		int index = (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+		return (index < BUCKETS) ? index : BUCKETS - 1;
+	}
+
+	/**
+	 * the biggest value of the bucket
+	 */
+	static long upperOf(int index) {
+		if (index < SUB_COUNT) {
+			return index;
+		}
+		int exp = index / SUB_COUNT + SUB_BITS - 1;
+		int sub = index % SUB_COUNT;
+		return ((long) (SUB_COUNT + sub + 1) << (exp - SUB_BITS)) - 1;
+	}
+
+	/**
+	 * @param percent
+	 *            such as 0.99
+	 * @return micro seconds ,0 if nothing recorded
+	 */
+	public long getPercentile(double percent) {
+		long total = count.get();
+		if (total == 0) {
+			return 0;
+		}
+		long target = (long) Math.ceil(total * percent);
+		long sum = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			sum += counts.get(i);
+			if (sum >= target) {
+				return Math.min(upperOf(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+}
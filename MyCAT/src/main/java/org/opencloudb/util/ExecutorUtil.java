@@ -25,6 +25,7 @@ package org.opencloudb.util;
 
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -36,6 +37,18 @@ public class ExecutorUtil {
         return create(name, size, true);
     }
 
+    /**
+     * 有界队列，空闲线程60秒后退出
+     */
+    public static final NameableExecutor create(String name, int size, int queueSize) {
+        NameableThreadFactory factory = new NameableThreadFactory(name, true);
+        NameableExecutor executor = new NameableExecutor(name, size, new LinkedBlockingQueue<Runnable>(queueSize),
+                factory);
+        executor.setKeepAliveTime(60, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private static final NameableExecutor create(String name, int size, boolean isDaemon) {
         NameableThreadFactory factory = new NameableThreadFactory(name, isDaemon);
         return new NameableExecutor(name, size, new LinkedBlockingQueue<Runnable>(), factory);
@@ -39,7 +39,19 @@ public class ResultSetUtil {
 	public static void resultSetToPacket(String charset, Connection source,
 			List<FieldPacket> fieldPks, ResultSet rs,
 			List<RowDataPacket> rowsPkg) throws SQLException {
-		ResultSetMetaData metaData = rs.getMetaData();
+		int colunmCount = resultSetToFieldPacket(charset, fieldPks,
+				rs.getMetaData());
+		while (rs.next()) {
+			rowsPkg.add(resultSetToRowPacket(charset, rs, colunmCount));
+		}
+	}
+
+	/**
+	 * @return column count
+	 */
+	public static int resultSetToFieldPacket(String charset,
+			List<FieldPacket> fieldPks, ResultSetMetaData metaData)
+			throws SQLException {
 		int colunmCount = metaData.getColumnCount();
 		if (colunmCount > 0) {
 			for (int i = 0; i < colunmCount; i++) {
@@ -69,25 +81,20 @@ public class ResultSetUtil {
 
 		}
 
-		while (rs.next()) {
-			RowDataPacket row = new RowDataPacket(fieldPks.size());
-				for (int i = 0; i < colunmCount; i++) {
-					int j = i + 1;
-//					BindValue bindValue = new BindValue();
-//					bindValue.bufferType = fieldPackets[i].type;
-//					bindValue.bindLength = fieldPackets[i].length;
-//					bindValue.scale = fieldPackets[i].decimals;
-//					bindValue.charset = fieldPackets[i].charsetName;
-//					PacketUtil.resultToBindValue(bindValue, j, rs,
-//							fieldPackets[i]);
-					row.add(StringUtil.encode(rs.getString(j), charset));
-			
-			} 
-				rowsPkg.add(row);
-			}
+		return colunmCount;
 	}
 
-	
+	/**
+	 * current row of result set
+	 */
+	public static RowDataPacket resultSetToRowPacket(String charset,
+			ResultSet rs, int colunmCount) throws SQLException {
+		RowDataPacket row = new RowDataPacket(colunmCount);
+		for (int i = 0; i < colunmCount; i++) {
+			row.add(StringUtil.encode(rs.getString(i + 1), charset));
+		}
+		return row;
+	}
 
 	public static byte[] fromHex(String hexString) {
 		String[] hex = hexString.split(" ");
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.backend;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencloudb.config.model.DBHostConfig;
+import org.opencloudb.config.model.DataHostConfig;
+import org.opencloudb.heartbeat.DBHeartbeat;
+import org.opencloudb.jdbc.JDBCConnection;
+import org.opencloudb.mysql.nio.handler.ResponseHandler;
+import org.opencloudb.mysql.nio.handler.SimpleLogHandler;
+
+public class PhysicalDatasourceTest {
+
+	/**
+	 * source whose new connections are acquired at once
+	 */
+	private static class TestSource extends PhysicalDatasource {
+
+		TestSource(DBHostConfig config, DataHostConfig hostConfig) {
+			super(config, hostConfig, true);
+		}
+
+		@Override
+		public DBHeartbeat createHeartBeat() {
+			return null;
+		}
+
+		@Override
+		public void createNewConnection(ResponseHandler handler)
+				throws IOException {
+			handler.connectionAcquired(new JDBCConnection() {
+				@Override
+				public boolean isClosedOrQuit() {
+					return false;
+				}
+			});
+		}
+	}
+
+	private static TestSource createSource() {
+		DataHostConfig hostConf = new DataHostConfig("host", "mysql",
+				"native", new DBHostConfig[0],
+				new HashMap<Integer, DBHostConfig[]>());
+		DBHostConfig conf = new DBHostConfig("s0", "127.0.0.1", 3306,
+				"127.0.0.1:3306", "root", "");
+		conf.setMaxCon(10);
+		return new TestSource(conf, hostConf);
+	}
+
+	private static BackendConnection borrow(TestSource source)
+			throws Exception {
+		final BackendConnection[] acquired = new BackendConnection[1];
+		source.getConnection(new ConnectionMeta("db", "utf8",
+				Connection.TRANSACTION_REPEATABLE_READ, true),
+				new SimpleLogHandler() {
+					@Override
+					public void connectionAcquired(BackendConnection conn) {
+						acquired[0] = conn;
+					}
+				}, null);
+		return acquired[0];
+	}
+
+	@Test
+	public void testConcurrentRelease() throws Exception {
+		final TestSource source = createSource();
+		for (int round = 0; round < 100; round++) {
+			final BackendConnection con = borrow(source);
+			Assert.assertNotNull(con);
+			Assert.assertTrue(con.isBorrowed());
+			Assert.assertEquals(0, source.getIdleCount());
+			final CountDownLatch start = new CountDownLatch(1);
+			Thread[] threads = new Thread[4];
+			for (int i = 0; i < threads.length; i++) {
+				threads[i] = new Thread() {
+					public void run() {
+						try {
+							start.await();
+						} catch (InterruptedException e) {
+							return;
+						}
+						source.releaseChannel(con);
+					}
+				};
+				threads[i].start();
+			}
+			start.countDown();
+			for (Thread t : threads) {
+				t.join();
+			}
+			Assert.assertFalse(con.isBorrowed());
+			// released only once
+			Assert.assertEquals(1, source.getIdleCount());
+		}
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.backend.balance;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencloudb.backend.PhysicalDatasource;
+import org.opencloudb.config.model.DBHostConfig;
+import org.opencloudb.config.model.DataHostConfig;
+import org.opencloudb.config.util.ConfigException;
+import org.opencloudb.heartbeat.DBHeartbeat;
+import org.opencloudb.mysql.nio.handler.ResponseHandler;
+import org.opencloudb.util.TimeUtil;
+
+public class ReadBalancerTest {
+
+	/**
+	 * source whose active count and latency are set by test
+	 */
+	private static class TestSource extends PhysicalDatasource {
+		private int active;
+		private long latencyEwma;
+		private long latencyUpdateTime;
+
+		TestSource(DBHostConfig config, DataHostConfig hostConfig) {
+			super(config, hostConfig, true);
+		}
+
+		@Override
+		public DBHeartbeat createHeartBeat() {
+			return null;
+		}
+
+		@Override
+		public void createNewConnection(ResponseHandler handler)
+				throws IOException {
+		}
+
+		@Override
+		public int getActiveCount() {
+			return active;
+		}
+
+		@Override
+		public long getLatencyEwma() {
+			return latencyEwma;
+		}
+
+		@Override
+		public long getLatencyUpdateTime() {
+			return latencyUpdateTime;
+		}
+
+		TestSource set(int active, long latencyEwma) {
+			this.active = active;
+			this.latencyEwma = latencyEwma;
+			this.latencyUpdateTime = TimeUtil.currentTimeMillis();
+			return this;
+		}
+	}
+
+	private static List<PhysicalDatasource> createSources(int... weights) {
+		DataHostConfig hostConf = new DataHostConfig("host", "mysql",
+				"native", new DBHostConfig[0],
+				new HashMap<Integer, DBHostConfig[]>());
+		List<PhysicalDatasource> sources = new ArrayList<PhysicalDatasource>();
+		for (int i = 0; i < weights.length; i++) {
+			DBHostConfig conf = new DBHostConfig("s" + i, "127.0.0.1", 3306,
+					"127.0.0.1:3306", "root", "");
+			conf.setWeight(weights[i]);
+			sources.add(new TestSource(conf, hostConf));
+		}
+		return sources;
+	}
+
+	private static TestSource source(List<PhysicalDatasource> sources,
+			int index) {
+		return (TestSource) sources.get(index);
+	}
+
+	private static Map<PhysicalDatasource, Integer> select(
+			ReadBalancer balancer, List<PhysicalDatasource> sources, int times) {
+		Map<PhysicalDatasource, Integer> counts = new HashMap<PhysicalDatasource, Integer>();
+		for (PhysicalDatasource ds : sources) {
+			counts.put(ds, 0);
+		}
+		for (int i = 0; i < times; i++) {
+			PhysicalDatasource ds = balancer.select(sources);
+			counts.put(ds, counts.get(ds) + 1);
+		}
+		return counts;
+	}
+
+	@Test
+	public void testWeightedRoundRobin() {
+		List<PhysicalDatasource> sources = createSources(1, 2, 3);
+		ReadBalancer balancer = new WeightedRoundRobinBalancer();
+		Map<PhysicalDatasource, Integer> counts = new HashMap<PhysicalDatasource, Integer>();
+		PhysicalDatasource last = null;
+		int repeats = 0;
+		for (int i = 0; i < 600; i++) {
+			PhysicalDatasource ds = balancer.select(sources);
+			Integer count = counts.get(ds);
+			counts.put(ds, count == null ? 1 : count + 1);
+			if (ds == last) {
+				repeats++;
+			}
+			last = ds;
+		}
+		Assert.assertEquals(100, counts.get(sources.get(0)).intValue());
+		Assert.assertEquals(200, counts.get(sources.get(1)).intValue());
+		Assert.assertEquals(300, counts.get(sources.get(2)).intValue());
+		// smooth ,C B A C B C ,a source repeats only across rounds
+		Assert.assertEquals(99, repeats);
+	}
+
+	@Test
+	public void testSingleSource() {
+		List<PhysicalDatasource> sources = createSources(1);
+		Assert.assertSame(sources.get(0), new LeastActiveBalancer()
+				.select(sources));
+		Assert.assertSame(sources.get(0), new LatencyP2CBalancer()
+				.select(sources));
+	}
+
+	@Test
+	public void testLeastActive() {
+		List<PhysicalDatasource> sources = createSources(1, 1, 1);
+		source(sources, 0).set(3, 0);
+		source(sources, 1).set(1, 0);
+		source(sources, 2).set(2, 0);
+		ReadBalancer balancer = new LeastActiveBalancer();
+		Map<PhysicalDatasource, Integer> counts = select(balancer, sources,
+				100);
+		Assert.assertEquals(100, counts.get(sources.get(1)).intValue());
+
+		// random among ties
+		source(sources, 0).set(1, 0);
+		source(sources, 2).set(5, 0);
+		counts = select(balancer, sources, 1000);
+		Assert.assertTrue(counts.get(sources.get(0)) > 300);
+		Assert.assertTrue(counts.get(sources.get(1)) > 300);
+		Assert.assertEquals(0, counts.get(sources.get(2)).intValue());
+	}
+
+	@Test
+	public void testLatencyP2C() {
+		List<PhysicalDatasource> sources = createSources(1, 1);
+		ReadBalancer balancer = new LatencyP2CBalancer();
+		// lower latency
+		source(sources, 0).set(0, 1000);
+		source(sources, 1).set(0, 10);
+		Assert.assertEquals(100, select(balancer, sources, 100).get(
+				sources.get(1)).intValue());
+		// same latency ,fewer active
+		source(sources, 0).set(0, 100);
+		source(sources, 1).set(5, 100);
+		Assert.assertEquals(100, select(balancer, sources, 100).get(
+				sources.get(0)).intValue());
+		// latency * active ,(1000 + 1) * 1 < (100 + 1) * 20
+		source(sources, 0).set(0, 1000);
+		source(sources, 1).set(19, 100);
+		Assert.assertEquals(100, select(balancer, sources, 100).get(
+				sources.get(0)).intValue());
+		// no sample for a long time ,probe it again
+		source(sources, 0).set(0, 1000000);
+		source(sources, 0).latencyUpdateTime = TimeUtil.currentTimeMillis()
+				- 60 * 1000L;
+		source(sources, 1).set(0, 10);
+		Assert.assertEquals(100, select(balancer, sources, 100).get(
+				sources.get(0)).intValue());
+	}
+
+	@Test
+	public void testLatencyP2CManySources() {
+		List<PhysicalDatasource> sources = createSources(1, 1, 1);
+		source(sources, 0).set(0, 10);
+		source(sources, 1).set(2, 100);
+		source(sources, 2).set(10, 1000);
+		Map<PhysicalDatasource, Integer> counts = select(
+				new LatencyP2CBalancer(), sources, 3000);
+		// cheapest wins whenever it's one of the two ,most expensive never
+		Assert.assertTrue(counts.get(sources.get(0)) > 1700);
+		Assert.assertEquals(0, counts.get(sources.get(2)).intValue());
+	}
+
+	@Test(expected = ConfigException.class)
+	public void testUnknownBalancer() {
+		ReadBalancerFactory.create("roundrobin", -1);
+	}
+}
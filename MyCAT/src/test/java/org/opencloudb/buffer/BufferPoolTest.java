@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+	@Test
+	public void testAllocateRecycle() {
+		BufferPool pool = new BufferPool(1024 * 64, 1024);
+		int capacity = pool.capacity();
+		Assert.assertEquals(capacity, pool.size());
+		ByteBuffer buf = pool.allocate();
+		Assert.assertTrue(buf.isDirect());
+		Assert.assertEquals(1024, buf.capacity());
+		Assert.assertEquals(capacity - 1, pool.size());
+		pool.recycle(buf);
+		Assert.assertEquals(capacity, pool.size());
+		// served by thread cache now
+		long hits = pool.getHitCount();
+		Assert.assertSame(buf, pool.allocate());
+		Assert.assertEquals(hits + 1, pool.getHitCount());
+		pool.recycle(buf);
+		pool.safeRecycle(buf);
+		Assert.assertEquals(capacity, pool.size());
+	}
+
+	@Test
+	public void testSizeClass() {
+		BufferPool pool = new BufferPool(1024 * 64, 1024);
+		ByteBuffer buf = pool.allocate(1500);
+		Assert.assertTrue(buf.isDirect());
+		Assert.assertEquals(2048, buf.capacity());
+		pool.recycle(buf);
+		ByteBuffer large = pool.allocate(pool.getMaxPooledSize() + 1);
+		Assert.assertFalse(large.isDirect());
+		Assert.assertEquals(1, pool.getNewCount());
+		pool.recycle(large);
+		Assert.assertEquals(pool.capacity(), pool.size());
+	}
+
+	@Test
+	public void testExhausted() {
+		BufferPool pool = new BufferPool(1024 * 5, 1024);
+		ArrayList<ByteBuffer> all = new ArrayList<ByteBuffer>();
+		for (int i = 0; i <= pool.capacity(); i++) {
+			all.add(pool.allocate());
+		}
+		Assert.assertEquals(1, pool.getNewCount());
+		for (ByteBuffer buf : all) {
+			pool.recycle(buf);
+		}
+		Assert.assertEquals(pool.capacity(), pool.size());
+	}
+
+	@Test
+	public void testCrossThreadRecycle() throws Exception {
+		final BufferPool pool = new BufferPool(1024 * 256, 1024);
+		final ArrayList<ByteBuffer> all = new ArrayList<ByteBuffer>();
+		for (int i = 0; i < 100; i++) {
+			all.add(pool.allocate());
+		}
+		Thread t = new Thread() {
+			public void run() {
+				for (ByteBuffer buf : all) {
+					pool.recycle(buf);
+				}
+			}
+		};
+		t.start();
+		t.join();
+		Assert.assertEquals(pool.capacity(), pool.size());
+		Assert.assertEquals(0, pool.getNewCount());
+	}
+
+	@Test
+	public void testDeadThreadCacheReturned() throws Exception {
+		final BufferPool pool = new BufferPool(1024 * 16, 1024);
+		final int count = pool.capacity() - 1;
+		// every chunk ends in the cache of a thread which then exits
+		Thread t = new Thread() {
+			public void run() {
+				ArrayList<ByteBuffer> all = new ArrayList<ByteBuffer>();
+				for (int i = 0; i < count; i++) {
+					all.add(pool.allocate());
+				}
+				for (ByteBuffer buf : all) {
+					pool.recycle(buf);
+				}
+			}
+		};
+		t.start();
+		t.join();
+		long hits = pool.getHitCount();
+		long misses = pool.getMissCount();
+		Assert.assertTrue(misses > 0);
+		// a new thread prunes the dead cache before allocating
+		final ArrayList<ByteBuffer> all = new ArrayList<ByteBuffer>();
+		t = new Thread() {
+			public void run() {
+				for (int i = 0; i < count; i++) {
+					all.add(pool.allocate());
+				}
+			}
+		};
+		t.start();
+		t.join();
+		Assert.assertEquals(0, pool.getNewCount());
+		Assert.assertEquals(pool.capacity() - count, pool.size());
+		Assert.assertTrue(pool.getHitCount() >= hits);
+		Assert.assertTrue(pool.getMissCount() > misses);
+		for (ByteBuffer buf : all) {
+			pool.recycle(buf);
+		}
+		Assert.assertEquals(pool.capacity(), pool.size());
+	}
+}
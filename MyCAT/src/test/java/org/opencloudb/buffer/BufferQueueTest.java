@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.buffer;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BufferQueueTest {
+
+	@Test
+	public void testWaterMarks() throws Exception {
+		BufferQueue queue = new BufferQueue(8);
+		Assert.assertTrue(queue.isBelowLowWater());
+		for (int i = 0; i < 6; i++) {
+			Assert.assertFalse(queue.isAboveHighWater());
+			queue.put(ByteBuffer.allocate(16));
+		}
+		Assert.assertTrue(queue.isAboveHighWater());
+		Assert.assertFalse(queue.isBelowLowWater());
+		while (queue.snapshotSize() > 2) {
+			queue.poll();
+		}
+		Assert.assertTrue(queue.isBelowLowWater());
+	}
+
+	@Test
+	public void testPeekLast() throws Exception {
+		BufferQueue queue = new BufferQueue(8);
+		Assert.assertNull(queue.peekLast());
+		ByteBuffer first = ByteBuffer.allocate(16);
+		ByteBuffer last = ByteBuffer.allocate(16);
+		queue.put(first);
+		queue.put(last);
+		Assert.assertSame(last, queue.peekLast());
+		Assert.assertSame(first, queue.poll());
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.buffer;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PacketViewTest {
+
+	@Test
+	public void testView() {
+		BufferPool pool = new BufferPool(1024 * 16, 1024);
+		ByteBuffer buf = pool.allocate();
+		buf.put(new byte[] { 1, 0, 0, 0, 9, 2, 0, 0, 0, 7, 8 });
+		PacketView view = new PacketView(buf);
+		view.reset(5, 6);
+		Assert.assertEquals(6, view.length());
+		Assert.assertEquals(7, view.get(4));
+		view.setPacketId((byte) 3);
+		Assert.assertArrayEquals(new byte[] { 2, 0, 0, 3, 7, 8 },
+				view.toArray());
+		ByteBuffer dest = ByteBuffer.allocate(4);
+		view.copyTo(2, 4, dest);
+		Assert.assertArrayEquals(new byte[] { 0, 3, 7, 8 }, dest.array());
+		// reading buffer is not touched
+		Assert.assertEquals(11, buf.position());
+		pool.recycle(buf);
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencloudb.cache.impl.OffHeapIDCachePool;
+
+public class OffHeapIDCachePoolTest {
+
+	@Test
+	public void testBasic() {
+		OffHeapIDCachePool pool = new OffHeapIDCachePool("test", 1000, 0);
+		pool.putIfAbsent("2", "dn2");
+		pool.putIfAbsent(1L, "dn1");
+		pool.putIfAbsent("abc", "dn1");
+		pool.putIfAbsent("2", "dn3");
+		pool.putIfAbsent("0123456789012345678901234", "dn1");
+
+		Assert.assertEquals("dn2", pool.get(2L));
+		Assert.assertEquals("dn1", pool.get("1"));
+		Assert.assertEquals("dn1", pool.get("abc"));
+		Assert.assertNull(pool.get("02"));
+		Assert.assertNull(pool.get("0123456789012345678901234"));
+		Assert.assertEquals("dn2", pool.get("2"));
+
+		CacheStatic statics = pool.getCacheStatic();
+		Assert.assertEquals(3, statics.getItemSize());
+		Assert.assertEquals(3, statics.getPutTimes());
+		Assert.assertEquals(6, statics.getAccessTimes());
+		Assert.assertEquals(4, statics.getHitTimes());
+		Assert.assertTrue(pool.getMaxSize() >= 1000);
+
+		pool.clearCache();
+		Assert.assertNull(pool.get("2"));
+		Assert.assertEquals(0, pool.getCacheStatic().getItemSize());
+	}
+
+	@Test
+	public void testEvict() {
+		OffHeapIDCachePool pool = new OffHeapIDCachePool("test", 1000, 0);
+		int count = (int) pool.getMaxSize() * 4;
+		for (int i = 0; i < count; i++) {
+			pool.putIfAbsent(i, "dn" + (i % 3));
+			// keep the first key referenced
+			pool.get(0);
+		}
+		Assert.assertEquals("dn0", pool.get(0));
+		Assert.assertTrue(pool.getCacheStatic().getItemSize() <= pool
+				.getMaxSize());
+		int found = 0;
+		for (int i = 0; i < count; i++) {
+			Object value = pool.get(i);
+			if (value != null) {
+				Assert.assertEquals("dn" + (i % 3), value);
+				found++;
+			}
+		}
+		Assert.assertTrue(found > pool.getMaxSize() / 2);
+	}
+
+	@Test
+	public void testExpire() throws InterruptedException {
+		OffHeapIDCachePool pool = new OffHeapIDCachePool("test", 100, 1);
+		pool.putIfAbsent("1", "dn1");
+		Assert.assertEquals("dn1", pool.get("1"));
+		Thread.sleep(2100);
+		Assert.assertNull(pool.get("1"));
+		Assert.assertEquals(0, pool.getCacheStatic().getItemSize());
+	}
+}
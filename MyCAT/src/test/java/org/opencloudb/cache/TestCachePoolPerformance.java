@@ -34,6 +34,7 @@ import net.sf.ehcache.config.MemoryUnit;
 
 import org.opencloudb.cache.impl.EnchachePool;
 import org.opencloudb.cache.impl.MapDBCachePooFactory;
+import org.opencloudb.cache.impl.OffHeapIDCachePooFactory;
 
 public class TestCachePoolPerformance {
 	private CachePool pool;
@@ -56,6 +57,11 @@ public class TestCachePoolPerformance {
 
 	}
 
+	public static CachePool createOffHeapCachePool() {
+		OffHeapIDCachePooFactory fact = new OffHeapIDCachePooFactory();
+		return fact.createCachePool("offheapcache", 100 * 10000, 3600);
+	}
+
 	public void test() {
 		testSwarm();
 		testInsertSpeed();
@@ -120,7 +126,7 @@ public class TestCachePoolPerformance {
 	public static void main(String[] args) {
 		if (args.length < 1) {
 			System.out
-					.println("usage : \r\n cache: 1 for encache 2 for mapdb\r\n");
+					.println("usage : \r\n cache: 1 for encache 2 for mapdb 3 for offheap\r\n");
 			return;
 		}
 		TestCachePoolPerformance tester = new TestCachePoolPerformance();
@@ -131,6 +137,9 @@ public class TestCachePoolPerformance {
 		} else if (cacheType == 2) {
 			tester.pool = createMapDBCachePool();
 			tester.test();
+		} else if (cacheType == 3) {
+			tester.pool = createOffHeapCachePool();
+			tester.test();
 		} else {
 			System.out.println("not valid input ");
 		}
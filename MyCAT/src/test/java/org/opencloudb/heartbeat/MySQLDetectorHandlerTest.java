@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.heartbeat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.opencloudb.backend.PhysicalDBPool;
+import org.opencloudb.backend.PhysicalDatasource;
+import org.opencloudb.config.model.DBHostConfig;
+import org.opencloudb.config.model.DataHostConfig;
+import org.opencloudb.mysql.nio.MySQLDataSource;
+import org.opencloudb.net.mysql.EOFPacket;
+import org.opencloudb.net.mysql.FieldPacket;
+import org.opencloudb.net.mysql.ResultSetHeaderPacket;
+import org.opencloudb.net.mysql.RowDataPacket;
+
+/**
+ * SHOW SLAVE STATUS result parsed by heartbeat detector
+ */
+public class MySQLDetectorHandlerTest {
+	private MySQLHeartbeat heartbeat;
+	private MySQLDetectorHandler handler;
+
+	@Before
+	public void setUp() {
+		DataHostConfig hostConf = new DataHostConfig("host", "mysql",
+				"native", new DBHostConfig[0],
+				new HashMap<Integer, DBHostConfig[]>());
+		hostConf.setHearbeatSQL("select user()");
+		hostConf.setSlaveThreshold(10);
+		MySQLDataSource master = new MySQLDataSource(createHost("m"),
+				hostConf, false);
+		MySQLDataSource slave = new MySQLDataSource(createHost("s"),
+				hostConf, true);
+		Map<Integer, PhysicalDatasource[]> readSources = new HashMap<Integer, PhysicalDatasource[]>();
+		readSources.put(0, new PhysicalDatasource[] { slave });
+		new PhysicalDBPool("host", new PhysicalDatasource[] { master },
+				readSources, PhysicalDBPool.BALANCE_ALL,
+				PhysicalDBPool.WRITE_ONLYONE_NODE);
+		heartbeat = (MySQLHeartbeat) slave.getHeartbeat();
+		heartbeat.start();
+		MySQLDetector detector = new MySQLDetector(null);
+		detector.setHeartbeat(heartbeat);
+		handler = new MySQLDetectorHandler(detector);
+	}
+
+	private static DBHostConfig createHost(String name) {
+		DBHostConfig conf = new DBHostConfig(name, "127.0.0.1", 3306,
+				"127.0.0.1:3306", "root", "");
+		conf.setMaxCon(10);
+		return conf;
+	}
+
+	private void feedSlaveStatus(byte[] lag) {
+		byte packetId = 0;
+		ResultSetHeaderPacket header = new ResultSetHeaderPacket();
+		header.fieldCount = 2;
+		header.packetId = ++packetId;
+		handler.handleData(header.writeToBytes());
+		String[] names = { "Slave_IO_Running", "Seconds_Behind_Master" };
+		for (String name : names) {
+			FieldPacket field = new FieldPacket();
+			field.name = name.getBytes();
+			field.packetId = ++packetId;
+			handler.handleData(field.writeToBytes());
+		}
+		EOFPacket eof = new EOFPacket();
+		eof.packetId = ++packetId;
+		handler.handleData(eof.writeToBytes());
+		RowDataPacket row = new RowDataPacket(2);
+		row.add("Yes".getBytes());
+		row.add(lag);
+		row.packetId = ++packetId;
+		handler.handleData(row.writeToBytes());
+		EOFPacket lastEof = new EOFPacket();
+		lastEof.packetId = ++packetId;
+		handler.handleData(lastEof.writeToBytes());
+	}
+
+	@Test
+	public void testSlaveLag() {
+		feedSlaveStatus("5".getBytes());
+		Assert.assertEquals(5, heartbeat.getSlaveBehindMaster());
+		Assert.assertEquals(DBHeartbeat.OK_STATUS, heartbeat.getStatus());
+	}
+
+	@Test
+	public void testNullSlaveLag() {
+		feedSlaveStatus(null);
+		Assert.assertEquals(DBHeartbeat.SLAVE_LAG_BROKEN,
+				heartbeat.getSlaveBehindMaster());
+		// broken replication is not a heartbeat error
+		Assert.assertEquals(DBHeartbeat.OK_STATUS, heartbeat.getStatus());
+	}
+}
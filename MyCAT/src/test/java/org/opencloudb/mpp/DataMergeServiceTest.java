@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.mpp;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencloudb.net.mysql.RowDataPacket;
+import org.opencloudb.route.RouteResultset;
+import org.opencloudb.route.RouteResultsetNode;
+import org.opencloudb.server.parser.ServerParse;
+
+public class DataMergeServiceTest {
+
+	private static byte[] row(int id) {
+		RowDataPacket row = new RowDataPacket(2);
+		row.add(String.valueOf(id).getBytes());
+		row.add(("n" + id).getBytes());
+		return row.writeToBytes();
+	}
+
+	@Test
+	public void testSortSpillDuringInput() {
+		RouteResultset rrs = new RouteResultset(
+				"select id,name from t order by id desc", ServerParse.SELECT);
+		// same node twice ,rows can't be merged when received
+		rrs.setNodes(new RouteResultsetNode[] {
+				new RouteResultsetNode("dn1", ServerParse.SELECT,
+						rrs.getStatement()),
+				new RouteResultsetNode("dn1", ServerParse.SELECT,
+						rrs.getStatement()) });
+		LinkedHashMap<String, Integer> orders = new LinkedHashMap<String, Integer>();
+		orders.put("id", OrderCol.COL_ORDER_TYPE_DESC);
+		rrs.setOrderByCols(orders);
+		MergeMemoryManager manager = new MergeMemoryManager(1000,
+				1024 * 1024, new File(System.getProperty("java.io.tmpdir")));
+		DataMergeService service = new DataMergeService(rrs, manager);
+		Map<String, ColMeta> columns = new HashMap<String, ColMeta>();
+		columns.put("ID", new ColMeta(0, ColMeta.COL_TYPE_LONG));
+		columns.put("NAME", new ColMeta(1, ColMeta.COL_TYPE_VAR_STRING));
+		service.onRowMetaData(columns, 2);
+
+		for (int i = 0; i < 200; i++) {
+			int id = (i * 37) % 200;
+			Assert.assertFalse(service.onNewRecord("dn1", row(id)));
+		}
+		// spilled before all rows received
+		Assert.assertTrue(manager.getSpillCount() > 1);
+		Assert.assertTrue(manager.getUsedMemory() <= 1000);
+
+		List<String> result = new ArrayList<String>();
+		Iterator<RowDataPacket> itor = service.getResults().iterator();
+		while (itor.hasNext()) {
+			RowDataPacket row = itor.next();
+			itor.remove();
+			result.add(new String(row.fieldValues.get(0)) + ":"
+					+ new String(row.fieldValues.get(1)));
+		}
+		Assert.assertEquals(200, result.size());
+		for (int i = 0; i < 200; i++) {
+			Assert.assertEquals((199 - i) + ":n" + (199 - i), result.get(i));
+		}
+		service.clear();
+		Assert.assertEquals(0, manager.getUsedMemory());
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.mpp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencloudb.net.mysql.RowDataPacket;
+
+public class RowDataBatchTest {
+
+	private static RowDataPacket row(int id, String name) {
+		RowDataPacket row = new RowDataPacket(2);
+		row.add(String.valueOf(id).getBytes());
+		row.add(name == null ? null : name.getBytes());
+		return row;
+	}
+
+	/**
+	 * raw mysql row packet ,null value is 0xfb
+	 */
+	private static byte[] packet(String... values) {
+		List<Byte> body = new ArrayList<Byte>();
+		for (String v : values) {
+			if (v == null) {
+				body.add((byte) 251);
+				continue;
+			}
+			body.add((byte) v.length());
+			for (byte b : v.getBytes()) {
+				body.add(b);
+			}
+		}
+		byte[] data = new byte[body.size() + 4];
+		data[0] = (byte) body.size();
+		data[3] = 1;
+		for (int i = 0; i < body.size(); i++) {
+			data[i + 4] = body.get(i);
+		}
+		return data;
+	}
+
+	private static String field(RowDataPacket row, int col) {
+		byte[] v = row.fieldValues.get(col);
+		return v == null ? null : new String(v);
+	}
+
+	private static List<String> ids(Collection<RowDataPacket> rows) {
+		List<String> ids = new ArrayList<String>();
+		for (RowDataPacket row : rows) {
+			ids.add(field(row, 0));
+		}
+		return ids;
+	}
+
+	@Test
+	public void testAddAndGet() {
+		RowDataBatch batch = new RowDataBatch(2, 1);
+		batch.add(packet("1", "a"));
+		batch.add(row(2, null));
+		batch.add(packet("3", ""));
+		Assert.assertEquals(3, batch.size());
+		Assert.assertEquals("1", field(batch.getRow(0), 0));
+		Assert.assertEquals("a", field(batch.getRow(0), 1));
+		// null is kept as empty value ,written as NULL
+		Assert.assertEquals("", field(batch.getRow(1), 1));
+		Assert.assertEquals(0, batch.fieldLength(1, 1));
+		Assert.assertEquals("", field(batch.getRow(2), 1));
+
+		RowDataBatch copy = new RowDataBatch(2);
+		copy.add(batch, 2);
+		copy.add(batch, 1);
+		Assert.assertEquals("3", field(copy.getRow(0), 0));
+		Assert.assertEquals("", field(copy.getRow(1), 1));
+	}
+
+	@Test
+	public void testHeadTail() {
+		RowDataBatch batch = new RowDataBatch(2);
+		for (int i = 0; i < 5; i++) {
+			batch.add(row(i, "n" + i));
+		}
+		batch.retainHeadTail();
+		Assert.assertEquals(2, batch.size());
+		Assert.assertEquals("0", field(batch.getRow(0), 0));
+		Assert.assertEquals("n4", field(batch.getRow(1), 1));
+		batch.removeLast();
+		Assert.assertEquals(1, batch.size());
+		batch.add(row(9, "n9"));
+		Assert.assertEquals("n9", field(batch.getRow(1), 1));
+	}
+
+	@Test
+	public void testSortWindow() {
+		RowDataPacketComparator comparator = new RowDataPacketComparator(
+				new OrderCol[] { new OrderCol(new ColMeta(0,
+						ColMeta.COL_TYPE_LONG), OrderCol.COL_ORDER_TYPE_ASC) });
+		List<RowDataBatch> batches = new ArrayList<RowDataBatch>();
+		RowDataBatch first = new RowDataBatch(2);
+		RowDataBatch second = new RowDataBatch(2);
+		for (int i = 0; i < 10; i++) {
+			(i % 2 == 0 ? first : second).add(row(19 - i, "n"));
+		}
+		batches.add(first);
+		batches.add(new RowDataBatch(2));
+		batches.add(second);
+
+		long[] refs = RowDataBatch.sort(batches, comparator);
+		Collection<RowDataPacket> all = RowDataBatch.asRows(batches, refs, 0,
+				Integer.MAX_VALUE);
+		Assert.assertEquals(10, all.size());
+		Iterator<String> itor = ids(all).iterator();
+		for (int i = 10; i < 20; i++) {
+			Assert.assertEquals(String.valueOf(i), itor.next());
+		}
+		Collection<RowDataPacket> window = RowDataBatch.asRows(batches, refs,
+				3, 6);
+		Assert.assertEquals(3, window.size());
+		Assert.assertEquals("[13, 14, 15]", ids(window).toString());
+
+		// natural order
+		Assert.assertEquals("[11, 18, 16, 14, 12, 10]",
+				ids(RowDataBatch.asRows(batches, null, 4, 20)).toString());
+		Assert.assertEquals(0, RowDataBatch.asRows(batches, null, 10, 20)
+				.size());
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.mpp;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencloudb.net.mysql.RowDataPacket;
+
+public class RowDataPacketComparatorTest {
+
+	private static int decimal(String l, String r) {
+		return Integer.signum(RowDataPacketComparator.compareValue(
+				l.getBytes(), r.getBytes(),
+				RowDataPacketComparator.KIND_DECIMAL));
+	}
+
+	private static int kind(int colType, String l, String r) {
+		return Integer.signum(RowDataPacketComparator.compareValue(
+				l.getBytes(), r.getBytes(),
+				RowDataPacketComparator.getKind(colType, 33)));
+	}
+
+	private static RowDataPacket row(String... values) {
+		RowDataPacket row = new RowDataPacket(values.length);
+		for (String v : values) {
+			row.add(v.getBytes());
+		}
+		return row;
+	}
+
+	@Test
+	public void testDecimal() {
+		Assert.assertEquals(0, decimal("0", "0"));
+		Assert.assertEquals(-1, decimal("9", "10"));
+		Assert.assertEquals(-1, decimal("9.5", "10"));
+		Assert.assertEquals(1, decimal("10.01", "10.001"));
+		Assert.assertEquals(0, decimal("100.0", "100.000"));
+		Assert.assertEquals(0, decimal("007", "7"));
+		Assert.assertEquals(-1, decimal("0.5", "1"));
+		Assert.assertEquals(-1, decimal("-1", "0"));
+		Assert.assertEquals(1, decimal("-5", "-10"));
+		Assert.assertEquals(-1, decimal("-100.001", "-100.0"));
+		Assert.assertEquals(1, decimal("9223372036854775807",
+				"-9223372036854775808"));
+		// null is the smallest
+		Assert.assertEquals(-1, decimal("", "-1"));
+		Assert.assertEquals(0, decimal("", ""));
+	}
+
+	@Test
+	public void testOtherTypes() {
+		Assert.assertEquals(1, kind(ColMeta.COL_TYPE_DOUBLE, "1e20", "99.5"));
+		Assert.assertEquals(-1, kind(ColMeta.COL_TYPE_DOUBLE, "-1E-5", "0"));
+		Assert.assertEquals(-1, kind(ColMeta.COL_TYPE_TIME, "99:00:00",
+				"100:00:00"));
+		Assert.assertEquals(1, kind(ColMeta.COL_TYPE_TIME, "-01:00:00",
+				"-02:00:00"));
+		Assert.assertEquals(-1, kind(ColMeta.COL_TYPE_DATETIME,
+				"2014-01-02 10:00:00", "2014-01-10 09:00:00"));
+		Assert.assertEquals(0, kind(ColMeta.COL_TYPE_VAR_STRING, "abc", "ABC"));
+		Assert.assertEquals(-1, kind(ColMeta.COL_TYPE_VAR_STRING, "ab", "abc"));
+		// utf8 multibyte char after ascii
+		Assert.assertTrue(RowDataPacketComparator.compareValue("Z".getBytes(),
+				new byte[] { (byte) 0xe4, (byte) 0xb8, (byte) 0xad },
+				RowDataPacketComparator.KIND_STRING_CI) < 0);
+		// utf8_bin
+		Assert.assertEquals(1, Integer.signum(RowDataPacketComparator
+				.compareValue("abc".getBytes(), "ABC".getBytes(),
+						RowDataPacketComparator.getKind(
+								ColMeta.COL_TYPE_VAR_STRING, 83))));
+	}
+
+	@Test
+	public void testMultiByteCharset() {
+		// gbk 0x8161 and 0x8141 ,second byte looks like 'a' and 'A'
+		byte[] l = new byte[] { (byte) 0x81, 0x61 };
+		byte[] r = new byte[] { (byte) 0x81, 0x41 };
+		int gbk = RowDataPacketComparator.getKind(ColMeta.COL_TYPE_VAR_STRING,
+				28);
+		Assert.assertEquals(RowDataPacketComparator.KIND_STRING_CI_DBCS, gbk);
+		Assert.assertTrue(RowDataPacketComparator.compareValue(l, r, gbk) > 0);
+		Assert.assertEquals(0, RowDataPacketComparator.compareValue(
+				new byte[] { (byte) 0x81, 0x61, 'a' },
+				new byte[] { (byte) 0x81, 0x61, 'A' }, gbk));
+		// gb18030 four byte char ,digits in second and fourth byte
+		Assert.assertEquals(0, RowDataPacketComparator.compareValue(
+				new byte[] { (byte) 0x81, 0x30, (byte) 0x81, 0x30, 'x' },
+				new byte[] { (byte) 0x81, 0x30, (byte) 0x81, 0x30, 'X' },
+				RowDataPacketComparator.getKind(ColMeta.COL_TYPE_VAR_STRING,
+						248)));
+
+		// sjis half width katakana 0xb1 is one char ,'a' after it is folded
+		int sjis = RowDataPacketComparator.getKind(
+				ColMeta.COL_TYPE_VAR_STRING, 13);
+		Assert.assertEquals(0, RowDataPacketComparator.compareValue(
+				new byte[] { (byte) 0xb1, 'a' },
+				new byte[] { (byte) 0xb1, 'A' }, sjis));
+		Assert.assertTrue(RowDataPacketComparator.compareValue(
+				new byte[] { (byte) 0x82, 0x61 },
+				new byte[] { (byte) 0x82, 0x41 }, sjis) > 0);
+
+		// utf16 ,bytes compared as is
+		Assert.assertEquals(RowDataPacketComparator.KIND_BYTES,
+				RowDataPacketComparator.getKind(ColMeta.COL_TYPE_VAR_STRING,
+						54));
+	}
+
+	@Test
+	public void testMultiColumns() {
+		OrderCol[] orderCols = new OrderCol[] {
+				new OrderCol(new ColMeta(1, ColMeta.COL_TYPE_VAR_STRING, 33),
+						OrderCol.COL_ORDER_TYPE_ASC),
+				new OrderCol(new ColMeta(0, ColMeta.COL_TYPE_LONGLONG),
+						OrderCol.COL_ORDER_TYPE_DESC) };
+		RowDataPacketComparator comparator = new RowDataPacketComparator(
+				orderCols);
+		Assert.assertTrue(comparator.compare(row("1", "a"), row("2", "b")) < 0);
+		Assert.assertTrue(comparator.compare(row("1", "a"), row("2", "A")) > 0);
+		Assert.assertTrue(comparator.compare(row("2", "a"), row("2", "a")) == 0);
+
+		RowDataPacketSorter sorter = new RowDataPacketSorter(orderCols);
+		sorter.addRow(row("1", "b"));
+		sorter.addRow(row("3", "a"));
+		sorter.addRow(row("2", "B"));
+		sorter.addRow(row("10", "a"));
+		StringBuilder sb = new StringBuilder();
+		for (RowDataPacket row : sorter.getSortedResult()) {
+			sb.append(new String(row.fieldValues.get(0))).append(' ');
+		}
+		Assert.assertEquals("10 3 2 1 ", sb.toString());
+	}
+}
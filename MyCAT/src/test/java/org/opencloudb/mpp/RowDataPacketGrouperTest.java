@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.mpp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencloudb.net.mysql.RowDataPacket;
+
+public class RowDataPacketGrouperTest {
+
+	private static RowDataPacket row(String... values) {
+		RowDataPacket row = new RowDataPacket(values.length);
+		for (String v : values) {
+			row.add(v == null ? new byte[0] : v.getBytes());
+		}
+		return row;
+	}
+
+	private static String col(RowDataPacket row, int index) {
+		return new String(row.fieldValues.get(index));
+	}
+
+	private static List<RowDataPacket> toList(Collection<RowDataPacket> rows) {
+		return new ArrayList<RowDataPacket>(rows);
+	}
+
+	@Test
+	public void testGroupAndAggregate() {
+		MergeCol[] mergCols = new MergeCol[] {
+				new MergeCol(new ColMeta(1, ColMeta.COL_TYPE_LONGLONG),
+						MergeCol.MERGE_COUNT),
+				new MergeCol(new ColMeta(2, ColMeta.COL_TYPE_NEWDECIMAL),
+						MergeCol.MERGE_SUM),
+				new MergeCol(new ColMeta(3, ColMeta.COL_TYPE_DOUBLE),
+						MergeCol.MERGE_SUM),
+				new MergeCol(new ColMeta(4, ColMeta.COL_TYPE_LONG),
+						MergeCol.MERGE_MIN),
+				new MergeCol(new ColMeta(5, ColMeta.COL_TYPE_LONG),
+						MergeCol.MERGE_MAX) };
+		RowDataPacketGrouper grouper = new RowDataPacketGrouper(
+				new int[] { 0 }, mergCols);
+		grouper.addRow(row("a", "2", "1.10", "1.5", "7", "7"));
+		grouper.addRow(row("b", "1", "5.00", "2.0", "3", "3"));
+		grouper.addRow(row("a", "-5", "2.25", "1.0", "-2", "10"));
+		grouper.addRow(row("a", "10", null, "0.5", "4", null));
+
+		List<RowDataPacket> result = toList(grouper.getResult());
+		Assert.assertEquals(2, result.size());
+		RowDataPacket a = result.get(0);
+		Assert.assertEquals("a", col(a, 0));
+		Assert.assertEquals("7", col(a, 1));
+		Assert.assertEquals("3.35", col(a, 2));
+		Assert.assertEquals("3.0", col(a, 3));
+		Assert.assertEquals("-2", col(a, 4));
+		Assert.assertEquals("10", col(a, 5));
+		RowDataPacket b = result.get(1);
+		Assert.assertEquals("b", col(b, 0));
+		Assert.assertEquals("1", col(b, 1));
+		Assert.assertEquals("5.00", col(b, 2));
+	}
+
+	@Test
+	public void testMultiColumnKey() {
+		MergeCol[] mergCols = new MergeCol[] { new MergeCol(new ColMeta(2,
+				ColMeta.COL_TYPE_LONGLONG), MergeCol.MERGE_COUNT) };
+		RowDataPacketGrouper grouper = new RowDataPacketGrouper(new int[] {
+				0, 1 }, mergCols);
+		// "ab"+"c" and "a"+"bc" must be different groups
+		grouper.addRow(row("ab", "c", "1"));
+		grouper.addRow(row("a", "bc", "1"));
+		grouper.addRow(row("ab", "c", "1"));
+		List<RowDataPacket> result = toList(grouper.getResult());
+		Assert.assertEquals(2, result.size());
+		Assert.assertEquals("2", col(result.get(0), 2));
+		Assert.assertEquals("1", col(result.get(1), 2));
+	}
+
+	@Test
+	public void testNoGroupColumn() {
+		MergeCol[] mergCols = new MergeCol[] { new MergeCol(new ColMeta(0,
+				ColMeta.COL_TYPE_LONGLONG), MergeCol.MERGE_COUNT) };
+		RowDataPacketGrouper grouper = new RowDataPacketGrouper(null,
+				mergCols);
+		for (int i = 0; i < 1000; i++) {
+			grouper.addRow(row(String.valueOf(i)));
+		}
+		Collection<RowDataPacket> result = grouper.getResult();
+		Assert.assertEquals(1, result.size());
+		Iterator<RowDataPacket> itor = result.iterator();
+		Assert.assertEquals("499500", col(itor.next(), 0));
+		itor.remove();
+		Assert.assertTrue(result.isEmpty());
+	}
+
+	@Test
+	public void testSpillGroups() {
+		MergeMemoryManager manager = new MergeMemoryManager(2000,
+				1024 * 1024, new java.io.File(
+						System.getProperty("java.io.tmpdir")));
+		MergeCol[] mergCols = new MergeCol[] {
+				new MergeCol(new ColMeta(1, ColMeta.COL_TYPE_LONGLONG),
+						MergeCol.MERGE_COUNT),
+				new MergeCol(new ColMeta(2, ColMeta.COL_TYPE_LONG),
+						MergeCol.MERGE_MAX) };
+		RowDataPacketGrouper grouper = new RowDataPacketGrouper(
+				new int[] { 0 }, mergCols, manager);
+		for (int i = 0; i < 1000; i++) {
+			grouper.addRow(row("g" + (i % 50), "1", String.valueOf(i)));
+		}
+		Assert.assertTrue(manager.getSpillCount() > 0);
+		Collection<RowDataPacket> result = grouper.getResult();
+		Iterator<RowDataPacket> itor = result.iterator();
+		int groups = 0;
+		while (itor.hasNext()) {
+			RowDataPacket row = itor.next();
+			itor.remove();
+			int g = Integer.parseInt(col(row, 0).substring(1));
+			Assert.assertEquals("20", col(row, 1));
+			Assert.assertEquals(String.valueOf(950 + g), col(row, 2));
+			groups++;
+		}
+		Assert.assertEquals(50, groups);
+		grouper.clear();
+		Assert.assertEquals(0, manager.getUsedMemory());
+	}
+
+	@Test
+	public void testParseLong() {
+		Assert.assertEquals(0L, RowDataPacketGrouper.parseLong("0".getBytes()));
+		Assert.assertEquals(-123L,
+				RowDataPacketGrouper.parseLong("-123".getBytes()));
+		Assert.assertEquals(Long.MIN_VALUE, RowDataPacketGrouper
+				.parseLong(String.valueOf(Long.MIN_VALUE).getBytes()));
+		Assert.assertEquals(Long.MAX_VALUE, RowDataPacketGrouper
+				.parseLong(String.valueOf(Long.MAX_VALUE).getBytes()));
+		try {
+			RowDataPacketGrouper.parseLong("1.5".getBytes());
+			Assert.fail();
+		} catch (NumberFormatException e) {
+			// expected
+		}
+	}
+}
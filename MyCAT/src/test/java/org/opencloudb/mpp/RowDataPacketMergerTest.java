@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.mpp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencloudb.net.mysql.RowDataPacket;
+import org.opencloudb.route.RouteResultset;
+import org.opencloudb.route.RouteResultsetNode;
+import org.opencloudb.server.parser.ServerParse;
+
+public class RowDataPacketMergerTest {
+
+	private static RouteResultset rrs(int limitStart, int limitSize,
+			String... nodes) {
+		RouteResultset rrs = new RouteResultset("select * from t order by id",
+				ServerParse.SELECT);
+		RouteResultsetNode[] routeNodes = new RouteResultsetNode[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			routeNodes[i] = new RouteResultsetNode(nodes[i],
+					ServerParse.SELECT, rrs.getStatement());
+		}
+		rrs.setNodes(routeNodes);
+		rrs.setLimitStart(limitStart);
+		rrs.setLimitSize(limitSize);
+		return rrs;
+	}
+
+	private static RowDataPacketMerger merger(int orderType,
+			RouteResultset rrs) {
+		OrderCol[] orderCols = new OrderCol[] { new OrderCol(new ColMeta(0,
+				ColMeta.COL_TYPE_LONG), orderType) };
+		return new RowDataPacketMerger(new RowDataPacketSorter(orderCols), rrs);
+	}
+
+	private static RowDataPacket row(int id) {
+		RowDataPacket row = new RowDataPacket(1);
+		row.add(String.valueOf(id).getBytes());
+		return row;
+	}
+
+	private static List<Integer> drain(RowDataPacketMerger merger) {
+		List<Integer> ids = new ArrayList<Integer>();
+		RowDataPacket row;
+		while ((row = merger.poll()) != null) {
+			ids.add(Integer.valueOf(new String(row.fieldValues.get(0))));
+		}
+		return ids;
+	}
+
+	@Test
+	public void testStreamingMerge() {
+		RowDataPacketMerger merger = merger(OrderCol.COL_ORDER_TYPE_ASC,
+				rrs(0, -1, "dn1", "dn2", "dn3"));
+		Assert.assertFalse(merger.addRow("dn1", row(1)));
+		Assert.assertFalse(merger.addRow("dn1", row(4)));
+		Assert.assertFalse(merger.addRow("dn2", row(2)));
+		// dn3 has no row yet
+		Assert.assertTrue(drain(merger).isEmpty());
+		Assert.assertTrue(merger.addRow("dn3", row(3)));
+		Assert.assertEquals("[1, 2]", drain(merger).toString());
+		Assert.assertTrue(merger.nodeFinished("dn2"));
+		Assert.assertEquals("[3]", drain(merger).toString());
+		merger.addRow("dn3", row(5));
+		Assert.assertEquals("[4]", drain(merger).toString());
+		merger.nodeFinished("dn1");
+		Assert.assertTrue(merger.nodeFinished("dn3"));
+		Assert.assertEquals("[5]", drain(merger).toString());
+	}
+
+	@Test
+	public void testDescAndLimit() {
+		RowDataPacketMerger merger = merger(OrderCol.COL_ORDER_TYPE_DESC,
+				rrs(1, 2, "dn1", "dn2"));
+		merger.addRow("dn1", row(9));
+		merger.addRow("dn1", row(5));
+		merger.addRow("dn2", row(8));
+		merger.addRow("dn2", row(7));
+		Assert.assertEquals("[9, 8, 7]", drain(merger).toString());
+		Assert.assertTrue(merger.isLimitReached());
+		// no more rows kept after limit start+size reached
+		Assert.assertFalse(merger.addRow("dn2", row(6)));
+		merger.nodeFinished("dn1");
+		merger.nodeFinished("dn2");
+		Assert.assertTrue(drain(merger).isEmpty());
+	}
+
+	@Test
+	public void testNodeRowsLimited() {
+		RowDataPacketMerger merger = merger(OrderCol.COL_ORDER_TYPE_ASC,
+				rrs(0, 2, "dn1", "dn2"));
+		merger.addRow("dn1", row(1));
+		merger.addRow("dn1", row(2));
+		// the 3rd row of dn1 can't be in the first 2 rows
+		merger.addRow("dn1", row(3));
+		Assert.assertTrue(merger.addRow("dn2", row(4)));
+		// no need to wait for eof of dn1
+		Assert.assertEquals("[1, 2]", drain(merger).toString());
+		Assert.assertTrue(merger.isLimitReached());
+	}
+
+	@Test
+	public void testCanMerge() {
+		Assert.assertTrue(RowDataPacketMerger.canMerge(rrs(0, -1, "dn1",
+				"dn2")));
+		Assert.assertFalse(RowDataPacketMerger.canMerge(rrs(0, -1, "dn1",
+				"dn1")));
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.mpp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencloudb.net.mysql.RowDataPacket;
+
+public class RowDataPacketTopNSorterTest {
+
+	private static final OrderCol[] ORDER_COLS = new OrderCol[] { new OrderCol(
+			new ColMeta(0, ColMeta.COL_TYPE_LONG), OrderCol.COL_ORDER_TYPE_ASC) };
+
+	private static RowDataPacket row(int id, String name) {
+		RowDataPacket row = new RowDataPacket(2);
+		row.add(String.valueOf(id).getBytes());
+		row.add(name.getBytes());
+		return row;
+	}
+
+	private static List<String> values(Iterable<RowDataPacket> rows, int col) {
+		List<String> values = new ArrayList<String>();
+		for (RowDataPacket row : rows) {
+			values.add(new String(row.fieldValues.get(col)));
+		}
+		return values;
+	}
+
+	@Test
+	public void testSameAsFullSort() {
+		Random random = new Random(7);
+		List<RowDataPacket> rows = new ArrayList<RowDataPacket>();
+		for (int i = 0; i < 1000; i++) {
+			rows.add(row(random.nextInt(300), "n" + i));
+		}
+		RowDataPacketTopNSorter topN = new RowDataPacketTopNSorter(
+				ORDER_COLS, 25);
+		RowDataPacketSorter sorter = new RowDataPacketSorter(ORDER_COLS);
+		for (RowDataPacket row : rows) {
+			topN.addRow(row);
+			sorter.addRow(row);
+		}
+		Assert.assertEquals(25, topN.size());
+		List<String> expected = values(sorter.getSortedResult(), 1).subList(
+				0, 25);
+		// rows of the same order are kept in arrival order like a full sort
+		Assert.assertEquals(expected, values(topN.getSortedResult(), 1));
+	}
+
+	@Test
+	public void testLessRowsThanLimit() {
+		RowDataPacketTopNSorter topN = new RowDataPacketTopNSorter(
+				ORDER_COLS, 10);
+		List<Integer> ids = new ArrayList<Integer>();
+		for (int i = 0; i < 5; i++) {
+			ids.add(i);
+		}
+		Collections.shuffle(ids, new Random(1));
+		for (Integer id : ids) {
+			topN.addRow(row(id, "n"));
+		}
+		Assert.assertEquals("[0, 1, 2, 3, 4]",
+				values(topN.getSortedResult(), 0).toString());
+		Assert.assertEquals(0, topN.size());
+	}
+
+	@Test
+	public void testZeroLimit() {
+		RowDataPacketTopNSorter topN = new RowDataPacketTopNSorter(
+				ORDER_COLS, 0);
+		topN.addRow(row(1, "a"));
+		Assert.assertTrue(topN.getSortedResult().isEmpty());
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.mpp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.opencloudb.net.mysql.RowDataPacket;
+import org.opencloudb.util.ByteUtil;
+import org.opencloudb.util.CompareUtil;
+
+/**
+ * sort rows by a string and a decimal column ,compare with the old sorter
+ * which creates String for every string compare
+ * 
+ * @author wuzhih
+ */
+public class RowDataSortPerfMain {
+
+	private static final OrderCol[] ORDER_COLS = new OrderCol[] {
+			new OrderCol(new ColMeta(0, ColMeta.COL_TYPE_VAR_STRING),
+					OrderCol.COL_ORDER_TYPE_ASC),
+			new OrderCol(new ColMeta(1, ColMeta.COL_TYPE_NEWDECIMAL),
+					OrderCol.COL_ORDER_TYPE_DESC) };
+
+	/**
+	 * compare like RowDataPacketSorter.compareObject before
+	 */
+	private static final Comparator<RowDataPacket> OLD_COMPARATOR = new Comparator<RowDataPacket>() {
+		@Override
+		public int compare(RowDataPacket l, RowDataPacket r) {
+			int result = CompareUtil.compareString(
+					ByteUtil.getString(l.fieldValues.get(0)),
+					ByteUtil.getString(r.fieldValues.get(0)));
+			if (result != 0) {
+				return result;
+			}
+			return -ByteUtil.compareNumberByte(l.fieldValues.get(1),
+					r.fieldValues.get(1));
+		}
+	};
+
+	private static List<RowDataPacket> createRows(int count) {
+		Random random = new Random(1);
+		List<RowDataPacket> rows = new ArrayList<RowDataPacket>(count);
+		for (int i = 0; i < count; i++) {
+			RowDataPacket row = new RowDataPacket(2);
+			row.add(("customer_" + random.nextInt(count / 10)).getBytes());
+			row.add((random.nextInt(100000) + "." + random.nextInt(100))
+					.getBytes());
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	private static long sort(List<RowDataPacket> rows,
+			Comparator<RowDataPacket> comparator) {
+		List<RowDataPacket> copy = new ArrayList<RowDataPacket>(rows);
+		long t1 = System.nanoTime();
+		Collections.sort(copy, comparator);
+		return System.nanoTime() - t1;
+	}
+
+	public static void main(String[] args) {
+		int count = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+		List<RowDataPacket> rows = createRows(count);
+		Comparator<RowDataPacket> newComparator = new RowDataPacketComparator(
+				ORDER_COLS);
+		// warm up
+		for (int i = 0; i < 5; i++) {
+			sort(rows, OLD_COMPARATOR);
+			sort(rows, newComparator);
+		}
+		int loop = 10;
+		long oldTime = 0;
+		long newTime = 0;
+		for (int i = 0; i < loop; i++) {
+			oldTime += sort(rows, OLD_COMPARATOR);
+			newTime += sort(rows, newComparator);
+		}
+		System.out.println("rows " + count + " ,old sorter "
+				+ (oldTime / loop / 1000000) + " ms ,new comparator "
+				+ (newTime / loop / 1000000) + " ms");
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.mpp;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencloudb.net.mysql.RowDataPacket;
+
+public class SpillableRowBufferTest {
+
+	private static MergeMemoryManager manager(long sessionLimit,
+			long totalLimit) {
+		return new MergeMemoryManager(sessionLimit, totalLimit, new File(
+				System.getProperty("java.io.tmpdir")));
+	}
+
+	private static RowDataPacket row(int id, String name) {
+		RowDataPacket row = new RowDataPacket(2);
+		row.add(String.valueOf(id).getBytes());
+		row.add(name == null ? new byte[0] : name.getBytes());
+		return row;
+	}
+
+	private static List<String> drain(Collection<RowDataPacket> rows) {
+		List<String> result = new ArrayList<String>();
+		Iterator<RowDataPacket> itor = rows.iterator();
+		while (itor.hasNext()) {
+			RowDataPacket row = itor.next();
+			itor.remove();
+			result.add(new String(row.fieldValues.get(0)) + ":"
+					+ new String(row.fieldValues.get(1)));
+		}
+		return result;
+	}
+
+	@Test
+	public void testInMemory() {
+		MergeMemoryManager manager = manager(1024 * 1024, 1024 * 1024);
+		SpillableRowBuffer buffer = new SpillableRowBuffer(manager, 2, null);
+		buffer.add(row(2, "b"));
+		buffer.add(row(1, "a"));
+		Assert.assertFalse(buffer.isSpilled());
+		Assert.assertTrue(manager.getUsedMemory() > 0);
+		Assert.assertEquals("[2:b, 1:a]", drain(buffer.getResult()).toString());
+		buffer.clear();
+		Assert.assertEquals(0, manager.getUsedMemory());
+	}
+
+	@Test
+	public void testSpillKeepOrder() {
+		MergeMemoryManager manager = manager(500, 1024 * 1024);
+		SpillableRowBuffer buffer = new SpillableRowBuffer(manager, 2, null);
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			String name = (i % 7 == 0) ? null : "name" + i;
+			buffer.add(row(i, name));
+			expected.add(i + ":" + (name == null ? "" : name));
+		}
+		Assert.assertTrue(buffer.isSpilled());
+		Assert.assertTrue(manager.getSpillCount() >= SpillableRowBuffer.MAX_OPEN_RUNS);
+		Assert.assertTrue(buffer.getRunCount() < SpillableRowBuffer.MAX_OPEN_RUNS);
+		Assert.assertEquals(100, buffer.size());
+		Assert.assertEquals(expected, drain(buffer.getResult()));
+		buffer.clear();
+		Assert.assertEquals(0, manager.getUsedMemory());
+	}
+
+	@Test
+	public void testSpillSorted() {
+		// total limit reached before session limit
+		MergeMemoryManager manager = manager(2000, 700);
+		OrderCol[] orderCols = new OrderCol[] { new OrderCol(new ColMeta(0,
+				ColMeta.COL_TYPE_LONG), OrderCol.COL_ORDER_TYPE_DESC) };
+		SpillableRowBuffer buffer = new SpillableRowBuffer(manager, 2,
+				new RowDataPacketSorter(orderCols));
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 200; i++) {
+			int id = (i * 37) % 200;
+			buffer.add(row(id, "n" + id));
+		}
+		for (int i = 199; i >= 0; i--) {
+			expected.add(i + ":n" + i);
+		}
+		Assert.assertTrue(buffer.isSpilled());
+		Assert.assertEquals(expected, drain(buffer.getResult()));
+		buffer.clear();
+		Assert.assertEquals(0, manager.getUsedMemory());
+	}
+
+	@Test
+	public void testSmallRunNotSpilled() {
+		// total budget used up ,but rows of session are under min spill size
+		MergeMemoryManager manager = manager(1024 * 1024, 100);
+		SpillableRowBuffer buffer = new SpillableRowBuffer(manager, 2, null);
+		for (int i = 0; i < 100; i++) {
+			buffer.add(row(i, "name" + i));
+		}
+		Assert.assertFalse(buffer.isSpilled());
+		Assert.assertEquals(0, manager.getSpillCount());
+		Assert.assertEquals(100, drain(buffer.getResult()).size());
+		buffer.clear();
+		Assert.assertEquals(0, manager.getUsedMemory());
+	}
+
+	@Test
+	public void testSortedRunsCompacted() {
+		MergeMemoryManager manager = manager(400, 1024 * 1024);
+		OrderCol[] orderCols = new OrderCol[] { new OrderCol(new ColMeta(0,
+				ColMeta.COL_TYPE_LONG), OrderCol.COL_ORDER_TYPE_ASC) };
+		SpillableRowBuffer buffer = new SpillableRowBuffer(manager, 2,
+				new RowDataPacketSorter(orderCols));
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 300; i++) {
+			int id = (i * 7) % 300;
+			buffer.add(row(id, "n" + id));
+			expected.add(i + ":n" + i);
+		}
+		Assert.assertTrue(manager.getSpillCount() > SpillableRowBuffer.MAX_OPEN_RUNS);
+		Assert.assertTrue(buffer.getRunCount() < SpillableRowBuffer.MAX_OPEN_RUNS);
+		Assert.assertEquals(expected, drain(buffer.getResult()));
+		buffer.clear();
+		Assert.assertEquals(0, manager.getUsedMemory());
+	}
+
+	@Test
+	public void testCleanSpillFiles() throws Exception {
+		File dir = new File(System.getProperty("java.io.tmpdir"),
+				"spill-test-" + System.nanoTime());
+		MergeMemoryManager manager = new MergeMemoryManager(100, 100, dir);
+		File stale = manager.createSpillFile();
+		File other = new File(dir, "other.txt");
+		Assert.assertTrue(other.createNewFile());
+		Assert.assertEquals(1, manager.cleanSpillFiles());
+		Assert.assertFalse(stale.exists());
+		Assert.assertTrue(other.exists());
+		other.delete();
+		dir.delete();
+	}
+
+	@Test
+	public void testSpillLargeRow() throws Exception {
+		MergeMemoryManager manager = manager(100, 1024 * 1024);
+		SpillableRowBuffer buffer = new SpillableRowBuffer(manager, 2, null);
+		StringBuilder large = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			large.append((char) ('a' + i % 26));
+		}
+		buffer.add(row(1, large.toString()));
+		buffer.add(row(2, "small"));
+		buffer.add(row(3, large.toString()));
+		List<String> result = drain(buffer.getResult());
+		Assert.assertEquals(3, result.size());
+		Assert.assertEquals("1:" + large, result.get(0));
+		Assert.assertEquals("2:small", result.get(1));
+		Assert.assertEquals("3:" + large, result.get(2));
+		buffer.clear();
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.net.mysql;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * packets written without frontend connection read back the same
+ */
+public class PacketToBytesTest {
+
+	@Test
+	public void testRowData() {
+		RowDataPacket row = new RowDataPacket(3);
+		row.add("1".getBytes());
+		row.add(null);
+		row.add("abc".getBytes());
+		row.packetId = 5;
+		byte[] data = row.writeToBytes();
+		Assert.assertEquals(4 + row.calcPacketSize(), data.length);
+
+		RowDataPacket read = new RowDataPacket(3);
+		read.read(data);
+		Assert.assertEquals(5, read.packetId);
+		Assert.assertEquals(row.calcPacketSize(), read.packetLength);
+		Assert.assertEquals("1", new String(read.fieldValues.get(0)));
+		// NULL is read as empty bytes
+		Assert.assertEquals(0, read.fieldValues.get(1).length);
+		Assert.assertEquals("abc", new String(read.fieldValues.get(2)));
+	}
+
+	@Test
+	public void testField() {
+		FieldPacket field = new FieldPacket();
+		field.name = "id".getBytes();
+		field.table = "t".getBytes();
+		field.type = 3;
+		field.length = 11;
+		field.packetId = 2;
+		FieldPacket read = new FieldPacket();
+		read.read(field.writeToBytes());
+		Assert.assertEquals(2, read.packetId);
+		Assert.assertEquals("id", new String(read.name));
+		Assert.assertEquals("t", new String(read.table));
+		Assert.assertEquals(3, read.type);
+		Assert.assertEquals(11, read.length);
+	}
+
+	@Test
+	public void testErrorAndOk() {
+		ErrorPacket err = new ErrorPacket();
+		err.packetId = 1;
+		err.errno = 1105;
+		err.message = "failed".getBytes();
+		ErrorPacket readErr = new ErrorPacket();
+		readErr.read(err.writeToBytes());
+		Assert.assertEquals(1105, readErr.errno);
+		Assert.assertEquals("failed", new String(readErr.message));
+
+		OkPacket ok = new OkPacket();
+		ok.packetId = 1;
+		ok.affectedRows = 300;
+		OkPacket readOk = new OkPacket();
+		readOk.read(ok.writeToBytes());
+		Assert.assertEquals(300, readOk.affectedRows);
+
+		ResultSetHeaderPacket header = new ResultSetHeaderPacket();
+		header.fieldCount = 260;
+		ResultSetHeaderPacket readHeader = new ResultSetHeaderPacket();
+		readHeader.read(header.writeToBytes());
+		Assert.assertEquals(260, readHeader.fieldCount);
+
+		EOFPacket eof = new EOFPacket();
+		eof.packetId = 9;
+		EOFPacket readEof = new EOFPacket();
+		readEof.read(eof.writeToBytes());
+		Assert.assertEquals(9, readEof.packetId);
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.parser;
+
+import java.sql.SQLSyntaxErrorException;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencloudb.server.parser.LoadDataInf;
+import org.opencloudb.server.parser.LoadDataParse;
+import org.opencloudb.server.parser.LoadDataRowParser;
+
+public class LoadDataParseTest {
+
+	@Test
+	public void testParse() throws SQLSyntaxErrorException {
+		LoadDataInf inf = LoadDataParse
+				.parse("load data local infile '/tmp/a.txt' into table tb");
+		Assert.assertTrue(inf.isLocal());
+		Assert.assertEquals("/tmp/a.txt", inf.getFileName());
+		Assert.assertEquals("tb", inf.getTableName());
+		Assert.assertEquals("\t", inf.getFieldsTerminated());
+		Assert.assertEquals("\n", inf.getLinesTerminated());
+		Assert.assertEquals(0, inf.getEnclosed());
+		Assert.assertEquals('\\', inf.getEscaped());
+		Assert.assertNull(inf.getColumns());
+
+		inf = LoadDataParse
+				.parse("LOAD DATA LOW_PRIORITY LOCAL INFILE \"a.csv\" IGNORE INTO TABLE db1.`tb` "
+						+ "CHARACTER SET utf8 FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' "
+						+ "ESCAPED BY '\\\\' LINES STARTING BY 'x' TERMINATED BY '\\r\\n' "
+						+ "IGNORE 1 LINES (id, `name`)");
+		Assert.assertTrue(inf.isIgnore());
+		Assert.assertEquals("tb", inf.getTableName());
+		Assert.assertEquals("utf8", inf.getCharset());
+		Assert.assertEquals(",", inf.getFieldsTerminated());
+		Assert.assertEquals('"', inf.getEnclosed());
+		Assert.assertTrue(inf.isOptionallyEnclosed());
+		Assert.assertEquals("x", inf.getLinesStarting());
+		Assert.assertEquals("\r\n", inf.getLinesTerminated());
+		Assert.assertEquals(1, inf.getIgnoreLines());
+		Assert.assertEquals(Arrays.asList("id", "name"), inf.getColumns());
+
+		inf = LoadDataParse
+				.parse("load data infile 'a' replace into table tb");
+		Assert.assertFalse(inf.isLocal());
+		Assert.assertTrue(inf.isReplace());
+	}
+
+	@Test
+	public void testParseError() {
+		String[] sqls = { "load data local infile 'a' into table tb (id, @v)",
+				"load data local infile 'a' into table tb (id) set name='x'",
+				"load data local infile 'a' into table tb fields terminated by ''",
+				"load data local infile into table tb" };
+		for (String sql : sqls) {
+			try {
+				LoadDataParse.parse(sql);
+				Assert.fail(sql);
+			} catch (SQLSyntaxErrorException e) {
+			}
+		}
+	}
+
+	@Test
+	public void testRows() throws SQLSyntaxErrorException {
+		LoadDataRowParser parser = new LoadDataRowParser(
+				LoadDataParse.parse("load data local infile 'a' into table tb"));
+		parser.append("1\tab");
+		Assert.assertNull(parser.nextRow(false));
+		parser.append("c\t\\N\n2\ta\\tb");
+		Assert.assertArrayEquals(new String[] { "1", "abc", null },
+				parser.nextRow(false));
+		Assert.assertNull(parser.nextRow(false));
+		Assert.assertArrayEquals(new String[] { "2", "a\tb" },
+				parser.nextRow(true));
+		Assert.assertNull(parser.nextRow(true));
+		Assert.assertEquals(0, parser.remaining());
+	}
+
+	@Test
+	public void testEnclosedRows() throws SQLSyntaxErrorException {
+		LoadDataRowParser parser = new LoadDataRowParser(
+				LoadDataParse.parse("load data local infile 'a' into table tb "
+						+ "fields terminated by ',' enclosed by '\"' "
+						+ "lines terminated by '\\r\\n'"));
+		parser.append("\"1\",\"a,\"\"b\"\"\",NULL\r");
+		Assert.assertNull(parser.nextRow(false));
+		parser.append("\n\"2\",\"x\r\ny\"\r\n");
+		Assert.assertArrayEquals(new String[] { "1", "a,\"b\"", null },
+				parser.nextRow(false));
+		Assert.assertArrayEquals(new String[] { "2", "x\r\ny" },
+				parser.nextRow(false));
+		Assert.assertNull(parser.nextRow(true));
+	}
+
+}
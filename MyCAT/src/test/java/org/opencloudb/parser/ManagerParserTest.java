@@ -149,6 +149,11 @@ public class ManagerParserTest {
         Assert.assertEquals(ManagerParseShow.ROUTER, ManagerParseShow.parse("show @@router", 5));
         Assert.assertEquals(ManagerParseShow.ROUTER, ManagerParseShow.parse("SHOW @@ROUTER", 5));
         Assert.assertEquals(ManagerParseShow.ROUTER, ManagerParseShow.parse("show @@ROUTER", 5));
+        Assert.assertEquals(ManagerParseShow.CACHE, ManagerParseShow.parse("show @@cache", 5));
+        Assert.assertEquals(ManagerParseShow.ROUTE_CACHE, ManagerParseShow.parse("show @@cache.route", 5));
+        Assert.assertEquals(ManagerParseShow.ROUTE_CACHE, ManagerParseShow.parse("SHOW @@CACHE.ROUTE", 5));
+        Assert.assertEquals(ManagerParseShow.LOAD_DATA, ManagerParseShow.parse("show @@loaddata", 5));
+        Assert.assertEquals(ManagerParseShow.LOAD_DATA, ManagerParseShow.parse("SHOW @@LOADDATA ", 5));
     }
 
     @Test
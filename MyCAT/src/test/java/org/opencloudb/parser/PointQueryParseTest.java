@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.parser;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencloudb.server.parser.ServerParse;
+
+public class PointQueryParseTest {
+
+	private static PointQueryInf parse(String sql, int sqlType) {
+		return PointQueryParse.parse(sql, sqlType);
+	}
+
+	@Test
+	public void testSelect() {
+		PointQueryInf inf = parse(
+				"SELECT id, t.name ,`c 1` FROM `tb` t WHERE t.id = 10 and name='abc'",
+				ServerParse.SELECT);
+		Assert.assertEquals("TB", inf.getTableName());
+		Assert.assertEquals("10", inf.getValue("ID"));
+		Assert.assertEquals("abc", inf.getValue("NAME"));
+		Assert.assertNull(inf.getValue("OTHER"));
+
+		inf = parse("select * from tb as a where a.id=0 order by a.name desc, id "
+				+ "limit 10, 20;", ServerParse.SELECT);
+		Assert.assertEquals("0", inf.getValue("ID"));
+		Assert.assertNotNull(parse("select * from tb where id=1 limit 5 offset 2",
+				ServerParse.SELECT));
+		// same column twice
+		Assert.assertNull(parse("select * from tb where id=1 and id=2",
+				ServerParse.SELECT).getValue("ID"));
+	}
+
+	@Test
+	public void testUpdateDelete() {
+		PointQueryInf inf = parse(
+				"update tb set name = 'x', cnt = cnt + 1, v = NULL where id = 5 limit 1",
+				ServerParse.UPDATE);
+		Assert.assertEquals("5", inf.getValue("ID"));
+		Assert.assertTrue(inf.isSetColumn("CNT"));
+		Assert.assertFalse(inf.isSetColumn("ID"));
+
+		inf = parse("delete from tb where id = 5 and name = ''",
+				ServerParse.DELETE);
+		Assert.assertEquals("", inf.getValue("NAME"));
+	}
+
+	@Test
+	public void testInsert() {
+		PointQueryInf inf = parse(
+				"insert into tb (`id`, name, gmt, v) values (12, 'n', now(), null)",
+				ServerParse.INSERT);
+		Assert.assertEquals("12", inf.getValue("ID"));
+		Assert.assertEquals("n", inf.getValue("NAME"));
+		Assert.assertNull(inf.getValue("GMT"));
+		// values count not match
+		Assert.assertNull(parse("insert into tb (id, name) values (1)",
+				ServerParse.INSERT));
+		Assert.assertNull(parse("insert into tb (id) values (1),(2)",
+				ServerParse.INSERT));
+	}
+
+	@Test
+	public void testNotSupported() {
+		String[] sqls = { "select count(*) from tb where id=1",
+				"select * from tb where id=1 or id=2",
+				"select * from tb where id in (1,2)",
+				"select * from tb where id>1",
+				"select * from tb where id=-1",
+				"select * from tb where id=007",
+				"select * from tb where id=1.5",
+				"select * from tb where id='a\\'b'",
+				"select * from tb where id='a''b'",
+				"select * from tb where id=\"a\"",
+				"select * from db.tb where id=1",
+				"select * from tb a, tb2 b where a.id=1",
+				"select * from tb where b.id=1",
+				"select * from tb where id=1 group by name",
+				"select * from tb where id=1 for update",
+				"select * from tb /* c */ where id=1",
+				"select * from tb" };
+		for (String sql : sqls) {
+			Assert.assertNull(sql, parse(sql, ServerParse.SELECT));
+		}
+		Assert.assertNull(parse("update tb set a=(select 1) where id=1",
+				ServerParse.UPDATE));
+		Assert.assertNull(parse("delete from tb", ServerParse.DELETE));
+		Assert.assertNull(parse("select * from tb where id=1",
+				ServerParse.SHOW));
+	}
+}
@@ -26,6 +26,8 @@ package org.opencloudb.parser;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import junit.framework.Assert;
@@ -33,6 +35,7 @@ import junit.framework.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.opencloudb.config.model.SystemConfig;
+import org.opencloudb.sequence.handler.IncrSequencePropHandler;
 
 import com.foundationdb.sql.parser.QueryTreeNode;
 import com.foundationdb.sql.unparser.NodeToString;
@@ -100,6 +103,46 @@ public class SequenceParserTest {
 
 	}
 
+	@Test
+	public void testRewriteSequence() throws Exception {
+		String sqlText = "insert into tb3(a,b,c) values (NEXT  VALUE\nfor mycatseq_test,'next value for mycatseq_test',1),"
+				+ "(next value for MYCATSEQ_TEST,'a''b',2) /* next value for mycatseq_test */";
+		SequenceSQLRewriter rewriter = SequenceSQLRewriter.parse(sqlText);
+		Assert.assertEquals(Integer.valueOf(2),
+				rewriter.getSequenceCounts().get("TEST"));
+		long[] ids = IncrSequencePropHandler.getInstance().nextIds("TEST", 2);
+		Assert.assertEquals(111, ids[0]);
+		Assert.assertEquals(112, ids[1]);
+		Map<String, long[]> idMap = new HashMap<String, long[]>();
+		idMap.put("TEST", ids);
+		Assert.assertEquals(
+				"insert into tb3(a,b,c) values (111,'next value for mycatseq_test',1),"
+						+ "(112,'a''b',2) /* next value for mycatseq_test */",
+				rewriter.rewrite(idMap));
+
+		Assert.assertNull(SequenceSQLRewriter
+				.parse("select * from sys.systables where ( next value for seq_a ) > col_b"));
+		Assert.assertNull(SequenceSQLRewriter
+				.parse("select 'next value for MYCATSEQ_TEST' from tb"));
+	}
+
+	@Test
+	public void testBatchSequence() throws Exception {
+		IncrSequencePropHandler handler = IncrSequencePropHandler
+				.getInstance();
+		long[] ids = handler.nextIds("TEST", 3);
+		Assert.assertEquals(111, ids[0]);
+		Assert.assertEquals(113, ids[2]);
+		// cross the period (max 200) ,next period is 201-300
+		handler.nextIds("TEST", 85);
+		ids = handler.nextIds("TEST", 5);
+		Assert.assertEquals(199, ids[0]);
+		Assert.assertEquals(200, ids[1]);
+		Assert.assertEquals(201, ids[2]);
+		Assert.assertEquals(203, ids[4]);
+		Assert.assertEquals(204, handler.nextId("TEST"));
+	}
+
 	/**
 	 * @param args
 	 */
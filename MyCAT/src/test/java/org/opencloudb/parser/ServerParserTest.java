@@ -43,6 +43,16 @@ public class ServerParserTest {
         Assert.assertEquals(ServerParse.BEGIN, ServerParse.parse("BegIn"));
     }
 
+    @Test
+    public void testIsLoad() {
+        Assert.assertEquals(ServerParse.LOAD, 0xff & ServerParse.parse("load data local infile 'a.txt' into table t"));
+        Assert.assertEquals(ServerParse.LOAD, 0xff & ServerParse.parse(" LOAD\nDATA INFILE 'a.txt' INTO TABLE t"));
+        Assert.assertEquals(ServerParse.OTHER, ServerParse.parse("loads"));
+        Assert.assertEquals(ServerParse.OTHER, ServerParse.parse("load index into cache t1"));
+        Assert.assertEquals(ServerParse.OTHER, ServerParse.parse("LOAD XML LOCAL INFILE 'a.xml' INTO TABLE t"));
+        Assert.assertEquals(ServerParse.OTHER, ServerParse.parse("load datax"));
+    }
+
     @Test
     public void testIsCommit() {
         Assert.assertEquals(ServerParse.COMMIT, ServerParse.parse("commit"));
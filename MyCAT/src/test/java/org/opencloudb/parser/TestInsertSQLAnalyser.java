@@ -64,12 +64,14 @@ public class TestInsertSQLAnalyser {
 
 		sql = "insert into offer_detail (offer_id, gmt) values (0, now()), (1, now()), (2, now())";
 		ast = SQLParserDelegate.parse(sql, SQLParserDelegate.DEFAULT_CHARSET);
-		try {
-			parsInf = InsertSQLAnalyser.analyse(ast);
-		} catch (Exception e) {
-			Assert.assertEquals("insert multi rows not supported",
-					e.getMessage());
-		}
+		parsInf = InsertSQLAnalyser.analyse(ast);
+		Assert.assertEquals("offer_detail".toUpperCase(), parsInf.tableName);
+		Assert.assertEquals(3, parsInf.rows.size());
+		Assert.assertSame(parsInf.columnPairMap, parsInf.rows.get(0));
+		Assert.assertEquals("0", parsInf.rows.get(0).get("OFFER_ID"));
+		Assert.assertEquals("2", parsInf.rows.get(2).get("OFFER_ID"));
+		Assert.assertEquals("?", parsInf.rows.get(2).get("GMT"));
+		Assert.assertNull(parsInf.fromQryNode);
 
 		sql = "insert  into t_uud_user_account(USER_ID,USER_NAME,PASSWORD,CREATE_TIME,STATUS,NICK_NAME,USER_ICON_URL,USER_ICON_URL2,USER_ICON_URL3,ACCOUNT_TYPE) "
 				+ "values (2488899998,'u163149830250134','af8f9dffa5d420fbc249141645b962ee','2013-12-01 00:00:00',0,NULL,NULL,NULL,NULL,1)";
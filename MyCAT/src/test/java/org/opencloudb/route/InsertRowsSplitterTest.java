@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.route;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InsertRowsSplitterTest {
+
+	@Test
+	public void testSplit() {
+		InsertRowsSplitter splitter = InsertRowsSplitter
+				.parse("insert into t_values(id,`values`,name) VALUES (1,'a'),( 2 ,'b,)''' ),\n(3,now()) ;");
+		Assert.assertEquals("insert into t_values(id,`values`,name) VALUES ",
+				splitter.getHead());
+		Assert.assertEquals(3, splitter.getRowCount());
+		Assert.assertEquals("(1,'a')", splitter.getRow(0));
+		Assert.assertEquals("( 2 ,'b,)''' )", splitter.getRow(1));
+		Assert.assertEquals("(3,now())", splitter.getRow(2));
+
+		splitter = InsertRowsSplitter
+				.parse("insert into t values/* rows */(1,\"x\\\")\")");
+		Assert.assertEquals(1, splitter.getRowCount());
+		Assert.assertEquals("(1,\"x\\\")\")", splitter.getRow(0));
+	}
+
+	@Test
+	public void testNotSplit() {
+		Assert.assertNull(InsertRowsSplitter
+				.parse("insert into t select * from t2"));
+		Assert.assertNull(InsertRowsSplitter
+				.parse("insert into t values (1),(2) -- comment"));
+		Assert.assertNull(InsertRowsSplitter
+				.parse("insert into t values (1,'a),(2)"));
+		Assert.assertNull(InsertRowsSplitter
+				.parse("insert into t values (1),(2) on duplicate key update a=1"));
+	}
+
+	@Test
+	public void testBuildStatements() {
+		InsertRowsSplitter splitter = InsertRowsSplitter
+				.parse("insert into t(id) values (1),(22),(333),(4444)");
+		List<Integer> rows = Arrays.asList(0, 2, 3);
+		Assert.assertEquals(
+				"[insert into t(id) values (1),(333),(4444)]",
+				splitter.buildStatements(rows, 0, 0).toString());
+		Assert.assertEquals(
+				"[insert into t(id) values (1),(333), insert into t(id) values (4444)]",
+				splitter.buildStatements(rows, 2, 0).toString());
+		// head is 25 chars
+		Assert.assertEquals(
+				"[insert into t(id) values (1), insert into t(id) values (333), insert into t(id) values (4444)]",
+				splitter.buildStatements(rows, 0, 30).toString());
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.route;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencloudb.SimpleCachePool;
+import org.opencloudb.config.loader.SchemaLoader;
+import org.opencloudb.config.loader.xml.XMLSchemaLoader;
+import org.opencloudb.config.model.SchemaConfig;
+import org.opencloudb.config.model.SystemConfig;
+import org.opencloudb.server.parser.ServerParse;
+
+public class RouteShapeCacheTest {
+	private final Map<String, SchemaConfig> schemaMap;
+
+	public RouteShapeCacheTest() {
+		SchemaLoader schemaLoader = new XMLSchemaLoader("/route/schema.xml",
+				"/route/rule.xml");
+		schemaMap = schemaLoader.getSchemas();
+	}
+
+	private RouteResultset fullRoute(SchemaConfig schema, String sql)
+			throws Exception {
+		return ServerRouterUtil.route(new SystemConfig(), schema,
+				ServerParse.SELECT, sql, null, null, new SimpleCachePool());
+	}
+
+	@Test
+	public void testLearnAndRoute() throws Exception {
+		SchemaConfig schema = schemaMap.get("cndb");
+		RouteShapeCache cache = new RouteShapeCache(100);
+		String sql = "select * from offer_detail where offer_id = 123";
+		SQLShape shape = SQLShape.parse(sql);
+		Assert.assertNull(cache.route(schema, ServerParse.SELECT, shape, sql));
+		Assert.assertTrue(cache.learn(schema, shape, sql,
+				fullRoute(schema, sql)));
+
+		for (int id = 1000; id < 1100; id++) {
+			String other = "select * from offer_detail where offer_id = " + id;
+			RouteResultset rrs = cache.route(schema, ServerParse.SELECT,
+					SQLShape.parse(other), other);
+			Assert.assertNotNull(rrs);
+			RouteResultset expected = fullRoute(schema, other);
+			Assert.assertEquals(1, rrs.getNodes().length);
+			Assert.assertEquals(expected.getNodes()[0].getName(),
+					rrs.getNodes()[0].getName());
+			Assert.assertEquals(other, rrs.getNodes()[0].getStatement());
+		}
+		RouteShapeCache.RouteShape routeShape = cache.getShapes().iterator()
+				.next();
+		Assert.assertEquals("OFFER_DETAIL", routeShape.getTable());
+		Assert.assertEquals(100, routeShape.getHits());
+		Assert.assertEquals(1, routeShape.getMisses());
+	}
+
+	@Test
+	public void testNotLearned() throws Exception {
+		SchemaConfig schema = schemaMap.get("cndb");
+		RouteShapeCache cache = new RouteShapeCache(100);
+		// multi node
+		String sql = "select * from offer_detail where offer_id in (1, 2)";
+		Assert.assertFalse(cache.learn(schema, SQLShape.parse(sql), sql,
+				fullRoute(schema, sql)));
+		// partition value not in one literal slot only
+		sql = "select * from offer_detail where offer_id = 123 and gmt = 123";
+		Assert.assertFalse(cache.learn(schema, SQLShape.parse(sql), sql,
+				fullRoute(schema, sql)));
+		Assert.assertNull(cache.route(schema, ServerParse.SELECT,
+				SQLShape.parse(sql), sql));
+		Assert.assertTrue(cache.getShapes().isEmpty());
+	}
+
+	private static boolean contains(RouteShapeCache cache, SQLShape shape) {
+		for (RouteShapeCache.RouteShape routeShape : cache.getShapes()) {
+			if (routeShape.getShape().equals(shape.getShape())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		SchemaConfig schema = schemaMap.get("cndb");
+		RouteShapeCache cache = new RouteShapeCache(2);
+		// shapes can't be learned don't fill the cache
+		for (int i = 0; i < 10; i++) {
+			String sql = "select c" + i
+					+ " from offer_detail where offer_id in (1, 2)";
+			Assert.assertFalse(cache.learn(schema, SQLShape.parse(sql), sql,
+					fullRoute(schema, sql)));
+		}
+		Assert.assertTrue(cache.getShapes().isEmpty());
+
+		String hot = "select * from offer_detail where offer_id = 123";
+		Assert.assertTrue(cache.learn(schema, SQLShape.parse(hot), hot,
+				fullRoute(schema, hot)));
+		for (int i = 0; i < 10; i++) {
+			Assert.assertNotNull(cache.route(schema, ServerParse.SELECT,
+					SQLShape.parse(hot), hot));
+			String sql = "select c" + i
+					+ " from offer_detail where offer_id = 123";
+			SQLShape shape = SQLShape.parse(sql);
+			// still learning after full
+			Assert.assertTrue(cache.learn(schema, shape, sql,
+					fullRoute(schema, sql)));
+			Assert.assertEquals(2, cache.getShapes().size());
+			Assert.assertTrue(contains(cache, shape));
+		}
+		// the hot shape is hit before every eviction
+		Assert.assertNotNull(cache.route(schema, ServerParse.SELECT,
+				SQLShape.parse(hot), hot));
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.route;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SQLShapeTest {
+
+	@Test
+	public void testShape() {
+		SQLShape shape = SQLShape
+				.parse("select  * from t1 where id = 12345 and\n name='abc' limit 10");
+		Assert.assertEquals("select * from t1 where id = ? and name=? limit ?",
+				shape.getShape());
+		Assert.assertEquals("[12345, abc, 10]", shape.getLiterals()
+				.toString());
+		Assert.assertEquals(shape.getShape(),
+				SQLShape.parse("select * from t1 where id = 7 and name='x' limit 5")
+						.getShape());
+		Assert.assertEquals(0, shape.indexOfLiteral("12345"));
+		Assert.assertEquals(-1, shape.indexOfLiteral("99"));
+		Assert.assertEquals(-1, SQLShape.parse("select * from t where a=1 and b=1")
+				.indexOfLiteral("1"));
+	}
+
+	@Test
+	public void testIdentifiers() {
+		SQLShape shape = SQLShape
+				.parse("select t2.c3, `col 1` from db1.t2 where x=1.5 and y=0x1F");
+		Assert.assertEquals(
+				"select t2.c3, `col 1` from db1.t2 where x=? and y=0x1F",
+				shape.getShape());
+		Assert.assertEquals("[1.5]", shape.getLiterals().toString());
+	}
+
+	@Test
+	public void testNotShaped() {
+		Assert.assertNull(SQLShape.parse("select * from t where a='it''s'"));
+		Assert.assertNull(SQLShape.parse("select * from t where a='\\\\n'"));
+		Assert.assertNull(SQLShape.parse("select /* c */ * from t"));
+		Assert.assertNull(SQLShape.parse("select @@version"));
+		Assert.assertNull(SQLShape.parse("select * from t where a=?"));
+		Assert.assertNull(SQLShape.parse("select * from t where a='abc"));
+	}
+}
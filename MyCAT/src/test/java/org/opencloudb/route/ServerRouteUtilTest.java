@@ -24,6 +24,7 @@
 package org.opencloudb.route;
 
 import java.sql.SQLNonTransientException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -384,6 +385,20 @@ public class ServerRouteUtilTest extends TestCase {
 		Assert.assertEquals(1, rrs.getNodes().length);
 		Assert.assertEquals("dn2", rrs.getNodes()[0].getName());
 
+		// joinKey is not parent's partition column ,node found by querying
+		// parent's nodes asynchronously
+		sql = "insert into order_items (id,order_id) values(1,100)";
+		rrs = ServerRouterUtil.route(new SystemConfig(), schema, 1, sql, null,
+				null, cachePool);
+		Assert.assertEquals(true, rrs.isParentLookupPending());
+		Assert.assertEquals(null, rrs.getNodes());
+		Assert.assertEquals(Arrays.asList("dn1", "dn2"),
+				rrs.getParentLookupNodes());
+		ServerRouterUtil.routeToParentNode(rrs, "dn2");
+		Assert.assertEquals(false, rrs.isParentLookupPending());
+		Assert.assertEquals("dn2", rrs.getNodes()[0].getName());
+		Assert.assertEquals(sql, rrs.getNodes()[0].getStatement());
+
 		// can't update join key
 		sql = "update orders set id=1 ,name='aaa' , customer_id=2000001";
 		String err = null;
@@ -808,6 +823,145 @@ public class ServerRouteUtilTest extends TestCase {
 		}
 	}
 	
+	public void testMultiRowsInsertRoute() throws Exception {
+		SchemaConfig schema = schemaMap.get("cndb");
+		SystemConfig sysConfig = new SystemConfig();
+		// rows to the same node as single row insert
+		String[] ids = { "1", "123", "2", "124", "3", "125" };
+		Map<String, StringBuilder> expected = new HashMap<String, StringBuilder>();
+		StringBuilder sql = new StringBuilder(
+				"insert into offer_detail (offer_id, gmt) values ");
+		for (int i = 0; i < ids.length; i++) {
+			String row = "(" + ids[i] + ",now())";
+			sql.append(i == 0 ? "" : ",").append(row);
+			String dn = ServerRouterUtil.route(sysConfig, schema, -1,
+					"insert into offer_detail (offer_id, gmt) values " + row,
+					null, null, cachePool).getNodes()[0].getName();
+			StringBuilder nodeSql = expected.get(dn);
+			if (nodeSql == null) {
+				expected.put(dn, new StringBuilder(
+						"insert into offer_detail (offer_id, gmt) values ")
+						.append(row));
+			} else {
+				nodeSql.append(',').append(row);
+			}
+		}
+		RouteResultset rrs = ServerRouterUtil.route(sysConfig, schema, -1,
+				sql.toString(), null, null, cachePool);
+		Assert.assertEquals(false, rrs.isCacheAble());
+		Assert.assertFalse(rrs.hasNextRounds());
+		Assert.assertEquals(expected.size(), rrs.getNodes().length);
+		for (RouteResultsetNode node : rrs.getNodes()) {
+			Assert.assertEquals(expected.get(node.getName()).toString(),
+					node.getStatement());
+		}
+
+		// split by max rows ,one node each round
+		sysConfig.setMaxInsertRows(1);
+		String oneNodeSql = "insert into offer_detail (offer_id, gmt) values (123,now()),(123,'2014-1-1')";
+		rrs = ServerRouterUtil.route(sysConfig, schema, -1, oneNodeSql, null,
+				null, cachePool);
+		Assert.assertEquals(1, rrs.getNodes().length);
+		Assert.assertEquals("detail_dn[15]", rrs.getNodes()[0].getName());
+		Assert.assertEquals(
+				"insert into offer_detail (offer_id, gmt) values (123,now())",
+				rrs.getNodes()[0].getStatement());
+		Assert.assertEquals(1, rrs.getNextRounds().size());
+		Assert.assertEquals(
+				"insert into offer_detail (offer_id, gmt) values (123,'2014-1-1')",
+				rrs.getNextRounds().get(0)[0].getStatement());
+		// no split ,the origin sql
+		sysConfig.setMaxInsertRows(0);
+		rrs = ServerRouterUtil.route(sysConfig, schema, -1, oneNodeSql, null,
+				null, cachePool);
+		Assert.assertEquals(oneNodeSql, rrs.getNodes()[0].getStatement());
+		Assert.assertFalse(rrs.hasNextRounds());
+
+		// sharding column must be provided by every row
+		String err = null;
+		try {
+			ServerRouterUtil
+					.route(sysConfig, schema, -1,
+							"insert into offer_detail (offer_id, gmt) values (123,now()),(null,now())",
+							null, null, cachePool);
+		} catch (SQLNonTransientException e) {
+			err = e.getMessage();
+		}
+		Assert.assertTrue(err.startsWith("bad insert sql (sharding column:"));
+
+		// global table ,all rows to every node
+		schema = schemaMap.get("TESTDB");
+		String globalSql = "insert into company (id,name,level) values(111,'company1',3),(112,'company2',3)";
+		rrs = ServerRouterUtil.route(sysConfig, schema, -1, globalSql, null,
+				null, cachePool);
+		Assert.assertEquals(3, rrs.getNodes().length);
+		Assert.assertEquals(
+				"insert into company (id,name,level) values (111,'company1',3),(112,'company2',3)",
+				rrs.getNodes()[0].getStatement());
+
+		// child table ,rows routed by parent's partition rule
+		rrs = ServerRouterUtil
+				.route(sysConfig,
+						schema,
+						-1,
+						"insert into orders (id,name,customer_id) values(1,'a',1),(2,'b',2000001),(3,'c',2)",
+						null, null, cachePool);
+		Assert.assertEquals(2, rrs.getNodes().length);
+		Assert.assertEquals("dn1", rrs.getNodes()[0].getName());
+		Assert.assertEquals(
+				"insert into orders (id,name,customer_id) values (1,'a',1),(3,'c',2)",
+				rrs.getNodes()[0].getStatement());
+		Assert.assertEquals("dn2", rrs.getNodes()[1].getName());
+		Assert.assertEquals(
+				"insert into orders (id,name,customer_id) values (2,'b',2000001)",
+				rrs.getNodes()[1].getStatement());
+	}
+
+	public void testPointSQLRoute() throws Exception {
+		SchemaConfig schema = schemaMap.get("cndb");
+		// point sql is routed without AST ,'(' makes the full parser used
+		String[][] sqls = {
+				{ "select * from offer where member_id = 'm%d'",
+						"select * from offer where (member_id = 'm%d')" },
+				{ "select a.id from offer_detail a where a.offer_id = %d and gmt = 1",
+						"select a.id from offer_detail a where (a.offer_id = %d and gmt = 1)" },
+				{ "update offer_detail set gmt = 2 where offer_id = %d",
+						"update offer_detail set gmt = 2 where (offer_id = %d)" },
+				{ "delete from offer where member_id = 'm%d'",
+						"delete from offer where (member_id = 'm%d')" } };
+		int[] types = { ServerParse.SELECT, ServerParse.SELECT,
+				ServerParse.UPDATE, ServerParse.DELETE };
+		for (int i = 0; i < sqls.length; i++) {
+			for (int id = 1; id < 300; id += 7) {
+				String sql = String.format(sqls[i][0], id);
+				RouteResultset rrs = ServerRouterUtil.route(new SystemConfig(),
+						schema, types[i], sql, null, null, cachePool);
+				RouteResultset expected = ServerRouterUtil.route(
+						new SystemConfig(), schema, types[i],
+						String.format(sqls[i][1], id), null, null, cachePool);
+				Assert.assertEquals(1, rrs.getNodes().length);
+				Assert.assertEquals(expected.getNodes()[0].getName(),
+						rrs.getNodes()[0].getName());
+				Assert.assertEquals(sql, rrs.getNodes()[0].getStatement());
+				Assert.assertEquals(expected.isCacheAble(), rrs.isCacheAble());
+			}
+		}
+		String sql = "insert into offer_detail (offer_id, gmt) values (123, now())";
+		RouteResultset rrs = ServerRouterUtil.route(new SystemConfig(), schema,
+				ServerParse.INSERT, sql, null, null, cachePool);
+		Assert.assertEquals("detail_dn[15]", rrs.getNodes()[0].getName());
+
+		// partition column can't be updated
+		try {
+			ServerRouterUtil.route(new SystemConfig(), schema,
+					ServerParse.UPDATE,
+					"update offer_detail set offer_id = 1 where offer_id = 2",
+					null, null, cachePool);
+			Assert.fail("partion key updated");
+		} catch (SQLNonTransientException e) {
+		}
+	}
+
 	public void testGlobalTableSingleNodeLimit() throws Exception {
 		SchemaConfig schema = schemaMap.get("TESTDB");
 		String sql = "select * from globalsn";
@@ -23,6 +23,8 @@
  */
 package org.opencloudb.route.function;
 
+import java.util.Arrays;
+
 import junit.framework.Assert;
 
 import org.junit.Test;
@@ -49,5 +51,43 @@ public class AutoPartitionByLongTest {
 		
 		idVal="4000001";
 		Assert.assertEquals(true, 2==autoPartition.calculate(idVal)); 
+
+		Assert.assertEquals(Integer.valueOf(1), autoPartition.calculate(2000001L));
+		Assert.assertNull(autoPartition.calculate(-1L));
+		Assert.assertNull(autoPartition.calculate(10000001L));
+	}
+
+	@Test
+	public void testRange() {
+		AutoPartitionByLong autoPartition = new AutoPartitionByLong();
+		autoPartition.setMapFile("autopartition-long.txt");
+		autoPartition.init();
+		int[] nodes = autoPartition.calculateRangeNodes("100", "2000001");
+		Assert.assertTrue(AbstractPartionAlgorithm.hasNode(nodes, 0));
+		Assert.assertTrue(AbstractPartionAlgorithm.hasNode(nodes, 1));
+		Assert.assertFalse(AbstractPartionAlgorithm.hasNode(nodes, 2));
+		Assert.assertEquals(5,
+				autoPartition.calculateRange("-100", "9000000").length);
+		Assert.assertNull(autoPartition.calculateRange("11000000", "12000000"));
+		Assert.assertNull(autoPartition.calculateRange("200", "100"));
+	}
+
+	@Test
+	public void testRangeIndex() {
+		// overlapped ranges ,the first defined wins
+		LongRangeIndex index = new LongRangeIndex(new long[] { 0, 10, 5, 100 },
+				new long[] { 10, 20, 30, Long.MAX_VALUE }, new int[] { 0, 1, 2, 3 });
+		Assert.assertEquals(0, index.find(10));
+		Assert.assertEquals(1, index.find(11));
+		Assert.assertEquals(1, index.find(20));
+		Assert.assertEquals(2, index.find(21));
+		Assert.assertEquals(-1, index.find(31));
+		Assert.assertEquals(3, index.find(Long.MAX_VALUE));
+		Assert.assertEquals(-1, index.find(-1));
+		Assert.assertEquals(4, index.size());
+		int[] bitmap = AbstractPartionAlgorithm.newNodeBitmap(index.getMaxNode());
+		Assert.assertEquals(2, index.fill(15, 50, bitmap));
+		Assert.assertEquals(Arrays.asList(1, 2),
+				Arrays.asList(AbstractPartionAlgorithm.toNodeArray(bitmap)));
 	}
 }
\ No newline at end of file
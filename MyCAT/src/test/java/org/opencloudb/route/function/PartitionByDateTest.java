@@ -23,6 +23,10 @@
  */
 package org.opencloudb.route.function;
 
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -42,7 +46,77 @@ public class PartitionByDateTest {
 		Assert.assertEquals(true, 0 == partition.calculate("2014-01-10"));
 		Assert.assertEquals(true, 1 == partition.calculate("2014-01-11"));
 		Assert.assertEquals(true, 12 == partition.calculate("2014-05-01"));
-		
+		Assert.assertEquals(true, 1 == partition.calculate("2014-01-11 10:00:00"));
+		Assert.assertNull(partition.calculate("2013-12-31"));
+		try {
+			partition.calculate("2014/01/11");
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+		}
+
+		Assert.assertArrayEquals(new Integer[] { 0, 1, 2 },
+				partition.calculateRange("2013-12-01", "2014-01-21"));
+		Assert.assertNull(partition.calculateRange("2014-01-21", "2014-01-01"));
+		Assert.assertNull(partition.calculateRange("2013-01-01", "2013-02-01"));
+		Assert.assertEquals(0, partition.calculateRange("a", "b").length);
+		// too many partitions without partitionCount ,all nodes
+		Assert.assertEquals(0,
+				partition.calculateRange("2014-01-01", "9999-12-31").length);
+	}
+
+	@Test
+	public void testPartitionCount() {
+		PartionByDate partition = new PartionByDate();
+		partition.setDateFormat("yyyy-MM-dd");
+		partition.setsBeginDate("2014-01-01");
+		partition.setsPartionDay("10");
+		partition.setPartitionCount("3");
+		partition.init();
+		Assert.assertEquals(Integer.valueOf(2), partition.calculate("2014-01-30"));
+		Assert.assertNull(partition.calculate("2014-01-31"));
+		Assert.assertArrayEquals(new Integer[] { 1, 2 },
+				partition.calculateRange("2014-01-15", "9999-12-31"));
+		Assert.assertNull(partition.calculateRange("2014-02-01", "2014-03-01"));
+	}
+
+	@Test
+	public void testWeekAndMonth() {
+		PartionByDate partition = new PartionByDate();
+		partition.setDateFormat("yyyyMMdd");
+		partition.setsBeginDate("20140101");
+		partition.setsPartionDay("1");
+		partition.setsPartionUnit("week");
+		partition.init();
+		Assert.assertEquals(Integer.valueOf(0), partition.calculate("20140107"));
+		Assert.assertEquals(Integer.valueOf(1), partition.calculate("20140108"));
+		Assert.assertEquals(Integer.valueOf(52), partition.calculate(20141231L));
 
+		partition = new PartionByDate();
+		partition.setDateFormat("yyyy-MM-dd HH:mm:ss");
+		partition.setsBeginDate("2014-01-15 00:00:00");
+		partition.setsPartionDay("2");
+		partition.setsPartionUnit("month");
+		partition.init();
+		Assert.assertEquals(Integer.valueOf(0), partition.calculate("2014-03-14 23:59:59"));
+		Assert.assertEquals(Integer.valueOf(1), partition.calculate("2014-03-15 00:00:00"));
+		Assert.assertEquals(Integer.valueOf(6), partition.calculate("2015-01-15 00:00:00"));
+		Assert.assertArrayEquals(new Integer[] { 1, 2, 3 }, partition.calculateRange(
+				"2014-04-01 00:00:00", "2014-08-01 00:00:00"));
+	}
+
+	@Test
+	public void testParser() throws Exception {
+		String[][] cases = { { "yyyy-MM-dd", "2014-2-30" },
+				{ "yyyy-MM-dd HH:mm:ss.SSS", "1969-12-31 23:59:59.999" },
+				{ "yyyyMMddHHmmss", "20000229120000" },
+				{ "dd/MM/yyyy", "01/03/2400" }, { "yyyy-MMM-dd", "2014-Jan-02" } };
+		for (String[] c : cases) {
+			SimpleDateFormat format = new SimpleDateFormat(c[0], Locale.ENGLISH);
+			format.setTimeZone(TimeZone.getTimeZone("UTC"));
+			Assert.assertEquals(c[1], format.parse(c[1]).getTime(),
+					new FastDateParser(c[0]).parse(c[1]));
+		}
+		Assert.assertEquals(24193, FastDateParser.monthOf(
+				new FastDateParser("yyyy-MM").parse("3986-02")));
 	}
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.route.function;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencloudb.route.function.ConsistentHashMigration.MovedRange;
+import org.opencloudb.route.util.MurmurHash3;
+
+public class PartitionByMurmurHashTest {
+	private static final int KEYS = 100000;
+
+	private static PartitionByMurmurHash create(int count, String weightFile) {
+		PartitionByMurmurHash function = new PartitionByMurmurHash();
+		function.setCount(count);
+		function.setWeightMapFile(weightFile);
+		function.init();
+		return function;
+	}
+
+	@Test
+	public void testMurmurHash() {
+		Assert.assertEquals(0, MurmurHash3.hash32(new byte[0], 0));
+		Assert.assertEquals(0x248bfa47, MurmurHash3.hash32("hello".getBytes(), 0));
+		Assert.assertEquals(0x2e4ff723, MurmurHash3.hash32(
+				"The quick brown fox jumps over the lazy dog".getBytes(), 0));
+	}
+
+	@Test
+	public void testBalanceAndWeight() {
+		PartitionByMurmurHash function = create(4, null);
+		int[] counts = new int[4];
+		for (int i = 0; i < KEYS; i++) {
+			counts[function.calculate(String.valueOf(i))]++;
+		}
+		for (int c : counts) {
+			Assert.assertTrue(c > KEYS / 4 * 0.75 && c < KEYS / 4 * 1.25);
+		}
+		Assert.assertEquals(function.calculate("12345"),
+				function.calculate(12345L));
+
+		// node 2 with weight 2
+		function = create(3, "partition-murmurhash-weight.txt");
+		counts = new int[3];
+		for (int i = 0; i < KEYS; i++) {
+			counts[function.calculate(String.valueOf(i))]++;
+		}
+		Assert.assertTrue(counts[2] > KEYS / 2 * 0.75
+				&& counts[2] < KEYS / 2 * 1.25);
+	}
+
+	@Test
+	public void testMigration() {
+		PartitionByMurmurHash from = create(4, null);
+		PartitionByMurmurHash to = create(5, null);
+		List<MovedRange> moved = ConsistentHashMigration.diff(from, to);
+		double total = 0;
+		for (MovedRange range : moved) {
+			Assert.assertEquals(4, range.toNode);
+			total += range.fraction();
+		}
+		Assert.assertTrue(total > 0.17 && total < 0.23);
+		int movedKeys = 0;
+		for (int i = 0; i < KEYS; i++) {
+			String key = String.valueOf(i);
+			int hash = from.hash(key);
+			boolean inRange = false;
+			for (MovedRange range : moved) {
+				if (range.contains(hash)) {
+					inRange = true;
+					Assert.assertEquals(range.fromNode,
+							from.calculate(key).intValue());
+				}
+			}
+			boolean keyMoved = !from.calculate(key).equals(to.calculate(key));
+			Assert.assertEquals(keyMoved, inRange);
+			if (keyMoved) {
+				movedKeys++;
+			}
+		}
+		Assert.assertTrue(movedKeys > KEYS * 0.17 && movedKeys < KEYS * 0.23);
+		Assert.assertTrue(ConsistentHashMigration.diff(from, create(4, null))
+				.isEmpty());
+	}
+}
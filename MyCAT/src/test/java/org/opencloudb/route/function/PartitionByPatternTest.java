@@ -39,6 +39,15 @@ public class PartitionByPatternTest {
 		Assert.assertEquals(true, 7 == autoPartition.calculate(idVal));
 		idVal = "45a";
 		Assert.assertEquals(true, 2 == autoPartition.calculate(idVal));
+		Assert.assertEquals(Integer.valueOf(1), autoPartition.calculate(256 + 40L));
+		Assert.assertEquals(Integer.valueOf(2), autoPartition.calculate(-1L));
 
+		// 250..260 -> hash 250..255 ,0..4
+		Assert.assertArrayEquals(new Integer[] { 0, 7 },
+				autoPartition.calculateRange("250", "260"));
+		Assert.assertArrayEquals(new Integer[] { 1 },
+				autoPartition.calculateRange("33", "64"));
+		Assert.assertEquals(8, autoPartition.calculateRange("1", "1000").length);
+		Assert.assertEquals(0, autoPartition.calculateRange("a", "1000").length);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.route.perf;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+import org.opencloudb.route.function.FastDateParser;
+import org.opencloudb.route.function.PartionByDate;
+
+/**
+ * calculate time of date partition ,compared with a SimpleDateFormat created
+ * for every value (the old way of PartionByDate)
+ * 
+ * @author mycat
+ */
+public class PartitionByDatePerfMain {
+	private static final int COUNT = 1000000;
+	private static final String FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+	private static String[] values() {
+		String[] values = new String[1000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = String.format("2014-%02d-%02d %02d:%02d:%02d",
+					i % 12 + 1, i % 28 + 1, i % 24, i % 60, i % 60);
+		}
+		return values;
+	}
+
+	private static long oldWay(String[] values, long beginDate)
+			throws ParseException {
+		long start = System.nanoTime();
+		long sum = 0;
+		for (int i = 0; i < COUNT; i++) {
+			long time = new SimpleDateFormat(FORMAT).parse(
+					values[i % values.length]).getTime();
+			sum += (time - beginDate) / FastDateParser.ONE_DAY;
+		}
+		if (sum == 42) {
+			System.out.println(sum);
+		}
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	private static long newWay(String[] values, PartionByDate partition) {
+		long start = System.nanoTime();
+		long sum = 0;
+		for (int i = 0; i < COUNT; i++) {
+			sum += partition.calculate(values[i % values.length]);
+		}
+		if (sum == 42) {
+			System.out.println(sum);
+		}
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	public static void main(String[] args) throws Exception {
+		PartionByDate partition = new PartionByDate();
+		partition.setDateFormat(FORMAT);
+		partition.setsBeginDate("2014-01-01 00:00:00");
+		partition.setsPartionDay("1");
+		partition.init();
+		long beginDate = new SimpleDateFormat(FORMAT).parse(
+				"2014-01-01 00:00:00").getTime();
+		String[] values = values();
+		// warm up
+		oldWay(values, beginDate);
+		newWay(values, partition);
+		System.out.println("SimpleDateFormat per value " + COUNT
+				+ " times take " + oldWay(values, beginDate) + " ms.");
+		System.out.println("PartionByDate " + COUNT + " times take "
+				+ newWay(values, partition) + " ms.");
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.route.perf;
+
+import org.opencloudb.SimpleCachePool;
+import org.opencloudb.cache.LayerCachePool;
+import org.opencloudb.config.loader.xml.XMLSchemaLoader;
+import org.opencloudb.config.model.SchemaConfig;
+import org.opencloudb.config.model.SystemConfig;
+import org.opencloudb.route.ServerRouterUtil;
+import org.opencloudb.server.parser.ServerParse;
+
+/**
+ * route time of point sql by char scanner ,compared with the same sql routed
+ * by full parser ('(' in where clause makes the scanner give up)
+ * 
+ * @author mycat
+ */
+public class PointSQLRoutePerfMain {
+	private static final int COUNT = 50000;
+
+	private static long route(SchemaConfig schema, String sqlFormat,
+			int sqlType, LayerCachePool cachePool) throws Exception {
+		SystemConfig sysConfig = new SystemConfig();
+		long start = System.nanoTime();
+		for (int i = 0; i < COUNT; i++) {
+			ServerRouterUtil.route(sysConfig, schema, sqlType,
+					String.format(sqlFormat, i), null, null, cachePool);
+		}
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	public static void main(String[] args) throws Exception {
+		SchemaConfig schema = new XMLSchemaLoader("/route/schema.xml",
+				"/route/rule.xml").getSchemas().get("cndb");
+		LayerCachePool cachePool = new SimpleCachePool();
+		String[][] sqls = {
+				{ "select * from offer_detail where offer_id = %d",
+						"select * from offer_detail where (offer_id = %d)" },
+				{ "update offer_detail set gmt = 1 where offer_id = %d",
+						"update offer_detail set gmt = 1 where (offer_id = %d)" },
+				{ "insert into offer (member_id, gmt_create) values ('m%d', now())",
+						null } };
+		int[] types = { ServerParse.SELECT, ServerParse.UPDATE,
+				ServerParse.INSERT };
+		// warm up
+		for (int i = 0; i < sqls.length; i++) {
+			route(schema, sqls[i][0], types[i], cachePool);
+			if (sqls[i][1] != null) {
+				route(schema, sqls[i][1], types[i], cachePool);
+			}
+		}
+		for (int i = 0; i < sqls.length; i++) {
+			System.out.println(sqls[i][0]);
+			System.out.println("  point route " + COUNT + " times take "
+					+ route(schema, sqls[i][0], types[i], cachePool) + " ms.");
+			if (sqls[i][1] != null) {
+				System.out.println("  full parser " + COUNT + " times take "
+						+ route(schema, sqls[i][1], types[i], cachePool)
+						+ " ms.");
+			}
+		}
+		// threads of MycatServer started by sql interceptor
+		System.exit(0);
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.sequence.handler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SequnceValTest {
+
+	@Test
+	public void testTakeAll() {
+		SequnceVal seqVal = new SequnceVal("TEST", "dn1");
+		// not fetched yet
+		Assert.assertFalse(seqVal.takeAll(new long[1]));
+
+		// ids 1-10
+		seqVal.setSegment(1, 11);
+		long[] ids = new long[4];
+		Assert.assertTrue(seqVal.takeAll(ids));
+		Assert.assertEquals(1, ids[0]);
+		Assert.assertEquals(4, ids[3]);
+		// not enough ,nothing taken
+		Assert.assertFalse(seqVal.takeAll(new long[7]));
+		Assert.assertEquals(6, seqVal.remaining());
+		ids = new long[6];
+		Assert.assertTrue(seqVal.takeAll(ids));
+		Assert.assertEquals(5, ids[0]);
+		Assert.assertEquals(10, ids[5]);
+		Assert.assertFalse(seqVal.takeAll(new long[1]));
+	}
+}
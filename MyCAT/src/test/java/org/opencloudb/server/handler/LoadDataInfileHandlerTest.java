@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2013, OpenCloudDB/MyCAT and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software;Designed and Developed mainly by many Chinese 
+ * opensource volunteers. you can redistribute it and/or modify it under the 
+ * terms of the GNU General Public License version 2 only, as published by the
+ * Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Any questions about this component can be directed to it's project Web address 
+ * https://code.google.com/p/opencloudb/.
+ *
+ */
+package org.opencloudb.server.handler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.opencloudb.MycatServer;
+import org.opencloudb.backend.ConnectionMeta;
+import org.opencloudb.backend.PhysicalDBNode;
+import org.opencloudb.buffer.BufferQueue;
+import org.opencloudb.config.model.SystemConfig;
+import org.opencloudb.mysql.nio.handler.ResponseHandler;
+import org.opencloudb.route.RouteResultsetNode;
+import org.opencloudb.server.ServerConnection;
+
+/**
+ * read flow control of load data ,backends are data nodes whose inserts are
+ * finished by the test
+ */
+public class LoadDataInfileHandlerTest {
+	private static final String[] DATA_NODES = { "dnTest2", "dnTest3" };
+	private final Map<String, PhysicalDBNode> oldNodes = new HashMap<String, PhysicalDBNode>();
+	private final List<ResponseHandler> pendings = new ArrayList<ResponseHandler>();
+	private SystemConfig system;
+	private int oldMaxRows;
+	private int oldBufferSize;
+	private AsynchronousServerSocketChannel server;
+	private AsynchronousSocketChannel client;
+	private AsynchronousSocketChannel accepted;
+	private TestConnection source;
+	private Thread backend;
+
+	@Before
+	public void setUp() throws Exception {
+		MycatServer mycat = MycatServer.getInstance();
+		system = mycat.getConfig().getSystem();
+		oldMaxRows = system.getMaxInsertRows();
+		oldBufferSize = system.getLoadDataBufferSize();
+		system.setMaxInsertRows(2);
+		system.setLoadDataBufferSize(256);
+		Map<String, PhysicalDBNode> nodes = mycat.getConfig().getDataNodes();
+		for (String name : DATA_NODES) {
+			oldNodes.put(name, nodes.put(name, new PendingNode(name)));
+		}
+
+		server = AsynchronousServerSocketChannel.open().bind(
+				new InetSocketAddress("127.0.0.1", 0));
+		client = AsynchronousSocketChannel.open();
+		client.connect(server.getLocalAddress()).get();
+		accepted = server.accept().get();
+		source = new TestConnection(accepted);
+		source.setProcessor(mycat.getProcessors()[0]);
+		source.setWriteQueue(new BufferQueue(16));
+		source.setCharset("utf8");
+		source.setSchema("dbtest");
+		source.setMaxPacketSize(1024);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		system.setMaxInsertRows(oldMaxRows);
+		system.setLoadDataBufferSize(oldBufferSize);
+		MycatServer.getInstance().getConfig().getDataNodes().putAll(oldNodes);
+		client.close();
+		accepted.close();
+		server.close();
+	}
+
+	@Test
+	public void testSuspendAndResume() {
+		LoadDataInfileHandler handler = start();
+		handler.handle(filePacket(100));
+		Assert.assertTrue(source.isReadSuspended());
+		Assert.assertEquals("suspended", handler.getStatus());
+
+		failPendings();
+		Assert.assertFalse(source.isReadSuspended());
+		handler.handle(filePacket(0));
+		Assert.assertTrue(handler.getStatus().startsWith("failed:"));
+		Assert.assertNull(source.getLoadDataHandler());
+	}
+
+	@Test
+	public void testInsertFinishedWhileSuspending() throws Exception {
+		LoadDataInfileHandler handler = start();
+		// an insert finishes in a backend thread when reading is suspending
+		source.onSuspend = new Runnable() {
+			@Override
+			public void run() {
+				backend = new Thread() {
+					@Override
+					public void run() {
+						failPendings();
+					}
+				};
+				backend.start();
+				try {
+					backend.join(200);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		handler.handle(filePacket(100));
+		backend.join();
+		Assert.assertFalse(source.isReadSuspended());
+		Assert.assertTrue(handler.getStatus().startsWith("failing:"));
+	}
+
+	@Test
+	public void testLineTooLong() {
+		LoadDataInfileHandler handler = start();
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			line.append("name").append(i);
+		}
+		handler.handle(filePacket(line.toString()));
+		Assert.assertTrue(handler.getStatus().startsWith("failing:line 1 "));
+		Assert.assertFalse(source.isReadSuspended());
+		// the rest of file is dropped
+		handler.handle(filePacket(line.toString()));
+		failPendings();
+		handler.handle(filePacket(""));
+		Assert.assertTrue(handler.getStatus().startsWith("failed:line 1 "));
+		Assert.assertNull(source.getLoadDataHandler());
+	}
+
+	private LoadDataInfileHandler start() {
+		LoadDataInfileHandler.handle(
+				"LOAD DATA LOCAL INFILE 'a.txt' INTO TABLE tb2 (id,name)",
+				source);
+		LoadDataInfileHandler handler = source.getLoadDataHandler();
+		Assert.assertNotNull(handler);
+		return handler;
+	}
+
+	/**
+	 * packet of file content ,rows of "id\tname"
+	 */
+	private static byte[] filePacket(int rows) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < rows; i++) {
+			sb.append(i).append('\t').append("name").append(i).append('\n');
+		}
+		return filePacket(sb.toString());
+	}
+
+	private static byte[] filePacket(String text) {
+		byte[] content = text.getBytes();
+		byte[] data = new byte[content.length + 4];
+		data[0] = (byte) (content.length & 0xff);
+		data[1] = (byte) (content.length >>> 8);
+		data[2] = (byte) (content.length >>> 16);
+		data[3] = 2;
+		System.arraycopy(content, 0, data, 4, content.length);
+		return data;
+	}
+
+	private void failPendings() {
+		List<ResponseHandler> handlers;
+		synchronized (pendings) {
+			handlers = new ArrayList<ResponseHandler>(pendings);
+			pendings.clear();
+		}
+		for (ResponseHandler handler : handlers) {
+			handler.connectionError(new IOException("backend down"), null);
+		}
+	}
+
+	private class PendingNode extends PhysicalDBNode {
+		PendingNode(String name) {
+			super(name, "db", null);
+		}
+
+		@Override
+		public void getConnection(ConnectionMeta conMeta,
+				RouteResultsetNode rrs, ResponseHandler handler,
+				Object attachment) throws Exception {
+			synchronized (pendings) {
+				pendings.add(handler);
+			}
+		}
+	}
+
+	private static class TestConnection extends ServerConnection {
+		volatile Runnable onSuspend;
+
+		TestConnection(AsynchronousSocketChannel channel) throws IOException {
+			super(channel);
+		}
+
+		@Override
+		public void suspendRead() {
+			Runnable r = onSuspend;
+			onSuspend = null;
+			if (r != null) {
+				r.run();
+			}
+			super.suspendRead();
+		}
+	}
+}